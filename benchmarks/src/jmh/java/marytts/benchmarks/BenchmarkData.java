@@ -0,0 +1,209 @@
+/**
+ * Copyright 2009 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ * <p/>
+ * This file is part of MARY TTS.
+ * <p/>
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ * <p/>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * <p/>
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package marytts.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import com.marytts.android.link.MaryLink;
+import marytts.LocalMaryInterface;
+import marytts.htsengine.HMMData;
+import marytts.htsengine.HTSParameterGeneration;
+import marytts.htsengine.HTSUttModel;
+import marytts.modules.HTSEngine;
+import marytts.unitselection.select.Target;
+
+/**
+ * The fixed inputs shared by the benchmarks, so that results are comparable across commits:
+ * the sentences in corpus-en_US.txt, the words in them, and the context features of
+ * an utterance shipped with the CmuSltHsmm voice.
+ * <p/>
+ * The assets are read from the directory given by the system property <code>marytts.assets</code>,
+ * which the build sets to marylib/src/main/assets.
+ */
+public final class BenchmarkData {
+    public static final String VOICE = "cmu-slt-hsmm";
+    public static final String FEATURES_FILE = "marytts/voice/CmuSltHsmm/cmu_us_arctic_slt_b0487.pfeats";
+    public static final String LEXICON_FILE = "marytts/language/en_US/lexicon/cmudict.fst";
+
+    private static File assetsDir;
+    private static List<String> sentences;
+    private static HMMData hmmData;
+    private static LocalMaryInterface mary;
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * The assets directory; the first call also loads the configuration through {@link MaryLink}.
+     */
+    public static synchronized File getAssetsDir() {
+        if (assetsDir == null) {
+            File dir = new File(System.getProperty("marytts.assets", "../marylib/src/main/assets"));
+            if (!dir.isDirectory()) {
+                throw new IllegalStateException("Assets directory not found: " + dir.getAbsolutePath()
+                        + " -- set the system property marytts.assets");
+            }
+            MaryLink.load(dir);
+            assetsDir = dir;
+        }
+        return assetsDir;
+    }
+
+    public static InputStream openAsset(String name) throws IOException {
+        return MaryLink.getContext().getAssets().open(name);
+    }
+
+    /**
+     * The benchmark corpus, one sentence per list entry.
+     */
+    public static synchronized List<String> getSentences() throws IOException {
+        if (sentences == null) {
+            List<String> list = new ArrayList<String>();
+            BufferedReader reader = new BufferedReader(new InputStreamReader(
+                    BenchmarkData.class.getResourceAsStream("corpus-en_US.txt"), "UTF-8"));
+            try {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.trim().length() > 0) {
+                        list.add(line.trim());
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+            sentences = Collections.unmodifiableList(list);
+        }
+        return sentences;
+    }
+
+    /**
+     * The whole corpus as a single text.
+     */
+    public static String getText() throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (String sentence : getSentences()) {
+            if (text.length() > 0) {
+                text.append(' ');
+            }
+            text.append(sentence);
+        }
+        return text.toString();
+    }
+
+    /**
+     * The distinct alphabetic words of the corpus, in lower case and in order of first occurrence.
+     */
+    public static List<String> getWords() throws IOException {
+        Set<String> words = new LinkedHashSet<String>();
+        for (String sentence : getSentences()) {
+            for (String token : sentence.split("[^A-Za-z']+")) {
+                if (token.length() > 0) {
+                    words.add(token.toLowerCase(Locale.ENGLISH));
+                }
+            }
+        }
+        return new ArrayList<String>(words);
+    }
+
+    /**
+     * The models of the CmuSltHsmm voice, loaded without starting MARY.
+     * This is a separate instance from the one used by the voice in {@link #getMary()}.
+     */
+    public static synchronized HMMData getHMMData() throws Exception {
+        if (hmmData == null) {
+            getAssetsDir();
+            HMMData data = new HMMData();
+            data.initHMMData(VOICE);
+            // the features file has no acoustic parameters, so generate F0 from the models
+            data.setUseAcousticModels(false);
+            hmmData = data;
+        }
+        return hmmData;
+    }
+
+    /**
+     * The HMM models for the utterance in {@link #FEATURES_FILE}.
+     */
+    public static HTSUttModel getUttModel() throws Exception {
+        HMMData data = getHMMData();
+        return new HTSEngine().processUttFromFile(new File(getAssetsDir(), FEATURES_FILE).getPath(), data);
+    }
+
+    /**
+     * The HMM models for a long utterance, made of the utterance in {@link #FEATURES_FILE} repeated the given number of times.
+     */
+    public static HTSUttModel getUttModel(int repeat) throws Exception {
+        HMMData data = getHMMData();
+        List<Target> targets = HTSEngine.getTargetsFromFile(new File(getAssetsDir(), FEATURES_FILE).getPath(), data);
+        List<Target> repeated = new ArrayList<Target>(targets.size() * repeat);
+        for (int i = 0; i < repeat; i++)
+            repeated.addAll(targets);
+        return new UttModelBuilder().build(repeated, data);
+    }
+
+    /**
+     * Parameters generated for the utterance in {@link #FEATURES_FILE}, as the HTSEngine would generate them.
+     */
+    public static HTSParameterGeneration generateParameters() throws Exception {
+        return generateParameters(getUttModel());
+    }
+
+    /**
+     * Parameters generated for the given utterance, as the HTSEngine would generate them.
+     */
+    public static HTSParameterGeneration generateParameters(HTSUttModel um) throws Exception {
+        HTSParameterGeneration pdf2par = new HTSParameterGeneration();
+        pdf2par.htsMaximumLikelihoodParameterGeneration(um, getHMMData());
+        return pdf2par;
+    }
+
+    /**
+     * A running MARY with the CmuSltHsmm voice; started on the first call.
+     */
+    public static synchronized LocalMaryInterface getMary() throws Exception {
+        if (mary == null) {
+            getAssetsDir();
+            LocalMaryInterface m = new LocalMaryInterface();
+            m.setLocale(Locale.US);
+            m.setVoice(VOICE);
+            mary = m;
+        }
+        return mary;
+    }
+
+    /**
+     * Gives access to the model lookup of the HTSEngine for a list of targets.
+     */
+    private static class UttModelBuilder extends HTSEngine {
+        HTSUttModel build(List<Target> targets, HMMData data) throws Exception {
+            return processTargetList(targets, null, data);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/**
+ * Copyright 2009 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ * <p/>
+ * This file is part of MARY TTS.
+ * <p/>
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ * <p/>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * <p/>
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package marytts.benchmarks;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import marytts.cart.CART;
+import marytts.cart.FlatCART;
+import marytts.cart.io.HTSCARTReader;
+import marytts.htsengine.HMMData;
+import marytts.htsengine.HMMData.PdfFileFormat;
+import marytts.modules.HTSEngine;
+import marytts.unitselection.select.Target;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * {@link CART#interpret(Target, int)} with the spectrum trees of the CmuSltHsmm voice: every state tree
+ * is searched for every phone of the utterance in {@link BenchmarkData#FEATURES_FILE}, as in the
+ * parameter generation. The same search with the {@link FlatCART} copies of the trees is measured for comparison.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CARTBenchmark {
+
+    private CART[] trees;
+    private FlatCART[] flatTrees;
+    private Target[] targets;
+
+    @Setup
+    public void setup() throws Exception {
+        HMMData htsData = BenchmarkData.getHMMData();
+        InputStream treeStream = BenchmarkData.openAsset("marytts/voice/CmuSltHsmm/tree-mgc.bin");
+        InputStream pdfStream = BenchmarkData.openAsset("marytts/voice/CmuSltHsmm/mgc.pdf");
+        try {
+            trees = new HTSCARTReader().loadBinary(htsData.getCartTreeSet().getNumStates(), treeStream, pdfStream,
+                    PdfFileFormat.mgc, htsData.getFeatureDefinition());
+        } finally {
+            treeStream.close();
+            pdfStream.close();
+        }
+        flatTrees = FlatCART.flatten(trees);
+        List<Target> list = HTSEngine.getTargetsFromFile(
+                new File(BenchmarkData.getAssetsDir(), BenchmarkData.FEATURES_FILE).getPath(), htsData);
+        targets = list.toArray(new Target[list.size()]);
+    }
+
+    @Benchmark
+    public void interpret(Blackhole blackhole) {
+        for (Target target : targets) {
+            for (CART tree : trees) {
+                blackhole.consume(tree.interpret(target, 0));
+            }
+        }
+    }
+
+    @Benchmark
+    public void interpretFlat(Blackhole blackhole) {
+        for (Target target : targets) {
+            for (FlatCART tree : flatTrees) {
+                blackhole.consume(tree.interpret(target, 0));
+            }
+        }
+    }
+}
@@ -0,0 +1,84 @@
+/**
+ * Copyright 2009 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ * <p/>
+ * This file is part of MARY TTS.
+ * <p/>
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ * <p/>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * <p/>
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package marytts.benchmarks;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import marytts.util.math.FFT;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link FFT#transform(double[], double[], boolean)} and {@link FFT#realTransform(double[], boolean)}
+ * on a fixed pseudo-random signal. The transforms work in place, so each operation includes
+ * copying the input into the work arrays.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FFTBenchmark {
+
+    @Param({"256", "1024", "4096"})
+    public int size;
+
+    private double[] signal;
+    private double[] real;
+    private double[] imag;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        signal = new double[size];
+        for (int i = 0; i < size; i++) {
+            signal[i] = random.nextGaussian();
+        }
+        real = new double[size];
+        imag = new double[size];
+    }
+
+    @Benchmark
+    public double[] transform() {
+        System.arraycopy(signal, 0, real, 0, size);
+        Arrays.fill(imag, 0);
+        FFT.transform(real, imag, false);
+        return real;
+    }
+
+    @Benchmark
+    public double[] realTransform() {
+        System.arraycopy(signal, 0, real, 0, size);
+        FFT.realTransform(real, false);
+        return real;
+    }
+}
@@ -0,0 +1,73 @@
+/**
+ * Copyright 2009 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ * <p/>
+ * This file is part of MARY TTS.
+ * <p/>
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ * <p/>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * <p/>
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package marytts.benchmarks;
+
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import marytts.fst.FSTLookup;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * {@link FSTLookup#lookup(String)} in the en_US lexicon of every word of the benchmark corpus.
+ * The score is the time for looking up all words.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FSTLookupBenchmark {
+
+    private FSTLookup lexicon;
+    private String[] words;
+
+    @Setup
+    public void setup() throws Exception {
+        BenchmarkData.getAssetsDir();
+        InputStream stream = BenchmarkData.openAsset(BenchmarkData.LEXICON_FILE);
+        try {
+            lexicon = new FSTLookup(stream, BenchmarkData.LEXICON_FILE);
+        } finally {
+            stream.close();
+        }
+        List<String> list = BenchmarkData.getWords();
+        words = list.toArray(new String[list.size()]);
+    }
+
+    @Benchmark
+    public void lookup(Blackhole blackhole) {
+        for (String word : words) {
+            blackhole.consume(lexicon.lookup(word));
+        }
+    }
+}
@@ -0,0 +1,62 @@
+/**
+ * Copyright 2009 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ * <p/>
+ * This file is part of MARY TTS.
+ * <p/>
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ * <p/>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * <p/>
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package marytts.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import de.dfki.lt.tools.tokenizer.JTok;
+import de.dfki.lt.tools.tokenizer.annotate.AnnotatedString;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link JTok#tokenize(String, String)} of the whole benchmark corpus as one English text.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JTokBenchmark {
+
+    private JTok tokenizer;
+    private String text;
+
+    @Setup
+    public void setup() throws Exception {
+        BenchmarkData.getAssetsDir();
+        tokenizer = new JTok();
+        text = BenchmarkData.getText();
+    }
+
+    @Benchmark
+    public AnnotatedString tokenize() {
+        return tokenizer.tokenize(text, "en");
+    }
+}
@@ -0,0 +1,76 @@
+/**
+ * Copyright 2009 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ * <p/>
+ * This file is part of MARY TTS.
+ * <p/>
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ * <p/>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * <p/>
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package marytts.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import marytts.htsengine.HMMData;
+import marytts.htsengine.HTSPStream;
+import marytts.htsengine.HTSParameterGeneration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link HTSPStream#mlpg(HMMData, boolean)} for the spectrum and log F0 streams of the utterance in
+ * {@link BenchmarkData#FEATURES_FILE}, with and without the global variance optimisation.
+ * With repeat &gt; 1, the utterance is repeated to make a long one (20 repetitions are about 1.5 minutes of speech).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MLPGBenchmark {
+
+    @Param({"false", "true"})
+    public boolean useGV;
+
+    @Param({"1", "20"})
+    public int repeat;
+
+    private HMMData htsData;
+    private HTSPStream mcepPst;
+    private HTSPStream lf0Pst;
+
+    @Setup
+    public void setup() throws Exception {
+        htsData = BenchmarkData.getHMMData();
+        HTSParameterGeneration pdf2par = BenchmarkData.generateParameters(BenchmarkData.getUttModel(repeat));
+        mcepPst = pdf2par.getMcepPst();
+        lf0Pst = pdf2par.getlf0Pst();
+    }
+
+    @Benchmark
+    public HTSPStream mlpg() {
+        mcepPst.mlpg(htsData, useGV);
+        lf0Pst.mlpg(htsData, useGV);
+        return mcepPst;
+    }
+}
@@ -0,0 +1,77 @@
+/**
+ * Copyright 2009 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ * <p/>
+ * This file is part of MARY TTS.
+ * <p/>
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ * <p/>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * <p/>
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package marytts.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import lib.sound.sampled.AudioInputStream;
+import marytts.LocalMaryInterface;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * End-to-end synthesis with {@link LocalMaryInterface#generateAudio(String)} and the CmuSltHsmm voice:
+ * every sentence of the benchmark corpus is synthesised and its audio read to the end.
+ * The score is the time for the whole corpus.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SynthesisBenchmark {
+
+    private LocalMaryInterface mary;
+    private List<String> sentences;
+    private final byte[] buffer = new byte[8192];
+
+    @Setup
+    public void setup() throws Exception {
+        mary = BenchmarkData.getMary();
+        sentences = BenchmarkData.getSentences();
+    }
+
+    @Benchmark
+    public long generateAudio() throws Exception {
+        long bytes = 0;
+        for (String sentence : sentences) {
+            AudioInputStream audio = mary.generateAudio(sentence);
+            try {
+                int read;
+                while ((read = audio.read(buffer)) > 0) {
+                    bytes += read;
+                }
+            } finally {
+                audio.close();
+            }
+        }
+        return bytes;
+    }
+}
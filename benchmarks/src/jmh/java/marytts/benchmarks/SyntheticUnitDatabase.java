@@ -0,0 +1,133 @@
+/**
+ * Copyright 2009 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ * <p/>
+ * This file is part of MARY TTS.
+ * <p/>
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ * <p/>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * <p/>
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package marytts.benchmarks;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import marytts.features.FeatureDefinition;
+import marytts.features.FeatureProcessorManager;
+import marytts.features.FeatureVector;
+import marytts.unitselection.data.FeatureFileReader;
+import marytts.unitselection.data.Unit;
+import marytts.unitselection.data.UnitDatabase;
+import marytts.unitselection.select.JoinCostFunction;
+import marytts.unitselection.select.Target;
+import marytts.unitselection.select.TargetCostFunction;
+import marytts.unitselection.select.viterbi.ViterbiCandidate;
+
+/**
+ * A unit database for benchmarking the unit selection search without voice data.
+ * Target and join costs are pseudo-random but deterministic; as in a real database,
+ * joining units that are adjacent in the database costs nothing. The candidates for
+ * a target are runs of adjacent units, the same for the same target name every time.
+ */
+class SyntheticUnitDatabase extends UnitDatabase {
+    private final Unit[] units;
+    private final int numCandidates;
+
+    SyntheticUnitDatabase(int numUnits, int numCandidates) {
+        this.numCandidates = numCandidates;
+        units = new Unit[numUnits];
+        for (int i = 0; i < numUnits; i++) {
+            units[i] = new Unit(i * 1000L, 1000, i);
+        }
+        this.numUnits = numUnits;
+        this.targetCostFunction = new SyntheticTargetCost();
+        this.joinCostFunction = new SyntheticJoinCost();
+    }
+
+    @Override
+    public List<ViterbiCandidate> getCandidates(Target target) {
+        Random random = new Random(target.getName().hashCode());
+        List<ViterbiCandidate> candidates = new ArrayList<ViterbiCandidate>(numCandidates);
+        while (candidates.size() < numCandidates) {
+            int first = random.nextInt(units.length - 5);
+            for (int i = 0; i < 5 && candidates.size() < numCandidates; i++) {
+                candidates.add(new ViterbiCandidate(target, units[first + i], targetCostFunction));
+            }
+        }
+        return candidates;
+    }
+
+    private static double pseudoRandom(long a, long b) {
+        long h = a * 0x9E3779B97F4A7C15L + b * 0xC2B2AE3D27D4EB4FL;
+        h ^= h >>> 29;
+        h *= 0xBF58476D1CE4E5B9L;
+        h ^= h >>> 32;
+        // quantized, so that there are some ties
+        return (h >>> 40) % 1000 / 1000.0;
+    }
+
+    /**
+     * Target cost depending only on the target name and the unit index; there is nothing to load.
+     */
+    private static final class SyntheticTargetCost implements TargetCostFunction {
+        public double cost(Target target, Unit unit) {
+            return pseudoRandom(target.getName().hashCode(), unit.index);
+        }
+
+        public void load(String featureFileName, InputStream weightsStream, FeatureProcessorManager featProc) {
+        }
+
+        public void load(FeatureFileReader featureFileReader, InputStream weightsStream, FeatureProcessorManager featProc) {
+        }
+
+        public void computeTargetFeatures(Target target) {
+        }
+
+        public FeatureDefinition getFeatureDefinition() {
+            return null;
+        }
+
+        public String getFeature(Unit unit, String featureName) {
+            return null;
+        }
+
+        public FeatureVector getFeatureVector(Unit unit) {
+            return null;
+        }
+
+        public FeatureVector[] getFeatureVectors() {
+            return null;
+        }
+    }
+
+    /**
+     * Join cost depending only on the unit indices; there is nothing to load.
+     */
+    private static final class SyntheticJoinCost implements JoinCostFunction {
+        public double cost(Target t1, Unit u1, Target t2, Unit u2) {
+            if (u2.index == u1.index + 1) {
+                return 0;
+            }
+            return pseudoRandom(u1.index, u2.index);
+        }
+
+        public void init(String configPrefix) {
+        }
+
+        @Deprecated
+        public void load(String joinFileName, InputStream weightStream, String precompiledCostFileName, float wSignal) {
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/**
+ * Copyright 2009 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ * <p/>
+ * This file is part of MARY TTS.
+ * <p/>
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ * <p/>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * <p/>
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package marytts.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import marytts.LocalMaryInterface;
+import marytts.datatypes.MaryXML;
+import marytts.features.FeatureRegistry;
+import marytts.features.SentenceStructure;
+import marytts.features.TargetFeatureComputer;
+import marytts.htsengine.HMMVoice;
+import marytts.modules.TargetFeatureLister;
+import marytts.modules.synthesis.Voice;
+import marytts.unitselection.select.Target;
+import marytts.util.dom.MaryDomUtils;
+import mf.org.w3c.dom.Document;
+import mf.org.w3c.dom.Element;
+import mf.org.w3c.dom.traversal.TreeWalker;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * {@link TargetFeatureComputer#computeFeatureVector(Target)} with the features of the CmuSltHsmm voice,
+ * for every phone and pause of the benchmark corpus. The ALLOPHONES document is produced by MARY once,
+ * in the setup.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TargetFeatureBenchmark {
+
+    private TargetFeatureComputer featureComputer;
+    private Target[] targets;
+
+    @Setup
+    public void setup() throws Exception {
+        LocalMaryInterface mary = BenchmarkData.getMary();
+        HMMVoice voice = (HMMVoice) Voice.getVoice(BenchmarkData.VOICE);
+        String features = voice.getHMMData().getFeatureDefinition().getFeatureNames();
+        featureComputer = FeatureRegistry.getTargetFeatureComputer(voice, features);
+
+        mary.setOutputType("ALLOPHONES");
+        Document doc;
+        try {
+            doc = mary.generateXML(BenchmarkData.getText());
+        } finally {
+            mary.setOutputType("AUDIO");
+        }
+        TreeWalker tw = MaryDomUtils.createTreeWalker(doc, doc, MaryXML.PHONE, MaryXML.BOUNDARY);
+        List<Element> segmentsAndBoundaries = new ArrayList<Element>();
+        Element e;
+        while ((e = (Element) tw.nextNode()) != null) {
+            segmentsAndBoundaries.add(e);
+        }
+        List<Target> list = TargetFeatureLister.createTargetsWithPauses(segmentsAndBoundaries,
+                featureComputer.getPauseSymbol());
+        SentenceStructure.attach(list);
+        targets = list.toArray(new Target[list.size()]);
+    }
+
+    @Benchmark
+    public void computeFeatureVector(Blackhole blackhole) {
+        for (Target target : targets) {
+            blackhole.consume(featureComputer.computeFeatureVector(target));
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/**
+ * Copyright 2009 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ * <p/>
+ * This file is part of MARY TTS.
+ * <p/>
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ * <p/>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * <p/>
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package marytts.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import marytts.unitselection.data.UnitDatabase;
+import marytts.unitselection.select.SelectedUnit;
+import marytts.unitselection.select.Target;
+import marytts.unitselection.select.viterbi.LatticeViterbi;
+import marytts.unitselection.select.viterbi.Viterbi;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The unit selection search of {@link Viterbi} and {@link LatticeViterbi} on a {@link SyntheticUnitDatabase}
+ * of 200000 units, for 100 targets. The setup checks that both searches select the same units.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ViterbiBenchmark {
+
+    @Param({"500"})
+    public int numCandidates;
+
+    @Param({"100"})
+    public int beamSize;
+
+    private UnitDatabase database;
+    private List<Target> targets;
+
+    @Setup
+    public void setup() throws Exception {
+        database = new SyntheticUnitDatabase(200000, numCandidates);
+        targets = new ArrayList<Target>(100);
+        for (int i = 0; i < 100; i++) {
+            targets.add(new Target("t" + i, null));
+        }
+        List<SelectedUnit> expected = viterbi();
+        List<SelectedUnit> actual = latticeViterbi();
+        if (expected.size() != actual.size()) {
+            throw new IllegalStateException("Different number of units selected: "
+                    + expected.size() + " vs. " + actual.size());
+        }
+        for (int i = 0; i < expected.size(); i++) {
+            if (expected.get(i).getUnit().index != actual.get(i).getUnit().index) {
+                throw new IllegalStateException("Different unit selected for target " + i + ": "
+                        + expected.get(i).getUnit() + " vs. " + actual.get(i).getUnit());
+            }
+        }
+    }
+
+    @Benchmark
+    public List<SelectedUnit> viterbi() throws Exception {
+        Viterbi viterbi = new Viterbi(targets, database, 0.33f, beamSize);
+        viterbi.apply();
+        return viterbi.getSelectedUnits();
+    }
+
+    @Benchmark
+    public List<SelectedUnit> latticeViterbi() throws Exception {
+        LatticeViterbi viterbi = new LatticeViterbi(targets, database, 0.33f, beamSize);
+        viterbi.apply();
+        return viterbi.getSelectedUnits();
+    }
+}
@@ -0,0 +1,82 @@
+/**
+ * Copyright 2009 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ * <p/>
+ * This file is part of MARY TTS.
+ * <p/>
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ * <p/>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * <p/>
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package marytts.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import marytts.htsengine.HMMData;
+import marytts.htsengine.HTSParameterGeneration;
+import marytts.htsengine.HTSVocoder;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The MLSA filtering of {@link HTSVocoder}, generating the whole signal at once, on the parameters
+ * generated for the utterance in {@link BenchmarkData#FEATURES_FILE}.
+ * <p/>
+ * The primary score is utterances per second; the secondary result <code>audioSeconds</code> gives the seconds of audio
+ * generated per second of benchmark time, i.e. the inverse of the real-time factor.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class VocoderBenchmark {
+
+    @AuxCounters
+    @State(Scope.Thread)
+    public static class Audio {
+        public double audioSeconds;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            audioSeconds = 0;
+        }
+    }
+
+    private HMMData htsData;
+    private HTSParameterGeneration pdf2par;
+
+    @Setup
+    public void setup() throws Exception {
+        htsData = BenchmarkData.getHMMData();
+        pdf2par = BenchmarkData.generateParameters();
+    }
+
+    @Benchmark
+    public double[] vocode(Audio audio) throws Exception {
+        double[] samples = new HTSVocoder().htsMLSAVocoder(pdf2par.getlf0Pst(), pdf2par.getMcepPst(),
+                pdf2par.getStrPst(), pdf2par.getMagPst(), pdf2par.getVoicedArray(), htsData, null);
+        audio.audioSeconds += (double) samples.length / htsData.getRate();
+        return samples;
+    }
+}
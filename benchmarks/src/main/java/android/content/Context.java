@@ -0,0 +1,46 @@
+/**
+ * Copyright 2009 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ * <p/>
+ * This file is part of MARY TTS.
+ * <p/>
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ * <p/>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * <p/>
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package android.content;
+
+import java.io.File;
+
+import android.content.res.AssetManager;
+import android.content.res.Resources;
+
+/**
+ * JVM stand-in for the Android context: only asset access is supported.
+ */
+public class Context {
+    private final AssetManager assets;
+    private final Resources resources;
+
+    public Context(File assetsDir) {
+        assets = new AssetManager(assetsDir);
+        resources = new Resources(assets);
+    }
+
+    public AssetManager getAssets() {
+        return assets;
+    }
+
+    public Resources getResources() {
+        return resources;
+    }
+}
@@ -0,0 +1,65 @@
+/**
+ * Copyright 2009 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ * <p/>
+ * This file is part of MARY TTS.
+ * <p/>
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ * <p/>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * <p/>
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package android.content.res;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * JVM stand-in for the Android asset manager: serves the assets from a directory,
+ * normally marylib/src/main/assets.
+ */
+public final class AssetManager {
+    private final File assetsDir;
+
+    public AssetManager(File assetsDir) {
+        this.assetsDir = assetsDir;
+    }
+
+    /**
+     * Open an asset. As on Android, asset names are relative to the assets directory;
+     * a name with a leading slash is not found.
+     */
+    public InputStream open(String fileName) throws IOException {
+        if (fileName.startsWith("/")) {
+            throw new FileNotFoundException(fileName);
+        }
+        return new FileInputStream(new File(assetsDir, fileName));
+    }
+
+    /**
+     * List the assets in a directory, in alphabetical order, or an empty array if there is no such directory.
+     */
+    public String[] list(String path) throws IOException {
+        String[] names = new File(assetsDir, path).list();
+        if (names == null) {
+            return new String[0];
+        }
+        Arrays.sort(names);
+        return names;
+    }
+
+    public void close() {
+    }
+}
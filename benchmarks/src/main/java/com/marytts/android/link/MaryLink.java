@@ -0,0 +1,109 @@
+/**
+ * Copyright 2009 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ * <p/>
+ * This file is part of MARY TTS.
+ * <p/>
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ * <p/>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * <p/>
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.marytts.android.link;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.util.HashMap;
+
+import marytts.server.Mary;
+
+/**
+ * JVM replacement for the Android MaryLink: it loads the same configuration files into
+ * {@link #getProperties()} and gives the library access to the assets, but does not start
+ * MARY in the background or play audio. Use {@link marytts.LocalMaryInterface} directly.
+ */
+public class MaryLink {
+
+    private static MaryLink instance = null;
+
+    protected MaryLink(Context context) {
+        mContext = context;
+        loadConfigs();
+    }
+
+    public static void load(Context context) {
+        if (instance == null) {
+            instance = new MaryLink(context);
+        }
+    }
+
+    /**
+     * Load MARY with the assets in the given directory.
+     */
+    public static void load(File assetsDir) {
+        load(new Context(assetsDir));
+    }
+
+    public static MaryLink getInstance() {
+        return instance;
+    }
+
+    private String configs[] = {
+            "marytts/config/marybase.config",
+            "marytts/language/en/en.config",
+            "marytts/voice/CmuSltHsmm/voice.config"
+    };
+
+    private final static HashMap<String, String> properties = new HashMap<>();
+
+    private static Context mContext;
+
+    public static Context getContext() {
+        return mContext;
+    }
+
+    public static HashMap<String, String> getProperties() {
+        return properties;
+    }
+
+    private void loadConfigs() {
+        try {
+            String line;
+
+            for (String path : configs) {
+                BufferedReader confFile = new BufferedReader(new InputStreamReader(mContext.getAssets().open(path)));
+                String key = "", value = "";
+                while ((line = confFile.readLine()) != null) {
+
+                    if (line.trim().equals("") || line.startsWith("#"))
+                        continue;
+
+                    if (line.contains("=") && line.split("=").length > 1) {
+                        key = line.split("=")[0].trim();
+                        value = line.split("=")[1].trim();
+                        MaryLink.getProperties().put(key, value);
+                    } else {
+                        value = MaryLink.getProperties().get(key);
+                        value += line.trim();
+                        MaryLink.getProperties().put(key, value);
+                    }
+                }
+                confFile.close();
+            }
+        } catch (Throwable e) {
+            Log.e(Mary.LOG, e.toString());
+        }
+    }
+}
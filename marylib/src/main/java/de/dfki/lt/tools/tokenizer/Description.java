@@ -36,6 +36,7 @@ import java.util.regex.Matcher;
 
 import de.dfki.lt.tools.tokenizer.exceptions.InitializationException;
 import de.dfki.lt.tools.tokenizer.exceptions.ProcessingException;
+import de.dfki.lt.tools.tokenizer.regexp.DkBricsClassifier;
 import de.dfki.lt.tools.tokenizer.regexp.DkBricsRegExpFactory;
 import de.dfki.lt.tools.tokenizer.regexp.Match;
 import de.dfki.lt.tools.tokenizer.regexp.RegExp;
@@ -134,6 +135,12 @@ public abstract class Description {
      */
     protected Map<String, Set<String>> classMembersMap;
 
+    /**
+     * Single automaton over all definitions that yields the class of a token in one scan,
+     * {@code null} if the definitions have not been compiled.
+     */
+    protected DkBricsClassifier classifier;
+
     /**
      * Reads the macro configuration from the given path and adds it to the given map.
      *
@@ -300,6 +307,30 @@ public abstract class Description {
         this.definitionsMap = definitionsMap;
     }
 
+    /**
+     * Compiles the definitions map into a single classifier automaton. Classes are tried in the
+     * iteration order of the definitions map, so the classifier returns the same class as matching
+     * the definitions one after another.
+     */
+    protected void compileClassifier() {
+
+        List<String> classes = new ArrayList<>();
+        List<RegExp> regExps = new ArrayList<>();
+        for (Map.Entry<String, RegExp> oneEntry : getDefinitionsMap().entrySet()) {
+            classes.add(oneEntry.getKey());
+            regExps.add(oneEntry.getValue());
+        }
+        this.classifier = DkBricsClassifier.create(classes, regExps);
+    }
+
+    /**
+     * @return the classifier for the definitions or {@code null} if not compiled
+     */
+    protected DkBricsClassifier getClassifier() {
+
+        return this.classifier;
+    }
+
     /**
      * @return the rules map
      */
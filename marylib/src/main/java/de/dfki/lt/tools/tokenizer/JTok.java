@@ -36,6 +36,7 @@ import de.dfki.lt.tools.tokenizer.annotate.AnnotatedString;
 import de.dfki.lt.tools.tokenizer.annotate.FastAnnotatedString;
 import de.dfki.lt.tools.tokenizer.exceptions.InitializationException;
 import de.dfki.lt.tools.tokenizer.exceptions.ProcessingException;
+import de.dfki.lt.tools.tokenizer.regexp.DkBricsClassifier;
 import de.dfki.lt.tools.tokenizer.regexp.Match;
 import de.dfki.lt.tools.tokenizer.regexp.RegExp;
 import marytts.server.Mary;
@@ -559,6 +560,14 @@ public class JTok {
             AnnotatedString input, String key, Object value,
             int beginIndex, int endIndex, String image, LanguageResource langRes) {
 
+        // a compiled classifier yields match and class in a single scan
+        DkBricsClassifier classifier = langRes.getClassesDescr().getClassifier();
+        if (null != classifier) {
+            String tokenClass = classifier.classify(image);
+            input.annotate(key, null != tokenClass ? tokenClass : value, beginIndex, endIndex);
+            return;
+        }
+
         // get matcher needed for token classes recognition
         RegExp allClassesMatcher = langRes.getAllClassesMatcher();
 
@@ -868,6 +877,16 @@ public class JTok {
             }
         }
 
+        // use the compiled classifier if available
+        DkBricsClassifier classifier = descr.getClassifier();
+        if (null != classifier) {
+            String oneClass = classifier.classify(string);
+            if (null != oneClass) {
+                return oneClass;
+            }
+            throw new ProcessingException(String.format("could not find class for %s", string));
+        }
+
         // get hash map with classes
         Map<String, RegExp> definitionsMap = descr.getDefinitionsMap();
         // iterate over classes
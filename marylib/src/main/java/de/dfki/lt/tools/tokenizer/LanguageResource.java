@@ -52,6 +52,10 @@ public class LanguageResource {
     // name suffix of the config file with the macros
     private static final String MACRO_CFG = "_macros.cfg";
 
+    // compile the class definitions of each description into a single automaton;
+    // disable with -Djtok.compiled=false to match the definitions one by one
+    private static final boolean COMPILED = !"false".equals(System.getProperty("jtok.compiled"));
+
 
     // name of the language for which this class contains the resources
     private String language;
@@ -127,6 +131,13 @@ public class LanguageResource {
 
             // load token classes description document
             this.setClassseDescr(new TokenClassesDescription(resourceDir, lang, macrosMap));
+
+            if (COMPILED) {
+                this.getPunctDescr().compileClassifier();
+                this.getClitDescr().compileClassifier();
+                this.getAbbrevDescr().compileClassifier();
+                this.getClassesDescr().compileClassifier();
+            }
         } catch (Throwable ex) {
             System.out.println(ex.getMessage());
         }
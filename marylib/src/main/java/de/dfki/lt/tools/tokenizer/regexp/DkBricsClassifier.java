@@ -0,0 +1,195 @@
+/*
+ * JTok
+ * A configurable tokenizer implemented in Java
+ *
+ * (C) 2003 - 2014  DFKI Language Technology Lab http://www.dfki.de/lt
+ *   Author: Joerg Steffen, steffen@dfki.de
+ *
+ *   This program is free software; you can redistribute it and/or
+ *   modify it under the terms of the GNU Lesser General Public
+ *   License as published by the Free Software Foundation; either
+ *   version 2.1 of the License, or (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *   Lesser General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Lesser General Public
+ *   License along with this library; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package de.dfki.lt.tools.tokenizer.regexp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import dk.brics.automaton.RunAutomaton;
+
+/**
+ * Deterministic automaton over the union of several labelled {@link DkBricsRegExp}s. Each accepting
+ * state carries the label of the first regular expression (in the given order) that accepts the
+ * input leading to it, so a single scan over a string yields the same label as trying the regular
+ * expressions one after another with {@link RegExp#matches(String)}.
+ */
+public class DkBricsClassifier {
+
+    /**
+     * upper bound for the number of product states; larger unions are not compiled
+     */
+    public static final int MAX_STATES = 20000;
+
+    // sorted interval start points of the alphabet partition
+    private char[] points;
+
+    // transition table, indexed by state * points.length + interval; -1 for the dead state
+    private int[] transitions;
+
+    // label of each state, {@code null} for non-accepting states
+    private String[] labels;
+
+
+    private DkBricsClassifier(char[] points, int[] transitions, String[] labels) {
+
+        this.points = points;
+        this.transitions = transitions;
+        this.labels = labels;
+    }
+
+
+    /**
+     * Builds the product automaton of the given labelled regular expressions.
+     *
+     * @param labels  the labels, in order of precedence
+     * @param regExps the regular expressions, parallel to the labels
+     * @return the classifier or {@code null} if any regular expression is not a
+     * {@link DkBricsRegExp} or the product exceeds {@link #MAX_STATES}
+     */
+    public static DkBricsClassifier create(List<String> labels, List<RegExp> regExps) {
+
+        int n = regExps.size();
+        RunAutomaton[] parts = new RunAutomaton[n];
+        // collect the alphabet partition common to all parts
+        TreeSet<Character> pointSet = new TreeSet<>();
+        pointSet.add(Character.MIN_VALUE);
+        for (int i = 0; i < n; i++) {
+            if (!(regExps.get(i) instanceof DkBricsRegExp)) {
+                return null;
+            }
+            parts[i] = ((DkBricsRegExp) regExps.get(i)).getAutomaton();
+            for (char c : parts[i].getCharIntervals()) {
+                pointSet.add(c);
+            }
+        }
+        char[] points = new char[pointSet.size()];
+        int p = 0;
+        for (Character c : pointSet) {
+            points[p++] = c;
+        }
+
+        // explore the reachable product states breadth first
+        Map<List<Integer>, Integer> stateNumbers = new HashMap<>();
+        List<Integer[]> states = new ArrayList<>();
+        Integer[] initial = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            initial[i] = parts[i].getInitialState();
+        }
+        stateNumbers.put(Arrays.asList(initial), 0);
+        states.add(initial);
+        int[] transitions = new int[16 * points.length];
+        for (int s = 0; s < states.size(); s++) {
+            Integer[] current = states.get(s);
+            if (transitions.length < states.size() * points.length) {
+                transitions = Arrays.copyOf(transitions, 2 * states.size() * points.length);
+            }
+            for (int k = 0; k < points.length; k++) {
+                Integer[] next = new Integer[n];
+                boolean alive = false;
+                for (int i = 0; i < n; i++) {
+                    next[i] = current[i] < 0 ? -1 : parts[i].step(current[i], points[k]);
+                    alive |= next[i] >= 0;
+                }
+                int target = -1;
+                if (alive) {
+                    List<Integer> key = Arrays.asList(next);
+                    Integer known = stateNumbers.get(key);
+                    if (null == known) {
+                        if (states.size() >= MAX_STATES) {
+                            return null;
+                        }
+                        known = states.size();
+                        stateNumbers.put(key, known);
+                        states.add(next);
+                    }
+                    target = known;
+                }
+                transitions[s * points.length + k] = target;
+            }
+        }
+
+        // label each state with the first accepting part
+        String[] stateLabels = new String[states.size()];
+        for (int s = 0; s < states.size(); s++) {
+            Integer[] current = states.get(s);
+            for (int i = 0; i < n; i++) {
+                if (current[i] >= 0 && parts[i].isAccept(current[i])) {
+                    stateLabels[s] = labels.get(i);
+                    break;
+                }
+            }
+        }
+        return new DkBricsClassifier(
+                points, Arrays.copyOf(transitions, states.size() * points.length), stateLabels);
+    }
+
+
+    /**
+     * Returns the label of the first regular expression that matches the given input in its
+     * entirety.
+     *
+     * @param input the string to classify
+     * @return the label or {@code null} if no regular expression matches
+     */
+    public String classify(CharSequence input) {
+
+        int state = 0;
+        for (int i = 0, iMax = input.length(); i < iMax; i++) {
+            state = this.transitions[state * this.points.length + this.getCharClass(input.charAt(i))];
+            if (state < 0) {
+                return null;
+            }
+        }
+        return this.labels[state];
+    }
+
+
+    /**
+     * @return the number of states of the automaton
+     */
+    public int getSize() {
+
+        return this.labels.length;
+    }
+
+
+    // returns the index of the interval containing the given character
+    private int getCharClass(char c) {
+
+        int lo = 0;
+        int hi = this.points.length - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (this.points[mid] <= c) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return lo;
+    }
+}
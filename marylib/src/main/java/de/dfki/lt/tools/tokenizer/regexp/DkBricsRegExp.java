@@ -53,6 +53,15 @@ public class DkBricsRegExp implements RegExp {
     }
 
 
+    /**
+     * @return the compiled automaton of this regular expression
+     */
+    RunAutomaton getAutomaton() {
+
+        return this.re;
+    }
+
+
     /**
      * {@inheritDoc}
      */
@@ -18,8 +18,11 @@
  */
 package marytts;
 
+import android.util.Log;
+
 import java.util.HashSet;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
 
 import lib.sound.sampled.AudioFileFormat;
@@ -33,7 +36,9 @@ import marytts.datatypes.MaryDataType;
 import marytts.exceptions.MaryConfigurationException;
 import marytts.exceptions.SynthesisException;
 import marytts.modules.synthesis.Voice;
+import marytts.server.Mary;
 import marytts.server.Request;
+import marytts.server.metrics.Metrics;
 import marytts.util.MaryRuntimeUtils;
 import mf.org.w3c.dom.Document;
 
@@ -301,6 +306,9 @@ public class LocalMaryInterface implements MaryInterface {
         verifyOutputTypeIsAudio();
         verifyVoiceIsAvailableForLocale();
         MaryData in = getMaryDataFromText(text);
+        if (isStreaming) {
+            return processStreaming(in);
+        }
         MaryData out = process(in);
         return out.getAudio();
     }
@@ -314,6 +322,9 @@ public class LocalMaryInterface implements MaryInterface {
         verifyOutputTypeIsAudio();
         verifyVoiceIsAvailableForLocale();
         MaryData in = getMaryDataFromXML(doc);
+        if (isStreaming) {
+            return processStreaming(in);
+        }
         MaryData out = process(in);
         return out.getAudio();
     }
@@ -394,6 +405,32 @@ public class LocalMaryInterface implements MaryInterface {
         return r.getOutputData();
     }
 
+    /**
+     * Process the input in a background thread, and return the request's audio stream right away;
+     * audio becomes available from the stream as it is synthesized, sentence by sentence.
+     * If processing fails, reading from the stream throws an IOException caused by the failure.
+     */
+    private AudioInputStream processStreaming(MaryData in) throws SynthesisException {
+        final Request r = new Request(inputType, outputType, locale, voice, effects, style, 1, audioFileFormat, true, outputTypeParams);
+        r.setInputData(in);
+        Thread processor = new Thread("LocalMaryInterface streaming") {
+            @Override
+            public void run() {
+                try {
+                    r.process();
+                    r.getAudio().doneAppending();
+                } catch (Throwable e) {
+                    Log.e(Mary.LOG, "Cannot process streaming request", e);
+                    // let the reader see the failure instead of a short utterance
+                    r.getAudio().fail(e);
+                }
+            }
+        };
+        processor.setDaemon(true);
+        processor.start();
+        return r.getAudio();
+    }
+
     @Override
     public Set<String> getAvailableVoices() {
         Set<String> voices = new HashSet<String>();
@@ -453,4 +490,22 @@ public class LocalMaryInterface implements MaryInterface {
     public boolean isAudioType(String dataType) {
         return "AUDIO".equals(dataType);
     }
+
+    /**
+     * Get the current values of the processing metrics of all requests, such as module processing times,
+     * cache hits and misses or the time until the first audio was available.
+     *
+     * @return a map from metric names to values, sorted by name
+     * @see Metrics#getValues()
+     */
+    public Map<String, Long> getMetrics() {
+        return Metrics.getValues();
+    }
+
+    /**
+     * Set the processing metrics of all requests back to zero.
+     */
+    public void resetMetrics() {
+        Metrics.reset();
+    }
 }
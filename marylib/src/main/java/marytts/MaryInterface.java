@@ -114,6 +114,12 @@ public interface MaryInterface {
      */
     boolean isStreamingAudio();
 
+    /**
+     * Whether to stream audio. If true, {@link #generateAudio(String)} returns as soon as processing has started,
+     * and the audio is synthesized and made available sentence by sentence. For advanced use only.
+     *
+     * @param newIsStreaming
+     */
     void setStreamingAudio(boolean newIsStreaming);
 
     /**
@@ -0,0 +1,267 @@
+/**
+ * Copyright 2009 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ * <p/>
+ * This file is part of MARY TTS.
+ * <p/>
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ * <p/>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * <p/>
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package marytts.cart;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import marytts.cart.DecisionNode.BinaryByteDecisionNode;
+import marytts.cart.DecisionNode.BinaryFloatDecisionNode;
+import marytts.cart.DecisionNode.BinaryShortDecisionNode;
+import marytts.cart.DecisionNode.ByteDecisionNode;
+import marytts.cart.DecisionNode.ShortDecisionNode;
+import marytts.features.FeatureVector;
+import marytts.unitselection.select.Target;
+
+/**
+ * A compiled, read-only form of a {@link CART} for fast interpretation.
+ * <p/>
+ * The nodes of the tree are numbered in breadth-first order, the root being node 0,
+ * and packed into a single int array with one fixed-size record per node: node type,
+ * feature index, criterion value (float criteria as raw int bits), number of data,
+ * and the record offsets of the daughters. Walking a path touches one record per node,
+ * and interpretation reads the byte, short and float arrays of the {@link FeatureVector}
+ * directly instead of going through virtual {@link DecisionNode#getNextNode(FeatureVector)} calls.
+ * The original nodes are kept, so that the same leaf (or decision) node objects are
+ * returned as by {@link CART#interpretToNode(FeatureVector, int)}.
+ * <p/>
+ * A FlatCART is a snapshot: changes to the CART after flattening are not reflected.
+ */
+public class FlatCART {
+
+    private static final int LEAF = 0;
+    private static final int BINARY_BYTE = 1;
+    private static final int BINARY_SHORT = 2;
+    private static final int BINARY_FLOAT = 3;
+    private static final int BINARY_FLOAT_ON_BYTE = 4;
+    private static final int BYTE = 5;
+    private static final int SHORT = 6;
+
+    // record layout
+    private static final int TYPE = 0;
+    private static final int FEATURE = 1;
+    private static final int VALUE = 2;
+    private static final int NUM_DATA = 3;
+    // binary nodes: record offset of the YES and NO daughters;
+    // byte and short nodes: start and end of the daughters in the children array.
+    // A missing daughter is -1.
+    private static final int DAUGHTER0 = 4;
+    private static final int DAUGHTER1 = 5;
+    private static final int RECORD_SIZE = 6;
+
+    private final int[] tree;
+    private final int[] children;
+    private final Node[] nodes;
+
+    /**
+     * Flatten the given CART.
+     *
+     * @param cart a CART consisting of leaf nodes and binary byte, short or float, or byte or short decision nodes
+     * @throws IllegalArgumentException if the CART is empty or contains other node types
+     */
+    public FlatCART(CART cart) {
+        Node rootNode = cart.getRootNode();
+        if (rootNode == null)
+            throw new IllegalArgumentException("Cannot flatten empty CART");
+
+        // number the nodes breadth-first
+        List<Node> order = new ArrayList<Node>();
+        Map<Node, Integer> index = new IdentityHashMap<Node, Integer>();
+        order.add(rootNode);
+        index.put(rootNode, 0);
+        int numChildren = 0;
+        for (int i = 0; i < order.size(); i++) {
+            Node node = order.get(i);
+            if (node instanceof DecisionNode) {
+                DecisionNode decNode = (DecisionNode) node;
+                if (!(node instanceof ByteDecisionNode || node instanceof ShortDecisionNode) && decNode.getNumberOfDaugthers() != 2)
+                    throw new IllegalArgumentException("Binary decision node with " + decNode.getNumberOfDaugthers() + " daughters");
+                numChildren += decNode.getNumberOfDaugthers();
+                for (int d = 0; d < decNode.getNumberOfDaugthers(); d++) {
+                    Node daughter = decNode.getDaughter(d);
+                    if (daughter != null) {
+                        index.put(daughter, order.size());
+                        order.add(daughter);
+                    }
+                }
+            }
+        }
+
+        int numNodes = order.size();
+        tree = new int[numNodes * RECORD_SIZE];
+        children = new int[numChildren];
+        nodes = order.toArray(new Node[numNodes]);
+
+        int c = 0;
+        for (int i = 0; i < numNodes; i++) {
+            Node node = nodes[i];
+            int r = i * RECORD_SIZE;
+            tree[r + NUM_DATA] = node.getNumberOfData();
+            if (node instanceof LeafNode) {
+                tree[r + TYPE] = LEAF;
+                continue;
+            }
+            DecisionNode decNode = (DecisionNode) node;
+            int feature = decNode.getFeatureIndex();
+            tree[r + FEATURE] = feature;
+            boolean nary = false;
+            if (node instanceof BinaryByteDecisionNode) {
+                tree[r + TYPE] = BINARY_BYTE;
+                tree[r + VALUE] = ((BinaryByteDecisionNode) node).getCriterionValueAsByte();
+            } else if (node instanceof BinaryShortDecisionNode) {
+                tree[r + TYPE] = BINARY_SHORT;
+                tree[r + VALUE] = ((BinaryShortDecisionNode) node).getCriterionValueAsShort();
+            } else if (node instanceof BinaryFloatDecisionNode) {
+                // pseudo-floats, see BinaryFloatDecisionNode
+                tree[r + TYPE] = decNode.getFeatureDefinition().isByteFeature(feature) ? BINARY_FLOAT_ON_BYTE : BINARY_FLOAT;
+                tree[r + VALUE] = Float.floatToRawIntBits(((BinaryFloatDecisionNode) node).getCriterionValueAsFloat());
+            } else if (node instanceof ByteDecisionNode) {
+                tree[r + TYPE] = BYTE;
+                nary = true;
+            } else if (node instanceof ShortDecisionNode) {
+                tree[r + TYPE] = SHORT;
+                nary = true;
+            } else {
+                throw new IllegalArgumentException("Cannot flatten node of type " + node.getClass().getName());
+            }
+            if (nary) {
+                tree[r + DAUGHTER0] = c;
+                for (int d = 0; d < decNode.getNumberOfDaugthers(); d++) {
+                    children[c++] = getRecord(decNode.getDaughter(d), index);
+                }
+                tree[r + DAUGHTER1] = c;
+            } else {
+                tree[r + DAUGHTER0] = getRecord(decNode.getDaughter(0), index);
+                tree[r + DAUGHTER1] = getRecord(decNode.getDaughter(1), index);
+            }
+        }
+    }
+
+    private static int getRecord(Node daughter, Map<Node, Integer> index) {
+        return daughter != null ? index.get(daughter) * RECORD_SIZE : -1;
+    }
+
+    /**
+     * Passes the given target through this CART and returns the
+     * leaf Node, or the Node it stopped walking down.
+     *
+     * @see CART#interpretToNode(Target, int)
+     */
+    public Node interpretToNode(Target target, int minNumberOfData) {
+        return interpretToNode(target.getFeatureVector(), minNumberOfData);
+    }
+
+    /**
+     * Passes the given feature vector through this CART and returns the
+     * leaf Node, or the Node it stopped walking down.
+     *
+     * @see CART#interpretToNode(FeatureVector, int)
+     */
+    public Node interpretToNode(FeatureVector featureVector, int minNumberOfData) {
+        return nodes[interpretToIndex(featureVector, minNumberOfData)];
+    }
+
+    /**
+     * Passes the given target through this CART and returns the
+     * interpretation.
+     *
+     * @see CART#interpret(Target, int)
+     */
+    public Object interpret(Target target, int minNumberOfData) {
+        return interpretToNode(target, minNumberOfData).getAllData();
+    }
+
+    /**
+     * Walk down the tree with the same semantics as {@link CART#interpretToNode(FeatureVector, int)}.
+     *
+     * @return the index of the node, in breadth-first order
+     */
+    private int interpretToIndex(FeatureVector featureVector, int minNumberOfData) {
+        final int[] tree = this.tree;
+        byte[] byteFeatures = featureVector.byteValuedDiscreteFeatures;
+        short[] shortFeatures = featureVector.shortValuedDiscreteFeatures;
+        float[] continuousFeatures = featureVector.continuousFeatures;
+        int shortOffset = byteFeatures.length;
+        int continuousOffset = shortOffset + shortFeatures.length;
+
+        int current = 0;
+        int prev = -1;
+        while (current >= 0 && tree[current + NUM_DATA] > minNumberOfData && tree[current + TYPE] != LEAF) {
+            prev = current;
+            int feature = tree[current + FEATURE];
+            int value = tree[current + VALUE];
+            int val;
+            switch (tree[current + TYPE]) {
+                case BINARY_BYTE:
+                    current = byteFeatures[feature] == value ? tree[current + DAUGHTER0] : tree[current + DAUGHTER1];
+                    break;
+                case BINARY_SHORT:
+                    current = shortFeatures[feature - shortOffset] == value ? tree[current + DAUGHTER0] : tree[current + DAUGHTER1];
+                    break;
+                case BINARY_FLOAT:
+                    current = continuousFeatures[feature - continuousOffset] < Float.intBitsToFloat(value)
+                            ? tree[current + DAUGHTER0] : tree[current + DAUGHTER1];
+                    break;
+                case BINARY_FLOAT_ON_BYTE:
+                    current = byteFeatures[feature] < Float.intBitsToFloat(value) ? tree[current + DAUGHTER0] : tree[current + DAUGHTER1];
+                    break;
+                case BYTE:
+                    val = byteFeatures[feature];
+                    current = getNaryDaughter(current, val);
+                    break;
+                case SHORT:
+                    val = shortFeatures[feature - shortOffset];
+                    current = getNaryDaughter(current, val);
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown node type " + tree[current + TYPE]);
+            }
+        }
+        // Now usually we will have gone down one level too far
+        if (current < 0 || tree[current + NUM_DATA] < minNumberOfData && prev >= 0) {
+            current = prev;
+        }
+        return current / RECORD_SIZE;
+    }
+
+    private int getNaryDaughter(int record, int val) {
+        int c = tree[record + DAUGHTER0] + val;
+        // a value without daughter ends the walk, like a missing daughter
+        if (val < 0 || c >= tree[record + DAUGHTER1])
+            return -1;
+        return children[c];
+    }
+
+    /**
+     * Flatten an array of CARTs, such as the per-state trees of an HMM voice.
+     *
+     * @return the flattened trees, or null if trees is null
+     */
+    public static FlatCART[] flatten(CART[] trees) {
+        if (trees == null)
+            return null;
+        FlatCART[] flat = new FlatCART[trees.length];
+        for (int i = 0; i < trees.length; i++) {
+            flat[i] = new FlatCART(trees[i]);
+        }
+        return flat;
+    }
+}
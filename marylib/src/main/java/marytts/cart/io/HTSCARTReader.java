@@ -68,6 +68,7 @@ import marytts.features.FeatureDefinition;
 import marytts.htsengine.HMMData.PdfFileFormat;
 import marytts.htsengine.PhoneTranslator;
 import marytts.server.Mary;
+import marytts.util.data.MaryHeader;
 
 //import org.apache.log4j.Logger;
 
@@ -174,6 +175,111 @@ public class HTSCARTReader {
 
     }
 
+    /**
+     * Load the cart from a compiled binary tree file, as written by
+     * {@link HTSCARTWriter}. The result is the same set of trees that
+     * {@link #load(int, InputStream, InputStream, PdfFileFormat, FeatureDefinition, PhoneTranslator)}
+     * builds from the tree-*.inf text file, but no questions have to be parsed
+     * and no feature values have to be looked up by name.
+     *
+     * @param numStates          number of states in the HTS model, the binary file must contain one cart tree per state.
+     * @param binaryTreeStream   the compiled tree file, example tree-mgc.bin.
+     * @param pdfStream          the corresponding HTS pdf binary file, example mgc.pdf.
+     * @param fileFormat         the format of the pdf file
+     * @param featDefinition     the feature definition, it must be the one the tree file was compiled against.
+     * @return the array of CART trees, one per state.
+     * @throws IOException                if a problem occurs while loading
+     * @throws MaryConfigurationException if the file is not a compiled HTS tree file for this feature definition
+     */
+    public CART[] loadBinary(int numStates, InputStream binaryTreeStream, InputStream pdfStream, PdfFileFormat fileFormat, FeatureDefinition featDefinition)
+            throws IOException, MaryConfigurationException {
+
+        featDef = featDefinition;
+        assert featDefinition != null : "Feature Definition was not set";
+
+        DataInputStream in = new DataInputStream(new BufferedInputStream(binaryTreeStream));
+        try {
+            MaryHeader maryHeader = new MaryHeader(in);
+            if (maryHeader.getType() != MaryHeader.HTS_CARTS)
+                throw new MaryConfigurationException("loadBinary: file is not a compiled HTS tree file");
+
+            // the questions were resolved against this feature definition when the file was compiled
+            FeatureDefinition fileFeatDef = new FeatureDefinition(in);
+            if (!fileFeatDef.featureEquals(featDef))
+                throw new MaryConfigurationException("loadBinary: tree file was compiled for a different feature definition, "
+                        + "please compile it again: " + fileFeatDef.featureEqualsAnalyse(featDef));
+
+            int numTrees = in.readInt();
+            if (numTrees != numStates)
+                throw new MaryConfigurationException("loadBinary: expected " + numStates + " trees but file contains " + numTrees);
+
+            // pdfs are the same for both tree formats, see load()
+            double pdf[][][][] = loadPdfs(numStates, pdfStream, fileFormat);
+
+            CART treeSet[] = new CART[numStates];
+            for (int i = 0; i < numStates; i++) {
+                treeSet[i] = new CART();
+                treeSet[i].setRootNode(loadBinaryStateTree(in, pdf[i]));
+                if (treeSet[i].getRootNode() instanceof DecisionNode)
+                    ((DecisionNode) treeSet[i].getRootNode()).countData();
+
+                Log.d(Mary.LOG, "loadBinary: CART[" + i + "], total number of nodes in this CART: " + treeSet[i].getNumNodes());
+            }
+            return treeSet;
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Load a tree per state from a compiled tree file. Decision nodes are stored in
+     * an array, the root first; each one refers to its daughters by array index,
+     * or to a leaf by its negative unique leaf id.
+     *
+     * @param in  : the compiled tree file, positioned at the start of this state tree
+     * @param pdf : the pdfs for this state, pdf[numPdfs][numStreams][2*vectorSize]
+     */
+    private Node loadBinaryStateTree(DataInputStream in, double pdf[][][]) throws IOException, MaryConfigurationException {
+        int numDecisionNodes = in.readInt();
+        if (numDecisionNodes <= 0)
+            throw new MaryConfigurationException("loadBinaryStateTree: state tree without decision nodes");
+
+        BinaryByteDecisionNode nodes[] = new BinaryByteDecisionNode[numDecisionNodes];
+        int yes[] = new int[numDecisionNodes];
+        int no[] = new int[numDecisionNodes];
+        for (int i = 0; i < numDecisionNodes; i++) {
+            int id = in.readInt();
+            int feaIndex = in.readShort();
+            byte value = in.readByte();
+            yes[i] = in.readInt();
+            no[i] = in.readInt();
+            nodes[i] = new BinaryByteDecisionNode(feaIndex, value, featDef);
+            nodes[i].setUniqueDecisionNodeId(id);
+        }
+        nodes[0].setIsRoot(true);
+
+        int nleaf = 0;
+        for (int i = 0; i < numDecisionNodes; i++) {
+            if (yes[i] < 0)
+                nleaf++;
+            if (no[i] < 0)
+                nleaf++;
+            nodes[i].replaceDaughter(getBinaryDaughter(nodes, yes[i], pdf), 0);
+            nodes[i].replaceDaughter(getBinaryDaughter(nodes, no[i], pdf), 1);
+        }
+
+        Log.d(Mary.LOG, "loadBinaryStateTree: loaded CART contains " + numDecisionNodes + " Decision nodes and " + nleaf + " Leaf nodes.");
+        return nodes[0];
+    }
+
+    private Node getBinaryDaughter(BinaryByteDecisionNode nodes[], int ref, double pdf[][][]) throws MaryConfigurationException {
+        if (ref > 0 && ref < nodes.length)
+            return nodes[ref];
+        if (ref < 0 && -ref <= pdf.length)
+            return new LeafNode.PdfLeafNode(-ref, pdf[-ref - 1]);
+        throw new MaryConfigurationException("loadBinaryStateTree: invalid daughter reference " + ref);
+    }
+
     /**
      * Load a tree per state
      *
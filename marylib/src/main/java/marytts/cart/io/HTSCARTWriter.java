@@ -0,0 +1,212 @@
+/**
+ * Copyright 2009 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ * <p/>
+ * This file is part of MARY TTS.
+ * <p/>
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ * <p/>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * <p/>
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package marytts.cart.io;
+
+import android.util.Log;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import marytts.cart.CART;
+import marytts.cart.DecisionNode;
+import marytts.cart.DecisionNode.BinaryByteDecisionNode;
+import marytts.cart.LeafNode;
+import marytts.cart.Node;
+import marytts.exceptions.MaryConfigurationException;
+import marytts.features.FeatureDefinition;
+import marytts.htsengine.HMMData.PdfFileFormat;
+import marytts.htsengine.PhoneTranslator;
+import marytts.server.Mary;
+import marytts.util.FeatureUtils;
+import marytts.util.data.MaryHeader;
+import marytts.util.io.PropertiesAccessor;
+
+/**
+ * Compiles HTS trees into the binary format read by
+ * {@link HTSCARTReader#loadBinary(int, java.io.InputStream, java.io.InputStream, PdfFileFormat, FeatureDefinition)}.
+ * <p/>
+ * The questions of the tree-*.inf text files are resolved once, at compile time,
+ * into feature indexes and byte values of the given feature definition, so that
+ * loading a voice no longer needs to parse the text trees. Format:
+ * <pre>
+ * MaryHeader (type HTS_CARTS)
+ * FeatureDefinition, binary
+ * int: number of state trees
+ * per state tree:
+ *   int: number of decision nodes, the root is decision node 0
+ *   per decision node:
+ *     int:   unique decision node id from the text file
+ *     short: feature index
+ *     byte:  feature value
+ *     int:   YES daughter
+ *     int:   NO daughter
+ * </pre>
+ * A daughter is the index of a decision node if positive, or the negative
+ * unique leaf id (the pdf index plus one) of a leaf node.
+ */
+public class HTSCARTWriter {
+
+    /**
+     * Dump the trees of one HTS tree set, one tree per state, in the compiled format.
+     *
+     * @param treeSet  the trees as loaded by {@link HTSCARTReader}
+     * @param featDef  the feature definition the trees were loaded with
+     * @param destFile the destination file, example tree-mgc.bin
+     */
+    public void dumpBinaryHTSCART(CART[] treeSet, FeatureDefinition featDef, String destFile)
+            throws IOException {
+        if (treeSet == null)
+            throw new NullPointerException("Cannot dump null tree set");
+        if (destFile == null)
+            throw new NullPointerException("No destination file");
+
+        Log.d(Mary.LOG, "Dumping HTS trees in binary format to " + destFile + " ...");
+
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(destFile)));
+        try {
+            new MaryHeader(MaryHeader.HTS_CARTS).writeTo(out);
+            featDef.writeBinaryTo(out);
+            out.writeInt(treeSet.length);
+            for (int i = 0; i < treeSet.length; i++) {
+                dumpStateTree(treeSet[i].getRootNode(), out);
+            }
+        } finally {
+            out.close();
+        }
+        Log.d(Mary.LOG, " ... done");
+    }
+
+    private void dumpStateTree(Node rootNode, DataOutput out) throws IOException {
+        if (!(rootNode instanceof BinaryByteDecisionNode))
+            throw new IOException("HTS state tree must start with a binary byte decision node");
+
+        // number the decision nodes in depth-first order, the root gets index 0
+        List<BinaryByteDecisionNode> nodes = new ArrayList<BinaryByteDecisionNode>();
+        Map<Node, Integer> index = new IdentityHashMap<Node, Integer>();
+        collectDecisionNodes(rootNode, nodes, index);
+
+        out.writeInt(nodes.size());
+        for (BinaryByteDecisionNode node : nodes) {
+            if (node.getFeatureIndex() > Short.MAX_VALUE)
+                throw new IOException("Feature index " + node.getFeatureIndex() + " does not fit into the compiled format");
+            out.writeInt(node.getUniqueDecisionNodeId());
+            out.writeShort(node.getFeatureIndex());
+            out.writeByte(node.getCriterionValueAsByte());
+            out.writeInt(getDaughterRef(node.getDaughter(0), index));
+            out.writeInt(getDaughterRef(node.getDaughter(1), index));
+        }
+    }
+
+    private void collectDecisionNodes(Node node, List<BinaryByteDecisionNode> nodes, Map<Node, Integer> index)
+            throws IOException {
+        if (node instanceof BinaryByteDecisionNode) {
+            index.put(node, nodes.size());
+            nodes.add((BinaryByteDecisionNode) node);
+            DecisionNode decNode = (DecisionNode) node;
+            for (int i = 0; i < decNode.getNumberOfDaugthers(); i++) {
+                collectDecisionNodes(decNode.getDaughter(i), nodes, index);
+            }
+        } else if (!(node instanceof LeafNode.PdfLeafNode)) {
+            throw new IOException("Unexpected node in HTS tree: " + node);
+        }
+    }
+
+    private int getDaughterRef(Node daughter, Map<Node, Integer> index) throws IOException {
+        if (daughter instanceof LeafNode.PdfLeafNode) {
+            int leafId = ((LeafNode) daughter).getUniqueLeafId();
+            if (leafId <= 0)
+                throw new IOException("Invalid leaf id " + leafId);
+            return -leafId;
+        }
+        Integer i = index.get(daughter);
+        if (i == null)
+            throw new IOException("Decision node without index");
+        return i;
+    }
+
+    /**
+     * Compiles the trees of an HMM voice, writing each tree-*.inf file next to it as tree-*.bin.
+     * Arguments: voice name, marybase, voice config file relative to marybase, e.g.
+     * <pre>
+     * cmu-slt-hsmm /path/to/assets/ marytts/voice/CmuSltHsmm/voice.config
+     * </pre>
+     * The properties to add to the voice config are printed on standard output.
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length != 3) {
+            System.err.println("Usage: java " + HTSCARTWriter.class.getName() + " voiceName marybase configFile");
+            System.exit(1);
+        }
+        String voiceName = args[0];
+        String marybase = args[1];
+        String configFile = args[2];
+
+        Properties props = new Properties();
+        FileInputStream fis = new FileInputStream(marybase + configFile);
+        props.load(fis);
+        fis.close();
+        Map<String, String> maryBaseReplacer = new HashMap<String, String>();
+        maryBaseReplacer.put("jar:", marybase);
+        PropertiesAccessor p = new PropertiesAccessor(props, false, maryBaseReplacer);
+
+        String prefix = "voice." + voiceName;
+        FeatureDefinition featDef = FeatureUtils.readFeatureDefinition(p.getStream(prefix + ".FeaFile"));
+        PhoneTranslator phTranslator = new PhoneTranslator(p.getStream(prefix + ".trickyPhonesFile"));
+
+        // duration comes first, its vector size is the number of states of the other trees
+        String[] treeKeys = {"Ftd", "Ftf", "Ftm", "Fts", "Fta"};
+        String[] pdfKeys = {"Fmd", "Fmf", "Fmm", "Fms", "Fma"};
+        PdfFileFormat[] formats = {PdfFileFormat.dur, PdfFileFormat.lf0, PdfFileFormat.mgc, PdfFileFormat.str, PdfFileFormat.mag};
+
+        if (p.getProperty(prefix + ".Ftd") == null)
+            throw new MaryConfigurationException("No duration tree configured for voice " + voiceName);
+
+        HTSCARTReader reader = new HTSCARTReader();
+        HTSCARTWriter writer = new HTSCARTWriter();
+        int numStates = 1;
+        for (int i = 0; i < treeKeys.length; i++) {
+            String treeProperty = prefix + "." + treeKeys[i];
+            if (p.getProperty(treeProperty) == null)
+                continue;
+            CART[] treeSet = reader.load(i == 0 ? 1 : numStates, p.getStream(treeProperty),
+                    p.getStream(prefix + "." + pdfKeys[i]), formats[i], featDef, phTranslator);
+            if (i == 0)
+                numStates = reader.getVectorSize();
+
+            writer.dumpBinaryHTSCART(treeSet, featDef, getBinaryFileName(p.getProperty(treeProperty)));
+            System.out.println(treeProperty + ".bin = " + getBinaryFileName(props.getProperty(treeProperty)));
+        }
+    }
+
+    private static String getBinaryFileName(String treeFileName) {
+        if (treeFileName.endsWith(".inf"))
+            return treeFileName.substring(0, treeFileName.length() - ".inf".length()) + ".bin";
+        return treeFileName + ".bin";
+    }
+}
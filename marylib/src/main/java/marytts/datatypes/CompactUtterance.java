@@ -0,0 +1,488 @@
+/**
+ * Copyright 2009 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ * <p/>
+ * This file is part of MARY TTS.
+ * <p/>
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ * <p/>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * <p/>
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package marytts.datatypes;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import mf.org.w3c.dom.Attr;
+import mf.org.w3c.dom.Document;
+import mf.org.w3c.dom.Element;
+import mf.org.w3c.dom.NamedNodeMap;
+import mf.org.w3c.dom.Node;
+
+/**
+ * A compact, array-based representation of a MaryXML utterance for use between internal modules.
+ * <p/>
+ * Elements (paragraphs, sentences, tokens, syllables, phones, boundaries, ...) are numbered in
+ * document order and addressed by their index; element 0 is the <code>maryxml</code> root. Tag
+ * and attribute names are mapped to ids through a fixed table of the MaryXML names, extended per
+ * utterance for any other names; attribute values and text nodes are interned into a
+ * per-utterance value pool, so that the structure is held in a few <code>int</code>
+ * arrays instead of a DOM tree.
+ * <p/>
+ * An utterance created from a DOM document with {@link #fromDocument(Document)} remembers the
+ * document; {@link #toDocument()} then only writes back the attributes that have changed and the
+ * elements that have been appended, so a module working on the compact form never pays for a
+ * full conversion. An utterance built from scratch creates a new document on
+ * {@link #toDocument()}.
+ *
+ * @see MaryData#getCompactUtterance()
+ */
+public class CompactUtterance {
+    // Tag and attribute names known in advance, shared by all utterances. The table is filled
+    // once during class initialisation and only read afterwards, so lookups need no lock.
+    private static final String[] KNOWN_NAMES = {
+        MaryXML.MARYXML, MaryXML.PARAGRAPH, MaryXML.SENTENCE, MaryXML.VOICE, MaryXML.PHRASE,
+        MaryXML.MARK, MaryXML.SAYAS, MaryXML.PHONOLOGY, MaryXML.PROSODY, MaryXML.AUDIO,
+        MaryXML.BOUNDARY, MaryXML.MTU, MaryXML.TOKEN, MaryXML.SYLLABLE, MaryXML.PHONE,
+        MaryXML.NONVERBAL,
+        "xml:lang", "xmlns", "version", "name", "gender", "age", "variant", "style", "interpret-as",
+        "format", "detail", "alias", "orig", "sounds_like", "pos", "g2p_method", "ph", "accent",
+        "tone", "stress", "breakindex", "duration", "d", "end", "f0", "p", "rate", "pitch",
+        "contour", "range", "volume", "src"
+    };
+    private static final Map<String, Integer> KNOWN_IDS;
+
+    static {
+        Map<String, Integer> ids = new HashMap<String, Integer>(2 * KNOWN_NAMES.length);
+        for (int i = 0; i < KNOWN_NAMES.length; i++)
+            ids.put(KNOWN_NAMES[i], i);
+        KNOWN_IDS = Collections.unmodifiableMap(ids);
+    }
+
+    private static final int ROOT = KNOWN_IDS.get(MaryXML.MARYXML);
+
+    // Names not known in advance (e.g. from client XML), numbered after the known ones:
+    private Map<String, Integer> localSymbolIds;
+    private List<String> localSymbols;
+
+    // Elements, in document order:
+    private int size;
+    private int[] tags;
+    private int[] parents;
+    private int[] ends; // one past the last descendant
+    private int[] firstSegments; // the first text segment at or after the start of the element
+    private int[] firstAttributes;
+
+    // Text nodes, in document order:
+    private int numSegments;
+    private int[] segmentOwners; // the element directly containing the text
+    private int[] segmentPositions; // the number of elements that start before the text
+    private int[] segmentValues;
+
+    // Attributes, as linked lists per element:
+    private int numAttributes;
+    private int[] attributeNames;
+    private int[] attributeValues;
+    private int[] nextAttributes;
+    private int[] attributeOwners;
+    private boolean[] dirty;
+
+    // Per-utterance value pool:
+    private int numValues;
+    private String[] values;
+    private Map<String, Integer> valueIds;
+
+    // The DOM this utterance corresponds to, if any, and the elements already present in it:
+    private Document document;
+    private Element[] elements;
+    private int numMaterialised;
+    private int numMaterialisedSegments;
+
+    private Map<Integer, int[]> elementsByTag = new HashMap<Integer, int[]>();
+
+    /**
+     * Create an utterance consisting of an empty <code>maryxml</code> root element.
+     */
+    public CompactUtterance() {
+        this(16);
+        appendElement(-1, ROOT);
+    }
+
+    private CompactUtterance(int capacity) {
+        tags = new int[capacity];
+        parents = new int[capacity];
+        ends = new int[capacity];
+        firstSegments = new int[capacity];
+        firstAttributes = new int[capacity];
+        segmentOwners = new int[capacity];
+        segmentPositions = new int[capacity];
+        segmentValues = new int[capacity];
+        attributeNames = new int[2 * capacity];
+        attributeValues = new int[2 * capacity];
+        nextAttributes = new int[2 * capacity];
+        attributeOwners = new int[2 * capacity];
+        dirty = new boolean[2 * capacity];
+        values = new String[2 * capacity];
+        valueIds = new HashMap<String, Integer>();
+    }
+
+    /**
+     * Create the compact representation of the given MaryXML document.
+     *
+     * @param doc a MaryXML document
+     * @return the compact utterance, or null if doc is not a MaryXML document
+     */
+    public static CompactUtterance fromDocument(Document doc) {
+        if (doc == null || doc.getDocumentElement() == null
+                || !MaryXML.MARYXML.equals(doc.getDocumentElement().getTagName()))
+            return null;
+        CompactUtterance u = new CompactUtterance(256);
+        u.document = doc;
+        u.elements = new Element[256];
+        u.add(doc.getDocumentElement(), -1);
+        u.numMaterialised = u.size;
+        u.numMaterialisedSegments = u.numSegments;
+        return u;
+    }
+
+    private void add(Element e, int parent) {
+        int index = appendElement(parent, symbol(e.getTagName()));
+        if (index == elements.length)
+            elements = Arrays.copyOf(elements, 2 * index);
+        elements[index] = e;
+        NamedNodeMap attributes = e.getAttributes();
+        for (int i = 0, n = attributes.getLength(); i < n; i++) {
+            Attr a = (Attr) attributes.item(i);
+            addAttribute(index, symbol(a.getName()), value(a.getValue()));
+        }
+        for (Node child = e.getFirstChild(); child != null; child = child.getNextSibling()) {
+            short type = child.getNodeType();
+            if (type == Node.ELEMENT_NODE) {
+                add((Element) child, index);
+            } else if (type == Node.TEXT_NODE) {
+                addSegment(index, value(child.getNodeValue()));
+            }
+        }
+    }
+
+    private void addSegment(int owner, int value) {
+        if (numSegments == segmentOwners.length) {
+            int capacity = 2 * numSegments;
+            segmentOwners = Arrays.copyOf(segmentOwners, capacity);
+            segmentPositions = Arrays.copyOf(segmentPositions, capacity);
+            segmentValues = Arrays.copyOf(segmentValues, capacity);
+        }
+        segmentOwners[numSegments] = owner;
+        segmentPositions[numSegments] = size;
+        segmentValues[numSegments] = value;
+        numSegments++;
+    }
+
+    /**
+     * Get the MaryXML document for this utterance. For an utterance created from a document,
+     * this is that document, with all changes made through this utterance applied.
+     */
+    public Document toDocument() {
+        if (document == null) {
+            document = MaryXML.newDocument();
+            elements = new Element[Math.max(size, 1)];
+            elements[0] = document.getDocumentElement();
+            numMaterialised = 1;
+        } else if (elements.length < size) {
+            elements = Arrays.copyOf(elements, size);
+        }
+        int segment = numMaterialisedSegments;
+        for (int e = numMaterialised; e < size; e++) {
+            // the text that comes before the new element in document order
+            for (; segment < numSegments && segmentPositions[segment] <= e; segment++)
+                appendSegment(segment);
+            elements[e] = MaryXML.appendChildElement(elements[parents[e]], symbolName(tags[e]));
+        }
+        for (; segment < numSegments; segment++)
+            appendSegment(segment);
+        numMaterialised = size;
+        numMaterialisedSegments = numSegments;
+        for (int a = 0; a < numAttributes; a++) {
+            if (dirty[a]) {
+                elements[attributeOwners[a]].setAttribute(symbolName(attributeNames[a]), values[attributeValues[a]]);
+                dirty[a] = false;
+            }
+        }
+        return document;
+    }
+
+    private void appendSegment(int segment) {
+        elements[segmentOwners[segment]].appendChild(document.createTextNode(values[segmentValues[segment]]));
+    }
+
+    /**
+     * Append a new element as the last child of the given parent. Elements are kept in document
+     * order, so the parent must be the last element or one of its ancestors.
+     *
+     * @param parent  the index of the parent element
+     * @param tagName the tag name of the new element
+     * @return the index of the new element
+     * @throws IllegalArgumentException if appending below parent would break document order
+     */
+    public int appendElement(int parent, String tagName) {
+        return appendElement(parent, symbol(tagName));
+    }
+
+    private int appendElement(int parent, int tag) {
+        if (parent < 0 ? size != 0 : ends[parent] != size)
+            throw new IllegalArgumentException("Can only append below the last element or one of its ancestors");
+        if (size == tags.length) {
+            int capacity = 2 * size;
+            tags = Arrays.copyOf(tags, capacity);
+            parents = Arrays.copyOf(parents, capacity);
+            ends = Arrays.copyOf(ends, capacity);
+            firstSegments = Arrays.copyOf(firstSegments, capacity);
+            firstAttributes = Arrays.copyOf(firstAttributes, capacity);
+        }
+        int index = size++;
+        tags[index] = tag;
+        parents[index] = parent;
+        ends[index] = size;
+        firstSegments[index] = numSegments;
+        firstAttributes[index] = -1;
+        for (int p = parent; p >= 0; p = parents[p])
+            ends[p] = size;
+        elementsByTag.clear();
+        return index;
+    }
+
+    /**
+     * The number of elements, including the root.
+     */
+    public int size() {
+        return size;
+    }
+
+    public String getTagName(int e) {
+        return symbolName(tags[e]);
+    }
+
+    /**
+     * The index of the parent element, or -1 for the root.
+     */
+    public int getParent(int e) {
+        return parents[e];
+    }
+
+    /**
+     * Whether <code>ancestor</code> is a proper ancestor of e.
+     */
+    public boolean isAncestor(int ancestor, int e) {
+        return ancestor < e && e < ends[ancestor];
+    }
+
+    /**
+     * The closest ancestor of e with the given tag name, or -1 if there is none.
+     */
+    public int getAncestor(int e, String tagName) {
+        int tag = lookupSymbol(tagName);
+        if (tag < 0)
+            return -1;
+        for (int p = parents[e]; p >= 0; p = parents[p]) {
+            if (tags[p] == tag)
+                return p;
+        }
+        return -1;
+    }
+
+    /**
+     * All elements with the given tag name, in document order.
+     * The returned array is shared and must not be modified.
+     */
+    public int[] getElements(String tagName) {
+        int tag = lookupSymbol(tagName);
+        if (tag < 0)
+            return new int[0];
+        int[] result = elementsByTag.get(tag);
+        if (result == null) {
+            int n = 0;
+            for (int e = 0; e < size; e++) {
+                if (tags[e] == tag)
+                    n++;
+            }
+            result = new int[n];
+            n = 0;
+            for (int e = 0; e < size; e++) {
+                if (tags[e] == tag)
+                    result[n++] = e;
+            }
+            elementsByTag.put(tag, result);
+        }
+        return result;
+    }
+
+    /**
+     * All descendants of <code>ancestor</code> with the given tag name, in document order.
+     */
+    public int[] getElementsBelow(int ancestor, String tagName) {
+        int[] all = getElements(tagName);
+        int from = Arrays.binarySearch(all, ancestor + 1);
+        if (from < 0)
+            from = -from - 1;
+        int to = Arrays.binarySearch(all, ends[ancestor]);
+        if (to < 0)
+            to = -to - 1;
+        return Arrays.copyOfRange(all, from, to);
+    }
+
+    /**
+     * The text below the given element, like {@link marytts.util.dom.MaryDomUtils#tokenText(Element)}:
+     * the text nodes in document order, each trimmed and followed by a space, and the result trimmed.
+     */
+    public String getText(int e) {
+        String first = null;
+        StringBuilder buf = null;
+        for (int s = firstSegments[e]; s < numSegments; s++) {
+            int owner = segmentOwners[s];
+            if (owner != e && !isAncestor(e, owner))
+                break;
+            String text = values[segmentValues[s]].trim();
+            if (first == null) {
+                first = text;
+            } else {
+                if (buf == null)
+                    buf = new StringBuilder(first).append(' ');
+                buf.append(text).append(' ');
+            }
+        }
+        if (buf != null)
+            return buf.toString().trim();
+        return first != null ? first : "";
+    }
+
+    /**
+     * Set the text directly below the given element. Only allowed for the last element, before
+     * any children are appended to it, and only if it has not yet been written to a document.
+     */
+    public void setText(int e, String text) {
+        if (e < numMaterialised)
+            throw new IllegalStateException("Text can only be set for new elements");
+        if (e != size - 1)
+            throw new IllegalStateException("Text can only be set for the last element");
+        if (numSegments > firstSegments[e])
+            numSegments--; // replace the text set before
+        if (text != null)
+            addSegment(e, value(text));
+    }
+
+    public boolean hasAttribute(int e, String name) {
+        int nameId = lookupSymbol(name);
+        return nameId >= 0 && findAttribute(e, nameId) >= 0;
+    }
+
+    /**
+     * The value of the given attribute, or the empty string if it is not set (as in the DOM).
+     */
+    public String getAttribute(int e, String name) {
+        int nameId = lookupSymbol(name);
+        int a = nameId >= 0 ? findAttribute(e, nameId) : -1;
+        return a >= 0 ? values[attributeValues[a]] : "";
+    }
+
+    public void setAttribute(int e, String name, String value) {
+        int nameId = symbol(name);
+        int a = findAttribute(e, nameId);
+        if (a >= 0) {
+            attributeValues[a] = value(value);
+            dirty[a] = true;
+        } else {
+            a = addAttribute(e, nameId, value(value));
+            dirty[a] = true;
+        }
+    }
+
+    private int findAttribute(int e, int name) {
+        for (int a = firstAttributes[e]; a >= 0; a = nextAttributes[a]) {
+            if (attributeNames[a] == name)
+                return a;
+        }
+        return -1;
+    }
+
+    private int addAttribute(int e, int name, int value) {
+        if (numAttributes == attributeNames.length) {
+            int capacity = 2 * numAttributes;
+            attributeNames = Arrays.copyOf(attributeNames, capacity);
+            attributeValues = Arrays.copyOf(attributeValues, capacity);
+            nextAttributes = Arrays.copyOf(nextAttributes, capacity);
+            attributeOwners = Arrays.copyOf(attributeOwners, capacity);
+            dirty = Arrays.copyOf(dirty, capacity);
+        }
+        int a = numAttributes++;
+        attributeNames[a] = name;
+        attributeValues[a] = value;
+        nextAttributes[a] = -1;
+        attributeOwners[a] = e;
+        // keep attributes in the order they were added:
+        if (firstAttributes[e] < 0) {
+            firstAttributes[e] = a;
+        } else {
+            int last = firstAttributes[e];
+            while (nextAttributes[last] >= 0)
+                last = nextAttributes[last];
+            nextAttributes[last] = a;
+        }
+        return a;
+    }
+
+    /**
+     * Get the id of the given tag or attribute name, registering it in this utterance if it is
+     * not known in advance.
+     */
+    private int symbol(String name) {
+        int id = lookupSymbol(name);
+        if (id < 0) {
+            if (localSymbols == null) {
+                localSymbols = new ArrayList<String>();
+                localSymbolIds = new HashMap<String, Integer>();
+            }
+            id = KNOWN_NAMES.length + localSymbols.size();
+            localSymbols.add(name);
+            localSymbolIds.put(name, id);
+        }
+        return id;
+    }
+
+    /**
+     * Get the id of the given tag or attribute name, or -1 if it does not occur in this utterance.
+     */
+    private int lookupSymbol(String name) {
+        Integer id = KNOWN_IDS.get(name);
+        if (id == null && localSymbolIds != null)
+            id = localSymbolIds.get(name);
+        return id != null ? id : -1;
+    }
+
+    private String symbolName(int id) {
+        return id < KNOWN_NAMES.length ? KNOWN_NAMES[id] : localSymbols.get(id - KNOWN_NAMES.length);
+    }
+
+    private int value(String s) {
+        Integer id = valueIds.get(s);
+        if (id == null) {
+            if (numValues == values.length)
+                values = Arrays.copyOf(values, 2 * numValues);
+            id = numValues;
+            values[numValues++] = s;
+            valueIds.put(s, id);
+        }
+        return id;
+    }
+}
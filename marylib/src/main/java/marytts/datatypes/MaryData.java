@@ -77,6 +77,9 @@ public class MaryData {
     // Only one of the following data representations should be non-null
     // for a given instance; which one depends on our type.
     private Document xmlDocument = null;
+    // For MaryXML types, the data may be held in compact form instead of as a DOM;
+    // see getCompactUtterance() and getDocument().
+    private CompactUtterance compactUtterance = null;
     private String plainText = null;
     private AudioInputStream audio = null;
     private AudioFileFormat audioFileFormat = null;
@@ -231,7 +234,7 @@ public class MaryData {
             if (writer == null)
                 writer = new MaryNormalisedWriter();
 
-            writer.output(xmlDocument, new BufferedOutputStream(os));
+            writer.output(getDocument(), new BufferedOutputStream(os));
         } else if (type.isTextType()) { // caution: XML types are text types!
             writeTo(new OutputStreamWriter(os, "UTF-8"));
         } else { // audio
@@ -315,7 +318,7 @@ public class MaryData {
 
     public Object getData() {
         if (type.isXMLType()) {
-            return xmlDocument;
+            return getDocument();
         } else if (type.isTextType()) {
             return plainText;
         } else if (type.isUtterances()) {
@@ -342,6 +345,7 @@ public class MaryData {
         if (type.isXMLType()) {
             Log.d(Mary.LOG, "Parsing XML input (" + (doValidate ? "" : "non-") + "validating): " + dataString);
             xmlDocument = DomUtils.parseDocument(dataString, doValidate);
+            compactUtterance = null;
         } else if (type.isTextType()) {
           //  Log.d(Mary.LOG, "Setting text input: " + dataString);
             plainText = dataString;
@@ -358,12 +362,44 @@ public class MaryData {
         this.plainText = plainText;
     }
 
+    /**
+     * Get the XML document. If the data is currently held as a compact utterance,
+     * the document is created (or updated) from it; this is meant to happen only
+     * at the boundary to code that needs the DOM, such as MaryXML output.
+     */
     public Document getDocument() {
+        if (xmlDocument == null && compactUtterance != null) {
+            xmlDocument = compactUtterance.toDocument();
+            compactUtterance = null;
+        }
         return xmlDocument;
     }
 
     public void setDocument(Document xmlDocument) {
         this.xmlDocument = xmlDocument;
+        this.compactUtterance = null;
+    }
+
+    /**
+     * Get the data of a MaryXML type as a compact utterance, for modules that
+     * can work without a DOM. If the data is currently held as a DOM document,
+     * it is converted once; the compact utterance then replaces the document
+     * until {@link #getDocument()} is called.
+     *
+     * @return the compact utterance, or null if this is not MaryXML data.
+     */
+    public CompactUtterance getCompactUtterance() {
+        if (compactUtterance == null && type.isMaryXML() && xmlDocument != null) {
+            compactUtterance = CompactUtterance.fromDocument(xmlDocument);
+            if (compactUtterance != null)
+                xmlDocument = null;
+        }
+        return compactUtterance;
+    }
+
+    public void setCompactUtterance(CompactUtterance compactUtterance) {
+        this.compactUtterance = compactUtterance;
+        this.xmlDocument = null;
     }
 
     public AudioInputStream getAudio() {
@@ -400,9 +436,16 @@ public class MaryData {
         Locale voiceLocale = null;
         voiceLocale = voice.getLocale();
         Locale docLocale = getLocale();
-        if (docLocale == null && getType().isXMLType() && getDocument() != null
-                && getDocument().getDocumentElement().hasAttribute("xml:lang")) {
-            docLocale = MaryUtils.string2locale(getDocument().getDocumentElement().getAttribute("xml:lang"));
+        if (docLocale == null && getType().isXMLType()) {
+            // don't force a compact utterance into a DOM just to look at the root
+            String lang = null;
+            if (compactUtterance != null && compactUtterance.hasAttribute(0, "xml:lang")) {
+                lang = compactUtterance.getAttribute(0, "xml:lang");
+            } else if (xmlDocument != null && xmlDocument.getDocumentElement().hasAttribute("xml:lang")) {
+                lang = xmlDocument.getDocumentElement().getAttribute("xml:lang");
+            }
+            if (lang != null)
+                docLocale = MaryUtils.string2locale(lang);
         }
         if (docLocale != null && voiceLocale != null &&
                 !(MaryUtils.subsumes(docLocale, voiceLocale) || MaryUtils.subsumes(voiceLocale, docLocale))) {
@@ -49,6 +49,7 @@ import marytts.util.dom.MaryDomUtils;
 import marytts.util.string.ByteStringTranslator;
 import mf.org.w3c.dom.Document;
 import mf.org.w3c.dom.Element;
+import mf.org.w3c.dom.Node;
 import mf.org.w3c.dom.traversal.TreeWalker;
 
 /**
@@ -70,6 +71,25 @@ public class MaryGenericFeatureProcessors {
     protected MaryGenericFeatureProcessors() {
     }
 
+    /**
+     * Create a tree walker over the elements with the given tag names below root. If root is part of
+     * the sentence structure of the target, the walker uses that index; otherwise, a DOM tree walker
+     * is returned.
+     *
+     * @param target   the target for which features are computed
+     * @param root     the root of the walk
+     * @param tagNames the tag names of the elements to show
+     * @return a tree walker supporting at least setCurrentNode(), firstChild(), lastChild(),
+     * previousNode() and nextNode().
+     */
+    protected static TreeWalker createTreeWalker(Target target, Node root, String... tagNames) {
+        SentenceStructure structure = target.getSentenceStructure();
+        if (structure != null && structure.contains(root)) {
+            return structure.createTreeWalker(root, tagNames);
+        }
+        return DomUtils.createTreeWalker(root, tagNames);
+    }
+
     /**
      * Navigate from a target to an item.
      * Classes implementing this interface will retrieve
@@ -112,7 +132,7 @@ public class MaryGenericFeatureProcessors {
             if (segment == null) return null;
             Element sentence = (Element) DomUtils.getAncestor(segment, MaryXML.SENTENCE);
             if (sentence == null) return null;
-            TreeWalker tw = DomUtils.createTreeWalker(sentence, MaryXML.PHONE, MaryXML.BOUNDARY);
+            TreeWalker tw = createTreeWalker(target, sentence, MaryXML.PHONE, MaryXML.BOUNDARY);
             tw.setCurrentNode(segment);
             Element previous = (Element) tw.previousNode();
             return previous;
@@ -131,7 +151,7 @@ public class MaryGenericFeatureProcessors {
             if (segment == null) return null;
             Element sentence = (Element) DomUtils.getAncestor(segment, MaryXML.SENTENCE);
             if (sentence == null) return null;
-            TreeWalker tw = DomUtils.createTreeWalker(sentence, MaryXML.PHONE, MaryXML.BOUNDARY);
+            TreeWalker tw = createTreeWalker(target, sentence, MaryXML.PHONE, MaryXML.BOUNDARY);
             tw.setCurrentNode(segment);
             Element previous = (Element) tw.previousNode();
             Element pp = (Element) tw.previousNode();
@@ -151,7 +171,7 @@ public class MaryGenericFeatureProcessors {
             if (segment == null) return null;
             Element sentence = (Element) DomUtils.getAncestor(segment, MaryXML.SENTENCE);
             if (sentence == null) return null;
-            TreeWalker tw = DomUtils.createTreeWalker(sentence, MaryXML.PHONE, MaryXML.BOUNDARY);
+            TreeWalker tw = createTreeWalker(target, sentence, MaryXML.PHONE, MaryXML.BOUNDARY);
             tw.setCurrentNode(segment);
             Element next = (Element) tw.nextNode();
             return next;
@@ -170,7 +190,7 @@ public class MaryGenericFeatureProcessors {
             if (segment == null) return null;
             Element sentence = (Element) DomUtils.getAncestor(segment, MaryXML.SENTENCE);
             if (sentence == null) return null;
-            TreeWalker tw = DomUtils.createTreeWalker(sentence, MaryXML.PHONE, MaryXML.BOUNDARY);
+            TreeWalker tw = createTreeWalker(target, sentence, MaryXML.PHONE, MaryXML.BOUNDARY);
             tw.setCurrentNode(segment);
             Element next = (Element) tw.nextNode();
             Element nn = (Element) tw.nextNode();
@@ -188,7 +208,7 @@ public class MaryGenericFeatureProcessors {
             if (segment == null) return null;
             Element word = (Element) DomUtils.getAncestor(segment, MaryXML.TOKEN);
             if (word == null) return null;
-            TreeWalker tw = DomUtils.createTreeWalker(word, MaryXML.PHONE);
+            TreeWalker tw = createTreeWalker(target, word, MaryXML.PHONE);
             Element first = (Element) tw.firstChild();
             if (first != null) {
                 assert first.getTagName().equals(MaryXML.PHONE) : "Unexpected tag name: expected " + MaryXML.PHONE + ", got " + first.getTagName();
@@ -207,7 +227,7 @@ public class MaryGenericFeatureProcessors {
             if (segment == null) return null;
             Element word = (Element) DomUtils.getAncestor(segment, MaryXML.TOKEN);
             if (word == null) return null;
-            TreeWalker tw = DomUtils.createTreeWalker(word, MaryXML.PHONE);
+            TreeWalker tw = createTreeWalker(target, word, MaryXML.PHONE);
             Element last = (Element) tw.lastChild();
             if (last != null) {
                 assert last.getTagName().equals(MaryXML.PHONE) : "Unexpected tag name: expected " + MaryXML.PHONE + ", got " + last.getTagName();
@@ -226,7 +246,7 @@ public class MaryGenericFeatureProcessors {
             if (segment == null) return null;
             Element word = (Element) DomUtils.getAncestor(segment, MaryXML.TOKEN);
             if (word == null) return null;
-            TreeWalker tw = DomUtils.createTreeWalker(word, MaryXML.SYLLABLE);
+            TreeWalker tw = createTreeWalker(target, word, MaryXML.SYLLABLE);
             Element first = (Element) tw.firstChild();
             if (first != null) {
                 assert first.getTagName().equals(MaryXML.SYLLABLE) : "Unexpected tag name: expected " + MaryXML.SYLLABLE + ", got " + first.getTagName();
@@ -245,7 +265,7 @@ public class MaryGenericFeatureProcessors {
             if (segment == null) return null;
             Element word = (Element) DomUtils.getAncestor(segment, MaryXML.TOKEN);
             if (word == null) return null;
-            TreeWalker tw = DomUtils.createTreeWalker(word, MaryXML.SYLLABLE);
+            TreeWalker tw = createTreeWalker(target, word, MaryXML.SYLLABLE);
             Element last = (Element) tw.lastChild();
             if (last != null) {
                 assert last.getTagName().equals(MaryXML.SYLLABLE) : "Unexpected tag name: expected " + MaryXML.SYLLABLE + ", got " + last.getTagName();
@@ -293,7 +313,7 @@ public class MaryGenericFeatureProcessors {
             }
             Element sentence = (Element) DomUtils.getAncestor(segment, MaryXML.SENTENCE);
             if (sentence == null) return null;
-            TreeWalker tw = DomUtils.createTreeWalker(sentence, MaryXML.SYLLABLE);
+            TreeWalker tw = createTreeWalker(target, sentence, MaryXML.SYLLABLE);
             tw.setCurrentNode(current);
             Element previous = (Element) tw.previousNode();
             if (previous != null) {
@@ -323,7 +343,7 @@ public class MaryGenericFeatureProcessors {
             }
             Element sentence = (Element) DomUtils.getAncestor(segment, MaryXML.SENTENCE);
             if (sentence == null) return null;
-            TreeWalker tw = DomUtils.createTreeWalker(sentence, MaryXML.SYLLABLE);
+            TreeWalker tw = createTreeWalker(target, sentence, MaryXML.SYLLABLE);
             tw.setCurrentNode(current);
             Element previous = (Element) tw.previousNode();
             Element pp = (Element) tw.previousNode();
@@ -354,7 +374,7 @@ public class MaryGenericFeatureProcessors {
             }
             Element sentence = (Element) DomUtils.getAncestor(segment, MaryXML.SENTENCE);
             if (sentence == null) return null;
-            TreeWalker tw = DomUtils.createTreeWalker(sentence, MaryXML.SYLLABLE);
+            TreeWalker tw = createTreeWalker(target, sentence, MaryXML.SYLLABLE);
             tw.setCurrentNode(current);
             Element next = (Element) tw.nextNode();
             if (next != null) {
@@ -384,7 +404,7 @@ public class MaryGenericFeatureProcessors {
             }
             Element sentence = (Element) DomUtils.getAncestor(segment, MaryXML.SENTENCE);
             if (sentence == null) return null;
-            TreeWalker tw = DomUtils.createTreeWalker(sentence, MaryXML.SYLLABLE);
+            TreeWalker tw = createTreeWalker(target, sentence, MaryXML.SYLLABLE);
             tw.setCurrentNode(current);
             Element next = (Element) tw.nextNode();
             Element nn = (Element) tw.nextNode();
@@ -423,7 +443,7 @@ public class MaryGenericFeatureProcessors {
             if (segment == null) return null;
             Element phrase = (Element) DomUtils.getAncestor(segment, MaryXML.PHRASE);
             if (phrase == null) return null;
-            TreeWalker tw = DomUtils.createTreeWalker(phrase, MaryXML.SYLLABLE);
+            TreeWalker tw = createTreeWalker(target, phrase, MaryXML.SYLLABLE);
             Element last = (Element) tw.lastChild();
             if (last != null) {
                 assert last.getTagName().equals(MaryXML.SYLLABLE) : "Unexpected tag name: expected " + MaryXML.SYLLABLE + ", got " + last.getTagName();
@@ -447,7 +467,7 @@ public class MaryGenericFeatureProcessors {
             }
             Element sentence = (Element) DomUtils.getAncestor(segment, MaryXML.SENTENCE);
             if (sentence == null) return null;
-            TreeWalker tw = DomUtils.createTreeWalker(sentence, MaryXML.TOKEN);
+            TreeWalker tw = createTreeWalker(target, sentence, MaryXML.TOKEN);
             tw.setCurrentNode(current);
             // The next word is the next token with a "ph" attribute:
             Element nextWord = null;
@@ -480,7 +500,7 @@ public class MaryGenericFeatureProcessors {
             }
             Element sentence = (Element) DomUtils.getAncestor(segment, MaryXML.SENTENCE);
             if (sentence == null) return null;
-            TreeWalker tw = DomUtils.createTreeWalker(sentence, MaryXML.TOKEN);
+            TreeWalker tw = createTreeWalker(target, sentence, MaryXML.TOKEN);
             tw.setCurrentNode(current);
             // The next word is the next token with a "ph" attribute:
             Element prevWord = null;
@@ -513,7 +533,7 @@ public class MaryGenericFeatureProcessors {
             }
             Element sentence = (Element) DomUtils.getAncestor(segment, MaryXML.SENTENCE);
             if (sentence == null) return null;
-            TreeWalker tw = DomUtils.createTreeWalker(sentence, MaryXML.TOKEN);
+            TreeWalker tw = createTreeWalker(target, sentence, MaryXML.TOKEN);
             tw.setCurrentNode(current);
             // The next word is the next token with a "ph" attribute:
             Element nextWord = null;
@@ -528,7 +548,7 @@ public class MaryGenericFeatureProcessors {
                 return null;
             }
             assert nextWord.getTagName().equals(MaryXML.TOKEN) : "Unexpected tag name: expected " + MaryXML.TOKEN + ", got " + nextWord.getTagName();
-            TreeWalker sw = DomUtils.createTreeWalker(nextWord, MaryXML.PHONE);
+            TreeWalker sw = createTreeWalker(target, nextWord, MaryXML.PHONE);
             Element first = (Element) sw.firstChild();
             if (first != null) {
                 assert first.getTagName().equals(MaryXML.PHONE) : "Unexpected tag name: expected " + MaryXML.PHONE + ", got " + first.getTagName();
@@ -544,7 +564,7 @@ public class MaryGenericFeatureProcessors {
             if (segment == null) return null;
             Element sentence = (Element) DomUtils.getAncestor(segment, MaryXML.SENTENCE);
             if (sentence == null) return null;
-            TreeWalker tw = DomUtils.createTreeWalker(sentence, MaryXML.TOKEN);
+            TreeWalker tw = createTreeWalker(target, sentence, MaryXML.TOKEN);
             Element lastWord = null;
             Element lastToken = (Element) tw.lastChild();
             // The last word is the lastToken which has a "ph" attribute:
@@ -828,7 +848,7 @@ public class MaryGenericFeatureProcessors {
             if (segment == null) return (byte) 0;
             Element sentence = (Element) DomUtils.getAncestor(segment, MaryXML.SENTENCE);
             if (sentence == null) return (byte) 0;
-            TreeWalker tw = DomUtils.createTreeWalker(sentence, MaryXML.PHRASE);
+            TreeWalker tw = createTreeWalker(target, sentence, MaryXML.PHRASE);
             int count = 0;
             Element e;
             while ((e = (Element) tw.nextNode()) != null && count < RAIL_LIMIT) {
@@ -866,7 +886,7 @@ public class MaryGenericFeatureProcessors {
             if (segment == null) return (byte) 0;
             Element sentence = (Element) DomUtils.getAncestor(segment, MaryXML.SENTENCE);
             if (sentence == null) return (byte) 0;
-            TreeWalker tw = DomUtils.createTreeWalker(sentence, MaryXML.TOKEN);
+            TreeWalker tw = createTreeWalker(target, sentence, MaryXML.TOKEN);
             int count = 0;
             Element e;
             while ((e = (Element) tw.nextNode()) != null && count < RAIL_LIMIT) {
@@ -904,7 +924,7 @@ public class MaryGenericFeatureProcessors {
             if (segment == null) return (byte) 0;
             Element phrase = (Element) DomUtils.getAncestor(segment, MaryXML.PHRASE);
             if (phrase == null) return (byte) 0;
-            TreeWalker tw = DomUtils.createTreeWalker(phrase, MaryXML.SYLLABLE);
+            TreeWalker tw = createTreeWalker(target, phrase, MaryXML.SYLLABLE);
             int count = 0;
             Element e;
             while ((e = (Element) tw.nextNode()) != null && count < RAIL_LIMIT) {
@@ -943,7 +963,7 @@ public class MaryGenericFeatureProcessors {
             if (segment == null) return (byte) 0;
             Element phrase = (Element) DomUtils.getAncestor(segment, MaryXML.PHRASE);
             if (phrase == null) return (byte) 0;
-            TreeWalker tw = DomUtils.createTreeWalker(phrase, MaryXML.TOKEN);
+            TreeWalker tw = createTreeWalker(target, phrase, MaryXML.TOKEN);
             int count = 0;
             Element e;
             while ((e = (Element) tw.nextNode()) != null && count < RAIL_LIMIT) {
@@ -982,7 +1002,7 @@ public class MaryGenericFeatureProcessors {
             if (segment == null) return (byte) 0;
             Element word = (Element) DomUtils.getAncestor(segment, MaryXML.TOKEN);
             if (word == null) return (byte) 0;
-            TreeWalker tw = DomUtils.createTreeWalker(word, MaryXML.SYLLABLE);
+            TreeWalker tw = createTreeWalker(target, word, MaryXML.SYLLABLE);
             int count = 0;
             Element e;
             while ((e = (Element) tw.nextNode()) != null && count < RAIL_LIMIT) {
@@ -1018,7 +1038,7 @@ public class MaryGenericFeatureProcessors {
             if (segment == null) return (byte) 0;
             Element word = (Element) DomUtils.getAncestor(segment, MaryXML.TOKEN);
             if (word == null) return (byte) 0;
-            TreeWalker tw = DomUtils.createTreeWalker(word, MaryXML.PHONE);
+            TreeWalker tw = createTreeWalker(target, word, MaryXML.PHONE);
             int count = 0;
             Element e;
             while ((e = (Element) tw.nextNode()) != null && count < RAIL_LIMIT) {
@@ -1060,7 +1080,7 @@ public class MaryGenericFeatureProcessors {
             if (!segment.getTagName().equals(MaryXML.PHONE)) return 0;
             Element syllable = (Element) segment.getParentNode();
             if (syllable == null) return (byte) 0;
-            TreeWalker tw = DomUtils.createTreeWalker(syllable, MaryXML.PHONE);
+            TreeWalker tw = createTreeWalker(target, syllable, MaryXML.PHONE);
             int count = 0;
             Element e;
             while ((e = (Element) tw.nextNode()) != null && count < RAIL_LIMIT) {
@@ -1183,7 +1203,7 @@ public class MaryGenericFeatureProcessors {
             if (segment == null) return (byte) 0;
             Element word = (Element) DomUtils.getAncestor(segment, MaryXML.TOKEN);
             if (word == null) return (byte) 0;
-            TreeWalker tw = DomUtils.createTreeWalker(word, MaryXML.PHONE);
+            TreeWalker tw = createTreeWalker(target, word, MaryXML.PHONE);
             tw.setCurrentNode(segment);
             int count = 0;
             Element e;
@@ -1223,7 +1243,7 @@ public class MaryGenericFeatureProcessors {
             if (segment == null) return (byte) 0;
             Element word = (Element) DomUtils.getAncestor(segment, MaryXML.TOKEN);
             if (word == null) return (byte) 0;
-            TreeWalker tw = DomUtils.createTreeWalker(word, MaryXML.PHONE);
+            TreeWalker tw = createTreeWalker(target, word, MaryXML.PHONE);
             tw.setCurrentNode(segment);
             int count = 0;
             Element e;
@@ -1350,7 +1370,7 @@ public class MaryGenericFeatureProcessors {
             assert word.getTagName().equals(MaryXML.TOKEN) : "Unexpected tag name: expected " + MaryXML.TOKEN + ", got " + word.getTagName();
             Element sentence = (Element) DomUtils.getAncestor(word, MaryXML.SENTENCE);
             if (sentence == null) return 0;
-            TreeWalker tw = DomUtils.createTreeWalker(sentence, MaryXML.TOKEN, MaryXML.BOUNDARY);
+            TreeWalker tw = createTreeWalker(target, sentence, MaryXML.TOKEN, MaryXML.BOUNDARY);
             tw.setCurrentNode(word);
             // The next word is the next token with a "ph" attribute:
             Element e;
@@ -1497,13 +1517,13 @@ public class MaryGenericFeatureProcessors {
             Element word = (Element) DomUtils.getAncestor(segment, MaryXML.TOKEN);
             if (word == null) return 0;
             // is there another segment following in the token?
-            TreeWalker tww = DomUtils.createTreeWalker(word, MaryXML.PHONE);
+            TreeWalker tww = createTreeWalker(target, word, MaryXML.PHONE);
             tww.setCurrentNode(segment);
             if (tww.nextNode() != null) return 0;
             // else, it is at least word-final.
             Element sentence = (Element) DomUtils.getAncestor(word, MaryXML.SENTENCE);
             if (sentence == null) return 0;
-            TreeWalker tw = DomUtils.createTreeWalker(sentence, MaryXML.TOKEN, MaryXML.BOUNDARY);
+            TreeWalker tw = createTreeWalker(target, sentence, MaryXML.TOKEN, MaryXML.BOUNDARY);
             tw.setCurrentNode(word);
             // The next word is the next token with a "ph" attribute:
             Element e;
@@ -1621,7 +1641,7 @@ public class MaryGenericFeatureProcessors {
             if (syllable == null) return 0;
             Element sentence = (Element) DomUtils.getAncestor(syllable, MaryXML.SENTENCE);
             if (sentence == null) return 0;
-            TreeWalker tw = DomUtils.createTreeWalker(sentence, MaryXML.SYLLABLE, MaryXML.BOUNDARY);
+            TreeWalker tw = createTreeWalker(target, sentence, MaryXML.SYLLABLE, MaryXML.BOUNDARY);
             tw.setCurrentNode(syllable);
             Element e = (Element) tw.nextNode();
             if (e == null) return 0;
@@ -1661,7 +1681,7 @@ public class MaryGenericFeatureProcessors {
             }
             Element phrase = (Element) DomUtils.getAncestor(current, MaryXML.PHRASE);
             if (phrase == null) return 0;
-            TreeWalker tw = DomUtils.createTreeWalker(phrase, MaryXML.SYLLABLE);
+            TreeWalker tw = createTreeWalker(target, phrase, MaryXML.SYLLABLE);
             tw.setCurrentNode(current);
             Element s;
             while ((s = (Element) tw.nextNode()) != null) {
@@ -1700,7 +1720,7 @@ public class MaryGenericFeatureProcessors {
             }
             Element phrase = (Element) DomUtils.getAncestor(current, MaryXML.PHRASE);
             if (phrase == null) return 0;
-            TreeWalker tw = DomUtils.createTreeWalker(phrase, MaryXML.SYLLABLE);
+            TreeWalker tw = createTreeWalker(target, phrase, MaryXML.SYLLABLE);
             tw.setCurrentNode(current);
             Element s;
             while ((s = (Element) tw.previousNode()) != null) {
@@ -1779,7 +1799,7 @@ public class MaryGenericFeatureProcessors {
             Element phrase = (Element) DomUtils.getAncestor(segment, MaryXML.PHRASE);
             if (phrase == null) return 0;
             int count = 0;
-            TreeWalker tw = DomUtils.createTreeWalker(phrase, MaryXML.SYLLABLE);
+            TreeWalker tw = createTreeWalker(target, phrase, MaryXML.SYLLABLE);
             Element syllable = (Element) DomUtils.getAncestor(segment, MaryXML.SYLLABLE);
             if (syllable != null) {
                 tw.setCurrentNode(syllable);
@@ -1822,7 +1842,7 @@ public class MaryGenericFeatureProcessors {
             Element phrase = (Element) DomUtils.getAncestor(segment, MaryXML.PHRASE);
             if (phrase == null) return 0;
             int count = 0;
-            TreeWalker tw = DomUtils.createTreeWalker(phrase, MaryXML.SYLLABLE);
+            TreeWalker tw = createTreeWalker(target, phrase, MaryXML.SYLLABLE);
             tw.setCurrentNode(segment);
             Element e;
             while ((e = (Element) tw.nextNode()) != null && count < RAIL_LIMIT) {
@@ -1860,7 +1880,7 @@ public class MaryGenericFeatureProcessors {
             Element phrase = (Element) DomUtils.getAncestor(segment, MaryXML.PHRASE);
             if (phrase == null) return 0;
             int count = 0;
-            TreeWalker tw = DomUtils.createTreeWalker(phrase, MaryXML.SYLLABLE);
+            TreeWalker tw = createTreeWalker(target, phrase, MaryXML.SYLLABLE);
             Element syllable = (Element) DomUtils.getAncestor(segment, MaryXML.SYLLABLE);
             if (syllable != null) {
                 tw.setCurrentNode(syllable);
@@ -1905,7 +1925,7 @@ public class MaryGenericFeatureProcessors {
             Element phrase = (Element) DomUtils.getAncestor(segment, MaryXML.PHRASE);
             if (phrase == null) return 0;
             int count = 0;
-            TreeWalker tw = DomUtils.createTreeWalker(phrase, MaryXML.SYLLABLE);
+            TreeWalker tw = createTreeWalker(target, phrase, MaryXML.SYLLABLE);
             tw.setCurrentNode(segment);
             Element e;
             while ((e = (Element) tw.nextNode()) != null && count < RAIL_LIMIT) {
@@ -1945,7 +1965,7 @@ public class MaryGenericFeatureProcessors {
             Element phrase = (Element) DomUtils.getAncestor(segment, MaryXML.PHRASE);
             if (phrase == null) return 0;
             int count = 0;
-            TreeWalker tw = DomUtils.createTreeWalker(phrase, MaryXML.SYLLABLE);
+            TreeWalker tw = createTreeWalker(target, phrase, MaryXML.SYLLABLE);
             Element syllable = (Element) DomUtils.getAncestor(segment, MaryXML.SYLLABLE);
             if (syllable != null) {
                 tw.setCurrentNode(syllable);
@@ -1991,7 +2011,7 @@ public class MaryGenericFeatureProcessors {
             Element phrase = (Element) DomUtils.getAncestor(segment, MaryXML.PHRASE);
             if (phrase == null) return 0;
             int count = 0;
-            TreeWalker tw = DomUtils.createTreeWalker(phrase, MaryXML.SYLLABLE);
+            TreeWalker tw = createTreeWalker(target, phrase, MaryXML.SYLLABLE);
             tw.setCurrentNode(segment);
             Element e;
             while ((e = (Element) tw.nextNode()) != null && count < RAIL_LIMIT) {
@@ -2032,7 +2052,7 @@ public class MaryGenericFeatureProcessors {
             Element phrase = (Element) DomUtils.getAncestor(segment, MaryXML.PHRASE);
             if (phrase == null) return 0;
             int count = 0;
-            TreeWalker tw = DomUtils.createTreeWalker(phrase, MaryXML.TOKEN);
+            TreeWalker tw = createTreeWalker(target, phrase, MaryXML.TOKEN);
             Element word = (Element) DomUtils.getAncestor(segment, MaryXML.TOKEN);
             if (word != null) {
                 tw.setCurrentNode(word);
@@ -2077,7 +2097,7 @@ public class MaryGenericFeatureProcessors {
             Element phrase = (Element) DomUtils.getAncestor(segment, MaryXML.PHRASE);
             if (phrase == null) return 0;
             int count = 0;
-            TreeWalker tw = DomUtils.createTreeWalker(phrase, MaryXML.TOKEN);
+            TreeWalker tw = createTreeWalker(target, phrase, MaryXML.TOKEN);
             tw.setCurrentNode(segment);
             Element e;
             while ((e = (Element) tw.nextNode()) != null && count < RAIL_LIMIT) {
@@ -2117,7 +2137,7 @@ public class MaryGenericFeatureProcessors {
             Element sentence = (Element) DomUtils.getAncestor(segment, MaryXML.SENTENCE);
             if (sentence == null) return 0;
             int count = 0;
-            TreeWalker tw = DomUtils.createTreeWalker(sentence, MaryXML.TOKEN);
+            TreeWalker tw = createTreeWalker(target, sentence, MaryXML.TOKEN);
             Element word = (Element) DomUtils.getAncestor(segment, MaryXML.TOKEN);
             if (word != null) {
                 tw.setCurrentNode(word);
@@ -2162,7 +2182,7 @@ public class MaryGenericFeatureProcessors {
             Element sentence = (Element) DomUtils.getAncestor(segment, MaryXML.SENTENCE);
             if (sentence == null) return 0;
             int count = 0;
-            TreeWalker tw = DomUtils.createTreeWalker(sentence, MaryXML.TOKEN);
+            TreeWalker tw = createTreeWalker(target, sentence, MaryXML.TOKEN);
             tw.setCurrentNode(segment);
             Element e;
             while ((e = (Element) tw.nextNode()) != null && count < RAIL_LIMIT) {
@@ -2202,7 +2222,7 @@ public class MaryGenericFeatureProcessors {
             Element sentence = (Element) DomUtils.getAncestor(segment, MaryXML.SENTENCE);
             if (sentence == null) return 0;
             int count = 0;
-            TreeWalker tw = DomUtils.createTreeWalker(sentence, MaryXML.PHRASE);
+            TreeWalker tw = createTreeWalker(target, sentence, MaryXML.PHRASE);
             Element phrase = (Element) DomUtils.getAncestor(segment, MaryXML.PHRASE);
             if (phrase != null) {
                 tw.setCurrentNode(phrase);
@@ -2245,7 +2265,7 @@ public class MaryGenericFeatureProcessors {
             Element sentence = (Element) DomUtils.getAncestor(segment, MaryXML.SENTENCE);
             if (sentence == null) return 0;
             int count = 0;
-            TreeWalker tw = DomUtils.createTreeWalker(sentence, MaryXML.PHRASE);
+            TreeWalker tw = createTreeWalker(target, sentence, MaryXML.PHRASE);
             tw.setCurrentNode(segment);
             Element e;
             while ((e = (Element) tw.nextNode()) != null && count < RAIL_LIMIT) {
@@ -2284,7 +2304,7 @@ public class MaryGenericFeatureProcessors {
             Element phrase = (Element) DomUtils.getAncestor(segment, MaryXML.PHRASE);
             if (phrase == null) return 0;
             int count = 0;
-            TreeWalker tw = DomUtils.createTreeWalker(phrase, MaryXML.SYLLABLE);
+            TreeWalker tw = createTreeWalker(target, phrase, MaryXML.SYLLABLE);
             Element syllable = (Element) DomUtils.getAncestor(segment, MaryXML.SYLLABLE);
             if (syllable != null) {
                 tw.setCurrentNode(syllable);
@@ -2330,7 +2350,7 @@ public class MaryGenericFeatureProcessors {
             Element phrase = (Element) DomUtils.getAncestor(segment, MaryXML.PHRASE);
             if (phrase == null) return 0;
             int count = 0;
-            TreeWalker tw = DomUtils.createTreeWalker(phrase, MaryXML.SYLLABLE);
+            TreeWalker tw = createTreeWalker(target, phrase, MaryXML.SYLLABLE);
             tw.setCurrentNode(segment);
             Element e;
             while ((e = (Element) tw.nextNode()) != null && count < RAIL_LIMIT) {
@@ -2371,7 +2391,7 @@ public class MaryGenericFeatureProcessors {
             Element phrase = (Element) DomUtils.getAncestor(segment, MaryXML.PHRASE);
             if (phrase == null) return 0;
             int count = 0;
-            TreeWalker tw = DomUtils.createTreeWalker(phrase, MaryXML.SYLLABLE);
+            TreeWalker tw = createTreeWalker(target, phrase, MaryXML.SYLLABLE);
             Element syllable = (Element) DomUtils.getAncestor(segment, MaryXML.SYLLABLE);
             if (syllable != null) {
                 tw.setCurrentNode(syllable);
@@ -2417,7 +2437,7 @@ public class MaryGenericFeatureProcessors {
             Element phrase = (Element) DomUtils.getAncestor(segment, MaryXML.PHRASE);
             if (phrase == null) return 0;
             int count = 0;
-            TreeWalker tw = DomUtils.createTreeWalker(phrase, MaryXML.SYLLABLE);
+            TreeWalker tw = createTreeWalker(target, phrase, MaryXML.SYLLABLE);
             tw.setCurrentNode(segment);
             Element e;
             while ((e = (Element) tw.nextNode()) != null && count < RAIL_LIMIT) {
@@ -2467,7 +2487,7 @@ public class MaryGenericFeatureProcessors {
             if (word == null) return 0;
             Element sentence = (Element) DomUtils.getAncestor(word, MaryXML.SENTENCE);
             if (sentence == null) return 0;
-            TreeWalker tw = DomUtils.createTreeWalker(sentence, MaryXML.TOKEN, MaryXML.BOUNDARY);
+            TreeWalker tw = createTreeWalker(target, sentence, MaryXML.TOKEN, MaryXML.BOUNDARY);
             tw.setCurrentNode(word);
             Element next = (Element) tw.nextNode();
             if (next == null || !next.getTagName().equals(MaryXML.TOKEN) || next.hasAttribute("ph"))
@@ -2495,7 +2515,7 @@ public class MaryGenericFeatureProcessors {
             if (word == null) return 0;
             Element sentence = (Element) DomUtils.getAncestor(word, MaryXML.SENTENCE);
             if (sentence == null) return 0;
-            TreeWalker tw = DomUtils.createTreeWalker(sentence, MaryXML.TOKEN);
+            TreeWalker tw = createTreeWalker(target, sentence, MaryXML.TOKEN);
             tw.setCurrentNode(word);
             Element e;
             while ((e = (Element) tw.nextNode()) != null) {
@@ -2526,7 +2546,7 @@ public class MaryGenericFeatureProcessors {
             if (word == null) return 0;
             Element sentence = (Element) DomUtils.getAncestor(word, MaryXML.SENTENCE);
             if (sentence == null) return 0;
-            TreeWalker tw = DomUtils.createTreeWalker(sentence, MaryXML.TOKEN);
+            TreeWalker tw = createTreeWalker(target, sentence, MaryXML.TOKEN);
             tw.setCurrentNode(word);
             Element e;
             while ((e = (Element) tw.previousNode()) != null) {
@@ -2562,7 +2582,7 @@ public class MaryGenericFeatureProcessors {
             if (word == null) return 0;
             Element sentence = (Element) DomUtils.getAncestor(word, MaryXML.SENTENCE);
             if (sentence == null) return 0;
-            TreeWalker tw = DomUtils.createTreeWalker(sentence, MaryXML.TOKEN);
+            TreeWalker tw = createTreeWalker(target, sentence, MaryXML.TOKEN);
             tw.setCurrentNode(word);
             Element e;
             int count = 0;
@@ -2600,7 +2620,7 @@ public class MaryGenericFeatureProcessors {
             if (word == null) return 0;
             Element sentence = (Element) DomUtils.getAncestor(word, MaryXML.SENTENCE);
             if (sentence == null) return 0;
-            TreeWalker tw = DomUtils.createTreeWalker(sentence, MaryXML.TOKEN);
+            TreeWalker tw = createTreeWalker(target, sentence, MaryXML.TOKEN);
             tw.setCurrentNode(word);
             Element e;
             int count = 0;
@@ -2676,7 +2696,7 @@ public class MaryGenericFeatureProcessors {
             String endtone = null;
             Element sentence = (Element) DomUtils.getAncestor(syllable, MaryXML.SENTENCE);
             if (sentence == null) return 0;
-            TreeWalker tw = DomUtils.createTreeWalker(sentence, MaryXML.SYLLABLE, MaryXML.BOUNDARY);
+            TreeWalker tw = createTreeWalker(target, sentence, MaryXML.SYLLABLE, MaryXML.BOUNDARY);
             tw.setCurrentNode(syllable);
             Element e = (Element) tw.nextNode();
             if (e != null) {
@@ -2841,7 +2861,7 @@ public class MaryGenericFeatureProcessors {
 
                 // get all phone units in the same phrase
                 Element phraseElement = (Element) DomUtils.getAncestor(seg, MaryXML.PHRASE);
-                TreeWalker tw = DomUtils.createTreeWalker(seg.getOwnerDocument(), phraseElement, MaryXML.PHONE);
+                TreeWalker tw = createTreeWalker(target, phraseElement, MaryXML.PHONE);
                 Element en;
                 while ((en = (Element) tw.nextNode()) != null) {
                     if (en == seg) {
@@ -2870,7 +2890,7 @@ public class MaryGenericFeatureProcessors {
 
                 // get all phone units in the same phrase
                 Element phraseElement = (Element) DomUtils.getAncestor(seg, MaryXML.PHRASE);
-                TreeWalker tw = DomUtils.createTreeWalker(seg.getOwnerDocument(), phraseElement, MaryXML.PHONE);
+                TreeWalker tw = createTreeWalker(target, phraseElement, MaryXML.PHONE);
                 Element en;
                 while ((en = (Element) tw.nextNode()) != null) {
                     if (en == seg) {
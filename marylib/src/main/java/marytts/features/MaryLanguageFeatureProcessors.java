@@ -464,9 +464,8 @@ public class MaryLanguageFeatureProcessors extends MaryGenericFeatureProcessors
             if (word == null) return (byte) 0;
             String wordString = MaryDomUtils.tokenText(word);
             if (wordFrequencies != null) {
-                String[] result = wordFrequencies.lookup(wordString);
-                if (result.length > 0) {
-                    String freq = result[0];
+                String freq = wordFrequencies.lookupFirst(wordString);
+                if (freq != null) {
                     if (values.contains(freq))
                         return values.get(freq);
                 }
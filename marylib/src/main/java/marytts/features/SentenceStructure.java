@@ -0,0 +1,391 @@
+/**
+ * Copyright 2009 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ * <p/>
+ * This file is part of MARY TTS.
+ * <p/>
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ * <p/>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * <p/>
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package marytts.features;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import marytts.datatypes.MaryXML;
+import marytts.unitselection.select.DiphoneTarget;
+import marytts.unitselection.select.Target;
+import marytts.util.dom.DomUtils;
+import mf.org.w3c.dom.Element;
+import mf.org.w3c.dom.Node;
+import mf.org.w3c.dom.traversal.NodeFilter;
+import mf.org.w3c.dom.traversal.TreeWalker;
+
+/**
+ * An index of the element structure of one sentence, built once and shared by the targets of the sentence.
+ * <p/>
+ * All elements of the sentence are numbered in document order, and for each tag name the positions of
+ * its elements are kept in a sorted array. Tree walkers created by
+ * {@link #createTreeWalker(Node, String...)} use these arrays to find the previous, next, first or last
+ * element of a kind in a few array lookups, instead of visiting every intermediate node of the DOM tree.
+ * This is what most target feature processors do, for every target and every feature.
+ * <p/>
+ * The index reflects the sentence structure at the time it was built; it is meant to be used while
+ * computing features, when elements are not added or removed. Attribute values are always read from the
+ * elements themselves.
+ */
+public class SentenceStructure {
+
+    // the tags most feature processors look for; other tags are indexed on demand
+    private static final String[] INDEXED_TAGS = {MaryXML.PHONE, MaryXML.BOUNDARY, MaryXML.SYLLABLE, MaryXML.TOKEN, MaryXML.PHRASE};
+
+    private final Element sentence;
+    // all elements of the sentence in document order, the sentence first
+    private final Element[] elements;
+    private final int[] parent;
+    // one past the position of the last descendant
+    private final int[] subtreeEnd;
+    private final Map<Node, Integer> positions;
+    private final Map<String, int[]> tagPositions;
+
+    /**
+     * Build the index for the given sentence.
+     *
+     * @param sentence a MaryXML sentence element
+     */
+    public SentenceStructure(Element sentence) {
+        this.sentence = sentence;
+        List<Element> elementList = new ArrayList<Element>();
+        List<Integer> parentList = new ArrayList<Integer>();
+        List<Integer> endList = new ArrayList<Integer>();
+        positions = new IdentityHashMap<Node, Integer>();
+
+        // iterative pre-order traversal of the element tree
+        elementList.add(sentence);
+        parentList.add(-1);
+        endList.add(0);
+        positions.put(sentence, 0);
+        int current = 0;
+        Node next = sentence.getFirstChild();
+        while (current >= 0) {
+            while (next != null && next.getNodeType() != Node.ELEMENT_NODE) {
+                next = next.getNextSibling();
+            }
+            if (next != null) {
+                int pos = elementList.size();
+                elementList.add((Element) next);
+                parentList.add(current);
+                endList.add(0);
+                positions.put(next, pos);
+                current = pos;
+                next = next.getFirstChild();
+            } else {
+                // all children of current done
+                endList.set(current, elementList.size());
+                next = elementList.get(current).getNextSibling();
+                current = parentList.get(current);
+            }
+        }
+
+        int numElements = elementList.size();
+        elements = elementList.toArray(new Element[numElements]);
+        parent = new int[numElements];
+        subtreeEnd = new int[numElements];
+        for (int i = 0; i < numElements; i++) {
+            parent[i] = parentList.get(i);
+            subtreeEnd[i] = endList.get(i);
+        }
+        tagPositions = new HashMap<String, int[]>();
+        for (String tag : INDEXED_TAGS) {
+            tagPositions.put(tag, findPositions(tag));
+        }
+    }
+
+    /**
+     * Build one index per sentence for the given targets and attach it to them,
+     * so that their features are computed with the current sentence structure.
+     *
+     * @param targets targets, usually of one or more consecutive sentences
+     */
+    public static void attach(List<? extends Target> targets) {
+        Map<Element, SentenceStructure> structures = new IdentityHashMap<Element, SentenceStructure>();
+        for (Target target : targets) {
+            if (target instanceof DiphoneTarget) {
+                attach(((DiphoneTarget) target).left, structures);
+                attach(((DiphoneTarget) target).right, structures);
+            } else {
+                attach(target, structures);
+            }
+        }
+    }
+
+    private static void attach(Target target, Map<Element, SentenceStructure> structures) {
+        Element element = target.getMaryxmlElement();
+        if (element == null) {
+            return;
+        }
+        Element sentence = (Element) DomUtils.getAncestor(element, MaryXML.SENTENCE);
+        if (sentence == null) {
+            return;
+        }
+        SentenceStructure structure = structures.get(sentence);
+        if (structure == null) {
+            structure = new SentenceStructure(sentence);
+            structures.put(sentence, structure);
+        }
+        target.setSentenceStructure(structure);
+    }
+
+    public Element getSentence() {
+        return sentence;
+    }
+
+    /**
+     * @return true if node is the sentence or one of its descendant elements
+     */
+    public boolean contains(Node node) {
+        return positions.containsKey(node);
+    }
+
+    /**
+     * Create a tree walker showing the elements with the given tag names below root, like
+     * {@link DomUtils#createTreeWalker(Node, String...)}. The walker supports
+     * setCurrentNode(), firstChild(), lastChild(), previousNode() and nextNode().
+     *
+     * @param root     the sentence or one of its descendant elements
+     * @param tagNames the tag names of the elements to show
+     * @throws IllegalArgumentException if root is not in this sentence
+     */
+    public TreeWalker createTreeWalker(Node root, String... tagNames) {
+        Integer pos = positions.get(root);
+        if (pos == null) {
+            throw new IllegalArgumentException("Root is not part of this sentence");
+        }
+        int[][] tagArrays = new int[tagNames.length][];
+        for (int i = 0; i < tagNames.length; i++) {
+            tagArrays[i] = getPositions(tagNames[i]);
+        }
+        return new StructureTreeWalker(pos, tagNames, tagArrays);
+    }
+
+    private synchronized int[] getPositions(String tagName) {
+        int[] tagArray = tagPositions.get(tagName);
+        if (tagArray == null) {
+            tagArray = findPositions(tagName);
+            tagPositions.put(tagName, tagArray);
+        }
+        return tagArray;
+    }
+
+    private int[] findPositions(String tagName) {
+        int[] found = new int[elements.length];
+        int n = 0;
+        for (int i = 0; i < elements.length; i++) {
+            if (elements[i].getTagName().equals(tagName)) {
+                found[n++] = i;
+            }
+        }
+        return Arrays.copyOf(found, n);
+    }
+
+    /**
+     * A read-only tree walker over the index. Calls it does not support, and walks that would leave
+     * the index, are handed over to a DOM tree walker.
+     */
+    private class StructureTreeWalker implements TreeWalker {
+        private final int root;
+        private final int end;
+        private final String[] tagNames;
+        private final int[][] tagArrays;
+        private int current;
+        private TreeWalker domWalker;
+
+        StructureTreeWalker(int root, String[] tagNames, int[][] tagArrays) {
+            this.root = root;
+            this.end = subtreeEnd[root];
+            this.tagNames = tagNames;
+            this.tagArrays = tagArrays;
+            this.current = root;
+        }
+
+        private TreeWalker getDomWalker() {
+            if (domWalker == null) {
+                domWalker = DomUtils.createTreeWalker(elements[root], tagNames);
+                domWalker.setCurrentNode(elements[current]);
+            }
+            return domWalker;
+        }
+
+        private boolean accepts(int pos) {
+            String tagName = elements[pos].getTagName();
+            for (String t : tagNames) {
+                if (t.equals(tagName)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * The last shown position before pos, or -1.
+         */
+        private int previousPosition(int pos) {
+            int result = -1;
+            for (int[] tagArray : tagArrays) {
+                int i = Arrays.binarySearch(tagArray, pos);
+                // insertion point, or the position itself if pos is shown
+                i = i >= 0 ? i - 1 : -i - 2;
+                if (i >= 0 && tagArray[i] > result) {
+                    result = tagArray[i];
+                }
+            }
+            return result;
+        }
+
+        /**
+         * The first shown position after pos, or Integer.MAX_VALUE.
+         */
+        private int nextPosition(int pos) {
+            int result = Integer.MAX_VALUE;
+            for (int[] tagArray : tagArrays) {
+                int i = Arrays.binarySearch(tagArray, pos);
+                i = i >= 0 ? i + 1 : -i - 1;
+                if (i < tagArray.length && tagArray[i] < result) {
+                    result = tagArray[i];
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public Node getRoot() {
+            return elements[root];
+        }
+
+        @Override
+        public int getWhatToShow() {
+            return NodeFilter.SHOW_ELEMENT;
+        }
+
+        @Override
+        public NodeFilter getFilter() {
+            return getDomWalker().getFilter();
+        }
+
+        @Override
+        public boolean getExpandEntityReferences() {
+            return false;
+        }
+
+        @Override
+        public Node getCurrentNode() {
+            if (domWalker != null) {
+                return domWalker.getCurrentNode();
+            }
+            return elements[current];
+        }
+
+        @Override
+        public void setCurrentNode(Node currentNode) {
+            if (domWalker != null) {
+                domWalker.setCurrentNode(currentNode);
+                return;
+            }
+            Integer pos = positions.get(currentNode);
+            if (pos == null || pos < root || pos >= end) {
+                // outside of the root: walk the DOM from here on
+                getDomWalker().setCurrentNode(currentNode);
+                return;
+            }
+            current = pos;
+        }
+
+        @Override
+        public Node firstChild() {
+            if (domWalker != null) {
+                return domWalker.firstChild();
+            }
+            int pos = nextPosition(current);
+            if (pos >= subtreeEnd[current]) {
+                return null;
+            }
+            current = pos;
+            return elements[current];
+        }
+
+        @Override
+        public Node lastChild() {
+            if (domWalker != null) {
+                return domWalker.lastChild();
+            }
+            int pos = previousPosition(subtreeEnd[current]);
+            if (pos <= current) {
+                return null;
+            }
+            // the last child is the outermost shown ancestor of the last shown descendant
+            int result = pos;
+            for (int p = parent[pos]; p > current; p = parent[p]) {
+                if (accepts(p)) {
+                    result = p;
+                }
+            }
+            current = result;
+            return elements[current];
+        }
+
+        @Override
+        public Node previousNode() {
+            if (domWalker != null) {
+                return domWalker.previousNode();
+            }
+            // in reverse document order, ancestors included; like the DOM walker, this may return the root
+            int pos = previousPosition(current);
+            if (pos < root) {
+                return null;
+            }
+            current = pos;
+            return elements[current];
+        }
+
+        @Override
+        public Node nextNode() {
+            if (domWalker != null) {
+                return domWalker.nextNode();
+            }
+            int pos = nextPosition(current);
+            if (pos >= end) {
+                return null;
+            }
+            current = pos;
+            return elements[current];
+        }
+
+        @Override
+        public Node parentNode() {
+            return getDomWalker().parentNode();
+        }
+
+        @Override
+        public Node previousSibling() {
+            return getDomWalker().previousSibling();
+        }
+
+        @Override
+        public Node nextSibling() {
+            return getDomWalker().nextSibling();
+        }
+    }
+}
@@ -18,33 +18,36 @@
  */
 package marytts.fst;
 
-import java.io.BufferedInputStream;
-import java.io.DataInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
-import java.util.ArrayList;
 
 /**
  * An implementation of a finite state transducer. This class does nothing but
  * load and represent the FST. It is used by other classes doing something
  * reasonable with it.
+ * <p/>
+ * The arcs, label offsets and label bytes are not decoded into arrays but are
+ * read directly from the file image: an FST loaded from a file is memory-mapped,
+ * so that its pages are shared between processes and live outside the heap;
+ * an FST loaded from any other stream is kept as a single byte array. Label
+ * strings are decoded when first used.
  *
  * @author Andreas Eisele
  */
 public class FST {
-    // The following variables are package-readable, so that they can be
-    // directly accessed by all classes in this package.
-    int[] targets;
-    short[] labels;
-    boolean[] isLast;
-
-    short[] offsets;
-    byte[] bytes;
-    int[] mapping;
-    ArrayList strings = new ArrayList();
+    private ByteBuffer arcs;
+    private ByteBuffer offsets;
+    private ByteBuffer bytes;
+    private Charset charset;
+    // Decoded label strings, indexed like the offsets. Filled lazily;
+    // concurrent fills of the same slot compute equal immutable strings.
+    private String[] strings;
 
     public FST(String fileName) throws IOException {
         FileInputStream fis = new FileInputStream(fileName);
@@ -129,127 +132,131 @@ public class FST {
 
     private void load(InputStream inStream)
             throws IOException {
-        int i;
-        DataInputStream in = new DataInputStream(new BufferedInputStream(inStream));
-        //int fileSize= (int) f.length();
-        int fileSize = in.available(); // TODO: how robust is this??
+        ByteBuffer in = readImage(inStream);
 
-        int encLen = in.readInt();
+        int encLen = in.getInt();
         byte[] encBytes = new byte[encLen];
-
-        in.read(encBytes, 0, encLen);
+        in.get(encBytes);
         String encoding = new String(encBytes, "UTF-8");
 
 
         if (!Charset.isSupported(encoding))
             throw new IOException("Encoding of FST file not correctly specified. Maybe file in old format.");
 
-        int overallBits = in.readInt();
-        int arcOffBits = in.readInt();
-
-        //System.out.println("bits: " + overallBits + "-" + arcOffBits);
+        int overallBits = in.getInt();
+        int arcOffBits = in.getInt();
 
         // todo: allow for more flexibility
         if (overallBits != 32 || arcOffBits != 20) {
             throw new IOException("Cannot handle non-standard bit allocation for label and arc id's.");
         }
 
-        int nArcs = in.readInt();
-        // arcs = new int[nArcs];
-
-        targets = new int[nArcs];
-        labels = new short[nArcs];
-        isLast = new boolean[nArcs];
+        init(in, Charset.forName(encoding));
+    }
 
-        for (i = 0; i < nArcs; i++) {
-            int thisArc = in.readInt();
+    private void loadHeaderless(InputStream inStream, String encoding, boolean verbose)
+            throws IOException {
+        if (encoding != null && !Charset.isSupported(encoding))
+            throw new UnsupportedEncodingException(encoding);
+        ByteBuffer in = readImage(inStream);
+        int fileSize = in.remaining();
+        init(in, encoding != null ? Charset.forName(encoding) : Charset.defaultCharset());
+        if (verbose) {
+            System.err.println("FST ("
+                    + fileSize + " Bytes, "
+                    + getNumArcs() + " Arcs, "
+                    + offsets.capacity() / 4 + " Labels)"
+                    + " loaded");
+        }
+    }
 
-            targets[i] = thisArc & 1048575;
-            labels[i] = (short) ((thisArc >> 20) & 2047);
-            isLast[i] = ((byte) (thisArc >> 31)) != 0;
+    private void init(ByteBuffer in, Charset charset) {
+        int nArcs = in.getInt();
+        arcs = section(in, 4 * nArcs);
+        int nPairs = in.getInt();
+        offsets = section(in, 4 * nPairs);
+        bytes = in.slice();
+        this.charset = charset;
+        strings = new String[2 * nPairs];
+    }
 
+    /**
+     * Map the remainder of a file stream, or read any other stream into memory.
+     * The stream is closed afterwards; a mapping stays valid after that.
+     */
+    private static ByteBuffer readImage(InputStream inStream) throws IOException {
+        try {
+            if (inStream instanceof FileInputStream) {
+                FileChannel channel = ((FileInputStream) inStream).getChannel();
+                long position = channel.position();
+                return channel.map(FileChannel.MapMode.READ_ONLY, position, channel.size() - position);
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(inStream.available(), 4096));
+            byte[] buf = new byte[8192];
+            int n;
+            while ((n = inStream.read(buf)) != -1) {
+                out.write(buf, 0, n);
+            }
+            return ByteBuffer.wrap(out.toByteArray());
+        } finally {
+            inStream.close();
         }
+    }
 
-        int nPairs = in.readInt();
-        offsets = new short[2 * nPairs];
-        for (i = 0; i < 2 * nPairs; i++)
-            offsets[i] = in.readShort();
-        //int nBytes = fileSize - 8 - 4 * (nPairs + nArcs);
-        int nBytes = fileSize - 20 - encLen - 4 * (nPairs + nArcs);
-        mapping = new int[nBytes];
-        bytes = new byte[nBytes];
-        in.readFully(bytes);
-        assert in.available() == 0 : "Partial file read... not good";
-
-        in.close();
-        createMapping(mapping, bytes, encoding);
+    private static ByteBuffer section(ByteBuffer in, int length) {
+        ByteBuffer section = in.slice();
+        section.limit(length);
+        in.position(in.position() + length);
+        return section;
     }
 
-    private void loadHeaderless(InputStream inStream, String encoding, boolean verbose)
-            throws IOException {
-        int i;
-        DataInputStream in = new DataInputStream(new BufferedInputStream(inStream));
-        //int fileSize= (int) f.length();
-        int fileSize = in.available(); // TODO: how robust is this??
-        int nArcs = in.readInt();
-        // arcs = new int[nArcs];
+    int getNumArcs() {
+        return arcs.capacity() / 4;
+    }
 
-        targets = new int[nArcs];
-        labels = new short[nArcs];
-        isLast = new boolean[nArcs];
+    /**
+     * The packed arc with the given index, to be decoded with
+     * {@link #target(int)}, {@link #label(int)} and {@link #isLast(int)}.
+     */
+    int getArc(int arc) {
+        return arcs.getInt(4 * arc);
+    }
 
-        for (i = 0; i < nArcs; i++) {
-            int thisArc = in.readInt();
+    static int target(int packedArc) {
+        return packedArc & 1048575;
+    }
 
-            targets[i] = thisArc & 1048575;
-            labels[i] = (short) ((thisArc >> 20) & 2047);
-            isLast[i] = ((byte) (thisArc >> 31)) != 0;
+    static int label(int packedArc) {
+        return (packedArc >> 20) & 2047;
+    }
 
-        }
+    static boolean isLast(int packedArc) {
+        return packedArc < 0;
+    }
 
-        int nPairs = in.readInt();
-        offsets = new short[2 * nPairs];
-        for (i = 0; i < 2 * nPairs; i++)
-            offsets[i] = in.readShort();
-        int nBytes = fileSize - 8 - 4 * (nPairs + nArcs);
-        mapping = new int[nBytes];
-        bytes = new byte[nBytes];
-        in.readFully(bytes);
-        if (verbose) {
-            System.err.println("FST ("
-                    + fileSize + " Bytes, "
-                    + nArcs + " Arcs, "
-                    + nPairs + " Labels)"
-                    + " loaded");
-        }
-        in.close();
-        createMapping(mapping, bytes, encoding);
-    }
-
-    private void createMapping(int[] mapping, byte[] bytes, String encoding)
-            throws UnsupportedEncodingException {
-        mapping[0] = 0;
-        int last0 = -1;
-        String s;
-        int len;
-        for (int i = 0; i < bytes.length; i++) {
-            if (bytes[i] == 0) {
-                len = i - last0 - 1;
-                if (len == 0) strings.add("");
-                else {
-                    String str;
-                    if (encoding != null)
-                        str = new String(bytes, last0 + 1, len, encoding);
-                    else
-                        str = new String(bytes, last0 + 1, len);
-                    strings.add(str);
-                }
-                mapping[last0 + 1] = strings.size() - 1;
-                last0 = i;
+    /**
+     * The input or output string of the given label.
+     *
+     * @param label  a label as returned by {@link #label(int)}
+     * @param output false for the input side, true for the output side
+     */
+    String getString(int label, boolean output) {
+        int index = output ? 2 * label + 1 : 2 * label;
+        String s = strings[index];
+        if (s == null) {
+            int start = offsets.getShort(2 * index);
+            int end = start;
+            while (bytes.get(end) != 0) {
+                end++;
+            }
+            byte[] b = new byte[end - start];
+            for (int i = 0; i < b.length; i++) {
+                b[i] = bytes.get(start + i);
             }
+            s = new String(b, charset);
+            strings[index] = s;
         }
+        return s;
     }
 }
 
-
-
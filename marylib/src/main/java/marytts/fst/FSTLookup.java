@@ -25,6 +25,7 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -37,9 +38,10 @@ import java.util.Map;
 public class FSTLookup {
     /////////////////////// Static FST repository ////////////////////
     /**
-     * Map "filename encoding" or "filename" to FST.
+     * Map "filename encoding" or "filename" to FST. Guarded by itself, so that
+     * modules starting up in parallel share a single instance of each FST.
      */
-    private static Map<String, FST> knownFSTs = new HashMap<String, FST>();
+    private static final Map<String, FST> knownFSTs = new HashMap<String, FST>();
 
 
     ////////////////////// An individual FSTLookup class //////////////
@@ -159,24 +161,42 @@ public class FSTLookup {
     }
 
     private void init(InputStream inStream, String identifier) throws IOException {
-        fst = knownFSTs.get(identifier);
-        if (fst == null) {
-            fst = new FST(inStream);
-            knownFSTs.put(identifier, fst);
+        synchronized (knownFSTs) {
+            fst = knownFSTs.get(identifier);
+            if (fst == null) {
+                fst = new FST(inStream);
+                knownFSTs.put(identifier, fst);
+            }
         }
-
     }
 
     private void init(InputStream inStream, String identifier, String encoding)
             throws IOException {
         String key = identifier + " " + encoding;
-        fst = knownFSTs.get(key);
-        if (fst == null) {
-            fst = new FST(inStream, encoding);
-            knownFSTs.put(key, fst);
+        synchronized (knownFSTs) {
+            fst = knownFSTs.get(key);
+            if (fst == null) {
+                fst = new FST(inStream, encoding);
+                knownFSTs.put(key, fst);
+            }
         }
     }
 
+    /**
+     * Receives the expansions found by
+     * {@link FSTLookup#lookup(String, boolean, ResultHandler)}.
+     */
+    public interface ResultHandler {
+        /**
+         * Called once per expansion, in the order in which {@link FSTLookup#lookup(String)}
+         * would list them.
+         *
+         * @param result the expansion; only valid for the duration of the call.
+         * @return true to continue with the next expansion, false to stop the lookup.
+         */
+        boolean found(CharSequence result);
+    }
+
     /**
      * Look up a word in the FST. The FST runs in normal mode, i.e. it
      * generates the expanded forms from the original forms. This method is
@@ -200,43 +220,192 @@ public class FSTLookup {
      * expansion is found, an array of length 0 is returned.
      */
     public String[] lookup(String word, boolean generate) {
-        StringBuilder buffer2 = new StringBuilder();
-        List<String> results = new ArrayList<String>();
+        final List<String> results = new ArrayList<String>();
+        lookup(word, generate, new ResultHandler() {
+            public boolean found(CharSequence result) {
+                results.add(result.toString());
+                return true;
+            }
+        });
+        return results.toArray(new String[results.size()]);
+    }
+
+    /**
+     * Look up a word in the FST, passing each expansion to the given handler
+     * without collecting them. This method is thread-safe.
+     *
+     * @param word     the word to look up.
+     * @param generate whether the FST is to run in inverse direction.
+     * @param handler  receives the expansions; may stop the lookup early.
+     */
+    public void lookup(String word, boolean generate, ResultHandler handler) {
+        traverse(new String[]{word}, generate, handler);
+    }
 
-        lookup(word, 0, 0, generate, buffer2, results);
+    /**
+     * Look up a word in the FST and return only its first expansion, i.e.
+     * the first element of {@link #lookup(String)}. This method is thread-safe.
+     *
+     * @param word the word to look up.
+     * @return the first expansion, or null if there is none.
+     */
+    public String lookupFirst(String word) {
+        return traverse(new String[]{word}, false, null);
+    }
 
-        String[] resultArray = new String[results.size()];
-        resultArray = results.toArray(resultArray);
-        return resultArray;
+    /**
+     * Look up several alternative spellings of a word, such as case variants,
+     * in a single traversal of the FST. This is equivalent to returning
+     * {@link #lookupFirst(String)} of the first candidate that has an
+     * expansion. This method is thread-safe.
+     *
+     * @param candidates the spellings to try, in order of preference; at most 32.
+     * @return the first expansion of the first candidate that has one, or null if
+     * no candidate is found.
+     */
+    public String lookupFirst(String[] candidates) {
+        if (candidates.length > 32) {
+            throw new IllegalArgumentException("Cannot look up more than 32 candidates at once");
+        }
+        return traverse(candidates, false, null);
     }
 
-    private void lookup(String word, int offset1, int arc, boolean generate,
-                        StringBuilder buffer2, List<String> results) {
-        do {
-            int label = fst.labels[arc];
-            int offset2 = buffer2.length();
+    /**
+     * Depth-first traversal of the FST matching all candidates at once. The
+     * candidates still alive on a path are kept as a bit mask; since every label
+     * consumes the same number of characters from each of them, they share the
+     * input offset. With a handler, all expansions of the single candidate are
+     * reported. Without one, the first expansion of the most preferred candidate
+     * is returned: once candidate i has an expansion, it and all candidates after
+     * it are dropped from the remaining traversal.
+     */
+    private String traverse(String[] words, boolean generate, ResultHandler handler) {
+        Traversal t = traversals.get();
+        if (t.busy) { // a handler looking up again
+            return traverse(words, generate, handler, new Traversal());
+        }
+        t.busy = true;
+        try {
+            return traverse(words, generate, handler, t);
+        } finally {
+            t.busy = false;
+        }
+    }
+
+    private String traverse(String[] words, boolean generate, ResultHandler handler, Traversal t) {
+        StringBuilder output = t.output;
+        output.setLength(0);
+        String best = null;
+        int alive = 0;
+        for (int i = 0; i < words.length; i++) {
+            boolean repeated = false;
+            for (int j = 0; j < i && !repeated; j++) {
+                repeated = words[j].equals(words[i]);
+            }
+            if (!repeated) { // a repeated candidate cannot have an earlier first expansion
+                alive |= 1 << i;
+            }
+        }
+        // The current node: next arc to try, input offset, output length and
+        // candidates on this path. The stack holds the same for the ancestors.
+        int arc = 0;
+        int offset = 0;
+        int outputLength = 0;
+        int mask = alive;
+        int depth = 0;
+        while (true) {
+            mask &= alive;
+            if (arc < 0 || mask == 0) {
+                if (depth == 0 || alive == 0) {
+                    break;
+                }
+                depth--;
+                arc = t.arcs[depth];
+                offset = t.offsets[depth];
+                outputLength = t.outputLengths[depth];
+                mask = t.masks[depth];
+                continue;
+            }
+            int packedArc = fst.getArc(arc);
+            int next = FST.isLast(packedArc) ? -1 : arc + 1;
+            int label = FST.label(packedArc);
             if (label == 0) {
-                if (offset1 == word.length()) {
-                    results.add(buffer2.toString());
+                for (int i = 0; i < words.length; i++) {
+                    if ((mask & (1 << i)) != 0 && offset == words[i].length()) {
+                        output.setLength(outputLength);
+                        if (handler != null) {
+                            if (!handler.found(output)) {
+                                alive = 0;
+                            }
+                        } else {
+                            best = output.toString();
+                            alive &= (1 << i) - 1;
+                        }
+                        break;
+                    }
                 }
+                arc = next;
             } else {
-                String s1;
-                if (generate)
-                    s1 = (String) fst.strings.get(fst.mapping[fst.offsets[2 * label + 1]]);
-                else s1 = (String) fst.strings.get(fst.mapping[fst.offsets[2 * label]]);
-                if (word.startsWith(s1, offset1)) {
-                    String s2;
-                    if (generate)
-                        s2 = (String) fst.strings.get(fst.mapping[fst.offsets[2 * label]]);
-                    else s2 = (String) fst.strings.get(fst.mapping[fst.offsets[2 * label + 1]]);
-                    buffer2.append(s2);
-                    lookup(word, offset1 + s1.length(), fst.targets[arc], generate, buffer2, results);
-                    if (offset2 < buffer2.length()) buffer2.delete(offset2, buffer2.length());
+                String s1 = fst.getString(label, generate);
+                int matching = 0;
+                if (words.length == 1) {
+                    if (words[0].startsWith(s1, offset)) {
+                        matching = 1;
+                    }
+                } else {
+                    for (int i = 0; i < words.length; i++) {
+                        if ((mask & (1 << i)) != 0 && words[i].startsWith(s1, offset)) {
+                            matching |= 1 << i;
+                        }
+                    }
+                }
+                if (matching != 0) {
+                    t.ensureDepth(depth);
+                    t.arcs[depth] = next;
+                    t.offsets[depth] = offset;
+                    t.outputLengths[depth] = outputLength;
+                    t.masks[depth] = mask;
+                    depth++;
+                    output.setLength(outputLength);
+                    output.append(fst.getString(label, !generate));
+                    outputLength = output.length();
+                    arc = FST.target(packedArc);
+                    offset += s1.length();
+                    mask = matching;
+                } else {
+                    arc = next;
                 }
             }
-        } while (!fst.isLast[arc++]);
+        }
+        return best;
     }
-}
 
+    private static final ThreadLocal<Traversal> traversals = new ThreadLocal<Traversal>() {
+        @Override
+        protected Traversal initialValue() {
+            return new Traversal();
+        }
+    };
 
+    /**
+     * Per-thread traversal stack, reused across lookups.
+     */
+    private static final class Traversal {
+        int[] arcs = new int[32];
+        int[] offsets = new int[32];
+        int[] outputLengths = new int[32];
+        int[] masks = new int[32];
+        final StringBuilder output = new StringBuilder();
+        boolean busy;
 
+        void ensureDepth(int depth) {
+            if (depth >= arcs.length) {
+                int n = 2 * arcs.length;
+                arcs = Arrays.copyOf(arcs, n);
+                offsets = Arrays.copyOf(offsets, n);
+                outputLengths = Arrays.copyOf(outputLengths, n);
+                masks = Arrays.copyOf(masks, n);
+            }
+        }
+    }
+}
@@ -68,6 +68,7 @@ import android.util.Log;
 import java.io.IOException;
 
 import marytts.cart.CART;
+import marytts.cart.FlatCART;
 import marytts.cart.LeafNode.PdfLeafNode;
 import marytts.cart.io.HTSCARTReader;
 import marytts.exceptions.MaryConfigurationException;
@@ -93,6 +94,13 @@ public class CartTreeSet {
     private CART[] strTree;   // CART trees for strengths 
     private CART[] magTree;   // CART trees for Fourier magnitudes
 
+    // flattened copies of the trees above, used for searching
+    private FlatCART[] durFlatTree;
+    private FlatCART[] lf0FlatTree;
+    private FlatCART[] mgcFlatTree;
+    private FlatCART[] strFlatTree;
+    private FlatCART[] magFlatTree;
+
     private int numStates;            /* # of HMM states for individual HMM */
     private int lf0Stream;            /* # of stream for log f0 modeling */
     private int mcepVsize;            /* vector size for mcep modeling */
@@ -119,6 +127,20 @@ public class CartTreeSet {
         return magVsize;
     }
 
+    /**
+     * @return true if strengths trees were loaded, they are optional
+     */
+    public boolean hasStrTree() {
+        return strTree != null;
+    }
+
+    /**
+     * @return true if Fourier magnitudes trees were loaded, they are optional
+     */
+    public boolean hasMagTree() {
+        return magTree != null;
+    }
+
     public int getVsize(HMMData.FeatureType type) {
         switch (type) {
             case MGC:
@@ -144,35 +166,62 @@ public class CartTreeSet {
         /* DUR, LF0 and Mgc are required as minimum for generating voice. 
         * The duration tree has only one state.
         * The size of the vector in duration is the number of states. */
-        if (htsData.getTreeDurStream() != null) {
+        if (htsData.getBinaryTreeDurStream() != null) {
+            Log.d(Mary.LOG, "Loading compiled duration tree...");
+            durTree = htsReader.loadBinary(1, htsData.getBinaryTreeDurStream(), htsData.getPdfDurStream(), PdfFileFormat.dur, featureDef);
+            numStates = htsReader.getVectorSize();
+        } else if (htsData.getTreeDurStream() != null) {
             Log.d(Mary.LOG, "Loading duration tree...");
             durTree = htsReader.load(1, htsData.getTreeDurStream(), htsData.getPdfDurStream(), PdfFileFormat.dur, featureDef, phTranslator);
             numStates = htsReader.getVectorSize();
         }
 
-        if (htsData.getTreeLf0Stream() != null) {
+        if (htsData.getBinaryTreeLf0Stream() != null) {
+            Log.d(Mary.LOG, "Loading compiled log F0 tree...");
+            lf0Tree = htsReader.loadBinary(numStates, htsData.getBinaryTreeLf0Stream(), htsData.getPdfLf0Stream(), PdfFileFormat.lf0, featureDef);
+            lf0Stream = htsReader.getVectorSize();
+        } else if (htsData.getTreeLf0Stream() != null) {
             Log.d(Mary.LOG, "Loading log F0 tree...");
             lf0Tree = htsReader.load(numStates, htsData.getTreeLf0Stream(), htsData.getPdfLf0Stream(), PdfFileFormat.lf0, featureDef, phTranslator);
             lf0Stream = htsReader.getVectorSize();
         }
 
-        if (htsData.getTreeMgcStream() != null) {
+        if (htsData.getBinaryTreeMgcStream() != null) {
+            Log.d(Mary.LOG, "Loading compiled mgc tree...");
+            mgcTree = htsReader.loadBinary(numStates, htsData.getBinaryTreeMgcStream(), htsData.getPdfMgcStream(), PdfFileFormat.mgc, featureDef);
+            mcepVsize = htsReader.getVectorSize();
+        } else if (htsData.getTreeMgcStream() != null) {
             Log.d(Mary.LOG, "Loading mgc tree...");
             mgcTree = htsReader.load(numStates, htsData.getTreeMgcStream(), htsData.getPdfMgcStream(), PdfFileFormat.mgc, featureDef, phTranslator);
             mcepVsize = htsReader.getVectorSize();
         }
         
         /* STR and MAG are optional for generating mixed excitation */
-        if (htsData.getTreeStrStream() != null) {
+        if (htsData.getBinaryTreeStrStream() != null) {
+            Log.d(Mary.LOG, "Loading compiled str tree...");
+            strTree = htsReader.loadBinary(numStates, htsData.getBinaryTreeStrStream(), htsData.getPdfStrStream(), PdfFileFormat.str, featureDef);
+            strVsize = htsReader.getVectorSize();
+        } else if (htsData.getTreeStrStream() != null) {
             Log.d(Mary.LOG, "Loading str tree...");
             strTree = htsReader.load(numStates, htsData.getTreeStrStream(), htsData.getPdfStrStream(), PdfFileFormat.str, featureDef, phTranslator);
             strVsize = htsReader.getVectorSize();
         }
-        if (htsData.getTreeMagStream() != null) {
+        if (htsData.getBinaryTreeMagStream() != null) {
+            Log.d(Mary.LOG, "Loading compiled mag tree...");
+            magTree = htsReader.loadBinary(numStates, htsData.getBinaryTreeMagStream(), htsData.getPdfMagStream(), PdfFileFormat.mag, featureDef);
+            magVsize = htsReader.getVectorSize();
+        } else if (htsData.getTreeMagStream() != null) {
             Log.d(Mary.LOG, "Loading mag tree...");
             magTree = htsReader.load(numStates, htsData.getTreeMagStream(), htsData.getPdfMagStream(), PdfFileFormat.mag, featureDef, phTranslator);
             magVsize = htsReader.getVectorSize();
         }
+
+        /* The trees are searched for every state of every phone, so flatten them for fast interpretation */
+        durFlatTree = FlatCART.flatten(durTree);
+        lf0FlatTree = FlatCART.flatten(lf0Tree);
+        mgcFlatTree = FlatCART.flatten(mgcTree);
+        strFlatTree = FlatCART.flatten(strTree);
+        magFlatTree = FlatCART.flatten(magTree);
     }
 
 
@@ -197,7 +246,7 @@ public class CartTreeSet {
         double durscale = htsData.getDurationScale();
         double meanVector[], varVector[];
         // the duration tree has only one state
-        PdfLeafNode node = (PdfLeafNode) durTree[0].interpretToNode(fv, 0);
+        PdfLeafNode node = (PdfLeafNode) durFlatTree[0].interpretToNode(fv, 0);
 
         meanVector = node.getMean();
         varVector = node.getVariance();
@@ -237,7 +286,7 @@ public class CartTreeSet {
      */
     public void searchLf0InCartTree(HTSModel m, FeatureVector fv, FeatureDefinition featureDef, double uvthresh) {
         for (int s = 0; s < numStates; s++) {
-            PdfLeafNode node = (PdfLeafNode) lf0Tree[s].interpretToNode(fv, 1);
+            PdfLeafNode node = (PdfLeafNode) lf0FlatTree[s].interpretToNode(fv, 1);
             m.setLf0Mean(s, node.getMean());
             m.setLf0Variance(s, node.getVariance());
             // set voiced or unvoiced
@@ -261,7 +310,7 @@ public class CartTreeSet {
      */
     public void searchMgcInCartTree(HTSModel m, FeatureVector fv, FeatureDefinition featureDef) {
         for (int s = 0; s < numStates; s++) {
-            PdfLeafNode node = (PdfLeafNode) mgcTree[s].interpretToNode(fv, 1);
+            PdfLeafNode node = (PdfLeafNode) mgcFlatTree[s].interpretToNode(fv, 1);
             m.setMcepMean(s, node.getMean());
             m.setMcepVariance(s, node.getVariance());
         }
@@ -278,7 +327,7 @@ public class CartTreeSet {
      */
     public void searchStrInCartTree(HTSModel m, FeatureVector fv, FeatureDefinition featureDef) {
         for (int s = 0; s < numStates; s++) {
-            PdfLeafNode node = (PdfLeafNode) strTree[s].interpretToNode(fv, 1);
+            PdfLeafNode node = (PdfLeafNode) strFlatTree[s].interpretToNode(fv, 1);
             m.setStrMean(s, node.getMean());
             m.setStrVariance(s, node.getVariance());
         }
@@ -295,7 +344,7 @@ public class CartTreeSet {
      */
     public void searchMagInCartTree(HTSModel m, FeatureVector fv, FeatureDefinition featureDef) {
         for (int s = 0; s < numStates; s++) {
-            PdfLeafNode node = (PdfLeafNode) magTree[s].interpretToNode(fv, 1);
+            PdfLeafNode node = (PdfLeafNode) magFlatTree[s].interpretToNode(fv, 1);
             m.setMagMean(s, node.getMean());
             m.setMagVariance(s, node.getVariance());
         }
@@ -329,11 +378,11 @@ public class CartTreeSet {
             searchMgcInCartTree(m, fv, feaDef);
 
             /* Find pdf for strengths, this function sets the pdf for each state.  */
-            if (htsData.getTreeStrStream() != null)
+            if (hasStrTree())
                 searchStrInCartTree(m, fv, feaDef);
             
             /* Find pdf for Fourier magnitudes, this function sets the pdf for each state.  */
-            if (htsData.getTreeMagStream() != null)
+            if (hasMagTree())
                 searchMagInCartTree(m, fv, feaDef);
 
         } catch (Exception e) {
@@ -77,6 +77,9 @@ import java.util.Properties;
 import java.util.Scanner;
 import java.util.Set;
 import java.util.Vector;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
 import marytts.config.MaryConfig;
 import marytts.exceptions.MaryConfigurationException;
@@ -141,6 +144,18 @@ public class HMMData {
     private double gvWeightStr = 1.0;
     private double gvWeightMag = 1.0;
     private boolean useAcousticModels = false; /* true is using AcousticModeller, is true for MARY 4.1 voices */
+    /**
+     * Incremental parameter generation: MGC, STR and MAG parameters are generated block by block
+     * while the vocoder is running, instead of for the whole utterance before vocoding starts.
+     */
+    private int incrementalBlockFrames = 0; /* number of frames per block, 0 means whole-utterance generation */
+    private int incrementalLookAhead = 40;  /* number of context frames on each side of a block */
+    /**
+     * Maximum number of parameter streams (MGC, LF0, STR, MAG) generated concurrently for one utterance,
+     * including the calling thread. The worker threads are shared by all utterances of this voice.
+     */
+    private int parameterGenerationThreads = 1;
+    private ExecutorService parameterGenerationExecutor = null;
     /**
      * variables for controlling generation of speech in the vocoder
      * these variables have default values but can be fixed and read from the
@@ -159,6 +174,15 @@ public class HMMData {
     private InputStream treeMgcStream;         /* Mgc tree file */
     private InputStream treeStrStream;         /* Strengths tree file */
     private InputStream treeMagStream;         /* Fourier magnitudes tree file */
+    /**
+     * Compiled tree files, see marytts.cart.io.HTSCARTWriter; when available they
+     * are used instead of the corresponding text tree files.
+     */
+    private InputStream binaryTreeDurStream;
+    private InputStream binaryTreeLf0Stream;
+    private InputStream binaryTreeMgcStream;
+    private InputStream binaryTreeStrStream;
+    private InputStream binaryTreeMagStream;
     private FeatureDefinition feaDef;   /* The feature definition is used for loading the tree using questions in MARY format */
     /**
      * CartTreeSet contains the tree-xxx.inf, xxx: dur, lf0, Mgc, str and mag
@@ -338,6 +362,26 @@ public class HMMData {
         return treeMagStream;
     }
 
+    public InputStream getBinaryTreeDurStream() {
+        return binaryTreeDurStream;
+    }
+
+    public InputStream getBinaryTreeLf0Stream() {
+        return binaryTreeLf0Stream;
+    }
+
+    public InputStream getBinaryTreeMgcStream() {
+        return binaryTreeMgcStream;
+    }
+
+    public InputStream getBinaryTreeStrStream() {
+        return binaryTreeStrStream;
+    }
+
+    public InputStream getBinaryTreeMagStream() {
+        return binaryTreeMagStream;
+    }
+
     public FeatureDefinition getFeatureDefinition() {
         return feaDef;
     }
@@ -438,6 +482,56 @@ public class HMMData {
         return maxMagGvIter;
     }
 
+    public int getParameterGenerationThreads() {
+        return parameterGenerationThreads;
+    }
+
+    public void setParameterGenerationThreads(int val) {
+        parameterGenerationThreads = val;
+    }
+
+    /**
+     * The executor on which parameter streams are generated concurrently, with
+     * getParameterGenerationThreads() - 1 worker threads.
+     *
+     * @return the executor, or null if the streams are to be generated one after the other
+     */
+    public synchronized ExecutorService getParameterGenerationExecutor() {
+        if (parameterGenerationThreads <= 1)
+            return null;
+        if (parameterGenerationExecutor == null) {
+            parameterGenerationExecutor = Executors.newFixedThreadPool(parameterGenerationThreads - 1, new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "HTSParameterGeneration");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+        }
+        return parameterGenerationExecutor;
+    }
+
+    public boolean getUseIncrementalGeneration() {
+        return incrementalBlockFrames > 0;
+    }
+
+    public int getIncrementalBlockFrames() {
+        return incrementalBlockFrames;
+    }
+
+    public void setIncrementalBlockFrames(int val) {
+        incrementalBlockFrames = val;
+    }
+
+    public int getIncrementalLookAhead() {
+        return incrementalLookAhead;
+    }
+
+    public void setIncrementalLookAhead(int val) {
+        incrementalLookAhead = val;
+    }
+
     public double getGvWeightMgc() {
         return gvWeightMgc;
     }
@@ -541,11 +635,22 @@ public class HMMData {
         useLogGain = p.getBoolean(prefix + ".logGain", useLogGain);
         beta = p.getDouble(prefix + ".beta", beta);
 
-        treeDurStream = p.getStream(prefix + ".Ftd");     /* Tree DUR */
-        treeLf0Stream = p.getStream(prefix + ".Ftf");     /* Tree LF0 */
-        treeMgcStream = p.getStream(prefix + ".Ftm");     /* Tree MCP */
-        treeStrStream = p.getStream(prefix + ".Fts");     /* Tree STR */
-        treeMagStream = p.getStream(prefix + ".Fta");     /* Tree MAG */
+        /* Compiled trees are preferred, the text tree is only opened if there is no compiled one */
+        binaryTreeDurStream = getBinaryTreeStream(p, prefix + ".Ftd.bin");
+        if (binaryTreeDurStream == null)
+            treeDurStream = p.getStream(prefix + ".Ftd");     /* Tree DUR */
+        binaryTreeLf0Stream = getBinaryTreeStream(p, prefix + ".Ftf.bin");
+        if (binaryTreeLf0Stream == null)
+            treeLf0Stream = p.getStream(prefix + ".Ftf");     /* Tree LF0 */
+        binaryTreeMgcStream = getBinaryTreeStream(p, prefix + ".Ftm.bin");
+        if (binaryTreeMgcStream == null)
+            treeMgcStream = p.getStream(prefix + ".Ftm");     /* Tree MCP */
+        binaryTreeStrStream = getBinaryTreeStream(p, prefix + ".Fts.bin");
+        if (binaryTreeStrStream == null)
+            treeStrStream = p.getStream(prefix + ".Fts");     /* Tree STR */
+        binaryTreeMagStream = getBinaryTreeStream(p, prefix + ".Fta.bin");
+        if (binaryTreeMagStream == null)
+            treeMagStream = p.getStream(prefix + ".Fta");     /* Tree MAG */
 
         pdfDurStream = p.getStream(prefix + ".Fmd");     /* Model DUR */
         pdfLf0Stream = p.getStream(prefix + ".Fmf");     /* Model LF0 */
@@ -557,6 +662,12 @@ public class HMMData {
         useMixExc = p.getBoolean(prefix + ".useMixExc");         /* Use Mixed excitation */
         useFourierMag = p.getBoolean(prefix + ".useFourierMag");     /* Use Fourier magnitudes for pulse generation*/
 
+        /* Incremental parameter generation, 0 frames per block means whole-utterance generation */
+        incrementalBlockFrames = p.getInteger(prefix + ".incrementalBlockFrames", incrementalBlockFrames);
+        incrementalLookAhead = p.getInteger(prefix + ".incrementalLookAhead", incrementalLookAhead);
+        /* Maximum number of parameter streams generated concurrently, 1 means one after the other */
+        parameterGenerationThreads = p.getInteger(prefix + ".parameterGenerationThreads", parameterGenerationThreads);
+
         useGV = p.getBoolean(prefix + ".useGV");             /* Use Global Variance in parameter generation */
         if (useGV) {
             useContextDependentGV = p.getBoolean(prefix + ".useContextDependentGV"); /* Use context-dependent GV, (gv without sil)*/
@@ -609,6 +720,22 @@ public class HMMData {
         Log.d(Mary.LOG, "InitHMMData complete");
     }
 
+    /**
+     * Opens a compiled tree file, if one is configured and available.
+     *
+     * @return the stream, or null if the text tree file should be used instead
+     */
+    private InputStream getBinaryTreeStream(PropertiesAccessor p, String property) {
+        try {
+            return p.getStream(property);
+        } catch (IOException e) {
+            Log.w(Mary.LOG, "Cannot open compiled tree " + property + ", using text tree: " + e.getMessage());
+        } catch (MaryConfigurationException e) {
+            Log.w(Mary.LOG, "Cannot open compiled tree " + property + ", using text tree: " + e.getMessage());
+        }
+        return null;
+    }
+
     /**
      * Reads from configuration file all the data files in this class this
      * method is used when running HTSengine stand alone.
@@ -639,10 +766,14 @@ public class HMMData {
         PropertiesAccessor p = MaryConfig.getVoiceConfig(voiceName).getPropertiesAccessor(true);
 
         String prefix = "voice." + voiceName;
-        treeDurStream = p.getStream(prefix + ".Ftd");
+        binaryTreeDurStream = getBinaryTreeStream(p, prefix + ".Ftd.bin");
+        if (binaryTreeDurStream == null)
+            treeDurStream = p.getStream(prefix + ".Ftd");
         pdfDurStream = p.getStream(prefix + ".Fmd");
 
-        treeLf0Stream = p.getStream(prefix + ".Ftf");
+        binaryTreeLf0Stream = getBinaryTreeStream(p, prefix + ".Ftf.bin");
+        if (binaryTreeLf0Stream == null)
+            treeLf0Stream = p.getStream(prefix + ".Ftf");
         pdfLf0Stream = p.getStream(prefix + ".Fmf");
         useGV = p.getBoolean(prefix + ".useGV");
         if (useGV) {
@@ -159,30 +159,41 @@ public class HTSPStream {
      * length, number of frames in utterance
      */
     private int nT;
+  /* The matrices are stored in flat arrays. par and wuw are row-major, frame by frame, as the vocoder reads them;  */
+  /* mseq and ivseq are column-major, coefficient by coefficient, as the parameter generation reads them.         */
     /**
-     * output parameter vector, the size of this parameter is par[nT][vSize]
+     * output parameter vector, nT x order: par[t*order+m]
      */
-    private double par[][];
+    private double par[];
     /**
-     * sequence of mean vector
+     * sequence of mean vector, nT x vSize: mseq[j*nT+t]
      */
-    private double mseq[][];
+    private double mseq[];
     /**
-     * sequence of inversed variance vector
+     * sequence of inversed variance vector, nT x vSize: ivseq[j*nT+t]
      */
-    private double ivseq[][];
+    private double ivseq[];
     /**
      * for forward substitution
      */
     private double g[];
     /**
-     * W' U^-1 W
+     * W' U^-1 W, nT x WIDTH
      */
-    private double wuw[][];
+    private double wuw[];
     /**
      * W' U^-1 mu
      */
     private double wum[];
+    /**
+     * trajectory of the coefficient being generated, that is column m of par, contiguous
+     */
+    private double c[];
+    /**
+     * scratch vectors for the GV optimisation
+     */
+    private double gvDiag[];
+    private double gvParOri[];
     /**
      * mean and variance for current utt eqs: (16), (17)
      */
@@ -200,9 +211,34 @@ public class HTSPStream {
      * this will be the number of frames for which gv can be calculated
      */
     private int gvLength;
+    /**
+     * incremental generation: number of leading frames whose parameters are final
+     */
+    private int generatedT;
+    /**
+     * incremental generation: solution of the current window, for one coefficient
+     */
+    private double windowPar[];
+    /**
+     * incremental generation: GV approximated by variance scaling, see {@link #initIncrementalMlpg(HMMData, boolean)}
+     */
+    private boolean approximateGV;
+    private double gvApproxMean[];
+    private double gvApproxRatio[];
 
     /* Constructor */
     public HTSPStream(int vector_size, int utt_length, HMMData.FeatureType fea_type, int maxIterationsGV) throws Exception {
+        this(vector_size, utt_length, fea_type, maxIterationsGV, null);
+    }
+
+    /**
+     * Create a stream whose matrices are taken from the given workspace instead of being allocated.
+     * The stream must not be used any more once the workspace has been released.
+     *
+     * @param workspace the workspace of the utterance, or null to allocate the matrices
+     */
+    public HTSPStream(int vector_size, int utt_length, HMMData.FeatureType fea_type, int maxIterationsGV,
+                      HTSWorkspace workspace) throws Exception {
     /* In the c code for each PStream there is an InitDwin() and an InitPStream() */
     /* - InitDwin reads the window files passed as parameters for example: mcp.win1, mcp.win2, mcp.win3 */
     /*   for the moment the dynamic window is the same for all MCP, LF0, STR and MAG  */
@@ -213,28 +249,51 @@ public class HTSPStream {
         order = vector_size / NUM;
         nT = utt_length;
         maxGVIter = maxIterationsGV;
-        par = new double[nT][order];
 
     /* ___________________________Matrices initialisation___________________ */
-        mseq = new double[nT][vSize];
-        ivseq = new double[nT][vSize];
-        g = new double[nT];
-        wuw = new double[nT][WIDTH];
-        wum = new double[nT];
+        if (workspace == null) {
+            par = new double[nT * order];
+            mseq = new double[nT * vSize];
+            ivseq = new double[nT * vSize];
+            g = new double[nT];
+            wuw = new double[nT * WIDTH];
+            wum = new double[nT];
+            c = new double[nT];
+            gvDiag = new double[nT];
+            gvParOri = new double[nT];
+            gvSwitch = new boolean[nT];
+        } else {
+            /* the buffers may be longer than nT, and hold data of an earlier utterance */
+            HTSWorkspace.StreamBuffers buffers = workspace.getStreamBuffers(fea_type);
+            buffers.ensureCapacity(nT, vSize, order, WIDTH);
+            par = buffers.par;
+            mseq = buffers.mseq;
+            ivseq = buffers.ivseq;
+            g = buffers.g;
+            wuw = buffers.wuw;
+            wum = buffers.wum;
+            c = buffers.c;
+            gvDiag = buffers.gvDiag;
+            gvParOri = buffers.gvParOri;
+            gvSwitch = buffers.gvSwitch;
+            Arrays.fill(par, 0, nT * order, 0.0);
+            Arrays.fill(mseq, 0, nT * vSize, 0.0);
+            Arrays.fill(ivseq, 0, nT * vSize, 0.0);
+        }
 
 	/* GV Switch sequence initialisation */
-        gvSwitch = new boolean[nT];
-        for (int i = 0; i < nT; i++)
-            gvSwitch[i] = true;
+        Arrays.fill(gvSwitch, 0, nT, true);
         gvLength = nT;  /* at initialisation, all the frames can be used for gv */
 
     }
 
     /**
-     * ldlFactorization: Factorize W'*U^{-1}*W to L*D*L' (L: lower triangular, D: diagonal)
+     * ldlFactorization: Factorize W'*U^{-1}*W to L*D*L' (L: lower triangular, D: diagonal),
+     * for the frames [s, e) only, as if they were a complete utterance
      */
-    private static void ldlFactorization(double[][] mywuw) {
-        for (int t = 0; t < mywuw.length; t++) {
+    private static void ldlFactorization(double[] mywuw, int s, int e) {
+        for (int t = s; t < e; t++) {
+            int r = t * WIDTH;  /* row t */
 
 	 /* if(debug){
         System.out.println("WUW calculation:");
@@ -244,13 +303,17 @@ public class HTSPStream {
 	  /* I need i=1 for the delay in t, but the indexes i in WUW[t][i] go from 0 to 2
        * so wherever i is used as index i=i-1  (this is just to keep somehow the original
 	   * c implementation). */
-            for (int i = 1; (i < WIDTH) && (t - i >= 0); i++)
-                mywuw[t][0] -= mywuw[t - i][i] * mywuw[t - i][i] * mywuw[t - i][0];
+            for (int i = 1; (i < WIDTH) && (t - i >= s); i++) {
+                int ri = r - i * WIDTH;  /* row t-i */
+                mywuw[r] -= mywuw[ri + i] * mywuw[ri + i] * mywuw[ri];
+            }
 
             for (int i = 2; i <= WIDTH; i++) {
-                for (int j = 1; (i + j <= WIDTH) && (t - j >= 0); j++)
-                    mywuw[t][i - 1] -= mywuw[t - j][j] * mywuw[t - j][i + j - 1] * mywuw[t - j][0];
-                mywuw[t][i - 1] /= mywuw[t][0];
+                for (int j = 1; (i + j <= WIDTH) && (t - j >= s); j++) {
+                    int rj = r - j * WIDTH;  /* row t-j */
+                    mywuw[r + i - 1] -= mywuw[rj + j] * mywuw[rj + i + j - 1] * mywuw[rj];
+                }
+                mywuw[r + i - 1] /= mywuw[r];
 
             }
 	  /*if(debug) {
@@ -279,15 +342,38 @@ public class HTSPStream {
     }
 
     public void setPar(int i, int j, double val) {
-        par[i][j] = val;
+        par[i * order + j] = val;
     }
 
     public double getPar(int i, int j) {
-        return par[i][j];
+        return par[i * order + j];
     }
 
     public double[] getParVec(int i) {
-        return Arrays.copyOf(par[i], par[i].length);
+        return Arrays.copyOfRange(par, i * order, (i + 1) * order);
+    }
+
+    /**
+     * Copy the parameter vector of frame i into vec, which must be of length at least {@link #getOrder()}.
+     */
+    public void getParVec(int i, double[] vec) {
+        System.arraycopy(par, i * order, vec, 0, order);
+    }
+
+    /**
+     * Copy the trajectory of coefficient j, over all frames, into col, which must be of length at least {@link #getT()}.
+     */
+    public void getParColumn(int j, double[] col) {
+        for (int t = 0, k = j; t < nT; t++, k += order)
+            col[t] = par[k];
+    }
+
+    /**
+     * Set the trajectory of coefficient j, over all frames, from col.
+     */
+    public void setParColumn(int j, double[] col) {
+        for (int t = 0, k = j; t < nT; t++, k += order)
+            par[k] = col[t];
     }
 
     public int getT() {
@@ -295,22 +381,25 @@ public class HTSPStream {
     }
 
     public void setMseq(int i, int j, double val) {
-        mseq[i][j] = val;
+        mseq[j * nT + i] = val;
     }
 
     public void setMseq(int i, double[] vec) {
-        mseq[i] = vec;
+        assert vec.length == vSize;
+        for (int j = 0, k = i; j < vSize; j++, k += nT) {
+            mseq[k] = vec[j];
+        }
     }
 
     public void setVseq(int i, double[] vec) {
-        assert vec.length == ivseq[i].length;
-        for (int j = 0; j < ivseq[i].length; j++) {
-            ivseq[i][j] = HTSParameterGeneration.finv(vec[j]);
+        assert vec.length == vSize;
+        for (int j = 0, k = i; j < vSize; j++, k += nT) {
+            ivseq[k] = HTSParameterGeneration.finv(vec[j]);
         }
     }
 
     public void setIvseq(int i, int j, double val) {
-        ivseq[i][j] = val;
+        ivseq[j * nT + i] = val;
     }
 
     public void setGvMeanVar(double[] mean, double[] ivar) {
@@ -336,7 +425,7 @@ public class HTSPStream {
 
     private void printWUW(int t) {
         for (int i = 0; i < WIDTH; i++)
-            System.out.print("WUW[" + t + "][" + i + "]=" + wuw[t][i] + "  ");
+            System.out.print("WUW[" + t + "][" + i + "]=" + wuw[t * WIDTH + i] + "  ");
         System.out.println("");
     }
 
@@ -358,14 +447,10 @@ public class HTSPStream {
 
         for (int m = 0; m < order; m++) {
             calcWUWandWUM(m);
-            double[][] mywuw = new double[nT][];
-            for (int x = 0; x < wuw.length; x++) {
-                mywuw[x] = Arrays.copyOf(wuw[x], wuw[x].length);
-            }
-            double[] mywum = Arrays.copyOf(wum, wum.length);
-            ldlFactorization(mywuw);   /* LDL factorization                               */
-            forwardSubstitution(mywum, mywuw);     /* forward substitution in Cholesky decomposition  */
-            backwardSubstitution(m, mywuw);   /* backward substitution in Cholesky decomposition */
+            /* wuw is factorized in place: the GV optimisation recalculates it */
+            ldlFactorization(wuw, 0, nT);   /* LDL factorization                               */
+            forwardSubstitution(wum, wuw);     /* forward substitution in Cholesky decomposition  */
+            backwardSubstitution(wuw);      /* backward substitution in Cholesky decomposition, into c */
 
 
        /* Global variance optimisation for MCP and LF0 */
@@ -379,9 +464,95 @@ public class HTSPStream {
 
 
             }
+            setParColumn(m, c);
         }
     }  /* method mlpg */
 
+
+    /*----------------- Incremental parameter generation  -----------------------------*/
+
+    /**
+     * Prepare this stream for incremental parameter generation with {@link #mlpgNextBlock(int, int)},
+     * instead of generating the whole utterance at once with {@link #mlpg(HMMData, boolean)}.
+     * <p/>
+     * The GV optimisation needs the whole trajectory, so it cannot be done incrementally.
+     * If useGV is true, it is approximated by the variance scaling with which the GV optimisation
+     * is initialised (eq. (34) in Toda and Tokuda IEICE-2007), where the mean and variance of the
+     * generated trajectory are estimated from the static means of the pdf sequence.
+     */
+    public void initIncrementalMlpg(HMMData htsData, boolean useGV) {
+        generatedT = 0;
+        approximateGV = useGV && gvLength > 0 && gvmean != null;
+        if (approximateGV) {
+            Log.i(Mary.LOG, "Incremental parameter generation: GV approximated by variance scaling");
+            gvApproxMean = new double[order];
+            gvApproxRatio = new double[order];
+            for (int m = 0; m < order; m++) {
+                double mu = 0.0;
+                double v = 0.0;
+                int col = m * nT;
+                for (int t = 0; t < nT; t++)
+                    if (gvSwitch[t])
+                        mu += mseq[col + t];
+                mu = mu / gvLength;
+                for (int t = 0; t < nT; t++)
+                    if (gvSwitch[t])
+                        v += (mseq[col + t] - mu) * (mseq[col + t] - mu);
+                v = v / gvLength;
+                gvApproxMean[m] = mu;
+                gvApproxRatio[m] = (v > 0.0) ? Math.sqrt(gvmean[m] / v) : 1.0;
+            }
+        }
+    }
+
+    /**
+     * Generate the parameters of the next blockSize frames, by solving the MLPG equations over
+     * a window that extends lookAhead frames to either side of the block.
+     * Only the frames of the block are written into par; once generated, they do not change any more.
+     *
+     * @param blockSize number of frames to finalise
+     * @param lookAhead number of frames of context used on each side of the block
+     * @return the number of frames generated so far, see {@link #getGeneratedT()}
+     */
+    public int mlpgNextBlock(int blockSize, int lookAhead) {
+        if (generatedT >= nT)
+            return generatedT;
+        int t0 = generatedT;
+        int t1 = Math.min(nT, t0 + blockSize);
+        int s = Math.max(0, t0 - lookAhead);
+        int e = Math.min(nT, t1 + lookAhead);
+        if (windowPar == null || windowPar.length < e - s)
+            windowPar = new double[blockSize + 2 * lookAhead];
+
+        for (int m = 0; m < order; m++) {
+            calcWUWandWUM(m, s, e);
+            ldlFactorization(wuw, s, e);
+            forwardSubstitution(wum, wuw, s, e);
+            /* backward substitution into the window buffer */
+            for (int t = (e - 1); t >= s; t--) {
+                int r = t * WIDTH;
+                windowPar[t - s] = g[t] / wuw[r];
+                for (int i = 1; (i < WIDTH) && (t + i < e); i++)
+                    windowPar[t - s] -= wuw[r + i] * windowPar[t + i - s];
+            }
+            for (int t = t0; t < t1; t++) {
+                if (approximateGV && gvSwitch[t])
+                    par[t * order + m] = gvApproxRatio[m] * (windowPar[t - s] - gvApproxMean[m]) + gvApproxMean[m];
+                else
+                    par[t * order + m] = windowPar[t - s];
+            }
+        }
+        generatedT = t1;
+        return generatedT;
+    }
+
+    /**
+     * In incremental generation, the number of leading frames whose parameters have been generated.
+     */
+    public int getGeneratedT() {
+        return generatedT;
+    }
+
     /*------ HTS parameter generation fuctions                  */
   /* Calc_WUW_and_WUM: calculate W'U^{-1}W and W'U^{-1}M      */
   /* W is size W[T][width] , width is width of dynamic window */
@@ -393,28 +564,33 @@ public class HTSPStream {
   /* So having A and B we can find the parameters C.          */
   /* U^{-1} = inverse covariance : inseq[][]                  */
     private void calcWUWandWUM(int m) {
+        calcWUWandWUM(m, 0, nT);
+    }
+
+    /* Calc_WUW_and_WUM for the frames [s, e) only, ignoring the frames outside */
+    private void calcWUWandWUM(int m, int s, int e) {
 	  /* initialise */
-        Arrays.fill(wum, 0, nT, 0.0);
+        Arrays.fill(wum, s, e, 0.0);
+        Arrays.fill(wuw, s * WIDTH, e * WIDTH, 0.0);
       /* for all frames: */
-        for (int t = 0; t < nT; t++) {
-          /* initialise */
-            Arrays.fill(wuw[t], 0.0);
+        for (int t = s; t < e; t++) {
+            int r = t * WIDTH;
 	    /* calc WUW & WUM, U is already inverse  */
             for (int i = 0; i < NUM; i++) {
                 int dwWidth_iright = rightWidths[i];
-                int iorder = i * order + m;
+                int col = (i * order + m) * nT;  /* column of coefficient m of window i */
                 for (int j = leftWidths[i]; j <= dwWidth_iright; j++) {
-                    if ((t + j >= 0) && (t + j < nT)) {
+                    if ((t + j >= s) && (t + j < e)) {
                         double dwCoef_ij = xcoefs[1 + i * NUM - j];
                         if (dwCoef_ij != 0.0) {
-                            double WU = dwCoef_ij * ivseq[t + j][iorder];
+                            double WU = dwCoef_ij * ivseq[col + t + j];
 
-                            wum[t] += WU * mseq[t + j][iorder];
-                            for (int k = 0; (k < WIDTH) && (t + k < nT); k++) {
+                            wum[t] += WU * mseq[col + t + j];
+                            for (int k = 0; (k < WIDTH) && (t + k < e); k++) {
                                 if (k - j <= dwWidth_iright) {
                                     double dwCoef_ikj = xcoefs[1 + i * NUM + k - j];
                                     if (dwCoef_ikj != 0.0) {
-                                        wuw[t][k] += WU * dwCoef_ikj;
+                                        wuw[r + k] += WU * dwCoef_ikj;
                                     }
                                 }
                             } /* for k */
@@ -426,8 +602,8 @@ public class HTSPStream {
 /*	if(debug){
 	for(int t=0; t<nT; t++) {
 	  System.out.format("t=%d wum=%f  wuw:", t, wum[t]);
-      for(int k=0; k<wuw[t].length; k++)
-        System.out.format("%f ", wuw[t][k]);
+      for(int k=0; k<WIDTH; k++)
+        System.out.format("%f ", wuw[t*WIDTH+k]);
       System.out.format("\n");
 	}
 	System.out.format("\n");
@@ -437,11 +613,18 @@ public class HTSPStream {
     /**
      * forward_Substitution
      */
-    private void forwardSubstitution(double[] mywum, double[][] mywuw) {
-        System.arraycopy(mywum, 0, g, 0, mywum.length);
-        for (int t = 0; t < nT; t++) {
-            for (int i = 1; (i < WIDTH) && (t - i >= 0); i++)
-                g[t] -= mywuw[t - i][i] * g[t - i];  /* i as index should be i-1 */
+    private void forwardSubstitution(double[] mywum, double[] mywuw) {
+        forwardSubstitution(mywum, mywuw, 0, nT);
+    }
+
+    /**
+     * forward_Substitution for the frames [s, e) only
+     */
+    private void forwardSubstitution(double[] mywum, double[] mywuw, int s, int e) {
+        System.arraycopy(mywum, s, g, s, e - s);
+        for (int t = s; t < e; t++) {
+            for (int i = 1; (i < WIDTH) && (t - i >= s); i++)
+                g[t] -= mywuw[(t - i) * WIDTH + i] * g[t - i];  /* i as index should be i-1 */
             //System.out.println("  g[" + t + "]=" + g[t]);
         }
 	 /*
@@ -451,15 +634,16 @@ public class HTSPStream {
     }
 
     /**
-     * backward_Substitution
+     * backward_Substitution, the solution goes into c
      */
-    private void backwardSubstitution(int m, double[][] mywuw) {
+    private void backwardSubstitution(double[] mywuw) {
         for (int t = (nT - 1); t >= 0; t--) {
-            par[t][m] = g[t] / mywuw[t][0];
+            int r = t * WIDTH;
+            c[t] = g[t] / mywuw[r];
             for (int i = 1; (i < WIDTH) && (t + i < nT); i++) {
-                par[t][m] -= mywuw[t][i] * par[t + i][m]; /* i as index should be i-1 */
+                c[t] -= mywuw[r + i] * c[t + i]; /* i as index should be i-1 */
             }
-            //System.out.println("  par[" + t + "]["+ m + "]=" + par[t][m]);
+            //System.out.println("  c[" + t + "]=" + c[t]);
         }
 
     }
@@ -471,8 +655,9 @@ public class HTSPStream {
         double step = stepInit;
         double prev = -lzero;
         double obj = 0.0;
-        double diag[] = new double[nT];
-        double par_ori[] = new double[nT];
+        double diag[] = gvDiag;
+        double par_ori[] = gvParOri;
+        Arrays.fill(diag, 0, nT, 0.0);
         mean = 0.0;
         var = 0.0;
         int numDown = 0;
@@ -480,7 +665,7 @@ public class HTSPStream {
     /* make a copy in case there is problems during optimisation */
         for (t = 0; t < nT; t++) {
             g[t] = 0.0;
-            par_ori[t] = par[t][m];
+            par_ori[t] = c[t];
         }
        
     /* first convert c (c=par) according to GV pdf and use it as the initial value */
@@ -504,7 +689,7 @@ public class HTSPStream {
         
       /* steepest ascent and quasy Newton  c(i+1) = c(i) + alpha * grad(c(i)) */
             for (t = 0; t < nT; t++)
-                par[t][m] += step * g[t];
+                c[t] += step * g[t];
 
             //System.out.format("iter=%d  prev=%f  obj=%f \n", iter, prev, obj);
             prev = obj;
@@ -518,8 +703,9 @@ public class HTSPStream {
         int t, iter;
         double step = stepInit;
         double obj = 0.0, prev = 0.0;
-        double diag[] = new double[nT];
-        double par_ori[] = new double[nT];
+        double diag[] = gvDiag;
+        double par_ori[] = gvParOri;
+        Arrays.fill(diag, 0, nT, 0.0);
         mean = 0.0;
         var = 0.0;
         int numDown = 0;
@@ -529,7 +715,7 @@ public class HTSPStream {
       /* make a copy in case there is problems during optimisation */
         for (t = 0; t < nT; t++) {
             g[t] = 0.0;
-            par_ori[t] = par[t][m];
+            par_ori[t] = c[t];
         }
               
       /* first convert c (c=par) according to GV pdf and use it as the initial value */
@@ -553,10 +739,10 @@ public class HTSPStream {
           /* objective function degraded -> go back c and decrese step size */
                 if (obj < prev) {
                     for (t = 0; t < nT; t++)  /* go back c=par to that at the previous iteration */
-                        par[t][m] -= step * diag[t];
+                        c[t] -= step * diag[t];
                     step *= stepDec;
                     for (t = 0; t < nT; t++)  /* gradient c */
-                        par[t][m] += step * diag[t];
+                        c[t] += step * diag[t];
                     iter--;
                     numDown++;
                     //logger.info("--- obj < prev iter=" + iter +"  obj=" + obj + "  < prev=" + prev +"  numDown=" + numDown);
@@ -588,7 +774,7 @@ public class HTSPStream {
             }
         /* steepest ascent and quasy Newton  c(i+1) = c(i) + alpha * grad(c(i)) */
             for (t = 0; t < nT; t++) {
-                par[t][m] += step * g[t];
+                c[t] += step * g[t];
                 diag[t] = g[t];
             }
             prev = obj;
@@ -598,7 +784,7 @@ public class HTSPStream {
 
         /* If there it does not converge, the feature parameter is not optimized */
             for (t = 0; t < nT; t++) {
-                par[t][m] = par_ori[t];
+                c[t] = par_ori[t];
             }
         }
         totalNumIter = iter;
@@ -623,31 +809,31 @@ public class HTSPStream {
      
    /* calculate g = R*c = WUW*c*/
         for (t = 0; t < nT; t++) {
-            g[t] = wuw[t][0] * par[t][m];
+            g[t] = wuw[t * WIDTH] * c[t];
             for (i = 2; i <= WIDTH; i++) {   /* WIDTH goes from 0 to 2  WIDTH=3 */
                 if (t + i - 1 < nT)
-                    g[t] += wuw[t][i - 1] * par[t + i - 1][m];      /* i as index should be i-1 */
+                    g[t] += wuw[t * WIDTH + i - 1] * c[t + i - 1];      /* i as index should be i-1 */
                 if (t - i + 1 >= 0)
-                    g[t] += wuw[t - i + 1][i - 1] * par[t - i + 1][m];  /* i as index should be i-1 */
+                    g[t] += wuw[(t - i + 1) * WIDTH + i - 1] * c[t - i + 1];  /* i as index should be i-1 */
             }
         }
 
         for (t = 0, HMMobj = 0.0, norm = 0.0; t < nT; t++) {
 
-            HMMobj += -0.5 * w1 * w * par[t][m] * (g[t] - 2.0 * wum[t]);
+            HMMobj += -0.5 * w1 * w * c[t] * (g[t] - 2.0 * wum[t]);
        
      /* case STEEPEST: do not use hessian */
             //h = 1.0;
      /* case NEWTON */
      /* only diagonal elements of Hessian matrix are used */
-            h = ((nT - 1) * vd + 2.0 * gvcovInv[m] * (par[t][m] - mean) * (par[t][m] - mean));
-            h = -w1 * w * wuw[t][1 - 1] - w2 * 2.0 / (nT * nT) * h;
+            h = ((nT - 1) * vd + 2.0 * gvcovInv[m] * (c[t] - mean) * (c[t] - mean));
+            h = -w1 * w * wuw[t * WIDTH] - w2 * 2.0 / (nT * nT) * h;
 
             h = -1.0 / h;
        
      /* gradient vector */
             if (gvSwitch[t]) {
-                aux = (par[t][m] - mean) * vd;
+                aux = (c[t] - mean) * vd;
                 g[t] = h * (w1 * w * (-g[t] + wum[t]) + w2 * -2.0 / nT * aux);
             } else
                 g[t] = h * (w1 * w * (-g[t] + wum[t]));
@@ -681,25 +867,25 @@ public class HTSPStream {
       
       /* calculate g = R*c = WUW*c*/
         for (t = 0; t < nT; t++) {
-            g[t] = wuw[t][0] * par[t][m];
+            g[t] = wuw[t * WIDTH] * c[t];
             for (i = 2; i <= WIDTH; i++) {   /* WIDTH goes from 0 to 2  WIDTH=3 */
                 if (t + i - 1 < nT)
-                    g[t] += wuw[t][i - 1] * par[t + i - 1][m];      /* i as index should be i-1 */
+                    g[t] += wuw[t * WIDTH + i - 1] * c[t + i - 1];      /* i as index should be i-1 */
                 if (t - i + 1 >= 0)
-                    g[t] += wuw[t - i + 1][i - 1] * par[t - i + 1][m];  /* i as index should be i-1 */
+                    g[t] += wuw[(t - i + 1) * WIDTH + i - 1] * c[t - i + 1];  /* i as index should be i-1 */
             }
         }
 
         for (t = 0, HMMobj = 0.0; t < nT; t++) {
 
-            HMMobj += w1 * w * par[t][m] * (wum[t] - 0.5 * g[t]);
+            HMMobj += w1 * w * c[t] * (wum[t] - 0.5 * g[t]);
 
-            h = -w1 * w * wuw[t][1 - 1] - w2 * 2.0 / (nT * nT) * ((nT - 1) * gvcovInv[m] * (var - gvmean[m]) + 2.0 * gvcovInv[m] * (par[t][m] - mean) * (par[t][m] - mean));
+            h = -w1 * w * wuw[t * WIDTH] - w2 * 2.0 / (nT * nT) * ((nT - 1) * gvcovInv[m] * (var - gvmean[m]) + 2.0 * gvcovInv[m] * (c[t] - mean) * (c[t] - mean));
 
             //System.out.format("HMMobj=%f  h=%f \n", HMMobj, h);
         /* gradient vector */
             if (gvSwitch[t]) {
-                g[t] = 1.0 / h * (w1 * w * (-g[t] + wum[t]) + w2 * vd * (par[t][m] - mean));
+                g[t] = 1.0 / h * (w1 * w * (-g[t] + wum[t]) + w2 * vd * (c[t] - mean));
 
             } else
                 g[t] = 1.0 / h * (w1 * w * (-g[t] + wum[t]));
@@ -723,7 +909,7 @@ public class HTSPStream {
     /* c'[t][d] = ratio * (c[t][d]-mean[d]) + mean[d]  eq. (34) in Toda and Tokuda IEICE-2007 paper. */
         for (t = 0; t < nT; t++) {
             if (gvSwitch[t])
-                par[t][m] = ratio * (par[t][m] - mean) + mean;
+                c[t] = ratio * (c[t] - mean) + mean;
         }
 
     }
@@ -736,8 +922,8 @@ public class HTSPStream {
     /* mean */
         for (t = 0; t < nT; t++)
             if (gvSwitch[t]) {
-                mean += par[t][m];
-                //System.out.format("(%d)%f ", t, par[t][m]);
+                mean += c[t];
+                //System.out.format("(%d)%f ", t, c[t]);
             }
         mean = mean / gvLength;
         //System.out.format("  --- gvlength=%d  mean=%f\n", gvLength, mean);
@@ -745,7 +931,7 @@ public class HTSPStream {
     /* variance */
         for (t = 0; t < nT; t++)
             if (gvSwitch[t]) {
-                var += (par[t][m] - mean) * (par[t][m] - mean);
+                var += (c[t] - mean) * (c[t] - mean);
                 //System.out.format("(%d)%f ", t, var);
             }
         //System.out.format("\n");
@@ -68,13 +68,19 @@ import android.util.Log;
 import java.io.DataOutputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
 import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -107,6 +113,24 @@ public class HTSParameterGeneration {
     private boolean voiced[];
     private int totalUttFrame;   // total number of frames in a mcep, str or mag Pst
     private int totalLf0Frame;   // total number of f0 voiced frames in a lf0 Pst
+    private boolean incremental = false; // mcep, str and mag are generated block by block, see generateFrames()
+    private int blockFrames;
+    private int lookAhead;
+    private final HTSWorkspace workspace; // buffers of the parameter streams, or null
+
+    public HTSParameterGeneration() {
+        this(null);
+    }
+
+    /**
+     * Parameter generation whose streams use the buffers of the given workspace. The streams must not be used
+     * after the workspace has been released.
+     *
+     * @param workspace the workspace of the utterance, or null to allocate the streams
+     */
+    public HTSParameterGeneration(HTSWorkspace workspace) {
+        this.workspace = workspace;
+    }
 
     /* Inverse of a given double */
   /* We actually need the inverse of the matrix of covariance, but since this matrix */
@@ -170,7 +194,24 @@ public class HTSParameterGeneration {
      * @param ms : HMM pdfs model set.
      */
     public void htsMaximumLikelihoodParameterGeneration(HTSUttModel um, final HMMData htsData) throws Exception {
+        htsMaximumLikelihoodParameterGeneration(um, htsData, false);
+    }
+
+    /**
+     * HTS maximum likelihood parameter generation
+     *
+     * @param um          : utterance model sequence after processing Mary context features
+     * @param htsData     : HMM data of the voice, including the model set.
+     * @param incremental : if true, only lf0 is generated here; mcep, str and mag are generated
+     *                    block by block as the vocoder requests them through {@link #generateFrames(int)}.
+     */
+    public void htsMaximumLikelihoodParameterGeneration(HTSUttModel um, final HMMData htsData, boolean incremental) throws Exception {
         CartTreeSet ms = htsData.getCartTreeSet();
+        this.incremental = incremental;
+        blockFrames = htsData.getIncrementalBlockFrames();
+        lookAhead = htsData.getIncrementalLookAhead();
+        if (incremental && blockFrames <= 0)
+            throw new IllegalArgumentException("Incremental parameter generation needs a positive number of frames per block");
     
 	/* Initialisation of PStream objects */
       /* Initialise Parameter generation using UttModel um and Modelset ms */
@@ -179,16 +220,16 @@ public class HTSParameterGeneration {
     /* Here i should pass the window files to initialise the dynamic windows dw */
     /* for the moment the dw are all the same and hard-coded */
         if (htsData.getPdfMgcStream() != null)
-            mcepPst = new HTSPStream(ms.getMcepVsize(), um.getTotalFrame(), HMMData.FeatureType.MGC, htsData.getMaxMgcGvIter());
+            mcepPst = new HTSPStream(ms.getMcepVsize(), um.getTotalFrame(), HMMData.FeatureType.MGC, htsData.getMaxMgcGvIter(), workspace);
     /* for lf0 count just the number of lf0frames that are voiced or non-zero */
         if (htsData.getPdfLf0Stream() != null)
-            lf0Pst = new HTSPStream(ms.getLf0Stream(), um.getLf0Frame(), HMMData.FeatureType.LF0, htsData.getMaxLf0GvIter());
+            lf0Pst = new HTSPStream(ms.getLf0Stream(), um.getLf0Frame(), HMMData.FeatureType.LF0, htsData.getMaxLf0GvIter(), workspace);
 
     /* The following are optional in case of generating mixed excitation */
         if (htsData.getPdfStrStream() != null)
-            strPst = new HTSPStream(ms.getStrVsize(), um.getTotalFrame(), HMMData.FeatureType.STR, htsData.getMaxStrGvIter());
+            strPst = new HTSPStream(ms.getStrVsize(), um.getTotalFrame(), HMMData.FeatureType.STR, htsData.getMaxStrGvIter(), workspace);
         if (htsData.getPdfMagStream() != null)
-            magPst = new HTSPStream(ms.getMagVsize(), um.getTotalFrame(), HMMData.FeatureType.MAG, htsData.getMaxMagGvIter());
+            magPst = new HTSPStream(ms.getMagVsize(), um.getTotalFrame(), HMMData.FeatureType.MAG, htsData.getMaxMagGvIter(), workspace);
 
 
         int lf0Frame = 0; // counts voiced frames
@@ -289,13 +330,15 @@ public class HTSParameterGeneration {
             magPst.fixDynFeatOnBoundaries();
 
         // Step 3: optimize individual parameter streams
+        // the streams are independent from here on, so they can be generated concurrently
+        List<Callable<Void>> streamGenerations = new ArrayList<Callable<Void>>();
 		
 	/* parameter generation for mcep */
         if (mcepPst != null) {
             Log.i(Mary.LOG, "Parameter generation for MGC: ");
             if (htsData.getUseGV() && (htsData.getPdfMgcGVStream() != null))
                 mcepPst.setGvMeanVar(gvms.getGVmeanMgc(), gvms.getGVcovInvMgc());
-            mcepPst.mlpg(htsData, htsData.getUseGV());
+            streamGenerations.add(streamGeneration(mcepPst, htsData, htsData.getUseGV()));
         }
 
         // parameter generation for lf0 */
@@ -305,9 +348,17 @@ public class HTSParameterGeneration {
             Log.i(Mary.LOG, "Parameter generation for LF0: ");
             if (htsData.getUseGV() && (htsData.getPdfLf0GVStream() != null))
                 lf0Pst.setGvMeanVar(gvms.getGVmeanLf0(), gvms.getGVcovInvLf0());
-            lf0Pst.mlpg(htsData, htsData.getUseGV());
-            // here we need set realisedF0
-            setRealisedF0(lf0Pst, um, msNumStates);
+            final HTSUttModel fum = um;
+            final int fmsNumStates = msNumStates;
+            streamGenerations.add(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    lf0Pst.mlpg(htsData, htsData.getUseGV());
+                    // here we need set realisedF0
+                    setRealisedF0(lf0Pst, fum, fmsNumStates);
+                    return null;
+                }
+            });
         }
  
 	/* parameter generation for str */
@@ -318,7 +369,7 @@ public class HTSParameterGeneration {
                 useGV = true;
                 strPst.setGvMeanVar(gvms.getGVmeanStr(), gvms.getGVcovInvStr());
             }
-            strPst.mlpg(htsData, useGV);
+            streamGenerations.add(streamGeneration(strPst, htsData, useGV));
         }
 
 	/* parameter generation for mag */
@@ -329,11 +380,90 @@ public class HTSParameterGeneration {
                 useGV = true;
                 magPst.setGvMeanVar(gvms.getGVmeanMag(), gvms.getGVcovInvMag());
             }
-            magPst.mlpg(htsData, useGV);
+            streamGenerations.add(streamGeneration(magPst, htsData, useGV));
         }
 
+        runStreamGenerations(streamGenerations, htsData.getParameterGenerationExecutor());
+
     }  /* method htsMaximumLikelihoodParameterGeneration */
 
+    /**
+     * The generation of one parameter stream: mlpg for the whole utterance or,
+     * in incremental mode, the initialisation for block-wise generation.
+     */
+    private Callable<Void> streamGeneration(final HTSPStream pst, final HMMData htsData, final boolean useGV) {
+        return new Callable<Void>() {
+            @Override
+            public Void call() {
+                if (incremental)
+                    pst.initIncrementalMlpg(htsData, useGV);
+                else
+                    pst.mlpg(htsData, useGV);
+                return null;
+            }
+        };
+    }
+
+    /**
+     * Run the stream generations and wait until all of them are done. If an executor is given,
+     * the first generation (normally MGC, which dominates) runs in the calling thread and the others
+     * on the executor; otherwise, they run one after the other in the calling thread.
+     */
+    private void runStreamGenerations(List<Callable<Void>> streamGenerations, ExecutorService executor) throws Exception {
+        if (executor == null || streamGenerations.size() <= 1) {
+            for (Callable<Void> generation : streamGenerations)
+                generation.call();
+            return;
+        }
+        List<Future<Void>> futures = new ArrayList<Future<Void>>();
+        for (Callable<Void> generation : streamGenerations.subList(1, streamGenerations.size()))
+            futures.add(executor.submit(generation));
+        // join the other streams in any case, they write into this object
+        Exception failure = null;
+        try {
+            streamGenerations.get(0).call();
+        } catch (Exception e) {
+            failure = e;
+        }
+        for (Future<Void> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                if (failure == null)
+                    failure = (e.getCause() instanceof Exception) ? (Exception) e.getCause() : e;
+            }
+        }
+        if (failure != null)
+            throw failure;
+    }
+
+    public boolean isIncremental() {
+        return incremental;
+    }
+
+    /**
+     * In incremental mode, make sure that the mcep, str and mag parameters of the first
+     * numFrames frames have been generated. Does nothing if the parameters were generated
+     * for the whole utterance.
+     *
+     * @param numFrames number of frames from the start of the utterance that are needed
+     */
+    public void generateFrames(int numFrames) {
+        if (!incremental)
+            return;
+        generateFrames(mcepPst, numFrames);
+        generateFrames(strPst, numFrames);
+        generateFrames(magPst, numFrames);
+    }
+
+    private void generateFrames(HTSPStream pst, int numFrames) {
+        if (pst == null)
+            return;
+        int n = Math.min(numFrames, pst.getT());
+        while (pst.getGeneratedT() < n)
+            pst.mlpgNextBlock(blockFrames, lookAhead);
+    }
+
 
     /* Save generated parameters in a binary file */
     public void saveParamMaryFormat(String fileName, HTSPStream par, HMMData.FeatureType type) {
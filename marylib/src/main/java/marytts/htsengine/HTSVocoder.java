@@ -135,10 +135,28 @@ public class HTSVocoder {
     private int numM;                  /* Number of bandpass filters for mixed excitation */
     private int orderM;                /* Order of filters for mixed excitation */
     private double h[][];              /* filters for mixed excitation */
-    private double xpulseSignal[];     /* the size of this should be orderM */
-    private double xnoiseSignal[];     /* the size of this should be orderM */
+    private double xpulseSignal[];     /* circular delay lines of size 2*orderM, see htsMLSAVocoder() */
+    private double xnoiseSignal[];
     private boolean mixedExcitation = false;
     private boolean fourierMagnitudes = false;
+    /* buffers reused across utterances, or null */
+    private final HTSWorkspace workspace;
+    private HTSWorkspace.VocoderBuffers buffers;
+
+    public HTSVocoder() {
+        this(null);
+    }
+
+    /**
+     * A vocoder that takes its filter state and excitation buffers from the given workspace.
+     * When the audio is produced by {@link #htsMLSAVocoder(HTSParameterGeneration, HMMData)},
+     * the workspace is released once the whole utterance has been vocoded.
+     *
+     * @param workspace the workspace of the utterance, or null to allocate the buffers
+     */
+    public HTSVocoder(HTSWorkspace workspace) {
+        this.workspace = workspace;
+    }
 
     /**
      * get the audio format produced by the hts vocoder
@@ -537,8 +555,15 @@ public class HTSVocoder {
      * posfilter: postfilter for mel-cepstrum. It uses alpha and beta defined in HMMData
      */
     public static void postfilter_mgc(double mgc[], int m, double alpha, double beta) {
+        if (beta > 0.0 && m > 1)
+            postfilter_mgc(mgc, m, alpha, beta, new double[m + 1]);
+    }
+
+    /**
+     * posfilter: postfilter for mel-cepstrum, using postfilter_buff (of length at least m+1) as work space
+     */
+    public static void postfilter_mgc(double mgc[], int m, double alpha, double beta, double[] postfilter_buff) {
         if (beta > 0.0 && m > 1) {
-            double[] postfilter_buff = new double[m + 1];
             mc2b(mgc, postfilter_buff, m, alpha);
             double e1 = b2en(postfilter_buff, m, alpha);
 
@@ -560,22 +585,36 @@ public class HTSVocoder {
      * Generate one pitch period from Fourier magnitudes
      */
     public static double[] genPulseFromFourierMag(double[] mag, double f0) {
+        int T = pulseLength(f0);
+        double[] pulse = new double[T];
+        genPulseFromFourierMag(mag, mag.length, f0, pulse, new double[2 * T], new double[2 * T]);
+        return pulse;
+    }
+
+    /**
+     * Length of the pitch period generated from Fourier magnitudes for the given f0
+     */
+    private static int pulseLength(double f0) {
+        return ((int) Math.round(f0) < 512) ? 512 : 1024;
+    }
+
+    /**
+     * Generate one pitch period from the first numHarm Fourier magnitudes into pulse, using real and imag,
+     * which must be of length exactly twice the pulse length, as work space.
+     *
+     * @return the length of the pulse
+     */
+    private static int genPulseFromFourierMag(double[] mag, int numHarm, double f0, double[] pulse,
+                                              double[] real, double[] imag) {
 
-        int numHarm = mag.length;
         int currentF0 = (int) Math.round(f0);
-        int T;
-        if (currentF0 < 512)
-            T = 512;
-        else
-            T = 1024;
+        int T = pulseLength(f0);
         int T2 = 2 * T;
+        assert real.length == T2 && imag.length == T2;
 
       /* since is FFT2 no aperiodicFlag or jitter of 25% is applied */
 
       /* get the pulse */
-        double[] pulse = new double[T];
-        double[] real = new double[T2];
-        double[] imag = new double[T2];
 
       /* copy Fourier magnitudes (Wai C. Chu "Speech Coding algorithms foundation and evolution of standardized coders" pg. 460) */
         real[0] = real[T] = 0.0;   /* DC component set to zero */
@@ -596,7 +635,25 @@ public class HTSVocoder {
         for (int i = 0; i < T; i++)
             pulse[i] = real[(i - numHarm) % T] * sqrt_f0;
 
-        return pulse;
+        return T;
+    }
+
+    /**
+     * Generate one pitch period from the Fourier magnitudes of frame n into buffers.magPulse.
+     *
+     * @return the length of the pulse
+     */
+    private int genMagPulse(HTSPStream magPst, int n, double f0) {
+        int numHarm = magPst.getOrder();
+        int T2 = 2 * pulseLength(f0);
+        buffers.mag = HTSWorkspace.ensureArray(buffers.mag, numHarm);
+        magPst.getParVec(n, buffers.mag);
+        buffers.magPulse = HTSWorkspace.ensureArray(buffers.magPulse, T2 / 2);
+        if (buffers.magReal == null || buffers.magReal.length != T2) {
+            buffers.magReal = new double[T2];
+            buffers.magImag = new double[T2];
+        }
+        return genPulseFromFourierMag(buffers.mag, numHarm, f0, buffers.magPulse, buffers.magReal, buffers.magImag);
     }
 
     /**
@@ -1183,15 +1240,16 @@ public class HTSVocoder {
 
         rand = new Random(SEED);
 
-        C = new double[mcep_order];
-        CC = new double[mcep_order];
-        CINC = new double[mcep_order];
+        buffers = (workspace != null) ? workspace.getVocoderBuffers() : new HTSWorkspace.VocoderBuffers();
+        C = buffers.c = HTSWorkspace.ensureZeroed(buffers.c, mcep_order);
+        CC = buffers.cc = HTSWorkspace.ensureZeroed(buffers.cc, mcep_order);
+        CINC = buffers.cinc = HTSWorkspace.ensureZeroed(buffers.cinc, mcep_order);
 
         if (stage == 0) {  /* for MGC */
 
           /* mcep_order=74 and pd=PADEORDER=5 (if no HTS_EMBEDDED is used) */
             int vector_size = (mcep_vsize * (3 + PADEORDER) + 5 * PADEORDER + 6) - (3 * (mcep_order));
-            D1 = new double[vector_size];
+            D1 = buffers.d1 = HTSWorkspace.ensureZeroed(buffers.d1, vector_size);
 
             pt2 = (2 * (PADEORDER + 1)) + (PADEORDER * (mcep_order + 1));
 
@@ -1200,7 +1258,7 @@ public class HTSVocoder {
 
         } else { /* for LSP */
             int vector_size = ((mcep_vsize + 1) * (stage + 3)) - (3 * (mcep_order));
-            D1 = new double[vector_size];
+            D1 = buffers.d1 = HTSWorkspace.ensureZeroed(buffers.d1, vector_size);
         }
 
         /* excitation initialisation */
@@ -1216,6 +1274,8 @@ public class HTSVocoder {
      * PStream strpst : Filter bank stregths for mixed excitation
      * PStream magpst : Fourier magnitudes
      * PStream lf0pst : Log F0
+     * The audio is produced in a separate thread; if this vocoder has a workspace,
+     * that thread releases it when it has finished.
      */
     public AudioInputStream htsMLSAVocoder(HTSParameterGeneration pdf2par, HMMData htsData)
             throws Exception {
@@ -1244,6 +1304,10 @@ public class HTSVocoder {
         */
     } // method htsMLSAVocoder()
 
+    /**
+     * Vocode the given parameter streams. If audioProducer is not null, the audio is handed over
+     * to it frame by frame and null is returned; otherwise the audio of the whole utterance is returned.
+     */
     public double[] htsMLSAVocoder(HTSPStream lf0Pst, HTSPStream mcepPst, HTSPStream strPst, HTSPStream magPst,
                                    boolean[] voiced, HMMData htsData, HTSVocoderDataProducer audioProducer)
             throws Exception {
@@ -1251,6 +1315,7 @@ public class HTSVocoder {
         double inc, x, MaxSample;
         double xp = 0.0, xn = 0.0, fxp, fxn, mix;  /* samples for pulse and for noise and the filtered ones */
         int k, m, mcepframe, lf0frame;
+        int xPos = 0;     /* start of the delay line window in xpulseSignal and xnoiseSignal */
         double alpha = htsData.getAlpha();
         double beta = htsData.getBeta();
         double[] magPulse = null;         /* pulse generated from Fourier magnitudes */
@@ -1265,11 +1330,12 @@ public class HTSVocoder {
        * of the filters so the shaping filters hp and hn can be initialised. */
         m = mcepPst.getOrder();
         initVocoder(m, mcepPst.getVsize() - 1, htsData);
-        double pulse[] = new double[fprd];
-        double noise[] = new double[fprd];
-        double source[] = new double[fprd];
+        double pulse[] = buffers.pulse = HTSWorkspace.ensureArray(buffers.pulse, fprd);
+        double noise[] = buffers.noise = HTSWorkspace.ensureArray(buffers.noise, fprd);
+        double source[] = buffers.source = HTSWorkspace.ensureArray(buffers.source, fprd);
+        double mc[] = buffers.mc = HTSWorkspace.ensureArray(buffers.mc, m);  /* feature vector for a particular frame */
+        double postfilter_buff[] = buffers.postfilter = HTSWorkspace.ensureArray(buffers.postfilter, m);
 
-        double[] d = new double[m];
         mixedExcitation = htsData.getUseMixExc();
         fourierMagnitudes = htsData.getUseFourierMag();
 
@@ -1277,13 +1343,12 @@ public class HTSVocoder {
             numM = htsData.getNumFilters();
             orderM = htsData.getOrderFilters();
 
-            xpulseSignal = new double[orderM];
-            xnoiseSignal = new double[orderM];
-        /* initialise xp_sig and xn_sig */ // -> automatically initialized to 0.0
+            xpulseSignal = buffers.xpulseSignal = HTSWorkspace.ensureZeroed(buffers.xpulseSignal, 2 * orderM);
+            xnoiseSignal = buffers.xnoiseSignal = HTSWorkspace.ensureZeroed(buffers.xnoiseSignal, 2 * orderM);
 
             h = htsData.getMixFilters();
-            hp = new double[orderM];
-            hn = new double[orderM];
+            hp = buffers.hp = HTSWorkspace.ensureArray(buffers.hp, orderM);
+            hn = buffers.hn = HTSWorkspace.ensureArray(buffers.hn, orderM);
 
             //Check if the number of filters is equal to the order of strpst
             //i.e. the number of filters is equal to the number of generated strengths per frame.
@@ -1324,18 +1389,29 @@ public class HTSVocoder {
       /* generate Nperiod samples per mcepframe */
         int s = 0;   /* number of samples */
         int s_double = 0;
-        int audio_size = computeAudioSize(mcepPst, htsData); /* audio size in samples, calculated as num frames * frame period */
-        double[] audio_double = new double[audio_size];  /* initialise buffer for audio */
+        double[] audio_double;
+        if (audioProducer != null) {
+            /* the producer takes the audio frame by frame, so one frame is enough */
+            audio_double = buffers.frame = HTSWorkspace.ensureArray(buffers.frame, fprd);
+        } else {
+            int audio_size = computeAudioSize(mcepPst, htsData); /* audio size in samples, calculated as num frames * frame period */
+            audio_double = new double[audio_size];  /* initialise buffer for audio */
+        }
 
         magSample = 1;
         magPulseSize = 0;
         for (mcepframe = 0, lf0frame = 0; mcepframe < mcepPst.getT(); mcepframe++) { /* for each mcep frame */
 
-            /** feature vector for a particular frame */
-            double mc[] = new double[m];  /* feature vector for a particular frame */
+            /* stop if nobody reads the audio any more */
+            if (audioProducer != null && audioProducer.isClosed())
+                break;
+
+            /* with incremental parameter generation, the parameters of this frame may not be there yet */
+            if (audioProducer != null)
+                audioProducer.generateParameters(mcepframe + 1);
+
         /* get current feature vector mgc */
-            for (int i = 0; i < m; i++)
-                mc[i] = mcepPst.getPar(mcepframe, i);
+            mcepPst.getParVec(mcepframe, mc);
 
         /* f0 modification through the MARY audio effects */
             double f0 = 0.0;
@@ -1390,7 +1466,7 @@ public class HTSVocoder {
 
             if (stage == 0) {
           /* postfiltering, this is done if beta>0.0 */
-                postfilter_mgc(mc, (m - 1), alpha, beta);
+                postfilter_mgc(mc, (m - 1), alpha, beta, postfilter_buff);
           /* mc2b: transform mel-cepstrum to MLSA digital filter coefficients */
                 mc2b(mc, CC, (m - 1), alpha);
                 for (int i = 0; i < m; i++)
@@ -1439,9 +1515,9 @@ public class HTSVocoder {
                 } else {
                     if ((pc += 1.0) >= p1) {
                         if (fourierMagnitudes) {
-                            magPulse = genPulseFromFourierMag(magPst, mcepframe, p1);
+                            magPulseSize = genMagPulse(magPst, mcepframe, p1);
+                            magPulse = buffers.magPulse;
                             magSample = 0;
-                            magPulseSize = magPulse.length;
                             x = magPulse[magSample];
                             magSample++;
                         } else
@@ -1469,19 +1545,21 @@ public class HTSVocoder {
 
           /* apply the shaping filters to the pulse and noise samples */
           /* i need memory of at least for M samples in both signals */
+          /* The delay lines are circular: the past orderM samples, most recent first, are in
+           * xpulseSignal[xPos..xPos+orderM-1], and every sample is stored twice, at i and i+orderM,
+           * so that this window is always contiguous and nothing needs to be shifted. */
                 if (mixedExcitation) {
                     fxp = 0.0;
                     fxn = 0.0;
                     for (k = orderM - 1; k > 0; k--) {
-                        fxp += hp[k] * xpulseSignal[k];
-                        fxn += hn[k] * xnoiseSignal[k];
-                        xpulseSignal[k] = xpulseSignal[k - 1];
-                        xnoiseSignal[k] = xnoiseSignal[k - 1];
+                        fxp += hp[k] * xpulseSignal[xPos + k];
+                        fxn += hn[k] * xnoiseSignal[xPos + k];
                     }
                     fxp += hp[0] * xp;
                     fxn += hn[0] * xn;
-                    xpulseSignal[0] = xp;
-                    xnoiseSignal[0] = xn;
+                    xPos = (xPos == 0 ? orderM : xPos) - 1;
+                    xpulseSignal[xPos] = xpulseSignal[xPos + orderM] = xp;
+                    xnoiseSignal[xPos] = xnoiseSignal[xPos + orderM] = xn;
 
             /* x is a pulse noise excitation and mix is mixed excitation */
                     mix = fxp + fxn;
@@ -1509,10 +1587,6 @@ public class HTSVocoder {
 
                 //System.out.format("%f ", x);
                 audio_double[s_double] = x;
-                if (audioProducer != null) {
-                    audioProducer.putOneDataPoint(x);
-                }
-
                 s_double++;
 
                 if ((--i) == 0) {
@@ -1525,6 +1599,12 @@ public class HTSVocoder {
 
             } /* for each sample in a period fprd */
 
+            /* hand the whole frame over to the reading thread in one block */
+            if (audioProducer != null) {
+                audioProducer.putData(audio_double, 0, fprd);
+                s_double = 0;
+            }
+
             /********* For debuging
              if(voiced[mcepframe]) {
              double magf[] = SignalProcUtils.getFrameHalfMagnitudeSpectrum(source, 512, 1);
@@ -1546,6 +1626,8 @@ public class HTSVocoder {
 
         Log.d(Mary.LOG, "Finish processing " + mcepframe + " mcep frames.");
 
+        if (audioProducer != null)
+            return null;
         return (audio_double);
 
     } /* method htsMLSAVocoder() */
@@ -1715,10 +1797,12 @@ public class HTSVocoder {
         private HTSPStream magPst;
         private boolean[] voiced;
         private HMMData htsData;
+        private HTSParameterGeneration pdf2par;
 
 
         public HTSVocoderDataProducer(int audioSize, HTSParameterGeneration pdf2par, HMMData htsData) {
             super(audioSize, new AmplitudeNormalizer(INITIAL_MAX_AMPLITUDE));
+            this.pdf2par = pdf2par;
             lf0Pst = pdf2par.getlf0Pst();
             mcepPst = pdf2par.getMcepPst();
             strPst = pdf2par.getStrPst();
@@ -1730,11 +1814,28 @@ public class HTSVocoder {
 
         @Override
         public void run() {
+            Throwable failure = null;
             try {
                 htsMLSAVocoder(lf0Pst, mcepPst, strPst, magPst, voiced, htsData, this);
-                putEndOfStream();
-            } catch (Exception e) {
+            } catch (Throwable e) {
+                // also covers parameter generation, which may run here incrementally
                 Log.e(Mary.LOG, "Cannot vocode", e);
+                failure = e;
+            } finally {
+                // the reader must always see the end of the data, or it would block forever
+                putEndOfStream(failure);
+                if (workspace != null)
+                    workspace.release();
+            }
+        }
+
+        /**
+         * Make sure the parameters of the first numFrames frames are available,
+         * generating them now if parameter generation is incremental.
+         */
+        public void generateParameters(int numFrames) {
+            if (pdf2par.isIncremental()) {
+                pdf2par.generateFrames(numFrames);
             }
         }
 
@@ -0,0 +1,172 @@
+/**
+ * Copyright 2009 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ * <p/>
+ * This file is part of MARY TTS.
+ * <p/>
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ * <p/>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * <p/>
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package marytts.htsengine;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Reusable buffers for synthesising one utterance with the HTS engine: the matrices of the
+ * parameter streams ({@link HTSPStream}) and the filter state and excitation buffers of the
+ * {@link HTSVocoder}. The buffers grow to the largest utterance seen and are then kept,
+ * so that under sustained load the matrices are not reallocated for every utterance.
+ * <p/>
+ * A workspace is taken from a shared pool with {@link #acquire()} and given back with {@link #release()}
+ * once the audio of the utterance has been produced. The parameter streams generated with a workspace
+ * use its arrays, so they must not be accessed after the release.
+ * The workspace of an utterance is used by several threads (streams are generated concurrently,
+ * the vocoder runs in its own thread), which is why it is pooled rather than thread-local.
+ */
+public class HTSWorkspace {
+
+    /**
+     * Maximum number of idle workspaces kept in the pool
+     */
+    private static final int MAX_POOLED = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+    private static final BlockingQueue<HTSWorkspace> pool = new ArrayBlockingQueue<HTSWorkspace>(MAX_POOLED);
+
+    private final Map<HMMData.FeatureType, StreamBuffers> streams =
+            new EnumMap<HMMData.FeatureType, StreamBuffers>(HMMData.FeatureType.class);
+    private final VocoderBuffers vocoder = new VocoderBuffers();
+    private final AtomicBoolean inUse = new AtomicBoolean();
+
+    /**
+     * Take a workspace from the pool, or create a new one if the pool is empty.
+     */
+    public static HTSWorkspace acquire() {
+        HTSWorkspace workspace = pool.poll();
+        if (workspace == null)
+            workspace = new HTSWorkspace();
+        workspace.inUse.set(true);
+        return workspace;
+    }
+
+    /**
+     * Give this workspace back to the pool. Calling this more than once has no effect.
+     */
+    public void release() {
+        if (inUse.compareAndSet(true, false))
+            pool.offer(this);
+    }
+
+    /**
+     * The buffers for the parameter stream of the given type.
+     */
+    synchronized StreamBuffers getStreamBuffers(HMMData.FeatureType type) {
+        StreamBuffers buffers = streams.get(type);
+        if (buffers == null) {
+            buffers = new StreamBuffers();
+            streams.put(type, buffers);
+        }
+        return buffers;
+    }
+
+    VocoderBuffers getVocoderBuffers() {
+        return vocoder;
+    }
+
+    static double[] ensureArray(double[] a, int length) {
+        if (a != null && a.length >= length)
+            return a;
+        return new double[grownSize(a == null ? 0 : a.length, length)];
+    }
+
+    /**
+     * Like {@link #ensureArray(double[], int)}, with the first length elements set to zero.
+     */
+    static double[] ensureZeroed(double[] a, int length) {
+        a = ensureArray(a, length);
+        Arrays.fill(a, 0, length, 0.0);
+        return a;
+    }
+
+    static boolean[] ensureArray(boolean[] a, int length) {
+        if (a != null && a.length >= length)
+            return a;
+        return new boolean[grownSize(a == null ? 0 : a.length, length)];
+    }
+
+    /**
+     * Leave some room when growing, so that slightly longer utterances do not reallocate again.
+     */
+    private static int grownSize(int oldSize, int needed) {
+        return (oldSize == 0) ? needed : Math.max(needed, needed + needed / 4);
+    }
+
+    /**
+     * The matrices of one parameter stream. Rows beyond the current utterance length may hold old data.
+     */
+    static final class StreamBuffers {
+        // par (nT x order), mseq and ivseq (nT x vSize) and wuw (nT x width), stored row-major
+        double[] par;
+        double[] mseq;
+        double[] ivseq;
+        double[] wuw;
+        double[] g;
+        double[] wum;
+        double[] c;
+        double[] gvDiag;
+        double[] gvParOri;
+        boolean[] gvSwitch;
+
+        void ensureCapacity(int nT, int vSize, int order, int width) {
+            par = ensureArray(par, nT * order);
+            mseq = ensureArray(mseq, nT * vSize);
+            ivseq = ensureArray(ivseq, nT * vSize);
+            wuw = ensureArray(wuw, nT * width);
+            g = ensureArray(g, nT);
+            wum = ensureArray(wum, nT);
+            c = ensureArray(c, nT);
+            gvDiag = ensureArray(gvDiag, nT);
+            gvParOri = ensureArray(gvParOri, nT);
+            gvSwitch = ensureArray(gvSwitch, nT);
+        }
+    }
+
+    /**
+     * The state of the vocoder for one utterance.
+     */
+    static final class VocoderBuffers {
+        double[] c;
+        double[] cc;
+        double[] cinc;
+        double[] d1;
+        double[] mc;
+        double[] postfilter;
+        double[] pulse;
+        double[] noise;
+        double[] source;
+        double[] frame;
+        double[] hp;
+        double[] hn;
+        double[] xpulseSignal;
+        double[] xnoiseSignal;
+        // pulse generation from Fourier magnitudes
+        double[] mag;
+        double[] magPulse;
+        double[] magReal;
+        double[] magImag;
+    }
+}
@@ -35,6 +35,7 @@ import marytts.datatypes.MaryXML;
 import marytts.features.FeatureDefinition;
 import marytts.features.FeatureProcessorManager;
 import marytts.features.FeatureRegistry;
+import marytts.features.SentenceStructure;
 import marytts.features.TargetFeatureComputer;
 import marytts.modules.synthesis.Voice;
 import marytts.server.Mary;
@@ -176,12 +177,14 @@ public class CARTDurationModeller extends InternalModule {
             // cumulative duration from beginning of sentence, in seconds:
             float end = 0;
 
+            SentenceStructure structure = new SentenceStructure(sentence);
             TreeWalker tw = DomUtils.createTreeWalker(sentence, MaryXML.PHONE, MaryXML.BOUNDARY);
             Element segmentOrBoundary;
             Element previous = null;
             while ((segmentOrBoundary = (Element) tw.nextNode()) != null) {
                 String phone = UnitSelector.getPhoneSymbol(segmentOrBoundary);
                 Target t = new Target(phone, segmentOrBoundary);
+                t.setSentenceStructure(structure);
                 t.setFeatureVector(currentFeatureComputer.computeFeatureVector(t));
                 float durInSeconds;
                 if (segmentOrBoundary.getTagName().equals(MaryXML.BOUNDARY)) { // a pause
@@ -33,6 +33,7 @@ import marytts.datatypes.MaryXML;
 import marytts.features.FeatureDefinition;
 import marytts.features.FeatureProcessorManager;
 import marytts.features.FeatureRegistry;
+import marytts.features.SentenceStructure;
 import marytts.features.TargetFeatureComputer;
 import marytts.modules.phonemiser.Allophone;
 import marytts.modules.phonemiser.AllophoneSet;
@@ -186,6 +187,7 @@ public class CARTF0Modeller extends InternalModule {
                 throw new NullPointerException("Do not have f0 prediction tree");
             }
 
+            SentenceStructure structure = new SentenceStructure(sentence);
             TreeWalker tw = DomUtils.createTreeWalker(sentence, MaryXML.SYLLABLE);
             Element syllable;
             Element previous = null;
@@ -220,6 +222,7 @@ public class CARTF0Modeller extends InternalModule {
                     // Now predict the f0 values using the CARTs:ssh
                     String phone = vowel.getAttribute("p");
                     Target t = new Target(phone, vowel);
+                    t.setSentenceStructure(structure);
                     t.setFeatureVector(currentFeatureComputer.computeFeatureVector(t));
                     float[] left = (float[]) currentLeftCart.interpret(t, 0);
                     assert left != null : "Null frequency";
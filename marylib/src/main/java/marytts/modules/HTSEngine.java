@@ -89,6 +89,7 @@ import marytts.htsengine.HTSModel;
 import marytts.htsengine.HTSParameterGeneration;
 import marytts.htsengine.HTSUttModel;
 import marytts.htsengine.HTSVocoder;
+import marytts.htsengine.HTSWorkspace;
 import marytts.modules.synthesis.Voice;
 import marytts.server.Mary;
 import marytts.unitselection.select.Target;
@@ -314,19 +315,29 @@ public class HTSEngine extends InternalModule {
         /* Process label file of Mary context features and creates UttModel um */
         HTSUttModel um = processTargetList(targetFeaturesList, segmentsAndBoundaries, hmmv.getHMMData());
 
-        /* Process UttModel */
-        HTSParameterGeneration pdf2par = new HTSParameterGeneration();
-        /* Generate sequence of speech parameter vectors, generate parameters out of sequence of pdf's */
-        pdf2par.htsMaximumLikelihoodParameterGeneration(um, hmmv.getHMMData());
-
-
-        /* set parameters for generation: f0Std, f0Mean and length, default values 1.0, 0.0 and 0.0 */
-        /* These values are fixed in HMMVoice */
-
-        /* Process generated parameters */
-        HTSVocoder par2speech = new HTSVocoder();
-        /* Synthesize speech waveform, generate speech out of sequence of parameters */
-        AudioInputStream ais = par2speech.htsMLSAVocoder(pdf2par, hmmv.getHMMData());
+        /* the buffers of parameter generation and vocoding are reused across utterances */
+        HTSWorkspace workspace = HTSWorkspace.acquire();
+        AudioInputStream ais;
+        try {
+            /* Process UttModel */
+            HTSParameterGeneration pdf2par = new HTSParameterGeneration(workspace);
+            /* Generate sequence of speech parameter vectors, generate parameters out of sequence of pdf's */
+            /* in incremental mode, mcep, str and mag are generated by the vocoder thread as it needs them */
+            pdf2par.htsMaximumLikelihoodParameterGeneration(um, hmmv.getHMMData(), hmmv.getHMMData().getUseIncrementalGeneration());
+
+
+            /* set parameters for generation: f0Std, f0Mean and length, default values 1.0, 0.0 and 0.0 */
+            /* These values are fixed in HMMVoice */
+
+            /* Process generated parameters */
+            HTSVocoder par2speech = new HTSVocoder(workspace);
+            /* Synthesize speech waveform, generate speech out of sequence of parameters */
+            /* from here on, the vocoder thread releases the workspace when it has finished */
+            ais = par2speech.htsMLSAVocoder(pdf2par, hmmv.getHMMData());
+        } catch (Exception e) {
+            workspace.release();
+            throw e;
+        }
 
         MaryData output = new MaryData(outputType(), d.getLocale());
         if (d.getAudioFileFormat() != null) {
@@ -522,11 +533,11 @@ public class HTSEngine extends InternalModule {
             cart.searchMgcInCartTree(m, fv, feaDef);
 
           /* Find pdf for strengths, this function sets the pdf for each state.  */
-            if (htsData.getTreeStrStream() != null)
+            if (cart.hasStrTree())
                 cart.searchStrInCartTree(m, fv, feaDef);
           
           /* Find pdf for Fourier magnitudes, this function sets the pdf for each state.  */
-            if (htsData.getTreeMagStream() != null)
+            if (cart.hasMagTree())
                 cart.searchMagInCartTree(m, fv, feaDef);
           
           /* increment number of models in utterance model */
@@ -32,6 +32,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.StringTokenizer;
 
+import marytts.datatypes.CompactUtterance;
 import marytts.datatypes.MaryData;
 import marytts.datatypes.MaryDataType;
 import marytts.datatypes.MaryXML;
@@ -43,12 +44,8 @@ import marytts.server.Mary;
 import marytts.server.MaryProperties;
 import marytts.util.MaryRuntimeUtils;
 import marytts.util.MaryUtils;
-import marytts.util.dom.DomUtils;
-import marytts.util.dom.MaryDomUtils;
 import mf.org.w3c.dom.DOMException;
-import mf.org.w3c.dom.Document;
 import mf.org.w3c.dom.Element;
-import mf.org.w3c.dom.traversal.NodeIterator;
 
 
 /**
@@ -123,27 +120,25 @@ public class JPhonemiser extends InternalModule {
     @Override
     public MaryData process(MaryData d)
             throws Exception {
-        Document doc = d.getDocument();
-        NodeIterator it = DomUtils.createNodeIterator(doc, doc, MaryXML.TOKEN);
-        Element t = null;
-        while ((t = (Element) it.nextNode()) != null) {
+        CompactUtterance utterance = d.getCompactUtterance();
+        for (int t : utterance.getElements(MaryXML.TOKEN)) {
             String text;
 
             // Do not touch tokens for which a transcription is already
             // given (exception: transcription contains a '*' character:
-            if (t.hasAttribute("ph") &&
-                    !t.getAttribute("ph").contains("*")) {
+            if (utterance.hasAttribute(t, "ph") &&
+                    !utterance.getAttribute(t, "ph").contains("*")) {
                 continue;
             }
-            if (t.hasAttribute("sounds_like"))
-                text = t.getAttribute("sounds_like");
+            if (utterance.hasAttribute(t, "sounds_like"))
+                text = utterance.getAttribute(t, "sounds_like");
             else
-                text = MaryDomUtils.tokenText(t);
+                text = utterance.getText(t);
 
             String pos = null;
             // use part-of-speech if available
-            if (t.hasAttribute("pos")) {
-                pos = t.getAttribute("pos");
+            if (utterance.hasAttribute(t, "pos")) {
+                pos = utterance.getAttribute(t, "pos");
             }
 
             if (text != null && !text.equals("")) {
@@ -170,13 +165,13 @@ public class JPhonemiser extends InternalModule {
                 }
 
                 if (ph != null && ph.length() > 0) {
-                    setPh(t, ph.toString());
-                    t.setAttribute("g2p_method", g2pMethod);
+                    setPh(utterance, t, ph.toString());
+                    utterance.setAttribute(t, "g2p_method", g2pMethod);
                 }
             }
         }
         MaryData result = new MaryData(outputType(), d.getLocale());
-        result.setDocument(doc);
+        result.setCompactUtterance(utterance);
         return result;
     }
 
@@ -249,35 +244,18 @@ public class JPhonemiser extends InternalModule {
      */
     public String lexiconLookup(String text, String pos) {
         if (text == null || text.length() == 0) return null;
-        String[] entries;
-        entries = lexiconLookupPrimitive(text, pos);
         // If entry is not found directly, try the following changes:
         // - lowercase the word
         // - all lowercase but first uppercase
-        if (entries.length == 0) {
-            text = text.toLowerCase(getLocale());
-            entries = lexiconLookupPrimitive(text, pos);
-        }
-        if (entries.length == 0) {
-            text = text.substring(0, 1).toUpperCase(getLocale()) + text.substring(1);
-            entries = lexiconLookupPrimitive(text, pos);
-        }
-
-        if (entries.length == 0) return null;
-        return entries[0];
-    }
-
-    private String[] lexiconLookupPrimitive(String text, String pos) {
-        String[] entries;
+        String lower = text.toLowerCase(getLocale());
+        String capitalised = lower.substring(0, 1).toUpperCase(getLocale()) + lower.substring(1);
+        String[] candidates;
         if (pos != null) { // look for pos-specific version first
-            entries = lexicon.lookup(text + pos);
-            if (entries.length == 0) {  // not found -- lookup without pos
-                entries = lexicon.lookup(text);
-            }
+            candidates = new String[]{text + pos, text, lower + pos, lower, capitalised + pos, capitalised};
         } else {
-            entries = lexicon.lookup(text);
+            candidates = new String[]{text, lower, capitalised};
         }
-        return entries;
+        return lexicon.lookupFirst(candidates);
     }
 
     /**
@@ -395,5 +373,20 @@ public class JPhonemiser extends InternalModule {
         }
     }
 
+    /**
+     * Sets the ph attribute of token t in the given compact utterance,
+     * in the same way as {@link #setPh(Element, String)}.
+     */
+    protected void setPh(CompactUtterance utterance, int t, String ph) {
+        if (utterance.hasAttribute(t, "ph")) {
+            String prevPh = utterance.getAttribute(t, "ph");
+            // In previous sampa, replace star with sampa:
+            String newPh = prevPh.replaceFirst("\\*", ph);
+            utterance.setAttribute(t, "ph", newPh);
+        } else {
+            utterance.setAttribute(t, "ph", ph);
+        }
+    }
+
 }
 
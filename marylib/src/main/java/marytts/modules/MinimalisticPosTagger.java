@@ -20,18 +20,13 @@ package marytts.modules;
 
 import java.io.InputStream;
 
+import marytts.datatypes.CompactUtterance;
 import marytts.datatypes.MaryData;
 import marytts.datatypes.MaryDataType;
 import marytts.datatypes.MaryXML;
 import marytts.fst.FSTLookup;
 import marytts.server.MaryProperties;
 import marytts.util.MaryUtils;
-import marytts.util.dom.DomUtils;
-import marytts.util.dom.MaryDomUtils;
-import mf.org.w3c.dom.Document;
-import mf.org.w3c.dom.Element;
-import mf.org.w3c.dom.traversal.NodeIterator;
-import mf.org.w3c.dom.traversal.TreeWalker;
 
 
 /**
@@ -78,27 +73,22 @@ public class MinimalisticPosTagger extends InternalModule {
     @Override
     public MaryData process(MaryData d)
             throws Exception {
-        Document doc = d.getDocument();
-        NodeIterator sentenceIt = DomUtils.createNodeIterator(doc, doc, MaryXML.SENTENCE);
-        Element sentence;
-        while ((sentence = (Element) sentenceIt.nextNode()) != null) {
-            TreeWalker tokenIt = DomUtils.createTreeWalker(sentence, MaryXML.TOKEN);
-            Element t;
-            while ((t = (Element) tokenIt.nextNode()) != null) {
+        CompactUtterance utterance = d.getCompactUtterance();
+        for (int sentence : utterance.getElements(MaryXML.SENTENCE)) {
+            for (int t : utterance.getElementsBelow(sentence, MaryXML.TOKEN)) {
                 String pos = "content";
-                String tokenText = MaryDomUtils.tokenText(t);
+                String tokenText = utterance.getText(t);
                 if (punctuationList.contains(tokenText)) {
                     pos = "$PUNCT";
                 } else if (posFST != null) {
-                    String[] result = posFST.lookup(tokenText);
-                    if (result.length != 0)
+                    if (posFST.lookupFirst(tokenText) != null)
                         pos = "function";
                 }
-                t.setAttribute("pos", pos);
+                utterance.setAttribute(t, "pos", pos);
             }
         }
         MaryData output = new MaryData(outputType(), d.getLocale());
-        output.setDocument(doc);
+        output.setCompactUtterance(utterance);
         return output;
     }
 
@@ -21,15 +21,19 @@ package marytts.modules;
 import android.util.Log;
 
 
+import org.apache.commons.collections4.keyvalue.MultiKey;
 import org.apache.commons.collections4.map.MultiKeyMap;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import marytts.datatypes.MaryDataType;
 import marytts.exceptions.MaryConfigurationException;
@@ -52,6 +56,9 @@ public class ModuleRegistry {
     private static MultiKeyMap mkm;
     private static List<MaryModule> allModules;
     private static boolean registrationComplete;
+    // processing paths by (source type, target type, locale, voice); NO_PATH if there is none
+    private static ConcurrentMap<MultiKey<Object>, List<MaryModule>> plans;
+    private static final List<MaryModule> NO_PATH = Collections.unmodifiableList(new ArrayList<MaryModule>());
     //  private static Logger logger;
 
     /**
@@ -60,6 +67,7 @@ public class ModuleRegistry {
     static {
         mkm = new MultiKeyMap();
         allModules = new ArrayList<MaryModule>();
+        plans = new ConcurrentHashMap<MultiKey<Object>, List<MaryModule>>();
         registrationComplete = false;
         //  logger = MaryUtils.getLogger("ModuleRegistry");
     }
@@ -133,6 +141,7 @@ public class ModuleRegistry {
         l.add(module);
 
         allModules.add(module);
+        plans.clear();
 
         MaryDataType.registerDataType(type);
         MaryDataType.registerDataType(module.outputType());
@@ -162,6 +171,7 @@ public class ModuleRegistry {
             throw new IllegalStateException("Registration has already completed, cannot do that a second time");
 
         registrationComplete = true;
+        plans.clear();
         MaryDataType.setRegistrationComplete();
     }
 
@@ -239,10 +249,45 @@ public class ModuleRegistry {
             throw new NullPointerException("Received null target type");
         //if (locale == null)
         //    throw new NullPointerException("Received null locale");
-        LinkedList<MaryDataType> seenTypes = new LinkedList<MaryDataType>();
-        seenTypes.add(sourceType);
-        return modulesRequiredForProcessing(
-                sourceType, targetType, locale, voice, seenTypes);
+        MultiKey<Object> key = new MultiKey<Object>(sourceType, targetType, locale, voice);
+        List<MaryModule> plan = plans.get(key);
+        if (plan == null) {
+            LinkedList<MaryDataType> seenTypes = new LinkedList<MaryDataType>();
+            seenTypes.add(sourceType);
+            LinkedList<MaryModule> path = modulesRequiredForProcessing(
+                    sourceType, targetType, locale, voice, seenTypes);
+            plan = path != null ? Collections.unmodifiableList(new ArrayList<MaryModule>(path)) : NO_PATH;
+            plans.put(key, plan);
+        }
+        if (plan == NO_PATH) {
+            return null;
+        }
+        return new LinkedList<MaryModule>(plan);
+    }
+
+    /**
+     * Determine the processing paths from all input types to all output types
+     * for each of the given voices and its locale, so that requests find them
+     * already computed.
+     *
+     * @param voices the voices to compute the processing paths for
+     * @throws IllegalStateException if called while registration is not yet complete.
+     */
+    public static void precomputeProcessingPlans(Collection<Voice> voices) {
+        if (!registrationComplete)
+            throw new IllegalStateException("Cannot inquire about modules while registration is ongoing");
+        long startTime = System.currentTimeMillis();
+        List<MaryDataType> inputTypes = MaryDataType.getInputTypes();
+        List<MaryDataType> outputTypes = MaryDataType.getOutputTypes();
+        for (Voice voice : voices) {
+            for (MaryDataType inputType : inputTypes) {
+                for (MaryDataType outputType : outputTypes) {
+                    modulesRequiredForProcessing(inputType, outputType, voice.getLocale(), voice);
+                }
+            }
+        }
+        Log.d(Mary.LOG, "Computed " + plans.size() + " processing paths in "
+                + (System.currentTimeMillis() - startTime) + " ms");
     }
 
     /**
@@ -32,17 +32,12 @@ import java.util.List;
 import java.util.Map;
 import java.util.StringTokenizer;
 
+import marytts.datatypes.CompactUtterance;
 import marytts.datatypes.MaryData;
 import marytts.datatypes.MaryDataType;
 import marytts.datatypes.MaryXML;
 import marytts.server.Mary;
 import marytts.util.MaryUtils;
-import marytts.util.dom.DomUtils;
-import marytts.util.dom.MaryDomUtils;
-import mf.org.w3c.dom.Document;
-import mf.org.w3c.dom.Element;
-import mf.org.w3c.dom.traversal.NodeIterator;
-import mf.org.w3c.dom.traversal.TreeWalker;
 import opennlp.tools.postag.POSModel;
 import opennlp.tools.postag.POSTaggerME;
 
@@ -118,23 +113,19 @@ public class OpenNLPPosTagger extends InternalModule {
     public MaryData process(MaryData d)
             throws Exception {
 
-        Document doc = d.getDocument();
-        NodeIterator sentenceIt = DomUtils.createNodeIterator(doc, doc, MaryXML.SENTENCE);
-        Element sentence;
-        while ((sentence = (Element) sentenceIt.nextNode()) != null) {
-            TreeWalker tokenIt = DomUtils.createTreeWalker(sentence, MaryXML.TOKEN);
-            List<String> tokens = new ArrayList<String>();
-            Element t;
-            while ((t = (Element) tokenIt.nextNode()) != null) {
-                tokens.add(MaryDomUtils.tokenText(t));
+        CompactUtterance utterance = d.getCompactUtterance();
+        for (int sentence : utterance.getElements(MaryXML.SENTENCE)) {
+            int[] tokenElements = utterance.getElementsBelow(sentence, MaryXML.TOKEN);
+            List<String> tokens = new ArrayList<String>(tokenElements.length);
+            for (int t : tokenElements) {
+                tokens.add(utterance.getText(t));
             }
             List<String> partsOfSpeech = null;
             synchronized (this) {
                 partsOfSpeech = tagger.tag(tokens);
             }
-            tokenIt.setCurrentNode(sentence); // reset treewalker so we can walk through once again
             Iterator<String> posIt = partsOfSpeech.iterator();
-            while ((t = (Element) tokenIt.nextNode()) != null) {
+            for (int t : tokenElements) {
                 assert posIt.hasNext();
                 String pos = posIt.next();
                 if (posMapper != null) {
@@ -143,12 +134,12 @@ public class OpenNLPPosTagger extends InternalModule {
                         Log.w(Mary.LOG, "POS map file incomplete: do not know how to map '" + pos + "'");
                     else pos = gpos;
                 }
-                t.setAttribute("pos", pos);
+                utterance.setAttribute(t, "pos", pos);
             }
         }
 
         MaryData output = new MaryData(outputType(), d.getLocale());
-        output.setDocument(doc);
+        output.setCompactUtterance(utterance);
         return output;
     }
 
@@ -29,6 +29,7 @@ import marytts.datatypes.MaryDataType;
 import marytts.datatypes.MaryXML;
 import marytts.features.FeatureDefinition;
 import marytts.features.FeatureProcessorManager;
+import marytts.features.SentenceStructure;
 import marytts.features.TargetFeatureComputer;
 import marytts.modules.phonemiser.Allophone;
 import marytts.modules.phonemiser.AllophoneSet;
@@ -142,6 +143,7 @@ public class PolynomialF0Modeller extends InternalModule {
                 }
             }
 
+            SentenceStructure structure = new SentenceStructure(sentence);
             TreeWalker tw = ((DocumentTraversal) doc).createTreeWalker(sentence,
                     NodeFilter.SHOW_ELEMENT, new NameNodeFilter(MaryXML.SYLLABLE), false);
             Element syllable;
@@ -171,6 +173,7 @@ public class PolynomialF0Modeller extends InternalModule {
                     // Now predict the f0 values using the CARTs:ssh 
                     String phone = vowel.getAttribute("p");
                     Target t = new Target(phone, vowel);
+                    t.setSentenceStructure(structure);
                     t.setFeatureVector(currentFeatureComputer.computeFeatureVector(t));
                     //double[] coeffs = ArrayUtils.toDoubleArray((float[]) currentGraph.interpret(t));
                     int[] leafContours = (int[]) currentGraph.interpret(t);
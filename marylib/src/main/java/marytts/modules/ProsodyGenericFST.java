@@ -74,7 +74,7 @@ public class ProsodyGenericFST extends ProsodyGeneric {
             contains = set.contains(tokenValue);
         } else if (listObj instanceof FSTLookup) {
             FSTLookup fst = (FSTLookup) listObj;
-            contains = fst.lookup(tokenValue).length > 0;
+            contains = fst.lookupFirst(tokenValue) != null;
         } else {
             throw new IllegalArgumentException("Unknown list representation: " + listObj);
         }
@@ -30,6 +30,7 @@ import marytts.datatypes.MaryXML;
 import marytts.features.FeatureDefinition;
 import marytts.features.FeatureProcessorManager;
 import marytts.features.FeatureRegistry;
+import marytts.features.SentenceStructure;
 import marytts.features.TargetFeatureComputer;
 import marytts.machinelearning.SoP;
 import marytts.modules.phonemiser.AllophoneSet;
@@ -185,6 +186,7 @@ public class SoPDurationModeller extends InternalModule {
             // cumulative duration from beginning of sentence, in seconds:
             float end = 0;
             float durInSeconds;
+            SentenceStructure structure = new SentenceStructure(sentence);
             TreeWalker tw = DomUtils.createTreeWalker(sentence, MaryXML.PHONE, MaryXML.BOUNDARY);
             Element segmentOrBoundary;
             Element previous = null;
@@ -192,6 +194,7 @@ public class SoPDurationModeller extends InternalModule {
                 String phone = UnitSelector.getPhoneSymbol(segmentOrBoundary);
 
                 Target t = new Target(phone, segmentOrBoundary);
+                t.setSentenceStructure(structure);
                 t.setFeatureVector(currentFeatureComputer.computeFeatureVector(t));
 
                 if (segmentOrBoundary.getTagName().equals(MaryXML.BOUNDARY)) { // a pause
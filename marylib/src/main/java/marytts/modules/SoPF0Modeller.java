@@ -32,6 +32,7 @@ import marytts.datatypes.MaryXML;
 import marytts.features.FeatureDefinition;
 import marytts.features.FeatureProcessorManager;
 import marytts.features.FeatureRegistry;
+import marytts.features.SentenceStructure;
 import marytts.features.TargetFeatureComputer;
 import marytts.machinelearning.SoP;
 import marytts.modules.phonemiser.Allophone;
@@ -198,6 +199,7 @@ public class SoPF0Modeller extends InternalModule {
                 throw new NullPointerException("Do not have f0 prediction Sop model");
             }
 
+            SentenceStructure structure = new SentenceStructure(sentence);
             TreeWalker tw = DomUtils.createTreeWalker(sentence, MaryXML.SYLLABLE);
             Element syllable;
             Element previous = null;
@@ -234,6 +236,7 @@ public class SoPF0Modeller extends InternalModule {
                     System.out.print("PHONE: " + phone + "  ");
 
                     Target t = new Target(phone, vowel);
+                    t.setSentenceStructure(structure);
                     t.setFeatureVector(currentFeatureComputer.computeFeatureVector(t));
 
                     //float[] left = (float[])currentLeftSoP.interpret(t, 0);
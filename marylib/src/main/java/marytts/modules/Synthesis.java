@@ -39,6 +39,7 @@ import marytts.server.Mary;
 import marytts.server.MaryProperties;
 import marytts.signalproc.effects.EffectsApplier;
 import marytts.util.data.audio.AppendableSequenceAudioInputStream;
+import marytts.util.data.audio.PCMConversionProvider;
 import marytts.util.dom.DomUtils;
 import marytts.util.dom.NameNodeFilter;
 import mf.org.w3c.dom.Document;
@@ -57,6 +58,7 @@ import mf.org.w3c.dom.traversal.NodeIterator;
 public class Synthesis extends InternalModule {
     private List<WaveformSynthesizer> waveformSynthesizers;
     private EffectsApplier effects;
+    private final PCMConversionProvider pcmConverter = new PCMConversionProvider();
 
     public Synthesis() {
         super("Synthesis",
@@ -266,28 +268,32 @@ public class Synthesis extends InternalModule {
             // and provide the non-converted stream.
             Log.i(Mary.LOG, "Audio format conversion required for voice " +
                     voice.getName());
-            try {
-                AudioInputStream intermedStream = AudioSystem.getAudioInputStream(targetFormat, ais);
-                ais = intermedStream;
-            } catch (IllegalArgumentException iae) { // conversion not supported
-                boolean solved = false;
-                // try again with intermediate sample rate conversion
-                if (!targetFormat.getEncoding().equals(ais.getFormat())
-                        && targetFormat.getSampleRate() != ais.getFormat().getSampleRate()) {
-                    AudioFormat sampleRateConvFormat = new AudioFormat(ais.getFormat().getEncoding(), targetFormat.getSampleRate(), ais.getFormat().getSampleSizeInBits(), ais.getFormat().getChannels(), ais.getFormat().getFrameSize(), ais.getFormat().getFrameRate(), ais.getFormat().isBigEndian());
-                    try {
-                        AudioInputStream intermedStream = AudioSystem.getAudioInputStream(sampleRateConvFormat, ais);
-                        ais = AudioSystem.getAudioInputStream(targetFormat, intermedStream);
-                        // No exception thrown, i.e. success
-                        solved = true;
-                    } catch (IllegalArgumentException iae1) {
+            if (pcmConverter.isConversionSupported(targetFormat, ais.getFormat())) {
+                ais = pcmConverter.getAudioInputStream(targetFormat, ais);
+            } else {
+                try {
+                    AudioInputStream intermedStream = AudioSystem.getAudioInputStream(targetFormat, ais);
+                    ais = intermedStream;
+                } catch (IllegalArgumentException iae) { // conversion not supported
+                    boolean solved = false;
+                    // try again with intermediate sample rate conversion
+                    if (!targetFormat.getEncoding().equals(ais.getFormat())
+                            && targetFormat.getSampleRate() != ais.getFormat().getSampleRate()) {
+                        AudioFormat sampleRateConvFormat = new AudioFormat(ais.getFormat().getEncoding(), targetFormat.getSampleRate(), ais.getFormat().getSampleSizeInBits(), ais.getFormat().getChannels(), ais.getFormat().getFrameSize(), ais.getFormat().getFrameRate(), ais.getFormat().isBigEndian());
+                        try {
+                            AudioInputStream intermedStream = AudioSystem.getAudioInputStream(sampleRateConvFormat, ais);
+                            ais = AudioSystem.getAudioInputStream(targetFormat, intermedStream);
+                            // No exception thrown, i.e. success
+                            solved = true;
+                        } catch (IllegalArgumentException iae1) {
+                        }
                     }
+                    if (!solved)
+                        throw new UnsupportedAudioFileException
+                                ("Conversion from audio format " + ais.getFormat() +
+                                        " to requested audio format " + targetFormat +
+                                        " not supported.\n" + iae.getMessage());
                 }
-                if (!solved)
-                    throw new UnsupportedAudioFileException
-                            ("Conversion from audio format " + ais.getFormat() +
-                                    " to requested audio format " + targetFormat +
-                                    " not supported.\n" + iae.getMessage());
             }
         }
         // Apply effect if present
@@ -27,6 +27,7 @@ import marytts.datatypes.MaryDataType;
 import marytts.datatypes.MaryXML;
 import marytts.features.FeatureRegistry;
 import marytts.features.FeatureVector;
+import marytts.features.SentenceStructure;
 import marytts.features.TargetFeatureComputer;
 import marytts.modules.synthesis.Voice;
 import marytts.unitselection.select.Target;
@@ -127,6 +128,7 @@ public class TargetFeatureLister extends InternalModule {
     public String listTargetFeatures(TargetFeatureComputer featureComputer, List<Element> segmentsAndBoundaries) {
         String pauseSymbol = featureComputer.getPauseSymbol();
         List<Target> targets = overridableCreateTargetsWithPauses(segmentsAndBoundaries, pauseSymbol);
+        SentenceStructure.attach(targets);
         // Third, compute the feature vectors and convert them to text
         String header = featureComputer.getAllFeatureProcessorNamesAndValues();
         StringBuilder text = new StringBuilder();
@@ -152,6 +154,7 @@ public class TargetFeatureLister extends InternalModule {
     public List<Target> getListTargetFeatures(TargetFeatureComputer featureComputer, List<Element> segmentsAndBoundaries) {
         String pauseSymbol = featureComputer.getPauseSymbol();
         List<Target> targets = overridableCreateTargetsWithPauses(segmentsAndBoundaries, pauseSymbol);
+        SentenceStructure.attach(targets);
         for (Target target : targets) {
             if (!target.hasFeatureVector()) {
                 FeatureVector features = featureComputer.computeFeatureVector(target);
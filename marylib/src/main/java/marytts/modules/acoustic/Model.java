@@ -29,6 +29,7 @@ import marytts.exceptions.MaryConfigurationException;
 import marytts.features.FeatureProcessorManager;
 import marytts.features.FeatureRegistry;
 import marytts.features.FeatureVector;
+import marytts.features.SentenceStructure;
 import marytts.features.TargetFeatureComputer;
 import marytts.unitselection.select.Target;
 import marytts.unitselection.select.UnitSelector;
@@ -266,11 +267,14 @@ public abstract class Model {
             String phone = UnitSelector.getPhoneSymbol(element);
             Target target = new Target(phone, element);
             targets.add(target);
+        }
+        SentenceStructure.attach(targets);
+        for (Target target : targets) {
             // compute FeatureVectors for Targets:
             FeatureVector targetFeatureVector = featureComputer
                     .computeFeatureVector(target);
             target.setFeatureVector(targetFeatureVector); // this is critical!
-            element.setUserData("target", target, Target.targetFeatureCloner);
+            target.getMaryxmlElement().setUserData("target", target, Target.targetFeatureCloner);
         }
         return targets;
     }
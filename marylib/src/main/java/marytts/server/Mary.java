@@ -35,7 +35,6 @@ import java.lang.reflect.Method;
 import java.net.ServerSocket;
 import java.net.URL;
 import java.net.URLClassLoader;
-import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
@@ -57,10 +56,10 @@ import marytts.modules.MaryModule;
 import marytts.modules.ModuleRegistry;
 import marytts.modules.Synthesis;
 import marytts.modules.synthesis.Voice;
-import marytts.util.MaryCache;
 import marytts.util.MaryRuntimeUtils;
 import marytts.util.MaryUtils;
 import marytts.util.Pair;
+import marytts.util.cache.CacheFactory;
 import marytts.util.data.audio.MaryAudioUtils;
 import marytts.util.io.FileUtils;
 
@@ -176,6 +175,11 @@ public class Mary {
 //            }
         }
 
+        // Voices are known once the synthesis module has started:
+        if (MaryProperties.getBoolean("modules.precomputeplans", false)) {
+            ModuleRegistry.precomputeProcessingPlans(Voice.getAvailableVoices());
+        }
+
         if (startupTimes.size() > 0) {
             Collections.sort(startupTimes, new Comparator<Pair<MaryModule, Long>>() {
                 @Override
@@ -412,11 +416,10 @@ public class Mary {
                 m.shutdown();
         }
 
-        if (MaryCache.haveCache()) {
-            MaryCache cache = MaryCache.getCache();
+        if (CacheFactory.haveCache()) {
             try {
-                cache.shutdown();
-            } catch (SQLException e) {
+                CacheFactory.shutdown();
+            } catch (IOException e) {
                 Log.v(LOG, "Cannot shutdown cache: ", e);
             }
         }
@@ -35,8 +35,10 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.StringTokenizer;
+import java.util.concurrent.Callable;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 
 import lib.sound.sampled.AudioFileFormat;
 import lib.sound.sampled.AudioFormat;
@@ -62,7 +64,8 @@ import marytts.util.data.audio.MaryAudioUtils;
 /**
  * Listen for clients on socket port
  * <code>MaryProperties.socketPort()</code>.
- * For each new client, create a new RequestHandler thread.
+ * For each new client, create a new RequestHandler and run it
+ * through the {@link SynthesisScheduler}.
  * <p/>
  * Clients are expected to follow the following <b>protocol</b>:
  * <p/>
@@ -537,8 +540,22 @@ public class MaryServer implements Runnable {
                 Log.i(Mary.LOG, "Cannot remove clientMap entry", e);
             }
             //   -- send off to new request
-            RequestHandler rh = new RequestHandler(request, infoSocket, client, reader);
-            rh.start();
+            final RequestHandler rh = new RequestHandler(request, infoSocket, client, reader);
+            try {
+                SynthesisScheduler.getInstance().submit(request.getDefaultVoice(), new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() {
+                        rh.run();
+                        return rh.isSuccessful();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                Log.i(Mary.LOG, "Rejecting request " + id + ": " + e.getMessage());
+                PrintWriter infoOut = new PrintWriter(new OutputStreamWriter(infoSocket.getOutputStream(), "UTF-8"), true);
+                infoOut.println(e.getMessage());
+                infoSocket.close();
+                client.close();
+            }
             return true;
         }
 
@@ -25,15 +25,23 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.Reader;
-import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashSet;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import lib.sound.sampled.AudioFileFormat;
 import lib.sound.sampled.AudioInputStream;
@@ -45,9 +53,12 @@ import marytts.datatypes.MaryXML;
 import marytts.modules.MaryModule;
 import marytts.modules.ModuleRegistry;
 import marytts.modules.synthesis.Voice;
-import marytts.util.MaryCache;
+import marytts.server.metrics.Metrics;
 import marytts.util.MaryRuntimeUtils;
 import marytts.util.MaryUtils;
+import marytts.util.cache.CacheFactory;
+import marytts.util.cache.CacheKey;
+import marytts.util.cache.SynthesisCache;
 import marytts.util.data.audio.AppendableSequenceAudioInputStream;
 import marytts.util.dom.DomUtils;
 import marytts.util.dom.NameNodeFilter;
@@ -79,6 +90,9 @@ import mf.org.w3c.dom.traversal.TreeWalker;
  * (<code>writeOutputData</code>).
  */
 public class Request {
+    // shared by all requests, see request.chunkthreads
+    private static ExecutorService chunkExecutor;
+
     protected MaryDataType inputType;
     protected MaryDataType outputType;
     protected String outputTypeParams;
@@ -93,12 +107,15 @@ public class Request {
     protected MaryData inputData;
     protected MaryData outputData;
     protected boolean streamAudio = false;
-    protected boolean abortRequested = false;
+    protected volatile boolean abortRequested = false;
 
     // Keep track of timing info for each module
     // (map MaryModule onto Long)
     protected Set<MaryModule> usedModules;
     protected Map<MaryModule, Long> timingInfo;
+    // System.nanoTime() when processing started, and when the first audio was read from the output
+    protected volatile long processStartTime;
+    protected volatile long firstAudioTime = -1;
 
     public Request(MaryDataType inputType, MaryDataType outputType, Locale defaultLocale,
                    Voice defaultVoice, String defaultEffects, String defaultStyle,
@@ -126,7 +143,17 @@ public class Request {
         if (outputType == MaryDataType.get("AUDIO")) {
             if (audioFileFormat == null)
                 throw new NullPointerException("audio file format is needed for output type AUDIO");
-            this.appendableAudioStream = new AppendableSequenceAudioInputStream(audioFileFormat.getFormat(), null);
+            this.appendableAudioStream = new AppendableSequenceAudioInputStream(audioFileFormat.getFormat(), null) {
+                @Override
+                protected void firstDataRead() {
+                    audioAvailable();
+                }
+
+                @Override
+                protected void allDataRead() {
+                    audioFinished();
+                }
+            };
         } else {
             this.appendableAudioStream = null;
         }
@@ -152,7 +179,8 @@ public class Request {
 
         // Keep track of timing info for each module
         // (map MaryModule onto Long)
-        usedModules = new LinkedHashSet<MaryModule>();
+        // (synchronized, because paragraph chunks may be processed concurrently)
+        usedModules = Collections.synchronizedSet(new LinkedHashSet<MaryModule>());
         timingInfo = new HashMap<MaryModule, Long>();
     }
 
@@ -203,6 +231,7 @@ public class Request {
     /**
      * For a given maryxml document, extract one paragraph element as a separate
      * document, including any parent nodes around the paragraph element.
+     * This also works for other elements, such as sentences.
      */
     private static MaryData extractParagraphAsMaryData(MaryData maryxml,
                                                        Element paragraph) {
@@ -358,7 +387,8 @@ public class Request {
      */
     public void process() throws Exception {
         assert Mary.currentState() == Mary.STATE_RUNNING;
-        long startTime = System.currentTimeMillis();
+        processStartTime = System.nanoTime();
+        firstAudioTime = -1;
         if (inputData == null)
             throw new NullPointerException("Input data is not set.");
         if (inputType.isXMLType() && inputData.getDocument() == null)
@@ -371,6 +401,7 @@ public class Request {
         // Is inputdata of a type that must be converted to RAWMARYXML?
         if (outputType.name().equals("PRAAT_TEXTGRID")) { // never chunk for PRAAT_TEXTGRID
             outputData = processOrLookupOneChunk(inputData, outputType, outputTypeParams);
+            processingDone();
             return;
         } else if (inputType.isTextType() && inputType.name().startsWith("TEXT")
                 || inputType.isXMLType() && !inputType.isMaryXML()) {
@@ -391,6 +422,7 @@ public class Request {
                 appendableAudioStream.append(outputData.getAudio());
                 appendableAudioStream.doneAppending();
             }
+            processingDone();
             return;
         }
         assert rawmaryxml != null && rawmaryxml.getType().equals(MaryDataType.get("RAWMARYXML"))
@@ -411,41 +443,296 @@ public class Request {
             outputData.setAudio(appendableAudioStream);
             outputData.setAudioFileFormat(audioFileFormat);
         }
+        // When streaming audio, paragraphs are processed one after the other, but each is split into sentences:
+        boolean streamSentences = streamAudio && outputType.equals(MaryDataType.AUDIO);
+        int numChunkThreads = MaryProperties.getInteger("request.chunkthreads", 1);
+        if (numChunkThreads > 1 && inputDataList.getLength() > 1 && !streamSentences) {
+            processChunksConcurrently(rawmaryxml, inputDataList, numChunkThreads);
+        } else {
+            int len = inputDataList.getLength();
+            for (int i = 0; i < len && !abortRequested; i++) {
+                Element currentInputParagraph = (Element) inputDataList.item(i);
+                assert currentInputParagraph.getTagName().equals(MaryXML.PARAGRAPH);
+                MaryData oneOutputData = null;
+                // Only process paragraph if there is any text below it:
+                if (!DomUtils.getPlainTextBelow(currentInputParagraph).trim().equals("")) {
+                    MaryData oneInputData = extractParagraphAsMaryData(rawmaryxml, currentInputParagraph);
+                    //assert oneInputData.getDefaultVoice() != null;
+                    if (streamSentences) {
+                        // audio is appended to the output sentence by sentence
+                        processParagraphStreaming(oneInputData);
+                    } else {
+                        oneOutputData = processOrLookupOneChunk(oneInputData, outputType, outputTypeParams);
+                        //assert oneOutputData.getDefaultVoice() != null;
+                    }
+                }
+                insertChunkResult(currentInputParagraph, oneOutputData);
+            }
+        }
+        Log.i(Mary.LOG, "Request processed in " + (System.nanoTime() - processStartTime) / 1000000 + " ms.");
+        synchronized (usedModules) {
+            synchronized (timingInfo) {
+                for (MaryModule m : usedModules) {
+                    Log.i(Mary.LOG, "   " + m.name() + " took " + timingInfo.get(m) + " ms");
+                }
+            }
+        }
+        if (appendableAudioStream != null) appendableAudioStream.doneAppending();
+        processingDone();
+    }
+
+    /**
+     * Remember when the first audio was read from the output. Audio that is vocoded
+     * asynchronously only becomes available then, not when it is appended.
+     */
+    private void audioAvailable() {
+        if (firstAudioTime < 0) {
+            firstAudioTime = System.nanoTime();
+            Metrics.record("request.firstaudio", firstAudioTime - processStartTime);
+        }
+    }
+
+    /**
+     * Record the real-time factor when all audio has been read from the output,
+     * i.e. when all asynchronous producers have finished.
+     */
+    private void audioFinished() {
+        long processingTime = System.nanoTime() - processStartTime;
+        long frames = appendableAudioStream.getFrameLength();
+        float frameRate = appendableAudioStream.getFormat().getFrameRate();
+        if (frames > 0 && frameRate > 0) {
+            double audioTime = frames / (double) frameRate * 1e9;
+            Metrics.record("request.realtimefactor", Math.round(1000 * processingTime / audioTime));
+        }
+    }
+
+    /**
+     * Record the metrics of a completely processed request.
+     */
+    private void processingDone() {
+        Metrics.record("request.time", System.nanoTime() - processStartTime);
+    }
+
+    /**
+     * @return the processing time of the last call to {@link #process()} until the first audio
+     * was read from the output, in nanoseconds, or -1 if no audio has been read
+     */
+    public long getTimeToFirstAudio() {
+        return firstAudioTime < 0 ? -1 : firstAudioTime - processStartTime;
+    }
+
+    /**
+     * Process the paragraph chunks on the shared chunk thread pool. At most two chunks per thread
+     * are in flight at any time; results are inserted into the output strictly in document order,
+     * so that the audio of the first paragraph is appended as soon as it is ready.
+     *
+     * @param rawmaryxml      the document containing the paragraphs
+     * @param inputDataList   the paragraphs to process, as returned by {@link #splitIntoChunks(MaryData)}
+     * @param numChunkThreads the number of threads in the chunk thread pool
+     */
+    private void processChunksConcurrently(MaryData rawmaryxml, NodeList inputDataList, int numChunkThreads)
+            throws Exception {
+        // Take a snapshot of the paragraphs, because the node list changes as we replace them:
         int len = inputDataList.getLength();
-        for (int i = 0; i < len && !abortRequested; i++) {
-            Element currentInputParagraph = (Element) inputDataList.item(i);
-            assert currentInputParagraph.getTagName().equals(MaryXML.PARAGRAPH);
-            NodeList outputNodeList = null;
-            // Only process paragraph if there is any text below it:
-            if (DomUtils.getPlainTextBelow(currentInputParagraph).trim().equals("")) {
-                outputNodeList = currentInputParagraph.getChildNodes();
-            } else { // process "real" data:
-                MaryData oneInputData = extractParagraphAsMaryData(rawmaryxml, currentInputParagraph);
-                //assert oneInputData.getDefaultVoice() != null;
-                MaryData oneOutputData = processOrLookupOneChunk(oneInputData, outputType, outputTypeParams);
-                //assert oneOutputData.getDefaultVoice() != null;
-                if (outputType.isMaryXML()) {
-                    NodeList outParagraphList = oneOutputData.getDocument().getDocumentElement().getElementsByTagName(MaryXML.PARAGRAPH);
-                    // This does not hold for Tibetan:
-                    //assert outParagraphList.getLength() == 1;
-                    outputNodeList = outParagraphList;
-                } else { // output is not MaryXML, e.g. text or audio
-                    assert outputData != null;
-                    outputData.append(oneOutputData);
+        List<Element> paragraphs = new ArrayList<Element>(len);
+        for (int i = 0; i < len; i++) {
+            paragraphs.add((Element) inputDataList.item(i));
+        }
+        ExecutorService executor = getChunkExecutor(numChunkThreads);
+        int maxInFlight = 2 * numChunkThreads;
+        // the futures for paragraphs i, i+1, ...; null for paragraphs without text
+        LinkedList<Future<MaryData>> pending = new LinkedList<Future<MaryData>>();
+        int nextToSubmit = 0;
+        try {
+            for (int i = 0; i < len && !abortRequested; i++) {
+                // The DOM is not thread-safe, so paragraphs are extracted and results inserted in this thread only
+                while (nextToSubmit < len && nextToSubmit - i < maxInFlight) {
+                    Element paragraph = paragraphs.get(nextToSubmit);
+                    assert paragraph.getTagName().equals(MaryXML.PARAGRAPH);
+                    Future<MaryData> future = null;
+                    // Only process paragraph if there is any text below it:
+                    if (!DomUtils.getPlainTextBelow(paragraph).trim().equals("")) {
+                        final MaryData oneInputData = extractParagraphAsMaryData(rawmaryxml, paragraph);
+                        future = executor.submit(new Callable<MaryData>() {
+                            public MaryData call() throws Exception {
+                                return processOrLookupOneChunk(oneInputData, outputType, outputTypeParams);
+                            }
+                        });
+                    }
+                    pending.add(future);
+                    nextToSubmit++;
                 }
+                Future<MaryData> future = pending.removeFirst();
+                MaryData oneOutputData = null;
+                if (future != null) {
+                    oneOutputData = getChunkResult(future);
+                }
+                insertChunkResult(paragraphs.get(i), oneOutputData);
             }
-            if (outputType.isMaryXML()) {
-                assert outputNodeList != null;
-                // And now replace the paragraph in-place:
-                DomUtils.replaceElement(currentInputParagraph, outputNodeList);
+        } finally {
+            // after an error or abort, don't start the remaining chunks
+            for (Future<MaryData> future : pending) {
+                if (future != null) {
+                    future.cancel(false);
+                }
             }
         }
-        long stopTime = System.currentTimeMillis();
-        Log.i(Mary.LOG, "Request processed in " + (stopTime - startTime) + " ms.");
-        for (MaryModule m : usedModules) {
-            Log.i(Mary.LOG, "   " + m.name() + " took " + timingInfo.get(m) + " ms");
+    }
+
+    /**
+     * Wait for the result of a chunk processed in the chunk thread pool.
+     *
+     * @throws Exception the exception thrown while processing the chunk, if any
+     */
+    private static MaryData getChunkResult(Future<MaryData> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw e;
         }
-        if (appendableAudioStream != null) appendableAudioStream.doneAppending();
+    }
+
+    /**
+     * Process one paragraph into audio sentence by sentence, appending the audio of each sentence
+     * to the output as soon as it is available. The paragraph is tokenised as a whole and then
+     * split into sentences; each sentence is analysed up to the input type of the audio-generating module
+     * in the chunk thread pool, so that the next sentence is analysed while the current one is synthesised.
+     * If the processing path cannot be split like this, the paragraph is processed as a whole.
+     *
+     * @param oneInputData the paragraph to process
+     */
+    private void processParagraphStreaming(MaryData oneInputData) throws Exception {
+        Locale locale = determineLocale(oneInputData);
+        Voice voice = oneInputData.getDefaultVoice();
+        List<MaryModule> sentenceModules = null;
+        if (ModuleRegistry.modulesRequiredForProcessing(oneInputData.getType(), MaryDataType.TOKENS, locale, voice) != null) {
+            sentenceModules = ModuleRegistry.modulesRequiredForProcessing(MaryDataType.TOKENS, MaryDataType.AUDIO, locale, voice);
+        }
+        if (sentenceModules == null || sentenceModules.isEmpty()) {
+            outputData.append(processOrLookupOneChunk(oneInputData, MaryDataType.AUDIO, outputTypeParams));
+            return;
+        }
+        final MaryDataType acousticType = sentenceModules.get(sentenceModules.size() - 1).inputType();
+        MaryData tokens = processOrLookupOneChunk(oneInputData, MaryDataType.TOKENS, null);
+        List<MaryData> sentences = splitIntoSentences(tokens);
+        int len = sentences.size();
+        ExecutorService executor = getChunkExecutor(Math.max(1, MaryProperties.getInteger("request.chunkthreads", 1)));
+        LinkedList<Future<MaryData>> pending = new LinkedList<Future<MaryData>>();
+        int nextToSubmit = 0;
+        try {
+            for (int i = 0; i < len && !abortRequested; i++) {
+                // analyse at most the current and the next sentence ahead of synthesis
+                while (nextToSubmit < len && nextToSubmit - i < 2) {
+                    final MaryData sentence = sentences.get(nextToSubmit);
+                    pending.add(executor.submit(new Callable<MaryData>() {
+                        public MaryData call() throws Exception {
+                            return processOrLookupOneChunk(sentence, acousticType, null);
+                        }
+                    }));
+                    nextToSubmit++;
+                }
+                MaryData acoustparams = getChunkResult(pending.removeFirst());
+                MaryData audio = processOrLookupOneChunk(acoustparams, MaryDataType.AUDIO, outputTypeParams);
+                outputData.append(audio);
+            }
+        } finally {
+            for (Future<MaryData> future : pending) {
+                future.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * Split a tokenised paragraph into one MaryData per sentence. Any boundaries outside of sentences
+     * are moved into the preceding sentence, or into the following one if there is no preceding sentence.
+     *
+     * @param tokens the tokenised paragraph; this document will be modified!
+     * @return the sentences in document order
+     */
+    private static List<MaryData> splitIntoSentences(MaryData tokens) {
+        Document doc = tokens.getDocument();
+        NodeList boundaryList = doc.getElementsByTagName(MaryXML.BOUNDARY);
+        List<Element> boundaries = new ArrayList<Element>(boundaryList.getLength());
+        for (int i = 0; i < boundaryList.getLength(); i++) {
+            boundaries.add((Element) boundaryList.item(i));
+        }
+        TreeWalker tw = ((DocumentTraversal) doc).createTreeWalker(doc.getDocumentElement(), NodeFilter.SHOW_ELEMENT,
+                new NameNodeFilter(MaryXML.SENTENCE), true);
+        for (Element boundary : boundaries) {
+            if (DomUtils.hasAncestor(boundary, MaryXML.SENTENCE)) {
+                continue;
+            }
+            tw.setCurrentNode(boundary);
+            Element sentence = (Element) tw.previousNode();
+            if (sentence != null) {
+                sentence.appendChild(boundary);
+            } else {
+                tw.setCurrentNode(boundary);
+                sentence = (Element) tw.nextNode();
+                if (sentence != null) {
+                    sentence.insertBefore(boundary, sentence.getFirstChild());
+                }
+            }
+        }
+        NodeList sentenceList = doc.getElementsByTagName(MaryXML.SENTENCE);
+        List<MaryData> sentences = new ArrayList<MaryData>(sentenceList.getLength());
+        for (int i = 0; i < sentenceList.getLength(); i++) {
+            MaryData sentence = extractParagraphAsMaryData(tokens, (Element) sentenceList.item(i));
+            sentence.setDefaultStyle(tokens.getDefaultStyle());
+            sentence.setDefaultEffects(tokens.getDefaultEffects());
+            sentences.add(sentence);
+        }
+        return sentences;
+    }
+
+    /**
+     * Insert the result of processing one paragraph chunk into the output data.
+     *
+     * @param currentInputParagraph the paragraph in the input document
+     * @param oneOutputData         the processing result, or null if the paragraph has no text and was not processed
+     */
+    private void insertChunkResult(Element currentInputParagraph, MaryData oneOutputData) throws Exception {
+        NodeList outputNodeList = null;
+        if (oneOutputData == null) {
+            outputNodeList = currentInputParagraph.getChildNodes();
+        } else if (outputType.isMaryXML()) {
+            NodeList outParagraphList = oneOutputData.getDocument().getDocumentElement().getElementsByTagName(MaryXML.PARAGRAPH);
+            // This does not hold for Tibetan:
+            //assert outParagraphList.getLength() == 1;
+            outputNodeList = outParagraphList;
+        } else { // output is not MaryXML, e.g. text or audio
+            assert outputData != null;
+            outputData.append(oneOutputData);
+        }
+        if (outputType.isMaryXML()) {
+            assert outputNodeList != null;
+            // And now replace the paragraph in-place:
+            DomUtils.replaceElement(currentInputParagraph, outputNodeList);
+        }
+    }
+
+    /**
+     * Get the thread pool shared by all requests for processing paragraph chunks concurrently.
+     *
+     * @param numThreads the number of threads to use when creating the pool
+     */
+    private static synchronized ExecutorService getChunkExecutor(int numThreads) {
+        if (chunkExecutor == null) {
+            chunkExecutor = Executors.newFixedThreadPool(numThreads, new ThreadFactory() {
+                private int count = 0;
+
+                public synchronized Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "RequestChunk-" + (++count));
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+        }
+        return chunkExecutor;
     }
 
     /**
@@ -463,36 +750,27 @@ public class Request {
         Locale locale = determineLocale(oneInputData);
         assert locale != null;
 
-        MaryCache cache = null;
+        SynthesisCache cache = null;
         if (MaryProperties.getBoolean("cache")) {
-            cache = MaryCache.getCache();
+            cache = CacheFactory.getCache();
         }
 
         if (cache == null) {
             return processOneChunk(oneInputData, oneOutputType, outputParams, locale);
         }
 
-        String inputtype = null;
-        String outputtype = null;
-        String localeString = null;
-        String voice = null;
-        String inputtext = null;
-
         // try to look up the requested result in the cache:
-        inputtype = oneInputData.getType().name();
-        outputtype = oneOutputType.name();
-        ByteArrayOutputStream sw = new ByteArrayOutputStream();
-        oneInputData.writeTo(sw);
-        inputtext = new String(sw.toByteArray(), "UTF-8");
-        voice = defaultVoice != null ? defaultVoice.getName() : null;
-        localeString = locale.toString();
+        String voice = defaultVoice != null ? defaultVoice.getName() : null;
+        CacheKey key = CacheKey.create(oneInputData.getType().name(), oneOutputType.name(), locale.toString(), voice,
+                outputParams, defaultStyle, defaultEffects, oneInputData, cache.needsInputText());
 
         if (oneOutputType.isTextType()) {
             try {
-                String outputtext = cache.lookupText(inputtype, outputtype, localeString, voice, outputParams, defaultStyle, defaultEffects, inputtext);
+                byte[] outputtext = cache.lookup(key);
                 if (outputtext != null) {
+                    Metrics.count("cache.hit");
                     MaryData outData = new MaryData(oneOutputType, locale);
-                    ByteArrayInputStream sr = new ByteArrayInputStream(outputtext.getBytes());
+                    ByteArrayInputStream sr = new ByteArrayInputStream(outputtext);
                     outData.readFrom(sr);
                     sr.close();
                     outData.setDefaultVoice(defaultVoice);
@@ -503,10 +781,11 @@ public class Request {
             } catch (Exception e) {
                 Log.w(Mary.LOG, "Problem looking up text in cache", e);
             }
-        } else if (outputtype.equals("AUDIO")) {
+        } else if (oneOutputType.equals(MaryDataType.AUDIO)) {
             try {
-                byte[] wavFileData = cache.lookupAudio(inputtype, localeString, voice, outputParams, defaultStyle, defaultEffects, inputtext);
+                byte[] wavFileData = cache.lookup(key);
                 if (wavFileData != null) {
+                    Metrics.count("cache.hit");
                     AudioInputStream ais = AudioSystem.getAudioInputStream(new ByteArrayInputStream(wavFileData));
                     MaryData outData = new MaryData(oneOutputType, locale);
                     outData.setAudio(ais);
@@ -521,6 +800,9 @@ public class Request {
         }
 
         // Couldn't get it from cache, need to process
+        if (oneOutputType.isTextType() || oneOutputType.equals(MaryDataType.AUDIO)) {
+            Metrics.count("cache.miss");
+        }
         if (oneOutputType.equals(MaryDataType.AUDIO)
                 || oneOutputType.equals(MaryDataType.REALISED_ACOUSTPARAMS)
                 || oneOutputType.equals(MaryDataType.REALISED_DURATIONS)) {
@@ -528,9 +810,9 @@ public class Request {
             MaryData audioData = processOneChunk(oneInputData, MaryDataType.AUDIO, outputParams, locale);
             MaryData realisedAcoustparams = processOneChunk(audioData, MaryDataType.REALISED_ACOUSTPARAMS, outputParams, locale);
             MaryData realisedDurations = processOneChunk(audioData, MaryDataType.REALISED_DURATIONS, outputParams, locale);
-            insertAudioIntoCache(cache, inputtype, localeString, voice, outputParams, inputtext, audioData);
-            insertTextIntoCache(cache, inputtype, MaryDataType.REALISED_ACOUSTPARAMS.name(), localeString, voice, outputParams, inputtext, realisedAcoustparams);
-            insertTextIntoCache(cache, inputtype, MaryDataType.REALISED_DURATIONS.name(), localeString, voice, outputParams, inputtext, realisedDurations);
+            insertAudioIntoCache(cache, key.withOutputType(MaryDataType.AUDIO.name()), audioData);
+            insertTextIntoCache(cache, key.withOutputType(MaryDataType.REALISED_ACOUSTPARAMS.name()), realisedAcoustparams);
+            insertTextIntoCache(cache, key.withOutputType(MaryDataType.REALISED_DURATIONS.name()), realisedDurations);
             if (oneOutputType.equals(MaryDataType.AUDIO)) return audioData;
             else if (oneOutputType.equals(MaryDataType.REALISED_ACOUSTPARAMS))
                 return realisedAcoustparams;
@@ -539,38 +821,36 @@ public class Request {
             MaryData oneOutputData = processOneChunk(oneInputData, oneOutputType, outputParams, locale);
             // Remember the processing result in the cache
             if (oneOutputType.isTextType()) {
-                insertTextIntoCache(cache, inputtype, outputtype, localeString,
-                        voice, outputParams, inputtext, oneOutputData);
+                insertTextIntoCache(cache, key, oneOutputData);
             } else {
-                Log.d(Mary.LOG, "Don't know how to cache data of type '" + outputtype + "'");
+                Log.d(Mary.LOG, "Don't know how to cache data of type '" + oneOutputType.name() + "'");
             }
             return oneOutputData;
         }
     }
 
-    private void insertAudioIntoCache(MaryCache cache, String inputtype,
-                                      String localeString, String voice, String outputParams,
-                                      String inputtext, MaryData currentData) throws IOException,
-            SQLException, UnsupportedAudioFileException {
+    private void insertAudioIntoCache(SynthesisCache cache, CacheKey key, MaryData currentData)
+            throws IOException, UnsupportedAudioFileException {
         AppendableSequenceAudioInputStream as = (AppendableSequenceAudioInputStream) currentData.getAudio();
         assert as != appendableAudioStream;
         as.doneAppending();
         ByteArrayOutputStream baos = new ByteArrayOutputStream(2 * (int) as.getFrameLength() + 100);
         AudioSystem.write(as, AudioFileFormat.Type.WAVE, baos);
         byte[] wavFileData = baos.toByteArray();
-        cache.insertAudio(inputtype, localeString, voice, outputParams, defaultStyle, defaultEffects, inputtext, wavFileData);
+        try {
+            cache.insert(key, wavFileData);
+        } catch (IOException e) {
+            Log.w(Mary.LOG, "Problem inserting audio into cache", e);
+        }
         AudioInputStream ais = AudioSystem.getAudioInputStream(new ByteArrayInputStream(wavFileData));
         currentData.setAudio(ais);
     }
 
-    private void insertTextIntoCache(MaryCache cache, String inputtype,
-                                     String outputtype, String localeString, String voice,
-                                     String outputParams, String inputtext, MaryData currentData) {
+    private void insertTextIntoCache(SynthesisCache cache, CacheKey key, MaryData currentData) {
         try {
             ByteArrayOutputStream sw = new ByteArrayOutputStream();
             currentData.writeTo(sw);
-            String outputtext = new String(sw.toByteArray(), "UTF-8");
-            cache.insertText(inputtype, outputtype, localeString, voice, outputParams, defaultStyle, defaultEffects, inputtext, outputtext);
+            cache.insert(key, sw.toByteArray());
         } catch (Exception e) {
             Log.w(Mary.LOG, "Problem inserting text into cache", e);
         }
@@ -607,7 +887,7 @@ public class Request {
                 m.startup();
                 assert m.getState() == MaryModule.MODULE_RUNNING;
             }
-            long moduleStartTime = System.currentTimeMillis();
+            long moduleStartTime = System.nanoTime();
             // Let synthesis know which audio format to produce:
             // (this isn't nice -- instead, we could add a reference
             // to the Request to each MaryData, and look up request-specific
@@ -645,13 +925,16 @@ public class Request {
             outData.setDefaultEffects(defaultEffects);
 
             currentData = outData;
-            long moduleStopTime = System.currentTimeMillis();
-            long delta = moduleStopTime - moduleStartTime;
-            Long soFar = timingInfo.get(m);
-            if (soFar != null)
-                timingInfo.put(m, new Long(soFar.longValue() + delta));
-            else
-                timingInfo.put(m, new Long(delta));
+            long moduleTime = System.nanoTime() - moduleStartTime;
+            Metrics.record("module." + m.name() + ".time", moduleTime);
+            long delta = moduleTime / 1000000;
+            synchronized (timingInfo) {
+                Long soFar = timingInfo.get(m);
+                if (soFar != null)
+                    timingInfo.put(m, new Long(soFar.longValue() + delta));
+                else
+                    timingInfo.put(m, new Long(delta));
+            }
             if (MaryRuntimeUtils.veryLowMemoryCondition()) {
                 Log.i(Mary.LOG, "Very low memory condition detected (only " + MaryUtils.availableMemory() + " bytes left). Triggering garbage collection.");
                 Runtime.getRuntime().gc();
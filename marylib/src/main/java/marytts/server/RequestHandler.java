@@ -45,7 +45,8 @@ import marytts.util.MaryUtils;
 
 /**
  * A lightweight process handling one Request in a thread of its own.
- * This is to be used when running as a socket server.
+ * This is to be used when running as a socket server; the server runs it
+ * on a worker of the {@link SynthesisScheduler}.
  *
  * @author Marc Schr&ouml;der
  */
@@ -54,6 +55,7 @@ public class RequestHandler extends Thread {
     private Request request;
     private Socket infoSocket;
     private Socket dataSocket;
+    private volatile boolean successful = false;
     // private Logger logger;
     //  private Logger clientLogger;
 
@@ -204,6 +206,7 @@ public class RequestHandler extends Thread {
             Log.w(Mary.LOG, "Couldn't close data socket properly.", e);
             ok = false;
         }
+        successful = ok;
         if (ok)
             Log.i(Mary.LOG, "Request handled successfully.");
         else
@@ -216,6 +219,13 @@ public class RequestHandler extends Thread {
 
     } // run()
 
+    /**
+     * Whether {@link #run()} has handled the request successfully.
+     */
+    public boolean isSuccessful() {
+        return successful;
+    }
+
     public static class StreamingOutputWriter extends Thread {
         private Request request;
         private OutputStream output;
@@ -0,0 +1,309 @@
+/**
+ * Copyright 2009 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ * <p/>
+ * This file is part of MARY TTS.
+ * <p/>
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ * <p/>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * <p/>
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package marytts.server;
+
+import android.util.Log;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+import marytts.modules.synthesis.Voice;
+import marytts.server.metrics.Metrics;
+
+/**
+ * Runs the synthesis requests of the servers on a fixed number of worker threads.
+ * <p/>
+ * A request that cannot start immediately waits in a queue of limited length;
+ * when all workers are busy and the queue is full, new requests are rejected at once,
+ * so that the server can answer "busy" instead of slowing down every request in progress.
+ * In addition, the number of requests running at the same time for one voice can be limited,
+ * so that a popular voice cannot occupy all workers.
+ * <p/>
+ * The scheduler keeps statistics about the time requests spend waiting and being processed;
+ * these are also recorded in the {@link Metrics}.
+ * <p/>
+ * Configuration settings:
+ * <ul>
+ * <li><code>server.synthesis.threads</code>: number of worker threads (default: number of processors)</li>
+ * <li><code>server.synthesis.queuesize</code>: maximum number of waiting requests (default: 16)</li>
+ * <li><code>server.synthesis.voicethreads</code>: maximum number of running requests per voice;
+ * 0 means no limit (default: 0)</li>
+ * </ul>
+ */
+public class SynthesisScheduler {
+    private static SynthesisScheduler instance;
+
+    private final int numWorkers;
+    private final int maxWaiting;
+    private final int maxRunningPerVoice;
+    private final LinkedList<Job> waiting = new LinkedList<Job>();
+    private final Map<Voice, Integer> runningPerVoice = new HashMap<Voice, Integer>();
+    private int running = 0;
+    private boolean workersStarted = false;
+
+    // statistics; times in nanoseconds
+    private long submitted = 0;
+    private long rejected = 0;
+    private long completed = 0;
+    private long failed = 0;
+    private long totalQueueTime = 0;
+    private long maxQueueTime = 0;
+    private long totalProcessingTime = 0;
+    private long maxProcessingTime = 0;
+
+    /**
+     * Get the scheduler shared by all servers, configured from the Mary properties.
+     */
+    public static synchronized SynthesisScheduler getInstance() {
+        if (instance == null) {
+            instance = new SynthesisScheduler(
+                    MaryProperties.getInteger("server.synthesis.threads", Runtime.getRuntime().availableProcessors()),
+                    MaryProperties.getInteger("server.synthesis.queuesize", 16),
+                    MaryProperties.getInteger("server.synthesis.voicethreads", 0));
+        }
+        return instance;
+    }
+
+    /**
+     * @param numWorkers         the number of requests processed at the same time
+     * @param maxWaiting         the number of requests that may wait for a worker
+     * @param maxRunningPerVoice the number of requests processed at the same time for the same voice,
+     *                           or 0 for no limit
+     */
+    public SynthesisScheduler(int numWorkers, int maxWaiting, int maxRunningPerVoice) {
+        if (numWorkers < 1)
+            throw new IllegalArgumentException("Need at least one worker, got " + numWorkers);
+        this.numWorkers = numWorkers;
+        this.maxWaiting = Math.max(0, maxWaiting);
+        this.maxRunningPerVoice = Math.max(0, maxRunningPerVoice);
+        Log.i(Mary.LOG, "Synthesis scheduler: " + numWorkers + " workers, " + this.maxWaiting + " waiting requests, "
+                + (this.maxRunningPerVoice > 0 ? this.maxRunningPerVoice + " running requests per voice" : "no limit per voice"));
+    }
+
+    /**
+     * Schedule the given task for processing with the given voice.
+     * The task counts as completed unless it throws an exception.
+     *
+     * @param voice the voice used by the task, or null
+     * @param task  the task to run
+     * @return a future which is done when the task has been run
+     * @throws RejectedExecutionException if the scheduler is saturated; the task will not be run.
+     */
+    public Future<Boolean> submit(Voice voice, final Runnable task) throws RejectedExecutionException {
+        return submit(voice, new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                task.run();
+                return Boolean.TRUE;
+            }
+        });
+    }
+
+    /**
+     * Schedule the given task for processing with the given voice.
+     * The task reports whether the request was processed successfully; it counts as failed
+     * if it returns false or throws an exception.
+     *
+     * @param voice the voice used by the task, or null
+     * @param task  the task to run
+     * @return a future which is done when the task has been run
+     * @throws RejectedExecutionException if the scheduler is saturated; the task will not be run.
+     */
+    public synchronized Future<Boolean> submit(Voice voice, Callable<Boolean> task) throws RejectedExecutionException {
+        if (waiting.size() + running >= numWorkers + maxWaiting) {
+            rejected++;
+            Metrics.count("scheduler.rejected");
+            throw new RejectedExecutionException("Server busy: " + running + " requests in progress, "
+                    + waiting.size() + " waiting");
+        }
+        if (!workersStarted) {
+            startWorkers();
+        }
+        submitted++;
+        Job job = new Job(voice, task);
+        waiting.add(job);
+        notifyAll();
+        return job.future;
+    }
+
+    private void startWorkers() {
+        for (int i = 0; i < numWorkers; i++) {
+            Thread worker = new Thread("SynthesisWorker-" + (i + 1)) {
+                @Override
+                public void run() {
+                    try {
+                        while (true) {
+                            runNextJob();
+                        }
+                    } catch (InterruptedException e) {
+                        Log.d(Mary.LOG, getName() + " interrupted");
+                    }
+                }
+            };
+            worker.setDaemon(true);
+            worker.start();
+        }
+        workersStarted = true;
+    }
+
+    private void runNextJob() throws InterruptedException {
+        Job job;
+        synchronized (this) {
+            while ((job = takeRunnableJob()) == null) {
+                wait();
+            }
+            running++;
+            if (job.voice != null) {
+                Integer n = runningPerVoice.get(job.voice);
+                runningPerVoice.put(job.voice, n == null ? 1 : n + 1);
+            }
+        }
+        long startTime = System.nanoTime();
+        job.future.run();
+        long endTime = System.nanoTime();
+        boolean ok;
+        try {
+            ok = Boolean.TRUE.equals(job.future.get());
+        } catch (ExecutionException e) {
+            Log.w(Mary.LOG, "Synthesis request failed", e.getCause());
+            ok = false;
+        }
+        synchronized (this) {
+            running--;
+            if (job.voice != null) {
+                int n = runningPerVoice.get(job.voice) - 1;
+                if (n == 0) {
+                    runningPerVoice.remove(job.voice);
+                } else {
+                    runningPerVoice.put(job.voice, n);
+                }
+            }
+            if (ok) {
+                completed++;
+            } else {
+                failed++;
+            }
+            long queueTime = startTime - job.submitTime;
+            totalQueueTime += queueTime;
+            maxQueueTime = Math.max(maxQueueTime, queueTime);
+            long processingTime = endTime - startTime;
+            totalProcessingTime += processingTime;
+            maxProcessingTime = Math.max(maxProcessingTime, processingTime);
+            Metrics.record("scheduler.queuewait", queueTime);
+            Metrics.record("scheduler.processing", processingTime);
+            // a job for this voice may have been waiting:
+            notifyAll();
+        }
+    }
+
+    /**
+     * Remove and return the first waiting job whose voice is below its limit, or null.
+     */
+    private Job takeRunnableJob() {
+        if (running >= numWorkers) {
+            return null;
+        }
+        for (Iterator<Job> it = waiting.iterator(); it.hasNext(); ) {
+            Job job = it.next();
+            if (maxRunningPerVoice == 0 || job.voice == null) {
+                it.remove();
+                return job;
+            }
+            Integer n = runningPerVoice.get(job.voice);
+            if (n == null || n < maxRunningPerVoice) {
+                it.remove();
+                return job;
+            }
+        }
+        return null;
+    }
+
+    public synchronized int getNumberOfWaitingRequests() {
+        return waiting.size();
+    }
+
+    public synchronized int getNumberOfRunningRequests() {
+        return running;
+    }
+
+    public synchronized long getNumberOfSubmittedRequests() {
+        return submitted;
+    }
+
+    public synchronized long getNumberOfRejectedRequests() {
+        return rejected;
+    }
+
+    public synchronized long getNumberOfCompletedRequests() {
+        return completed;
+    }
+
+    public synchronized long getNumberOfFailedRequests() {
+        return failed;
+    }
+
+    /**
+     * @return the average time, in milliseconds, that finished requests waited for a worker
+     */
+    public synchronized long getAverageQueueTime() {
+        long finished = completed + failed;
+        return finished > 0 ? totalQueueTime / finished / 1000000 : 0;
+    }
+
+    /**
+     * @return the longest time, in milliseconds, that a finished request waited for a worker
+     */
+    public synchronized long getMaxQueueTime() {
+        return maxQueueTime / 1000000;
+    }
+
+    /**
+     * @return the average time, in milliseconds, that finished requests were processed
+     */
+    public synchronized long getAverageProcessingTime() {
+        long finished = completed + failed;
+        return finished > 0 ? totalProcessingTime / finished / 1000000 : 0;
+    }
+
+    /**
+     * @return the longest time, in milliseconds, that a finished request was processed
+     */
+    public synchronized long getMaxProcessingTime() {
+        return maxProcessingTime / 1000000;
+    }
+
+    private static class Job {
+        final Voice voice;
+        final FutureTask<Boolean> future;
+        final long submitTime;
+
+        Job(Voice voice, Callable<Boolean> task) {
+            this.voice = voice;
+            this.future = new FutureTask<Boolean>(task);
+            this.submitTime = System.nanoTime();
+        }
+    }
+}
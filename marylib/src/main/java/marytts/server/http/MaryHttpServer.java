@@ -97,6 +97,7 @@ import marytts.server.MaryProperties;
  * <li><code>features?voice=hmm-slt</code> requests the list of available features that can be computed for the given voice;</li>
  * <li><code>vocalizations?voice=dfki-poppy</code> requests the list of vocalization names that are available with the given voice;
  * <li><code>styles?voice=dfki-pavoque-styles</code> requests the list of style names that are available with the given voice;
+ * <li><code>metrics</code> requests the current processing metrics, one "name value" pair per line; <code>metrics?reset=true</code> also sets them back to zero;</li>
  * <li><code>process</code> requests the synthesis of some text (see below).</li>
  * </ul>
  * <p/>
@@ -114,6 +115,8 @@ import marytts.server.MaryProperties;
  * Example values for non-streaming formats: AU_FILE, MP3_FILE, WAVE_FILE
  * Example values for streaming formats: AU_STREAM, MP3_STREAM)
  * <p/>
+ * SAMPLE_RATE (optional sampling rate of the audio in Hz, e.g. 8000 or 48000; by default, that of the voice)
+ * <p/>
  * STYLE (Style descriptor)
  * <p/>
  * INPUT_TEXT (Input text to be synthesised)
@@ -206,6 +209,7 @@ public class MaryHttpServer extends Thread {
         registry.register("/features-discrete", infoRH);
         registry.register("/vocalizations", infoRH);
         registry.register("/styles", infoRH);
+        registry.register("/metrics", new MetricsRequestHandler());
         registry.register("*", new FileRequestHandler());
 
 
@@ -226,5 +226,19 @@ public class MaryHttpServerUtils {
         }
     }
 
-}
+    public static void errorServiceUnavailable(HttpResponse response, String message) {
+        int status = HttpStatus.SC_SERVICE_UNAVAILABLE;
+        response.setStatusCode(status);
+        response.setHeader("Retry-After", "1");
+        Log.d(Mary.LOG, "Returning HTTP status " + status + ": " + message);
+        try {
+            NStringEntity entity = new NStringEntity(
+                    "<html><body><h1>Service unavailable</h1><p>" + message +
+                            "</p></body></html>", "UTF-8");
+            entity.setContentType("text/html; charset=UTF-8");
+            response.setEntity(entity);
+        } catch (UnsupportedEncodingException e) {
+        }
+    }
 
+}
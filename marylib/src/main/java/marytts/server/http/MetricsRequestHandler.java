@@ -0,0 +1,68 @@
+/**
+ * Copyright 2009 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ * <p/>
+ * This file is part of MARY TTS.
+ * <p/>
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ * <p/>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * <p/>
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package marytts.server.http;
+
+import android.util.Log;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.nio.entity.NStringEntity;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.util.Map;
+
+import marytts.server.Mary;
+import marytts.server.SynthesisScheduler;
+import marytts.server.metrics.Metrics;
+import marytts.util.http.Address;
+
+/**
+ * Processor class for metrics http requests to Mary server.
+ * Returns the current values of the {@link Metrics} and the state of the {@link SynthesisScheduler}
+ * as plain text, one "name value" pair per line.
+ * With the query parameter <code>reset=true</code>, the metrics are set back to zero after reading them.
+ */
+public class MetricsRequestHandler extends BaseHttpRequestHandler {
+
+    public MetricsRequestHandler() {
+        super();
+    }
+
+    @Override
+    protected void handleClientRequest(String absPath, Map<String, String> queryItems, HttpResponse response, Address serverAddressAtClient)
+            throws IOException {
+        Log.d(Mary.LOG, "New metrics request: " + absPath);
+        SynthesisScheduler scheduler = SynthesisScheduler.getInstance();
+        StringBuilder text = new StringBuilder(Metrics.getValuesAsText());
+        text.append("scheduler.running ").append(scheduler.getNumberOfRunningRequests()).append('\n');
+        text.append("scheduler.waiting ").append(scheduler.getNumberOfWaitingRequests()).append('\n');
+        if (queryItems != null && "true".equals(queryItems.get("reset"))) {
+            Metrics.reset();
+        }
+
+        response.setStatusCode(HttpStatus.SC_OK);
+        try {
+            NStringEntity entity = new NStringEntity(text.toString(), "UTF-8");
+            entity.setContentType("text/plain; charset=UTF-8");
+            response.setEntity(entity);
+        } catch (UnsupportedEncodingException e) {
+        }
+    }
+}
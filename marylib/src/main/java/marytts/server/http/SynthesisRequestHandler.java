@@ -18,6 +18,11 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.StringTokenizer;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
 
 import edu.stanford.nlp.ling.HasWord;
 import edu.stanford.nlp.process.DocumentPreprocessor;
@@ -29,11 +34,13 @@ import marytts.datatypes.MaryDataType;
 import marytts.modules.synthesis.Voice;
 import marytts.server.Mary;
 import marytts.server.Request;
+import marytts.server.SynthesisScheduler;
 import marytts.server.RequestHandler.StreamingOutputPiper;
 import marytts.server.RequestHandler.StreamingOutputWriter;
 import marytts.util.MaryRuntimeUtils;
 import marytts.util.MaryUtils;
 import marytts.util.data.audio.MaryAudioUtils;
+import marytts.util.data.audio.PCMConversionProvider;
 import marytts.util.http.Address;
 
 //import org.apache.log4j.Logger;
@@ -46,6 +53,7 @@ import marytts.util.http.Address;
 public class SynthesisRequestHandler extends BaseHttpRequestHandler {
 
     private static int id = 0;
+    private static Executor writerExecutor;
     private StreamingOutputWriter outputToStream;
     private StreamingOutputPiper streamToPipe;
     private PipedOutputStream pipedOutput;
@@ -65,6 +73,21 @@ public class SynthesisRequestHandler extends BaseHttpRequestHandler {
         return id++;
     }
 
+    private static synchronized Executor getWriterExecutor() {
+        if (writerExecutor == null) {
+            writerExecutor = Executors.newCachedThreadPool(new ThreadFactory() {
+                private int count = 0;
+
+                public synchronized Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "HTTPWriter-" + (++count));
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+        }
+        return writerExecutor;
+    }
+
     @Override
     protected void handleClientRequest(String absPath,
                                        Map<String, String> queryItems, HttpResponse response,
@@ -320,6 +343,23 @@ public class SynthesisRequestHandler extends BaseHttpRequestHandler {
         } else {
             audioFormat = Voice.AF16000;
         }
+        // optionally, the audio may be requested at another sampling rate than that of the voice
+        String sampleRateName = queryItems.get("SAMPLE_RATE");
+        if (sampleRateName != null && audioFormat.getEncoding().toString().startsWith("PCM")) {
+            AudioFormat resampled = null;
+            try {
+                float sampleRate = Integer.parseInt(sampleRateName);
+                resampled = new AudioFormat(audioFormat.getEncoding(), sampleRate, audioFormat.getSampleSizeInBits(),
+                        audioFormat.getChannels(), audioFormat.getFrameSize(), sampleRate, audioFormat.isBigEndian());
+            } catch (NumberFormatException e) {
+            }
+            if (resampled == null || !new PCMConversionProvider().isConversionSupported(resampled, audioFormat)) {
+                MaryHttpServerUtils.errorWrongQueryParameterValue(response,
+                        "SAMPLE_RATE", sampleRateName, "Resampling from " + (int) audioFormat.getSampleRate() + " Hz not supported.");
+                return;
+            }
+            audioFormat = resampled;
+        }
         AudioFileFormat audioFileFormat = new AudioFileFormat(
                 audioFileFormatType, audioFormat, AudioSystem.NOT_SPECIFIED);
 
@@ -339,48 +379,73 @@ public class SynthesisRequestHandler extends BaseHttpRequestHandler {
             ok = false;
         }
         if (ok) {
+            SynthesisScheduler scheduler = SynthesisScheduler.getInstance();
             if (streamingAudio) {
-                // Start two separate threads:
-                // 1. one thread to process the request;
-                new Thread("RH " + maryRequest.getId()) {
-                    @Override
-                    public void run() {
-                        //Logger myLogger = MaryUtils.getLogger(this.getName());
-                        try {
-                            maryRequest.process();
-                            Log.i(Mary.LOG, "Streaming request processed successfully.");
-                        } catch (Throwable t) {
-
+                // Two tasks work on the request:
+                // 1. the scheduler processes the request;
+                try {
+                    scheduler.submit(voice, new Callable<Boolean>() {
+                        @Override
+                        public Boolean call() {
+                            try {
+                                maryRequest.process();
+                                Log.i(Mary.LOG, "Streaming request processed successfully.");
+                                return Boolean.TRUE;
+                            } catch (Throwable t) {
+                                Log.w(Mary.LOG, "Streaming request failed", t);
+                                return Boolean.FALSE;
+                            }
                         }
-                    }
-                }.start();
+                    });
+                } catch (RejectedExecutionException e) {
+                    MaryHttpServerUtils.errorServiceUnavailable(response, e.getMessage());
+                    return;
+                }
 
-                // 2. one thread to take the audio data as it becomes available
-                // and write it into the ProducingNHttpEntity.
+                // 2. a writer takes the audio data as it becomes available
+                // and writes it into the ProducingNHttpEntity.
                 // The second one does not depend on the first one practically,
                 // because the AppendableSequenceAudioInputStream returned by
                 // maryRequest.getAudio() was already created in the constructor
-                // of Request.
+                // of Request. Writers are only started for admitted requests,
+                // so their number is limited by the scheduler.
                 AudioInputStream audio = maryRequest.getAudio();
                 assert audio != null : "Streaming audio but no audio stream -- very strange indeed! :-(";
-                AudioFileFormat.Type audioType = maryRequest
-                        .getAudioFileFormat().getType();
                 AudioStreamNHttpEntity entity = new AudioStreamNHttpEntity(
                         maryRequest);
-                new Thread(entity, "HTTPWriter " + maryRequest.getId()).start();
+                getWriterExecutor().execute(entity);
                 // entity knows its contentType, no need to set explicitly here.
                 response.setEntity(entity);
                 response.setStatusCode(HttpStatus.SC_OK);
                 return;
             } else { // not streaming audio
                 // Process input data to output data
+                final Throwable[] failure = new Throwable[1];
                 try {
-                    maryRequest.process(); // this may take some time
+                    // this may take some time
+                    scheduler.submit(voice, new Callable<Boolean>() {
+                        @Override
+                        public Boolean call() {
+                            try {
+                                maryRequest.process();
+                                return Boolean.TRUE;
+                            } catch (Throwable t) {
+                                failure[0] = t;
+                                return Boolean.FALSE;
+                            }
+                        }
+                    }).get();
+                } catch (RejectedExecutionException e) {
+                    MaryHttpServerUtils.errorServiceUnavailable(response, e.getMessage());
+                    return;
                 } catch (Throwable e) {
+                    failure[0] = e;
+                }
+                if (failure[0] != null) {
                     String message = "Processing failed.";
 
                     MaryHttpServerUtils.errorInternalServerError(response,
-                            message, e);
+                            message, failure[0]);
                     ok = false;
                 }
                 if (ok) {
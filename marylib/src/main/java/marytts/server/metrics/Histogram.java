@@ -0,0 +1,133 @@
+/**
+ * Copyright 2009 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ * <p/>
+ * This file is part of MARY TTS.
+ * <p/>
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ * <p/>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * <p/>
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package marytts.server.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram of non-negative long values, such as durations in nanoseconds.
+ * <p/>
+ * Values are counted in buckets whose width grows with the value: each power of two is split into
+ * four buckets, so that percentiles are accurate to within 25%. Count, sum and maximum are exact.
+ * Recording a value costs a few atomic operations and never blocks.
+ */
+public class Histogram {
+    // 4 buckets each for the powers of two 2^1 .. 2^62, plus the values 0..3
+    private static final int NUM_BUCKETS = 4 * 62;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(NUM_BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Record one value; negative values are counted as 0.
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        buckets.incrementAndGet(bucketOf(value));
+        count.incrementAndGet();
+        sum.addAndGet(value);
+        long m;
+        while (value > (m = max.get()) && !max.compareAndSet(m, value)) {
+            // retry
+        }
+    }
+
+    private static int bucketOf(long value) {
+        if (value < 4) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int fraction = (int) (value >>> (exponent - 2)) & 3;
+        return 4 * (exponent - 1) + fraction;
+    }
+
+    /**
+     * The smallest value in the given bucket.
+     */
+    private static long lowerBound(int bucket) {
+        if (bucket < 4) {
+            return bucket;
+        }
+        int exponent = bucket / 4 + 1;
+        int fraction = bucket % 4;
+        return (long) (4 + fraction) << (exponent - 2);
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getSum() {
+        return sum.get();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public long getMean() {
+        long n = count.get();
+        return n > 0 ? sum.get() / n : 0;
+    }
+
+    /**
+     * Estimate the value below which the given fraction of the recorded values lie.
+     *
+     * @param fraction a number between 0 and 1, e.g. 0.99 for the 99th percentile
+     * @return the midpoint of the bucket containing the percentile, but at most the maximum;
+     * 0 if no values have been recorded
+     */
+    public long getPercentile(double fraction) {
+        long n = count.get();
+        if (n == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(fraction * n);
+        if (rank < 1) {
+            rank = 1;
+        }
+        long seen = 0;
+        for (int b = 0; b < NUM_BUCKETS; b++) {
+            seen += buckets.get(b);
+            if (seen >= rank) {
+                long low = lowerBound(b);
+                long high = b + 1 < NUM_BUCKETS ? lowerBound(b + 1) : Long.MAX_VALUE;
+                return Math.min(low + (high - low) / 2, max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * Forget all recorded values. Values recorded concurrently may be partially lost.
+     */
+    public void reset() {
+        for (int b = 0; b < NUM_BUCKETS; b++) {
+            buckets.set(b, 0);
+        }
+        count.set(0);
+        sum.set(0);
+        max.set(0);
+    }
+}
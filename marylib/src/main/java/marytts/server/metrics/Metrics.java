@@ -0,0 +1,159 @@
+/**
+ * Copyright 2009 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ * <p/>
+ * This file is part of MARY TTS.
+ * <p/>
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ * <p/>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * <p/>
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package marytts.server.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The measurements of the processing pipeline, shared by all requests.
+ * <p/>
+ * Two kinds of metrics are kept, both identified by a name:
+ * counters, which are increased by events such as cache hits,
+ * and histograms, which collect values such as durations.
+ * Durations are recorded in nanoseconds, as measured with {@link System#nanoTime()}.
+ * Recording is lock-free, so that it can be used on the processing paths of all requests.
+ * <p/>
+ * The names in use are:
+ * <ul>
+ * <li><code>request.time</code>: processing time of a request, in ns</li>
+ * <li><code>request.firstaudio</code>: time until the first audio of a request was available, in ns</li>
+ * <li><code>request.realtimefactor</code>: processing time per audio time, in thousandths</li>
+ * <li><code>module.NAME.time</code>: processing time of one chunk by the module NAME, in ns</li>
+ * <li><code>cache.hit</code>, <code>cache.miss</code>: synthesis cache lookups</li>
+ * <li><code>scheduler.queuewait</code>, <code>scheduler.processing</code>: time spent by server requests
+ * waiting for and running on a synthesis worker, in ns</li>
+ * <li><code>scheduler.rejected</code>: server requests rejected because the server was busy</li>
+ * <li><code>viterbi.time</code>: duration of a unit selection search, in ns</li>
+ * <li><code>viterbi.candidates</code>, <code>viterbi.paths</code>: number of candidate units
+ * and of path extensions evaluated by each search</li>
+ * </ul>
+ */
+public class Metrics {
+    private static final ConcurrentMap<String, AtomicLong> counters = new ConcurrentHashMap<String, AtomicLong>();
+    private static final ConcurrentMap<String, Histogram> histograms = new ConcurrentHashMap<String, Histogram>();
+
+    private Metrics() {
+    }
+
+    /**
+     * Get the counter with the given name, creating it if necessary.
+     */
+    public static AtomicLong getCounter(String name) {
+        AtomicLong counter = counters.get(name);
+        if (counter == null) {
+            AtomicLong newCounter = new AtomicLong();
+            counter = counters.putIfAbsent(name, newCounter);
+            if (counter == null) {
+                counter = newCounter;
+            }
+        }
+        return counter;
+    }
+
+    /**
+     * Get the histogram with the given name, creating it if necessary.
+     */
+    public static Histogram getHistogram(String name) {
+        Histogram histogram = histograms.get(name);
+        if (histogram == null) {
+            Histogram newHistogram = new Histogram();
+            histogram = histograms.putIfAbsent(name, newHistogram);
+            if (histogram == null) {
+                histogram = newHistogram;
+            }
+        }
+        return histogram;
+    }
+
+    public static void count(String name) {
+        getCounter(name).incrementAndGet();
+    }
+
+    public static void count(String name, long delta) {
+        getCounter(name).addAndGet(delta);
+    }
+
+    public static void record(String name, long value) {
+        getHistogram(name).record(value);
+    }
+
+    /**
+     * Record the time elapsed since the given start time.
+     *
+     * @param name      the name of the histogram
+     * @param startTime a start time as returned by {@link System#nanoTime()}
+     */
+    public static void recordTimeSince(String name, long startTime) {
+        getHistogram(name).record(System.nanoTime() - startTime);
+    }
+
+    /**
+     * Get the current values of all metrics. Each counter appears under its own name;
+     * each histogram contributes the entries <code>NAME.count</code>, <code>NAME.mean</code>,
+     * <code>NAME.p50</code>, <code>NAME.p90</code>, <code>NAME.p99</code> and <code>NAME.max</code>.
+     *
+     * @return a map sorted by name
+     */
+    public static Map<String, Long> getValues() {
+        Map<String, Long> values = new TreeMap<String, Long>();
+        for (Map.Entry<String, AtomicLong> e : counters.entrySet()) {
+            values.put(e.getKey(), e.getValue().get());
+        }
+        for (Map.Entry<String, Histogram> e : histograms.entrySet()) {
+            String name = e.getKey();
+            Histogram h = e.getValue();
+            values.put(name + ".count", h.getCount());
+            values.put(name + ".mean", h.getMean());
+            values.put(name + ".p50", h.getPercentile(0.5));
+            values.put(name + ".p90", h.getPercentile(0.9));
+            values.put(name + ".p99", h.getPercentile(0.99));
+            values.put(name + ".max", h.getMax());
+        }
+        return values;
+    }
+
+    /**
+     * Get the current values of all metrics as text, one "name value" pair per line.
+     *
+     * @see #getValues()
+     */
+    public static String getValuesAsText() {
+        StringBuilder text = new StringBuilder();
+        for (Map.Entry<String, Long> e : getValues().entrySet()) {
+            text.append(e.getKey()).append(' ').append(e.getValue()).append('\n');
+        }
+        return text.toString();
+    }
+
+    /**
+     * Set all counters and histograms back to zero.
+     */
+    public static void reset() {
+        for (AtomicLong counter : counters.values()) {
+            counter.set(0);
+        }
+        for (Histogram histogram : histograms.values()) {
+            histogram.reset();
+        }
+    }
+}
@@ -18,6 +18,10 @@
  */
 package marytts.signalproc.effects;
 
+import marytts.signalproc.process.FrameOverlapAddSource;
+import marytts.signalproc.process.InlineDataProcessor;
+import marytts.signalproc.window.Window;
+import marytts.util.data.BufferedDoubleDataSource;
 import marytts.util.data.DoubleDataSource;
 import marytts.util.string.StringUtils;
 
@@ -105,12 +109,47 @@ public class BaseAudioEffect implements AudioEffect {
         return process(input);
     }
 
-    //This baseline version does nothing, implement functionality in derived classes
+    //This baseline version applies the sample or frame processor of the effect if there is one,
+    // and does nothing otherwise. Implement functionality in derived classes
     @Override
     public DoubleDataSource process(DoubleDataSource input) {
+        InlineDataProcessor processor = createSampleProcessor();
+        if (processor != null)
+            return new BufferedDoubleDataSource(input, processor);
+
+        processor = createFrameProcessor();
+        if (processor != null) {
+            FrameOverlapAddSource foas = new FrameOverlapAddSource(input, getWindowType(), true, getFrameLength(), fs, processor);
+
+            return new BufferedDoubleDataSource(foas);
+        }
+
         return input;
     }
 
+    //Effects which modify each sample independently of its neighbours should return a processor doing so.
+    //A new processor is created on each call, with the current parameters
+    public InlineDataProcessor createSampleProcessor() {
+        return null;
+    }
+
+    //Effects which work on overlapping analysis frames should return the processor applied to each frame.
+    //A new processor is created on each call, with the current parameters, since processors may keep state across frames.
+    //The frames are framed and overlap-added as given by getFrameLength() and getWindowType()
+    public InlineDataProcessor createFrameProcessor() {
+        return null;
+    }
+
+    //Frame length in samples for the frame processor
+    public int getFrameLength() {
+        return 0;
+    }
+
+    //Analysis and synthesis window type for the frame processor
+    public int getWindowType() {
+        return Window.HANNING;
+    }
+
     @Override
     public void setParams(String params) {
         String params2 = preprocessParams(params);
@@ -20,6 +20,7 @@ package marytts.signalproc.effects;
 
 import marytts.signalproc.process.Chorus;
 import marytts.signalproc.process.FrameOverlapAddSource;
+import marytts.signalproc.process.InlineDataProcessor;
 import marytts.signalproc.window.Window;
 import marytts.util.data.BufferedDoubleDataSource;
 import marytts.util.data.DoubleDataSource;
@@ -132,12 +133,13 @@ public class ChorusEffectBase extends BaseAudioEffect {
     }
 
     @Override
-    public DoubleDataSource process(DoubleDataSource input) {
-        Chorus chorus = new Chorus(delaysInMiliseconds, amps, fs);
-
-        FrameOverlapAddSource foas = new FrameOverlapAddSource(input, Window.HANNING, true, 1024, fs, chorus);
+    public InlineDataProcessor createFrameProcessor() {
+        return new Chorus(delaysInMiliseconds, amps, fs);
+    }
 
-        return new BufferedDoubleDataSource(foas);
+    @Override
+    public int getFrameLength() {
+        return 1024;
     }
 
     @Override
@@ -21,6 +21,7 @@ package marytts.signalproc.effects;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 
 import lib.sound.sampled.AudioFileFormat;
 import lib.sound.sampled.AudioFormat;
@@ -28,6 +29,9 @@ import lib.sound.sampled.AudioInputStream;
 import lib.sound.sampled.AudioSystem;
 import marytts.htsengine.HMMVoice;
 import marytts.modules.synthesis.Voice;
+import marytts.signalproc.process.FrameOverlapAddSource;
+import marytts.signalproc.process.InlineDataProcessor;
+import marytts.signalproc.process.InlineProcessorChain;
 import marytts.util.data.BufferedDoubleDataSource;
 import marytts.util.data.DoubleDataSource;
 import marytts.util.data.audio.AudioDoubleDataSource;
@@ -42,6 +46,8 @@ public class EffectsApplier {
     public static char chEffectSeparator = '+';
     public BaseAudioEffect[] audioEffects;
     public int[] optimumEffectIndices;
+    //If true, consecutive effects are merged into shared processing passes where possible (see buildEffectsGraph)
+    public boolean bFuseEffects = !"false".equals(System.getProperty("signalproc.effects.fuse"));
     private ArrayList<String> optimumOrderedEffectNames;
 
     public EffectsApplier() {
@@ -67,33 +73,12 @@ public class EffectsApplier {
     public AudioInputStream apply(AudioInputStream input, String param) {
         AudioFormat audioformat = input.getFormat();
         AudioDoubleDataSource signal = new AudioDoubleDataSource(input);
-        DoubleDataSource tmpSignal = null;
 
         parseEffectsAndParams(param, (int) audioformat.getSampleRate());
-        boolean bFirstEffect = true;
 
         if (audioEffects != null) //There are audio effects to apply
         {
-            int index;
-
-            for (int i = 0; i < audioEffects.length; i++) {
-                if (optimumEffectIndices != null && optimumEffectIndices[i] >= 0 && optimumEffectIndices[i] < audioEffects.length)
-                    index = optimumEffectIndices[i];
-                else
-                    index = i;
-
-                if (audioEffects[index] != null) {
-                    if (bFirstEffect) {
-                        if (audioEffects[index] != null) {
-                            tmpSignal = audioEffects[index].apply(signal);
-                            bFirstEffect = false;
-                        }
-                    } else {
-                        if (audioEffects[index] != null)
-                            tmpSignal = audioEffects[index].apply(tmpSignal);
-                    }
-                }
-            }
+            DoubleDataSource tmpSignal = buildEffectsGraph(signal);
 
             if (tmpSignal != null) {
                 if (tmpSignal.getDataLength() == DoubleDataSource.NOT_SPECIFIED) {
@@ -108,6 +93,109 @@ public class EffectsApplier {
             return input;
     }
 
+    //Chain the parsed effects onto the input signal in their optimum order.
+    //Rather than wrapping each effect around the previous one, consecutive samplewise effects are applied
+    // in a single pass over the data, and consecutive framewise effects with the same frame length and
+    // window are applied to the same frames, so that the signal is framed and overlap-added only once for them.
+    //Effects which are neither are applied using their own process() method.
+    //Returns null if there is no effect to apply
+    public DoubleDataSource buildEffectsGraph(DoubleDataSource signal) {
+        List<InlineDataProcessor> sampleProcessors = new ArrayList<InlineDataProcessor>();
+        List<InlineDataProcessor> frameProcessors = new ArrayList<InlineDataProcessor>();
+        BaseAudioEffect firstFrameEffect = null; //Determines framing of the frameProcessors
+        boolean bAnyEffect = false;
+        int index;
+
+        for (int i = 0; i < audioEffects.length; i++) {
+            if (optimumEffectIndices != null && optimumEffectIndices[i] >= 0 && optimumEffectIndices[i] < audioEffects.length)
+                index = optimumEffectIndices[i];
+            else
+                index = i;
+
+            BaseAudioEffect effect = audioEffects[index];
+            //HMM effects are applied within the HMM synthesizer, there is nothing to do for them here
+            if (effect == null || effect.isHMMEffect())
+                continue;
+
+            bAnyEffect = true;
+
+            //BaseAudioEffect.apply() parses the parameters again before processing, do the same here
+            effect.parseParameters(effect.strParams);
+
+            InlineDataProcessor sampleProcessor = null;
+            InlineDataProcessor frameProcessor = null;
+            if (bFuseEffects) {
+                sampleProcessor = effect.createSampleProcessor();
+                if (sampleProcessor == null)
+                    frameProcessor = effect.createFrameProcessor();
+            }
+
+            if (sampleProcessor != null) {
+                signal = applyFrameProcessors(signal, firstFrameEffect, frameProcessors);
+                firstFrameEffect = null;
+                sampleProcessors.add(sampleProcessor);
+            } else if (frameProcessor != null) {
+                signal = applySampleProcessors(signal, sampleProcessors);
+                if (firstFrameEffect != null && !isSameFraming(firstFrameEffect, effect)) {
+                    signal = applyFrameProcessors(signal, firstFrameEffect, frameProcessors);
+                    firstFrameEffect = null;
+                }
+                if (firstFrameEffect == null)
+                    firstFrameEffect = effect;
+                frameProcessors.add(frameProcessor);
+            } else {
+                signal = applySampleProcessors(signal, sampleProcessors);
+                signal = applyFrameProcessors(signal, firstFrameEffect, frameProcessors);
+                firstFrameEffect = null;
+                signal = effect.process(signal);
+            }
+        }
+
+        signal = applySampleProcessors(signal, sampleProcessors);
+        signal = applyFrameProcessors(signal, firstFrameEffect, frameProcessors);
+
+        if (bAnyEffect)
+            return signal;
+        else
+            return null;
+    }
+
+    private static boolean isSameFraming(BaseAudioEffect effect1, BaseAudioEffect effect2) {
+        return effect1.fs == effect2.fs
+                && effect1.getFrameLength() == effect2.getFrameLength()
+                && effect1.getWindowType() == effect2.getWindowType();
+    }
+
+    //Apply the collected samplewise processors in one pass, and clear the list
+    private static DoubleDataSource applySampleProcessors(DoubleDataSource signal, List<InlineDataProcessor> processors) {
+        if (processors.isEmpty())
+            return signal;
+
+        DoubleDataSource output = new BufferedDoubleDataSource(signal, combine(processors));
+        processors.clear();
+
+        return output;
+    }
+
+    //Apply the collected framewise processors in one overlap-add pass framed as for framingEffect, and clear the list
+    private static DoubleDataSource applyFrameProcessors(DoubleDataSource signal, BaseAudioEffect framingEffect, List<InlineDataProcessor> processors) {
+        if (processors.isEmpty())
+            return signal;
+
+        FrameOverlapAddSource foas = new FrameOverlapAddSource(signal, framingEffect.getWindowType(), true,
+                framingEffect.getFrameLength(), framingEffect.fs, combine(processors));
+        processors.clear();
+
+        return new BufferedDoubleDataSource(foas);
+    }
+
+    private static InlineDataProcessor combine(List<InlineDataProcessor> processors) {
+        if (processors.size() == 1)
+            return processors.get(0);
+        else
+            return new InlineProcessorChain(processors);
+    }
+
     //Extract effects and parameters and create the corresponding effects at a default sampling rate
     public void parseEffectsAndParams(String param) {
         parseEffectsAndParams(param, 16000);
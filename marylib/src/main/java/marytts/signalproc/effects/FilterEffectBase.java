@@ -22,11 +22,7 @@ import marytts.signalproc.filter.BandPassFilter;
 import marytts.signalproc.filter.BandRejectFilter;
 import marytts.signalproc.filter.HighPassFilter;
 import marytts.signalproc.filter.LowPassFilter;
-import marytts.signalproc.process.FrameOverlapAddSource;
 import marytts.signalproc.process.InlineDataProcessor;
-import marytts.signalproc.window.Window;
-import marytts.util.data.BufferedDoubleDataSource;
-import marytts.util.data.DoubleDataSource;
 import marytts.util.math.MathUtils;
 import marytts.util.signal.SignalProcUtils;
 
@@ -191,15 +187,15 @@ public class FilterEffectBase extends BaseAudioEffect {
         }
     }
 
+    //The FIR filters keep no state between frames, so the same filter can be used for all frames
     @Override
-    public DoubleDataSource process(DoubleDataSource input) {
-        if (filter != null) {
-            FrameOverlapAddSource foas = new FrameOverlapAddSource(input, Window.HANNING, true, frameLength, fs, filter);
+    public InlineDataProcessor createFrameProcessor() {
+        return filter;
+    }
 
-            return new BufferedDoubleDataSource(foas);
-        } else {
-            return input;
-        }
+    @Override
+    public int getFrameLength() {
+        return frameLength;
     }
 
     @Override
@@ -18,11 +18,8 @@
  */
 package marytts.signalproc.effects;
 
-import marytts.signalproc.process.FrameOverlapAddSource;
+import marytts.signalproc.process.InlineDataProcessor;
 import marytts.signalproc.process.LPCWhisperiser;
-import marytts.signalproc.window.Window;
-import marytts.util.data.BufferedDoubleDataSource;
-import marytts.util.data.DoubleDataSource;
 import marytts.util.math.MathUtils;
 
 
@@ -66,12 +63,13 @@ public class LpcWhisperiserEffect extends BaseAudioEffect {
     }
 
     @Override
-    public DoubleDataSource process(DoubleDataSource input) {
-        LPCWhisperiser whisperiser = new LPCWhisperiser(predictionOrder, amount / 100.0f);
-
-        FrameOverlapAddSource foas = new FrameOverlapAddSource(input, Window.HANNING, true, frameLength, fs, whisperiser);
+    public InlineDataProcessor createFrameProcessor() {
+        return new LPCWhisperiser(predictionOrder, amount / 100.0f);
+    }
 
-        return new BufferedDoubleDataSource(foas);
+    @Override
+    public int getFrameLength() {
+        return frameLength;
     }
 
     @Override
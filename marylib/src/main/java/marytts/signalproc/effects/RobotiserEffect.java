@@ -18,10 +18,10 @@
  */
 package marytts.signalproc.effects;
 
+import marytts.signalproc.process.InlineDataProcessor;
 import marytts.signalproc.process.Robotiser;
-import marytts.util.data.BufferedDoubleDataSource;
-import marytts.util.data.DoubleDataSource;
 import marytts.util.math.MathUtils;
+import marytts.util.signal.SignalProcUtils;
 
 /**
  * @author Oytun T&uumlrk
@@ -58,9 +58,14 @@ public class RobotiserEffect extends BaseAudioEffect {
     }
 
     @Override
-    public DoubleDataSource process(DoubleDataSource input) {
-        Robotiser robotiser = new Robotiser(input, fs, amount / 100.0f);
-        return new BufferedDoubleDataSource(robotiser);
+    public InlineDataProcessor createFrameProcessor() {
+        return new Robotiser.PhaseRemover(getFrameLength(), amount / 100.0f);
+    }
+
+    //Same frame length as used by Robotiser
+    @Override
+    public int getFrameLength() {
+        return SignalProcUtils.getDFTSize(fs);
     }
 
     @Override
@@ -25,10 +25,8 @@ import java.io.File;
 import lib.sound.sampled.AudioFileFormat;
 import lib.sound.sampled.AudioFormat;
 import lib.sound.sampled.AudioSystem;
-import marytts.signalproc.process.FrameOverlapAddSource;
+import marytts.signalproc.process.InlineDataProcessor;
 import marytts.signalproc.process.VocalTractScalingProcessor;
-import marytts.signalproc.window.Window;
-import marytts.util.data.BufferedDoubleDataSource;
 import marytts.util.data.DoubleDataSource;
 import marytts.util.data.audio.AudioDoubleDataSource;
 import marytts.util.data.audio.DDSAudioInputStream;
@@ -94,18 +92,19 @@ public class VocalTractLinearScalerEffect extends BaseAudioEffect {
     }
 
     @Override
-    public DoubleDataSource process(DoubleDataSource inputAudio) {
+    public InlineDataProcessor createFrameProcessor() {
         amount = MathUtils.CheckLimits(amount, MIN_AMOUNT, MAX_AMOUNT);
 
         double[] vscales = {amount};
 
-        int frameLength = SignalProcUtils.getDFTSize(fs);
         int predictionOrder = SignalProcUtils.getLPOrder(fs);
 
-        VocalTractScalingProcessor p = new VocalTractScalingProcessor(predictionOrder, fs, frameLength, vscales);
-        FrameOverlapAddSource foas = new FrameOverlapAddSource(inputAudio, Window.HANNING, true, frameLength, fs, p);
+        return new VocalTractScalingProcessor(predictionOrder, fs, getFrameLength(), vscales);
+    }
 
-        return new BufferedDoubleDataSource(foas);
+    @Override
+    public int getFrameLength() {
+        return SignalProcUtils.getDFTSize(fs);
     }
 
     @Override
@@ -18,8 +18,7 @@
  */
 package marytts.signalproc.effects;
 
-import marytts.util.data.BufferedDoubleDataSource;
-import marytts.util.data.DoubleDataSource;
+import marytts.signalproc.process.InlineDataProcessor;
 import marytts.util.math.MathUtils;
 
 /**
@@ -52,16 +51,16 @@ public class VolumeEffect extends BaseAudioEffect {
     }
 
     @Override
-    public DoubleDataSource process(DoubleDataSource input) {
-        double[] x = input.getAllData();
-        if (x != null) {
-            for (int i = 0; i < x.length; i++)
-                x[i] *= amount;
-
-            input = new BufferedDoubleDataSource(x);
-        }
-
-        return input;
+    public InlineDataProcessor createSampleProcessor() {
+        final double scale = amount;
+
+        return new InlineDataProcessor() {
+            @Override
+            public void applyInline(double[] data, int off, int len) {
+                for (int i = off; i < off + len; i++)
+                    data[i] *= scale;
+            }
+        };
     }
 
     @Override
@@ -32,12 +32,15 @@ import marytts.util.math.MathUtils;
  *         A filter corresponding to a finite-impulse-response LTI system.
  *         The filtering of the input signal corresponds to a convolution
  *         with the impulse response of the system.
+ *         The apply() methods can be used by several threads at the same time;
+ *         inline processing keeps scratch memory in the filter and cannot.
  */
 public class FIRFilter implements InlineDataProcessor {
     protected double[] transformedIR;
     protected int impulseResponseLength;
     protected int sliceLength;
     protected double[] denumeratorCoefficients; //Digital filter coefficients for time domain digital filtering
+    protected OverlapSaveConvolver convolver; //Scratch space for filtering arrays, created on first use
 
     /**
      * Create a new, uninitialised FIR filter. Subclasses need to call
@@ -85,6 +88,7 @@ public class FIRFilter implements InlineDataProcessor {
         FFT.realTransform(transformedIR, false);
         // This means, we are not actually saving the impulseResponse, but only
         // its complex FFT transform.
+        convolver = null;
     }
 
     /**
@@ -102,19 +106,34 @@ public class FIRFilter implements InlineDataProcessor {
     /**
      * Apply this filter to the given input signal. This method filters the entire signal,
      * and returns the entire filtered signal. For long signals, it is better to use apply(DoubleDataSource).
+     * Like apply(DoubleDataSource), it uses scratch memory of its own, so that it can be
+     * called by several threads at the same time.
      *
      * @param signal the signal to which this filter should be applied
      * @return the filtered signal.
      */
     public double[] apply(double[] signal) {
-        return new FIROutput(new BufferedDoubleDataSource(signal)).getAllData();
+        double[] filtered = new double[signal.length];
+        new OverlapSaveConvolver(transformedIR, impulseResponseLength)
+                .apply(signal, 0, signal.length, filtered, 0, impulseResponseLength / 2);
+        return filtered;
     }
 
+    /**
+     * Filter the given part of data in place, with the same result as apply(double[])
+     * would give for it. No memory is allocated, except on the first call.
+     * As the scratch memory is kept in this filter, a filter must not be used for
+     * inline processing by several threads at the same time.
+     */
     @Override
     public void applyInline(double[] data, int off, int len) {
-        double[] dataOut = apply(data);
+        getConvolver().apply(data, off, len, data, off, impulseResponseLength / 2);
+    }
 
-        System.arraycopy(dataOut, 0, data, 0, len);
+    protected OverlapSaveConvolver getConvolver() {
+        if (convolver == null)
+            convolver = new OverlapSaveConvolver(transformedIR, impulseResponseLength);
+        return convolver;
     }
 
     public int getImpulseResponseLength() {
@@ -127,6 +146,7 @@ public class FIRFilter implements InlineDataProcessor {
 
     public class FIROutput extends BlockwiseDoubleDataSource {
         protected FrameProvider frameProvider;
+        protected OverlapSaveConvolver frameConvolver;
         protected int nTailCutoff;
 
         public FIROutput(DoubleDataSource inputSource) {
@@ -138,6 +158,7 @@ public class FIRFilter implements InlineDataProcessor {
             DoubleDataSource padding = new BufferedDoubleDataSource(new double[impulseResponseLength]);
             DoubleDataSource paddedSource = new SequenceDoubleDataSource(new DoubleDataSource[]{padding, inputSource});
             this.frameProvider = new FrameProvider(paddedSource, null, frameLength, sliceLength, 1, false);
+            this.frameConvolver = new OverlapSaveConvolver(transformedIR, impulseResponseLength);
             // discard the initial padding of impulseResponseLength/2:
             int nHeadCutoff = impulseResponseLength / 2;
             nTailCutoff = impulseResponseLength - nHeadCutoff;
@@ -190,7 +211,7 @@ public class FIRFilter implements InlineDataProcessor {
             assert blockSize <= frameProvider.getFrameLengthSamples();
             assert blockSize == frameProvider.getFrameShiftSamples();
             // Now do the convolution:
-            double[] convResult = FFT.convolve_FD(frame, transformedIR);
+            double[] convResult = frameConvolver.convolveFrame(frame);
             int toCopy = blockSize;
             if (frameProvider.validSamplesInFrame() < blockSize)
                 toCopy = frameProvider.validSamplesInFrame();
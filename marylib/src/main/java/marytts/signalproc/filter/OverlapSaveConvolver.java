@@ -0,0 +1,138 @@
+/**
+ * Copyright 2009 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ * <p/>
+ * This file is part of MARY TTS.
+ * <p/>
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ * <p/>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * <p/>
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package marytts.signalproc.filter;
+
+import java.util.Arrays;
+
+import marytts.util.math.FFT;
+import marytts.util.math.MathUtils;
+
+/**
+ * Overlap-save FFT convolution with a fixed impulse response.
+ * The signal is processed in slices; each slice is transformed together with the
+ * impulse response length samples preceding it, using a real-valued FFT of size
+ * slice length + impulse response length. All scratch memory is allocated in the
+ * constructor, so that no garbage is created while filtering.
+ * <p/>
+ * An instance keeps its scratch buffers between calls, so it must not be used
+ * by several threads at the same time.
+ */
+public class OverlapSaveConvolver {
+    private final double[] transformedIR;
+    private final int impulseResponseLength;
+    private final int sliceLength;
+    private final double[] frame;
+    private final double[] history;
+
+    /**
+     * @param transformedIR         the impulse response, zero-padded to a power of two and
+     *                              transformed with FFT.realTransform(); its length is the FFT size.
+     * @param impulseResponseLength the length of the impulse response before zero padding.
+     * @throws IllegalArgumentException if the FFT size is not a power of two, or not longer
+     *                                  than the impulse response.
+     */
+    public OverlapSaveConvolver(double[] transformedIR, int impulseResponseLength) {
+        if (!MathUtils.isPowerOfTwo(transformedIR.length))
+            throw new IllegalArgumentException("FFT size must be a power of two");
+        if (impulseResponseLength <= 0 || impulseResponseLength >= transformedIR.length)
+            throw new IllegalArgumentException("Impulse response length must be positive and smaller than the FFT size");
+        this.transformedIR = transformedIR;
+        this.impulseResponseLength = impulseResponseLength;
+        this.sliceLength = transformedIR.length - impulseResponseLength;
+        this.frame = new double[transformedIR.length];
+        this.history = new double[impulseResponseLength];
+    }
+
+    /**
+     * The number of samples in one frame, i.e. the FFT size.
+     */
+    public int getFrameLength() {
+        return frame.length;
+    }
+
+    /**
+     * The number of valid output samples per frame.
+     */
+    public int getSliceLength() {
+        return sliceLength;
+    }
+
+    /**
+     * Circularly convolve one frame of getFrameLength() samples with the impulse response.
+     * The first impulse response length samples of the result are polluted by the
+     * circular convolution; the remaining getSliceLength() samples are valid.
+     *
+     * @param input the frame to convolve; it is not modified.
+     * @return an internal array holding the result, which is overwritten by the next call.
+     */
+    public double[] convolveFrame(double[] input) {
+        System.arraycopy(input, 0, frame, 0, frame.length);
+        FFT.convolve_FD(frame, transformedIR, frame);
+        return frame;
+    }
+
+    /**
+     * Filter len samples of signal, starting at off, and write len filtered samples to target,
+     * starting at targetPos:
+     * <pre>
+     *     target[targetPos+n] = sum_k h[k] * signal[off+n+delay-k], 0 <= n < len,
+     * </pre>
+     * where the signal is taken to be zero outside of off...off+len-1.
+     * The delay allows to compensate for the group delay of the filter; for a linear phase filter
+     * it is half the impulse response length.
+     * <p/>
+     * Target may be the same array as signal, provided targetPos == off; the signal is then
+     * filtered in place.
+     *
+     * @param signal    the input signal
+     * @param off       the position of the first input sample in signal
+     * @param len       the number of samples to filter
+     * @param target    the array into which to write the output
+     * @param targetPos the position of the first output sample in target
+     * @param delay     the number of leading output samples to skip, 0 <= delay < impulse response length
+     */
+    public void apply(double[] signal, int off, int len, double[] target, int targetPos, int delay) {
+        if (delay < 0 || delay >= impulseResponseLength)
+            throw new IllegalArgumentException("Delay must be between 0 and the impulse response length");
+        if (target == signal && targetPos != off)
+            throw new IllegalArgumentException("Filtering in place requires targetPos == off");
+
+        // The samples before the signal are zero:
+        Arrays.fill(history, 0.);
+        // Frame k holds input samples s-impulseResponseLength...s+sliceLength-1, with s = k*sliceLength,
+        // and yields the outputs s...s+sliceLength-1 of the full convolution.
+        // Outputs are always written behind the input still to be read, which makes in-place filtering possible.
+        for (int s = 0; s - delay < len; s += sliceLength) {
+            System.arraycopy(history, 0, frame, 0, impulseResponseLength);
+            int available = Math.max(0, Math.min(sliceLength, len - s));
+            if (available > 0)
+                System.arraycopy(signal, off + s, frame, impulseResponseLength, available);
+            if (available < sliceLength)
+                Arrays.fill(frame, impulseResponseLength + available, frame.length, 0.);
+            System.arraycopy(frame, sliceLength, history, 0, impulseResponseLength);
+
+            FFT.convolve_FD(frame, transformedIR, frame);
+
+            int first = Math.max(0, delay - s);
+            int last = Math.min(sliceLength, len + delay - s);
+            if (last > first)
+                System.arraycopy(frame, impulseResponseLength + first, target, targetPos + s + first - delay, last - first);
+        }
+    }
+}
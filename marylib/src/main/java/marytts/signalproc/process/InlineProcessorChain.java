@@ -0,0 +1,46 @@
+/**
+ * Copyright 2009 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ * <p/>
+ * This file is part of MARY TTS.
+ * <p/>
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ * <p/>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * <p/>
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package marytts.signalproc.process;
+
+import java.util.List;
+
+/**
+ * Apply a sequence of inline data processors to the same data, one after the other.
+ * This allows several framewise processors to share a single framing and
+ * overlap-add pass, or several samplewise processors to share a single pass
+ * over the data.
+ */
+public class InlineProcessorChain implements InlineDataProcessor {
+    private final InlineDataProcessor[] processors;
+
+    public InlineProcessorChain(InlineDataProcessor[] processors) {
+        this.processors = processors.clone();
+    }
+
+    public InlineProcessorChain(List<InlineDataProcessor> processors) {
+        this(processors.toArray(new InlineDataProcessor[processors.size()]));
+    }
+
+    @Override
+    public void applyInline(double[] data, int off, int len) {
+        for (int i = 0; i < processors.length; i++) {
+            processors[i].applyInline(data, off, len);
+        }
+    }
+}
@@ -183,6 +183,7 @@ public class UnitSelectionVoice extends Voice {
                 float sCostWeights = Float.parseFloat(MaryProperties.getProperty(header + ".viterbi.wSCosts", "0.33"));
                 unitSelector.load(database, targetCostWeights, sCostWeights, beamSize);
             }
+            unitSelector.setUseLatticeViterbi(MaryProperties.getBoolean(header + ".viterbi.lattice", false));
 
             //samplingRate -> bin, audioformat -> concatenator
             //build Concatenator
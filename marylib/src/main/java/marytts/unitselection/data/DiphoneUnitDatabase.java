@@ -61,13 +61,11 @@ public class DiphoneUnitDatabase extends UnitDatabase {
         // The point of this is to get the value of the "blacklist" attribute in the first child element of the MaryXML
         // and store it in the blacklist String variable.
         // This code seems rather inelegant; perhaps there is a better way to access the MaryXML from this method?
-        String blacklist = "";
-        String unitBasename = "This must never be null or the empty string!"; // otherwise candidate selection fails!
         Element targetElement = left.getMaryxmlElement();
         if (targetElement == null) {
             targetElement = right.getMaryxmlElement();
         }
-        blacklist = DomUtils.getAttributeFromClosestAncestorOfAnyKind(targetElement, "blacklist");
+        Blacklist blacklist = getBlacklist(DomUtils.getAttributeFromClosestAncestorOfAnyKind(targetElement, "blacklist"));
         // END blacklisting
 
         // TODO shouldn't leftName and rightName just call appropriate methods of DiphoneTarget? 
@@ -83,7 +81,7 @@ public class DiphoneUnitDatabase extends UnitDatabase {
 
         // Pre-select candidates for the left half, but retain only
         // those that belong to appropriate diphones:
-        int[] clist = (int[]) preselectionCART.interpret(left, backtrace);
+        int[] clist = preselect(left);
         Log.d(Mary.LOG, "For target " + target + ", selected " + clist.length + " units");
 
         // Now, clist is an array of halfphone unit indexes.
@@ -108,7 +106,7 @@ public class DiphoneUnitDatabase extends UnitDatabase {
         }
         // Pre-select candidates for the right half, but retain only
         // those that belong to appropriate diphones:
-        clist = (int[]) preselectionCART.interpret(right, backtrace);
+        clist = preselect(right);
         Log.d(Mary.LOG, "For target " + target + ", selected " + clist.length + " units");
 
         // Now, clist is an array of halfphone unit indexes.
@@ -136,16 +134,11 @@ public class DiphoneUnitDatabase extends UnitDatabase {
         ArrayList<ViterbiCandidate> candidates = new ArrayList<ViterbiCandidate>(candidateUnitSet.size());
         for (int leftIndex : candidateUnitSet.toArray()) {
             DiphoneUnit diphoneUnit = new DiphoneUnit(unitReader.units[leftIndex], unitReader.units[leftIndex + 1]);
-            ViterbiCandidate candidate = new ViterbiCandidate(diphoneTarget, diphoneUnit, targetCostFunction);
             // Blacklisting:
-            if (blacklist.equals("")) { // no blacklist
-                candidates.add(candidate);
-            } else { // maybe exclude candidate
-                unitBasename = getFilename(diphoneUnit);
-                if (!blacklist.contains(unitBasename)) {
-                    candidates.add(candidate);
-                }
+            if (blacklist != null && blacklist.excludes(diphoneUnit)) {
+                continue;
             }
+            candidates.add(new ViterbiCandidate(diphoneTarget, diphoneUnit, targetCostFunction));
         }
 
         Log.d(Mary.LOG, "Preselected " + candidateUnitSet.size() + " diphone candidates for target " + target);
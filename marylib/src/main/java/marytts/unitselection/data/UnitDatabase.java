@@ -22,9 +22,12 @@ package marytts.unitselection.data;
 import android.util.Log;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import marytts.cart.CART;
+import marytts.cart.FlatCART;
 import marytts.server.Mary;
 import marytts.unitselection.select.JoinCostFunction;
 import marytts.unitselection.select.StatisticalCostFunction;
@@ -50,9 +53,16 @@ public class UnitDatabase {
     protected UnitFileReader unitReader;
     protected int numUnits;
     protected CART preselectionCART;
+    // flattened copy of preselectionCART for fast interpretation; null if it cannot be flattened
+    protected FlatCART preselectionFlatCART;
     protected TimelineReader audioTimeline;
     protected TimelineReader basenameTimeline;
     protected int backtrace;
+    // the basename id of each unit, and the basename for each id; null if there is no basename timeline
+    protected int[] unitBasenameIds;
+    protected String[] basenames;
+    // the blacklist used most recently; normally, all targets of a request have the same blacklist
+    private volatile Blacklist lastBlacklist;
     // protected Logger logger = MaryUtils.getLogger("UnitDatabase");
 
 
@@ -74,6 +84,8 @@ public class UnitDatabase {
         this.audioTimeline = anAudioTimeline;
         this.basenameTimeline = aBasenameTimeline;
         this.backtrace = backtraceLeafSize;
+        flattenPreselectionCART();
+        loadBasenameIds();
     }
 
     public void load(TargetCostFunction aTargetCostFunction,
@@ -93,6 +105,8 @@ public class UnitDatabase {
         this.audioTimeline = anAudioTimeline;
         this.basenameTimeline = aBasenameTimeline;
         this.backtrace = backtraceLeafSize;
+        flattenPreselectionCART();
+        loadBasenameIds();
     }
 
     public TargetCostFunction getTargetCostFunction() {
@@ -127,38 +141,144 @@ public class UnitDatabase {
         // The point of this is to get the value of the "blacklist" attribute in the first child element of the MaryXML
         // and store it in the blacklist String variable.
         // This code seems rather inelegant; perhaps there is a better way to access the MaryXML from this method?
-        String blacklist = "";
-        String unitBasename = "This must never be null or the empty string!"; // otherwise candidate selection fails!
         Element targetElement = target.getMaryxmlElement();
-        blacklist = DomUtils.getAttributeFromClosestAncestorOfAnyKind(targetElement, "blacklist");
+        Blacklist blacklist = getBlacklist(DomUtils.getAttributeFromClosestAncestorOfAnyKind(targetElement, "blacklist"));
         // END blacklisting
 
         //logger.debug("Looking for candidates in cart "+target.getName());
         //get the cart tree and extract the candidates
-        int[] clist = (int[]) preselectionCART.interpret(target, backtrace);
+        int[] clist = preselect(target);
         Log.d(Mary.LOG, "For target " + target + ", selected " + clist.length + " units");
 
         // Now, clist is an array of unit indexes.
-        List<ViterbiCandidate> candidates = new ArrayList<ViterbiCandidate>();
+        List<ViterbiCandidate> candidates = new ArrayList<ViterbiCandidate>(clist.length);
         for (int i = 0; i < clist.length; i++) {
             // The target is the same for all these candidates in the queue
             // remember the actual unit:
             Unit unit = unitReader.getUnit(clist[i]);
+            // Blacklisting: leave out units whose basenames are blacklisted
+            if (blacklist != null && blacklist.excludes(unit)) {
+                continue;
+            }
             candidates.add(new ViterbiCandidate(target, unit, targetCostFunction));
         }
 
-        // Blacklisting without crazy performance drop:
-        // just remove candidates again if their basenames are blacklisted 
-        java.util.Iterator<ViterbiCandidate> candIt = candidates.iterator();
-        while (candIt.hasNext()) {
-            ViterbiCandidate candidate = candIt.next();
-            unitBasename = getFilename(candidate.getUnit());
-            if (blacklist.contains(unitBasename)) {
-                candIt.remove();
+        return candidates;
+    }
+
+    /**
+     * Flatten the preselection CART, which is interpreted for every target.
+     */
+    private void flattenPreselectionCART() {
+        preselectionFlatCART = null;
+        if (preselectionCART == null) {
+            return;
+        }
+        try {
+            preselectionFlatCART = new FlatCART(preselectionCART);
+        } catch (IllegalArgumentException e) {
+            Log.w(Mary.LOG, "Cannot flatten preselection CART, interpreting it as it is: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Pass the given target through the preselection CART.
+     *
+     * @param target a Target object representing an optimal unit
+     * @return the indexes of the units in the leaf the target ends up in
+     */
+    protected int[] preselect(Target target) {
+        if (preselectionFlatCART != null) {
+            return (int[]) preselectionFlatCART.interpret(target, backtrace);
+        }
+        return (int[]) preselectionCART.interpret(target, backtrace);
+    }
+
+    /**
+     * Build the table of basename ids for all units from the basename timeline, if there is one.
+     * This reads the basename timeline once for every unit, so that later blacklist checks and
+     * basename lookups are simple array accesses.
+     */
+    private void loadBasenameIds() {
+        unitBasenameIds = null;
+        basenames = null;
+        lastBlacklist = null;
+        if (basenameTimeline == null || unitReader == null) {
+            return;
+        }
+        int[] ids = new int[numUnits];
+        List<String> names = new ArrayList<String>();
+        Map<String, Integer> nameToId = new HashMap<String, Integer>();
+        try {
+            for (int i = 0; i < numUnits; i++) {
+                Datagram filenameData = basenameTimeline.getDatagram(unitReader.getUnit(i).startTime);
+                String filename = new String(filenameData.getData(), "UTF-8");
+                Integer id = nameToId.get(filename);
+                if (id == null) {
+                    id = names.size();
+                    names.add(filename);
+                    nameToId.put(filename, id);
+                }
+                ids[i] = id;
             }
+        } catch (Exception e) {
+            Log.w(Mary.LOG, "Cannot read basenames of units, will look them up as needed", e);
+            return;
         }
+        unitBasenameIds = ids;
+        basenames = names.toArray(new String[names.size()]);
+        Log.d(Mary.LOG, "Read basenames of " + numUnits + " units from " + basenames.length + " files");
+    }
 
-        return candidates;
+    /**
+     * Get the blacklist for the given value of a "blacklist" attribute: any unit whose basename
+     * is contained in the value is excluded from the candidates.
+     *
+     * @param blacklist the value of the blacklist attribute, or null
+     * @return the blacklist, or null if nothing is blacklisted.
+     */
+    protected Blacklist getBlacklist(String blacklist) {
+        if (blacklist == null || blacklist.equals("")) {
+            return null;
+        }
+        Blacklist b = lastBlacklist;
+        if (b == null || !b.value.equals(blacklist)) {
+            b = new Blacklist(blacklist);
+            lastBlacklist = b;
+        }
+        return b;
+    }
+
+    /**
+     * The set of units excluded by a given blacklist attribute value.
+     */
+    protected class Blacklist {
+        final String value;
+        // for each basename id, whether it is excluded; null if there is no basename table
+        final boolean[] excludedIds;
+
+        Blacklist(String value) {
+            this.value = value;
+            if (basenames != null) {
+                excludedIds = new boolean[basenames.length];
+                for (int id = 0; id < basenames.length; id++) {
+                    excludedIds[id] = value.contains(basenames[id]);
+                }
+            } else {
+                excludedIds = null;
+            }
+        }
+
+        /**
+         * @param unit a unit from this database, or a diphone unit starting with such a unit
+         * @return true if the unit's basename is blacklisted
+         */
+        public boolean excludes(Unit unit) {
+            if (excludedIds != null) {
+                return excludedIds[unitBasenameIds[unit.index]];
+            }
+            return value.contains(getFilename(unit));
+        }
     }
 
     /**
@@ -197,6 +317,9 @@ public class UnitDatabase {
      */
     public String getFilename(Unit unit) {
 //       if (basenameTimeline == null) return "unknown origin";
+        if (unitBasenameIds != null) {
+            return basenames[unitBasenameIds[unit.index]];
+        }
         try {
             Datagram filenameData = basenameTimeline.getDatagram(unit.startTime);
             String filename = new String(filenameData.getData(), "UTF-8");
@@ -21,6 +21,7 @@ package marytts.unitselection.select;
 import marytts.datatypes.MaryXML;
 import marytts.features.FeatureVector;
 import marytts.features.MaryGenericFeatureProcessors;
+import marytts.features.SentenceStructure;
 import marytts.modules.phonemiser.Allophone;
 import marytts.modules.phonemiser.AllophoneSet;
 import marytts.modules.synthesis.Voice;
@@ -55,6 +56,7 @@ public class Target {
     protected float duration = -1;
     protected float f0 = -1;
     protected int isSilence = -1;
+    protected SentenceStructure sentenceStructure = null;
 
     /**
      * Create a target associated to the given element in the MaryXML tree.
@@ -77,6 +79,26 @@ public class Target {
         return name;
     }
 
+    /**
+     * The structure index of the sentence containing this target, as used by the feature processors.
+     * If none was set, it is built from the sentence the first time it is requested.
+     *
+     * @return the sentence structure, or null if the target is not inside a sentence
+     */
+    public SentenceStructure getSentenceStructure() {
+        if (sentenceStructure == null && maryxmlElement != null) {
+            Element sentence = (Element) DomUtils.getAncestor(maryxmlElement, MaryXML.SENTENCE);
+            if (sentence != null) {
+                sentenceStructure = new SentenceStructure(sentence);
+            }
+        }
+        return sentenceStructure;
+    }
+
+    public void setSentenceStructure(SentenceStructure sentenceStructure) {
+        this.sentenceStructure = sentenceStructure;
+    }
+
     public FeatureVector getFeatureVector() {
         return featureVector;
     }
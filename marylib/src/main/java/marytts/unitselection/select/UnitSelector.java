@@ -25,8 +25,10 @@ import java.util.List;
 
 import marytts.datatypes.MaryXML;
 import marytts.exceptions.SynthesisException;
+import marytts.features.SentenceStructure;
 import marytts.server.Mary;
 import marytts.unitselection.data.UnitDatabase;
+import marytts.unitselection.select.viterbi.LatticeViterbi;
 import marytts.unitselection.select.viterbi.Viterbi;
 import mf.org.w3c.dom.Element;
 import mf.org.w3c.dom.NodeList;
@@ -45,6 +47,7 @@ public class UnitSelector {
     protected float targetCostWeight;
     protected float sCostWeight = -1;
     protected int beamSize;
+    protected boolean useLatticeViterbi = false;
 
     /**
      * Initialise the unit selector. Need to call load() separately.
@@ -81,6 +84,16 @@ public class UnitSelector {
         this.beamSize = beamSize;
     }
 
+    /**
+     * Choose the Viterbi search implementation.
+     *
+     * @param useLatticeViterbi if true, use the array-based {@link LatticeViterbi}; otherwise, the path-object-based {@link Viterbi}.
+     * Both select the same units.
+     */
+    public void setUseLatticeViterbi(boolean useLatticeViterbi) {
+        this.useLatticeViterbi = useLatticeViterbi;
+    }
+
     /**
      * Select the units for the targets in the given
      * list of tokens and boundaries. Collect them in a list and return it.
@@ -113,6 +126,7 @@ public class UnitSelector {
         }
 
         List<Target> targets = createTargets(segmentsAndBoundaries);
+        SentenceStructure.attach(targets);
         // compute target features for each target in the chain
         TargetCostFunction tcf = database.getTargetCostFunction();
         for (Target target : targets) {
@@ -121,7 +135,13 @@ public class UnitSelector {
 
         Viterbi viterbi;
         //Select the best candidates using Viterbi and the join cost function.
-        if (sCostWeight < 0) {
+        if (useLatticeViterbi) {
+            if (sCostWeight < 0) {
+                viterbi = new LatticeViterbi(targets, database, targetCostWeight, beamSize);
+            } else {
+                viterbi = new LatticeViterbi(targets, database, targetCostWeight, sCostWeight, beamSize);
+            }
+        } else if (sCostWeight < 0) {
             viterbi = new Viterbi(targets, database, targetCostWeight, beamSize);
         } else {
             viterbi = new Viterbi(targets, database, targetCostWeight, sCostWeight, beamSize);
@@ -0,0 +1,415 @@
+/**
+ * Copyright 2009 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ * <p/>
+ * This file is part of MARY TTS.
+ * <p/>
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ * <p/>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * <p/>
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package marytts.unitselection.select.viterbi;
+
+import android.util.Log;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+
+import marytts.exceptions.SynthesisException;
+import marytts.server.Mary;
+import marytts.unitselection.data.DiphoneUnit;
+import marytts.unitselection.data.Unit;
+import marytts.unitselection.data.UnitDatabase;
+import marytts.unitselection.select.DiphoneTarget;
+import marytts.unitselection.select.SelectedUnit;
+import marytts.unitselection.select.Target;
+
+/**
+ * A Viterbi search over a lattice stored in flat primitive arrays.
+ * <p/>
+ * Instead of a ViterbiPath object per path extension, the lattice keeps, for each candidate
+ * of each column, the score of the best path leading to it and the index of the previous
+ * candidate on that path. The arrays are kept per thread and reused across requests.
+ * Of the candidates for each target, only the <code>beamSize</code> ones with the lowest
+ * target cost are ever used; they are found by partial selection rather than by sorting
+ * all candidates.
+ * <p/>
+ * The search visits paths and candidates in exactly the same order as {@link Viterbi}, and breaks
+ * ties the same way, so that it selects the same units.
+ */
+public class LatticeViterbi extends Viterbi {
+    private static final int NO_PATH = -2;
+    private static final int START = -1;
+
+    private static final ThreadLocal<Lattice> lattices = new ThreadLocal<Lattice>() {
+        @Override
+        protected Lattice initialValue() {
+            return new Lattice();
+        }
+    };
+
+    // the candidates on the best path, in target order, or null if no path was found
+    private ViterbiCandidate[] bestPath;
+    // statistics of the last search
+    private long numCandidatesSearched;
+    private long numPathsSearched;
+
+    public LatticeViterbi(List<Target> targets, UnitDatabase database, float wTargetCosts, int beamSize) {
+        super(targets, database, wTargetCosts, beamSize);
+    }
+
+    public LatticeViterbi(List<Target> targets, UnitDatabase database, float wTargetCosts, float wSCosts, int beamSize) {
+        super(targets, database, wTargetCosts, wSCosts, beamSize);
+    }
+
+    /**
+     * Carry out the Viterbi search. See {@link Viterbi#apply()}.
+     *
+     * @throws SynthesisException if for any part of the target chain, no
+     *                            candidates can be found
+     */
+    @Override
+    public void apply() throws SynthesisException {
+        Log.d(Mary.LOG, "Lattice Viterbi running with beam size " + beamSize);
+        assert beamSize != 0; // general beam search not implemented
+        numCandidatesSearched = 0;
+        numPathsSearched = 0;
+        Lattice lattice = lattices.get();
+        lattice.clear();
+        long startTime = System.nanoTime();
+        try {
+            search(lattice);
+            recordMetrics(startTime, numCandidatesSearched, numPathsSearched);
+        } finally {
+            lattice.releaseCandidates();
+        }
+    }
+
+    private void search(Lattice lattice) throws SynthesisException {
+        // the previous column, i.e. the end points of the paths to extend;
+        // before the first column, there is just the empty start path.
+        int prevColumn = -1;
+        for (ViterbiPoint point = firstPoint; point.next != null; point = point.next) {
+            Target target = point.target;
+            List<ViterbiCandidate> candidates = database.getCandidates(target);
+            if (candidates.size() == 0) {
+                if (target instanceof DiphoneTarget) {
+                    Log.d(Mary.LOG, "No diphone '" + target.getName() + "' -- will build from halfphones");
+                    DiphoneTarget dt = (DiphoneTarget) target;
+                    // replace diphone viterbi point with two half-phone viterbi points
+                    Target left = dt.left;
+                    Target right = dt.right;
+                    point.setTarget(left);
+                    ViterbiPoint newP = new ViterbiPoint(right);
+                    newP.next = point.next;
+                    point.next = newP;
+                    candidates = database.getCandidates(left);
+                    if (candidates.size() == 0)
+                        throw new SynthesisException("Cannot even find any halfphone unit for target " + left);
+                } else {
+                    throw new SynthesisException("Cannot find any units for target " + target);
+                }
+            }
+            assert candidates.size() > 0;
+            numCandidatesSearched += candidates.size();
+
+            int column = lattice.addColumn(candidates, beamSize);
+            int start = lattice.columnStart[column];
+            int numCandidates = lattice.columnStart[column + 1] - start;
+
+            // Extend the paths ending in the previous column, in their order of insertion,
+            // to the candidates of this column, in order of increasing target cost:
+            int nPaths;
+            int pathEnd;
+            if (prevColumn < 0) {
+                nPaths = 1;
+                pathEnd = START;
+            } else {
+                nPaths = lattice.columnStart[prevColumn + 1] - lattice.columnStart[prevColumn];
+                pathEnd = lattice.orderHead[prevColumn];
+            }
+            if (beamSize != -1 && beamSize < nPaths) {
+                // beam search, look only at the first n paths:
+                nPaths = beamSize;
+            }
+            for (int i = 0; i < nPaths; i++) {
+                ViterbiCandidate prevCandidate;
+                double prevScore;
+                if (pathEnd == START) {
+                    prevCandidate = null;
+                    prevScore = 0;
+                } else {
+                    prevCandidate = lattice.candidates[pathEnd];
+                    prevScore = lattice.score[pathEnd];
+                }
+                for (int c = start; c < start + numCandidates; c++) {
+                    double cost = getCost(prevCandidate, lattice.candidates[c]) + prevScore;
+                    // only retain the best path leading to each candidate:
+                    if (lattice.back[c] == NO_PATH) {
+                        lattice.score[c] = cost;
+                        lattice.back[c] = pathEnd;
+                        lattice.append(column, c);
+                    } else if (cost < lattice.score[c]) {
+                        lattice.score[c] = cost;
+                        lattice.back[c] = pathEnd;
+                        lattice.remove(column, c);
+                        lattice.append(column, c);
+                    }
+                }
+                numPathsSearched += numCandidates;
+                if (pathEnd != START) {
+                    pathEnd = lattice.orderNext[pathEnd];
+                }
+            }
+            prevColumn = column;
+        }
+
+        // Find the best of the paths ending in the last column; for equal scores, the first one wins.
+        bestPath = null;
+        if (prevColumn < 0) {
+            return;
+        }
+        int best = -1;
+        for (int c = lattice.orderHead[prevColumn]; c >= 0; c = lattice.orderNext[c]) {
+            if (best < 0 || lattice.score[c] < lattice.score[best]) {
+                best = c;
+            }
+        }
+        if (best < 0) {
+            return;
+        }
+        bestPath = new ViterbiCandidate[prevColumn + 1];
+        for (int c = best, column = prevColumn; c >= 0; c = lattice.back[c], column--) {
+            bestPath[column] = lattice.candidates[c];
+        }
+    }
+
+    /**
+     * Collect and return the best path, as a List of SelectedUnit objects.
+     *
+     * @return the list of selected units, or null if no path could be found.
+     */
+    @Override
+    public List<SelectedUnit> getSelectedUnits() {
+        LinkedList<SelectedUnit> selectedUnits = new LinkedList<SelectedUnit>();
+        if (firstPoint == null || firstPoint.getNext() == null) {
+            return selectedUnits; // null case
+        }
+        if (bestPath == null) {
+            return null;
+        }
+        for (ViterbiCandidate candidate : bestPath) {
+            Unit u = candidate.unit;
+            Target t = candidate.target;
+            if (u instanceof DiphoneUnit) {
+                assert t instanceof DiphoneTarget;
+                DiphoneUnit du = (DiphoneUnit) u;
+                DiphoneTarget dt = (DiphoneTarget) t;
+                selectedUnits.add(new SelectedUnit(du.left, dt.left));
+                selectedUnits.add(new SelectedUnit(du.right, dt.right));
+            } else {
+                selectedUnits.add(new SelectedUnit(u, t));
+            }
+        }
+        return selectedUnits;
+    }
+
+    /**
+     * The lattice columns, stored back to back in flat arrays indexed by candidate.
+     * Within each column, the candidates that have a path are kept in a doubly linked list
+     * in the order in which their current best path was found, mirroring the path list of a ViterbiPoint.
+     */
+    private static final class Lattice {
+        ViterbiCandidate[] candidates = new ViterbiCandidate[1024];
+        double[] score = new double[1024];
+        int[] back = new int[1024];
+        int[] orderNext = new int[1024];
+        int[] orderPrev = new int[1024];
+        // candidates of column i are at columnStart[i] .. columnStart[i+1]-1
+        int[] columnStart = new int[129];
+        int[] orderHead = new int[128];
+        int[] orderTail = new int[128];
+        int numColumns;
+        // scratch space for candidate preselection
+        int[] order = new int[1024];
+        double[] keys = new double[1024];
+
+        void clear() {
+            numColumns = 0;
+            columnStart[0] = 0;
+        }
+
+        /**
+         * Drop the references to candidates, so that they can be garbage collected while the lattice is not in use.
+         */
+        void releaseCandidates() {
+            Arrays.fill(candidates, 0, columnStart[numColumns], null);
+        }
+
+        /**
+         * Add a column for the given candidates. Only the first n candidates in order of increasing target cost are
+         * added, where n is the beam size; for equal target costs, the original order of the candidates is kept.
+         *
+         * @return the index of the new column
+         */
+        int addColumn(List<ViterbiCandidate> candidateList, int beamSize) {
+            int n = candidateList.size();
+            int k = (beamSize > 0 && beamSize < n) ? beamSize : n;
+            if (order.length < n) {
+                order = new int[n];
+                keys = new double[n];
+            }
+            for (int i = 0; i < n; i++) {
+                order[i] = i;
+                keys[i] = candidateList.get(i).targetCost;
+            }
+            if (k < n) {
+                select(order, keys, 0, n - 1, k);
+            }
+            sort(order, keys, 0, k - 1);
+
+            int column = numColumns;
+            if (columnStart.length < column + 2) {
+                columnStart = Arrays.copyOf(columnStart, 2 * columnStart.length);
+                orderHead = Arrays.copyOf(orderHead, columnStart.length - 1);
+                orderTail = Arrays.copyOf(orderTail, columnStart.length - 1);
+            }
+            int start = columnStart[column];
+            ensureCapacity(start + k);
+            for (int i = 0; i < k; i++) {
+                candidates[start + i] = candidateList.get(order[i]);
+                back[start + i] = NO_PATH;
+            }
+            columnStart[column + 1] = start + k;
+            orderHead[column] = -1;
+            orderTail[column] = -1;
+            numColumns++;
+            return column;
+        }
+
+        private void ensureCapacity(int size) {
+            if (candidates.length < size) {
+                int newSize = Math.max(size, 2 * candidates.length);
+                candidates = Arrays.copyOf(candidates, newSize);
+                score = Arrays.copyOf(score, newSize);
+                back = Arrays.copyOf(back, newSize);
+                orderNext = Arrays.copyOf(orderNext, newSize);
+                orderPrev = Arrays.copyOf(orderPrev, newSize);
+            }
+        }
+
+        void append(int column, int c) {
+            int tail = orderTail[column];
+            orderPrev[c] = tail;
+            orderNext[c] = -1;
+            if (tail < 0) {
+                orderHead[column] = c;
+            } else {
+                orderNext[tail] = c;
+            }
+            orderTail[column] = c;
+        }
+
+        void remove(int column, int c) {
+            int prev = orderPrev[c];
+            int next = orderNext[c];
+            if (prev < 0) {
+                orderHead[column] = next;
+            } else {
+                orderNext[prev] = next;
+            }
+            if (next < 0) {
+                orderTail[column] = prev;
+            } else {
+                orderPrev[next] = prev;
+            }
+        }
+
+        /**
+         * Total order on candidate indices: by key, then by original position.
+         */
+        private static boolean less(int a, int b, double[] keys) {
+            return keys[a] < keys[b] || (keys[a] == keys[b] && a < b);
+        }
+
+        /**
+         * Rearrange order[lo..hi] such that its k smallest elements come first (in no particular order).
+         */
+        private static void select(int[] order, double[] keys, int lo, int hi, int k) {
+            int target = lo + k - 1;
+            while (hi > lo) {
+                int p = partition(order, keys, lo, hi);
+                if (p == target) {
+                    return;
+                } else if (p < target) {
+                    lo = p + 1;
+                } else {
+                    hi = p - 1;
+                }
+            }
+        }
+
+        private static void sort(int[] order, double[] keys, int lo, int hi) {
+            while (hi - lo > 16) {
+                int p = partition(order, keys, lo, hi);
+                // recurse into the smaller part, loop over the larger one
+                if (p - lo < hi - p) {
+                    sort(order, keys, lo, p - 1);
+                    lo = p + 1;
+                } else {
+                    sort(order, keys, p + 1, hi);
+                    hi = p - 1;
+                }
+            }
+            for (int i = lo + 1; i <= hi; i++) {
+                int x = order[i];
+                int j = i - 1;
+                while (j >= lo && less(x, order[j], keys)) {
+                    order[j + 1] = order[j];
+                    j--;
+                }
+                order[j + 1] = x;
+            }
+        }
+
+        /**
+         * Partition order[lo..hi] around a median-of-three pivot.
+         *
+         * @return the final position of the pivot
+         */
+        private static int partition(int[] order, double[] keys, int lo, int hi) {
+            int mid = (lo + hi) >>> 1;
+            if (less(order[mid], order[lo], keys)) swap(order, lo, mid);
+            if (less(order[hi], order[lo], keys)) swap(order, lo, hi);
+            if (less(order[hi], order[mid], keys)) swap(order, mid, hi);
+            // the median is now at mid; move it out of the way
+            swap(order, mid, hi);
+            int pivot = order[hi];
+            int store = lo;
+            for (int i = lo; i < hi; i++) {
+                if (less(order[i], pivot, keys)) {
+                    swap(order, i, store);
+                    store++;
+                }
+            }
+            swap(order, store, hi);
+            return store;
+        }
+
+        private static void swap(int[] order, int i, int j) {
+            int tmp = order[i];
+            order[i] = order[j];
+            order[j] = tmp;
+        }
+    }
+}
@@ -41,6 +41,7 @@ import java.util.Map;
 
 import marytts.exceptions.SynthesisException;
 import marytts.server.Mary;
+import marytts.server.metrics.Metrics;
 import marytts.unitselection.data.DiphoneUnit;
 import marytts.unitselection.data.Unit;
 import marytts.unitselection.data.UnitDatabase;
@@ -102,7 +103,7 @@ public class Viterbi {
     protected int nJoinCosts;
     protected double cumulTargetCosts;
     protected int nTargetCosts;
-    private UnitDatabase database;
+    protected UnitDatabase database;
 
 
     /**
@@ -207,6 +208,9 @@ public class Viterbi {
      */
     public void apply() throws SynthesisException {
         Log.d(Mary.LOG, "Viterbi running with beam size " + beamSize);
+        long startTime = System.nanoTime();
+        long numCandidates = 0;
+        long numPaths = 0;
         //go through all but the last point
         //(since last point has no item)
         for (ViterbiPoint point = firstPoint; point.next != null; point = point.next) {
@@ -233,6 +237,7 @@ public class Viterbi {
                 }
             }
             assert candidates.size() > 0;
+            numCandidates += candidates.size();
 
             // absolutely critical since candidates is no longer a SortedSet:
             Collections.sort(candidates);
@@ -272,11 +277,26 @@ public class Viterbi {
                     // (if any) leading to candidate c; only retain 
                     // the one with the better score.
                     addPath(point.next, np);
+                    numPaths++;
                     if (++j == jMax) break;
                 }
                 if (++i == iMax) break;
             }
         }
+        recordMetrics(startTime, numCandidates, numPaths);
+    }
+
+    /**
+     * Record the statistics of one search in the {@link Metrics}.
+     *
+     * @param startTime     System.nanoTime() when the search started
+     * @param numCandidates the number of candidate units for all targets
+     * @param numPaths      the number of path extensions evaluated
+     */
+    protected void recordMetrics(long startTime, long numCandidates, long numPaths) {
+        Metrics.recordTimeSince("viterbi.time", startTime);
+        Metrics.record("viterbi.candidates", numCandidates);
+        Metrics.record("viterbi.paths", numPaths);
     }
 
     /**
@@ -455,6 +475,23 @@ public class Viterbi {
      * with the cumulative (penalty) score calculated.
      */
     private ViterbiPath getPath(ViterbiPath path, ViterbiCandidate candidate) {
+        double cost = getCost(path != null ? path.candidate : null, candidate);
+        if (path != null) {
+            cost += path.score;
+        }
+
+        return new ViterbiPath(candidate, path, cost);
+    }
+
+    /**
+     * Compute the (penalty) cost of appending the given candidate to the given previous candidate,
+     * as the weighted sum of the candidate's target cost and the join cost.
+     *
+     * @param prevCandidate the previous candidate, or null if this candidate starts a new path
+     * @param candidate     the candidate to append
+     * @return the cost of the transition, not including the score of the path up to prevCandidate.
+     */
+    protected double getCost(ViterbiCandidate prevCandidate, ViterbiCandidate candidate) {
         double cost;
 
         Target candidateTarget = candidate.target;
@@ -466,11 +503,10 @@ public class Viterbi {
         // Target costs:
         targetCost = candidate.targetCost;
 
-        if (path == null || path.candidate == null) {
+        if (prevCandidate == null) {
             joinCost = 0;
         } else {
             // Join costs:
-            ViterbiCandidate prevCandidate = path.candidate;
             Target prevTarget = prevCandidate.target;
             Unit prevUnit = prevCandidate.unit;
             joinCost = joinCostFunction.cost(prevTarget, prevUnit, candidateTarget, candidateUnit);
@@ -489,12 +525,7 @@ public class Viterbi {
         cumulTargetCosts += targetCost;
         nTargetCosts++;
         //logger.debug(candidateUnit+": target cost "+targetCost+", join cost "+joinCost);
-
-        if (path != null) {
-            cost += path.score;
-        }
-
-        return new ViterbiPath(candidate, path, cost);
+        return cost;
     }
 
     /**
@@ -0,0 +1,127 @@
+/**
+ * Copyright 2009 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ * <p/>
+ * This file is part of MARY TTS.
+ * <p/>
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ * <p/>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * <p/>
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package marytts.util.cache;
+
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+
+import marytts.server.Mary;
+import marytts.server.MaryProperties;
+import marytts.util.MaryCache;
+
+/**
+ * Creates and holds the synthesis cache configured in the MARY properties.
+ * <p/>
+ * The implementation is selected with the property <code>cache.type</code>:
+ * <ul>
+ * <li><code>memory</code> (default): a {@link MemoryCache} limited to <code>cache.memory.maxbytes</code>;</li>
+ * <li><code>file</code>: a {@link SegmentFileCache} using the file prefix <code>cache.file</code>,
+ * with segments of <code>cache.segment.maxbytes</code>;</li>
+ * <li><code>hsql</code>: the HSQL database {@link MaryCache} in <code>cache.file</code>.</li>
+ * </ul>
+ * For the persistent caches, <code>cache.clearOnStart</code> determines whether old entries are discarded.
+ */
+public class CacheFactory {
+    public static final long DEFAULT_MEMORY_MAXBYTES = 64 * 1024 * 1024;
+
+    private static volatile SynthesisCache cache;
+
+    private CacheFactory() {
+    }
+
+    /**
+     * Try to get the synthesis cache. This will either return the previously
+     * created cache, or if none exists, it will try to create one.
+     * <p/>
+     * To the extent possible this method gives the no-throw guarantee: if the cache
+     * cannot be created, null will be returned and any exception will be logged.
+     *
+     * @return the cache singleton object, or null if none could be created.
+     * @see #haveCache if you just want to check if the cache exists.
+     */
+    public static SynthesisCache getCache() {
+        SynthesisCache c = cache;
+        if (c == null) {
+            synchronized (CacheFactory.class) {
+                c = cache;
+                if (c == null) {
+                    try {
+                        c = createCache();
+                        cache = c;
+                    } catch (Exception e) {
+                        Log.w(Mary.LOG, "Cannot set up cache", e);
+                    }
+                }
+            }
+        }
+        return c;
+    }
+
+    private static SynthesisCache createCache() throws Exception {
+        String type = MaryProperties.getProperty("cache.type", "memory").trim();
+        if (type.equals("memory")) {
+            long maxBytes = DEFAULT_MEMORY_MAXBYTES;
+            String maxBytesString = MaryProperties.getProperty("cache.memory.maxbytes");
+            if (maxBytesString != null) {
+                maxBytes = Long.parseLong(maxBytesString.trim());
+            }
+            return new MemoryCache(maxBytes);
+        } else if (type.equals("file")) {
+            File targetFile = new File(MaryProperties.getFilename("cache.file", "maryCache"));
+            long segmentSize = SegmentFileCache.DEFAULT_SEGMENT_SIZE;
+            String segmentSizeString = MaryProperties.getProperty("cache.segment.maxbytes");
+            if (segmentSizeString != null) {
+                segmentSize = Long.parseLong(segmentSizeString.trim());
+            }
+            return new SegmentFileCache(targetFile, MaryProperties.getBoolean("cache.clearOnStart", false), segmentSize);
+        } else if (type.equals("hsql")) {
+            MaryCache maryCache = MaryCache.getCache();
+            if (maryCache == null) {
+                throw new IOException("Cannot open HSQL cache");
+            }
+            return new HsqlCache(maryCache);
+        }
+        throw new IllegalArgumentException("Unknown cache.type '" + type + "' -- expected memory, file or hsql");
+    }
+
+    /**
+     * Indicate whether there is a synthesis cache currently available.
+     *
+     * @return true if there is a cache, false otherwise.
+     */
+    public static boolean haveCache() {
+        return cache != null;
+    }
+
+    /**
+     * Shut down the cache, if there is one. A later call to {@link #getCache()} will create a new one.
+     *
+     * @throws IOException if the cache cannot be shut down cleanly.
+     */
+    public static synchronized void shutdown() throws IOException {
+        SynthesisCache c = cache;
+        cache = null;
+        if (c != null) {
+            c.shutdown();
+        }
+    }
+}
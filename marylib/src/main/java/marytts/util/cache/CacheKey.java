@@ -0,0 +1,236 @@
+/**
+ * Copyright 2009 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ * <p/>
+ * This file is part of MARY TTS.
+ * <p/>
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ * <p/>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * <p/>
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package marytts.util.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.UnsupportedEncodingException;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+import com.twmacinta.io.NullOutputStream;
+import com.twmacinta.util.MD5;
+
+import marytts.datatypes.MaryData;
+
+/**
+ * The key of a cache record: a 128-bit digest of the request parameters
+ * (input type, output type, locale, voice, output parameters, style, effects) and of the input data.
+ * Two keys are equal if their digests are equal.
+ * <p/>
+ * The request parameters and, optionally, the input text are kept as well,
+ * for caches which need them (see {@link SynthesisCache#needsInputText()}).
+ */
+public final class CacheKey {
+    private final String inputtype;
+    private final String outputtype;
+    private final String locale;
+    private final String voice;
+    private final String outputparams;
+    private final String style;
+    private final String effects;
+    private final String inputtext;
+    private final byte[] inputDigest;
+    private final byte[] digest;
+    private final int hash;
+
+    /**
+     * Create a key for the given request parameters.
+     *
+     * @param inputtype    the request's input type. Must not be null.
+     * @param outputtype   the request's output type. Must not be null.
+     * @param locale       the locale of the request. Must not be null.
+     * @param voice        the voice of the request. Can be null.
+     * @param outputparams optionally, any output parameters. Can be null.
+     * @param style        optionally, any style. Can be null.
+     * @param effects      optionally, any effects. Can be null.
+     * @param input        the request's input data. Must not be null.
+     * @param keepInputText whether the key should keep the serialized input as text;
+     *                      if false, the input is serialized into the digest only.
+     * @throws Exception if the input data cannot be serialized.
+     */
+    public static CacheKey create(String inputtype, String outputtype, String locale, String voice, String outputparams,
+                                  String style, String effects, MaryData input, boolean keepInputText) throws Exception {
+        if (inputtype == null || outputtype == null || locale == null || input == null) {
+            throw new NullPointerException("Null argument");
+        }
+        byte[] inputDigest;
+        String inputtext = null;
+        MessageDigest md5 = newDigest();
+        if (keepInputText) {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            input.writeTo(baos);
+            byte[] inputBytes = baos.toByteArray();
+            inputtext = new String(inputBytes, "UTF-8");
+            inputDigest = md5.digest(inputBytes);
+        } else {
+            // serialize straight into the digest, without keeping the bytes
+            input.writeTo(new DigestOutputStream(new NullOutputStream(), md5));
+            inputDigest = md5.digest();
+        }
+        return new CacheKey(inputtype, outputtype, locale, voice, outputparams, style, effects, inputtext, inputDigest);
+    }
+
+    private CacheKey(String inputtype, String outputtype, String locale, String voice, String outputparams,
+                     String style, String effects, String inputtext, byte[] inputDigest) {
+        this.inputtype = inputtype;
+        this.outputtype = outputtype;
+        this.locale = locale;
+        this.voice = voice;
+        this.outputparams = outputparams;
+        this.style = style;
+        this.effects = effects;
+        this.inputtext = inputtext;
+        this.inputDigest = inputDigest;
+        MessageDigest md5 = newDigest();
+        for (String field : new String[]{inputtype, outputtype, locale, voice, outputparams, style, effects}) {
+            if (field == null) {
+                md5.update((byte) 1);
+            } else {
+                try {
+                    md5.update(field.getBytes("UTF-8"));
+                } catch (UnsupportedEncodingException e) {
+                    throw new AssertionError(e);
+                }
+            }
+            md5.update((byte) 0);
+        }
+        md5.update(inputDigest);
+        this.digest = md5.digest();
+        this.hash = hashOf(digest);
+    }
+
+    /**
+     * A key consisting only of a digest, as read back from a persistent cache.
+     */
+    CacheKey(byte[] digest) {
+        if (digest.length != 16) {
+            throw new IllegalArgumentException("Expected a 128-bit digest");
+        }
+        this.inputtype = null;
+        this.outputtype = null;
+        this.locale = null;
+        this.voice = null;
+        this.outputparams = null;
+        this.style = null;
+        this.effects = null;
+        this.inputtext = null;
+        this.inputDigest = null;
+        this.digest = digest;
+        this.hash = hashOf(digest);
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError(e); // every Java platform must support MD5
+        }
+    }
+
+    private static int hashOf(byte[] digest) {
+        return (digest[0] & 0xFF) << 24 | (digest[1] & 0xFF) << 16 | (digest[2] & 0xFF) << 8 | (digest[3] & 0xFF);
+    }
+
+    /**
+     * A key for the same request input, but a different output type.
+     *
+     * @param otherOutputtype the output type of the new key.
+     * @return a new key
+     */
+    public CacheKey withOutputType(String otherOutputtype) {
+        if (inputDigest == null) {
+            throw new IllegalStateException("Key has no request parameters");
+        }
+        return new CacheKey(inputtype, otherOutputtype, locale, voice, outputparams, style, effects, inputtext, inputDigest);
+    }
+
+    /**
+     * A copy of this key without the request parameters and input text,
+     * suitable for keeping in an index.
+     */
+    CacheKey digestOnly() {
+        return inputDigest == null ? this : new CacheKey(digest);
+    }
+
+    /**
+     * @return a copy of the 128-bit digest of this key
+     */
+    public byte[] getDigest() {
+        return digest.clone();
+    }
+
+    byte[] digest() {
+        return digest;
+    }
+
+    public String getInputType() {
+        return inputtype;
+    }
+
+    public String getOutputType() {
+        return outputtype;
+    }
+
+    public String getLocale() {
+        return locale;
+    }
+
+    public String getVoice() {
+        return voice;
+    }
+
+    public String getOutputParams() {
+        return outputparams;
+    }
+
+    public String getStyle() {
+        return style;
+    }
+
+    public String getEffects() {
+        return effects;
+    }
+
+    /**
+     * @return the serialized input, or null if the key was created without keeping it
+     */
+    public String getInputText() {
+        return inputtext;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof CacheKey)) return false;
+        return Arrays.equals(digest, ((CacheKey) o).digest);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return MD5.asHex(digest);
+    }
+}
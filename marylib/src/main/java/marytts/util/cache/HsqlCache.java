@@ -0,0 +1,93 @@
+/**
+ * Copyright 2009 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ * <p/>
+ * This file is part of MARY TTS.
+ * <p/>
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ * <p/>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * <p/>
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package marytts.util.cache;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.sql.SQLException;
+
+import marytts.util.MaryCache;
+
+/**
+ * A synthesis cache backed by the HSQL database of {@link MaryCache}.
+ * Records are stored with their full request fields and input text,
+ * so that the database can be inspected with SQL tools.
+ */
+public class HsqlCache implements SynthesisCache {
+    private final MaryCache maryCache;
+
+    public HsqlCache(MaryCache maryCache) {
+        if (maryCache == null) {
+            throw new NullPointerException("Null cache");
+        }
+        this.maryCache = maryCache;
+    }
+
+    @Override
+    public byte[] lookup(CacheKey key) throws IOException {
+        try {
+            if (isAudio(key)) {
+                return maryCache.lookupAudio(key.getInputType(), key.getLocale(), key.getVoice(), key.getOutputParams(),
+                        key.getStyle(), key.getEffects(), key.getInputText());
+            }
+            String outputtext = maryCache.lookupText(key.getInputType(), key.getOutputType(), key.getLocale(), key.getVoice(),
+                    key.getOutputParams(), key.getStyle(), key.getEffects(), key.getInputText());
+            return outputtext != null ? outputtext.getBytes("UTF-8") : null;
+        } catch (SQLException e) {
+            throw new IOException("Cannot look up " + key + " in cache", e);
+        }
+    }
+
+    @Override
+    public void insert(CacheKey key, byte[] data) throws IOException {
+        try {
+            if (isAudio(key)) {
+                maryCache.insertAudio(key.getInputType(), key.getLocale(), key.getVoice(), key.getOutputParams(),
+                        key.getStyle(), key.getEffects(), key.getInputText(), data);
+            } else {
+                maryCache.insertText(key.getInputType(), key.getOutputType(), key.getLocale(), key.getVoice(),
+                        key.getOutputParams(), key.getStyle(), key.getEffects(), key.getInputText(), new String(data, "UTF-8"));
+            }
+        } catch (SQLException e) {
+            throw new IOException("Cannot insert " + key + " into cache", e);
+        }
+    }
+
+    private static boolean isAudio(CacheKey key) throws IOException {
+        if (key.getInputText() == null) {
+            throw new IOException("HSQL cache needs keys created with input text");
+        }
+        return "AUDIO".equals(key.getOutputType());
+    }
+
+    @Override
+    public boolean needsInputText() {
+        return true;
+    }
+
+    @Override
+    public void shutdown() throws IOException {
+        try {
+            maryCache.shutdown();
+        } catch (SQLException e) {
+            throw new IOException("Cannot shut down cache", e);
+        }
+    }
+}
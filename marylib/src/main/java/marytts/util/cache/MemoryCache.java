@@ -0,0 +1,138 @@
+/**
+ * Copyright 2009 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ * <p/>
+ * This file is part of MARY TTS.
+ * <p/>
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ * <p/>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * <p/>
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package marytts.util.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * An in-memory least-recently-used cache bounded by the total size of the stored data.
+ * <p/>
+ * The records are spread over a number of independently locked stripes, each holding
+ * an equal share of the size budget, so that concurrent requests rarely wait for each other.
+ */
+public class MemoryCache implements SynthesisCache {
+    public static final int DEFAULT_NUM_STRIPES = 16;
+
+    private final Stripe[] stripes;
+
+    /**
+     * @param maxBytes the maximum total number of bytes of data to keep in memory
+     */
+    public MemoryCache(long maxBytes) {
+        this(maxBytes, DEFAULT_NUM_STRIPES);
+    }
+
+    /**
+     * @param maxBytes   the maximum total number of bytes of data to keep in memory
+     * @param numStripes the number of independently locked parts of the cache
+     */
+    public MemoryCache(long maxBytes, int numStripes) {
+        if (maxBytes <= 0 || numStripes <= 0) {
+            throw new IllegalArgumentException("size and number of stripes must be positive");
+        }
+        stripes = new Stripe[numStripes];
+        for (int i = 0; i < numStripes; i++) {
+            stripes[i] = new Stripe(maxBytes / numStripes);
+        }
+    }
+
+    private Stripe stripeFor(CacheKey key) {
+        return stripes[(key.hashCode() & 0x7FFFFFFF) % stripes.length];
+    }
+
+    @Override
+    public byte[] lookup(CacheKey key) {
+        return stripeFor(key).get(key);
+    }
+
+    @Override
+    public void insert(CacheKey key, byte[] data) {
+        if (key == null || data == null) {
+            throw new NullPointerException("Null argument");
+        }
+        stripeFor(key).put(key.digestOnly(), data);
+    }
+
+    @Override
+    public boolean needsInputText() {
+        return false;
+    }
+
+    @Override
+    public void shutdown() {
+        for (Stripe s : stripes) {
+            s.clear();
+        }
+    }
+
+    /**
+     * @return the total number of bytes of data currently held
+     */
+    public long getSizeInBytes() {
+        long size = 0;
+        for (Stripe s : stripes) {
+            size += s.getSizeInBytes();
+        }
+        return size;
+    }
+
+    private static class Stripe {
+        private final long maxBytes;
+        private final LinkedHashMap<CacheKey, byte[]> entries = new LinkedHashMap<CacheKey, byte[]>(16, 0.75f, true);
+        private long bytes = 0;
+
+        Stripe(long maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        synchronized byte[] get(CacheKey key) {
+            return entries.get(key);
+        }
+
+        synchronized void put(CacheKey key, byte[] data) {
+            if (data.length > maxBytes) {
+                return; // would evict everything else and still not fit
+            }
+            byte[] old = entries.put(key, data);
+            if (old != null) {
+                bytes -= old.length;
+            }
+            bytes += data.length;
+            // evict least recently used entries until we are within budget
+            Iterator<Map.Entry<CacheKey, byte[]>> it = entries.entrySet().iterator();
+            while (bytes > maxBytes && it.hasNext()) {
+                Map.Entry<CacheKey, byte[]> eldest = it.next();
+                bytes -= eldest.getValue().length;
+                it.remove();
+            }
+        }
+
+        synchronized void clear() {
+            entries.clear();
+            bytes = 0;
+        }
+
+        synchronized long getSizeInBytes() {
+            return bytes;
+        }
+    }
+}
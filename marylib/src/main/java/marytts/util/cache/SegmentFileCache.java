@@ -0,0 +1,234 @@
+/**
+ * Copyright 2009 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ * <p/>
+ * This file is part of MARY TTS.
+ * <p/>
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ * <p/>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * <p/>
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package marytts.util.cache;
+
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import marytts.server.Mary;
+
+/**
+ * A persistent cache made of append-only segment files, with an in-memory index
+ * mapping key digests to record positions.
+ * <p/>
+ * Each record is written as: a magic number, the 16-byte key digest, the data length and the data.
+ * Records are only ever appended, to the newest segment; when it grows beyond the segment size,
+ * a new segment is started. On startup, the index is rebuilt by scanning all segments;
+ * an incomplete record at the end of a segment (e.g. after a crash) is ignored and overwritten.
+ * <p/>
+ * Lookups read from the segment files without locking; inserts are serialized.
+ */
+public class SegmentFileCache implements SynthesisCache {
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    private static final int RECORD_MAGIC = 0x4D435231; // "MCR1"
+    private static final int HEADER_SIZE = 4 + 16 + 4;
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    private final File directory;
+    private final String prefix;
+    private final long segmentSize;
+    private final List<FileChannel> segments = new CopyOnWriteArrayList<FileChannel>();
+    private final List<RandomAccessFile> segmentFiles = new ArrayList<RandomAccessFile>();
+    // record position: segment number in the upper 24 bits, offset in the lower 40 bits
+    private final ConcurrentHashMap<CacheKey, Long> index = new ConcurrentHashMap<CacheKey, Long>();
+    private long writePos;
+
+    /**
+     * Open or create a segment file cache.
+     *
+     * @param cacheFile   the file name prefix for the segment files; segments are named prefix-00000.seg etc.
+     * @param clearCache  if true, delete any existing segments; if false, keep them.
+     * @param segmentSize the size in bytes beyond which a new segment is started.
+     * @throws IOException if the segment files cannot be opened or created.
+     */
+    public SegmentFileCache(File cacheFile, boolean clearCache, long segmentSize) throws IOException {
+        this.directory = cacheFile.getAbsoluteFile().getParentFile();
+        this.prefix = cacheFile.getName();
+        this.segmentSize = segmentSize;
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create cache directory " + directory);
+        }
+        for (int i = 0; segmentFile(i).exists(); i++) {
+            if (clearCache) {
+                if (!segmentFile(i).delete()) {
+                    throw new IOException("Cannot delete cache segment " + segmentFile(i));
+                }
+            } else {
+                openSegment(i);
+                writePos = scanSegment(i);
+            }
+        }
+        if (segments.isEmpty()) {
+            openSegment(0);
+            writePos = 0;
+        }
+        // forget about any incomplete record at the end of the newest segment
+        currentSegment().truncate(writePos);
+        Log.i(Mary.LOG, "Segment file cache " + cacheFile + ": " + segments.size() + " segment(s), " + index.size() + " records");
+    }
+
+    private File segmentFile(int i) {
+        return new File(directory, String.format("%s-%05d%s", prefix, i, SEGMENT_SUFFIX));
+    }
+
+    private void openSegment(int i) throws FileNotFoundException {
+        RandomAccessFile raf = new RandomAccessFile(segmentFile(i), "rw");
+        segmentFiles.add(raf);
+        segments.add(raf.getChannel());
+    }
+
+    private FileChannel currentSegment() {
+        return segments.get(segments.size() - 1);
+    }
+
+    /**
+     * Add the records of the given segment to the index.
+     *
+     * @return the position after the last complete record
+     */
+    private long scanSegment(int segment) throws IOException {
+        FileChannel channel = segments.get(segment);
+        long size = channel.size();
+        long pos = 0;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        while (pos + HEADER_SIZE <= size) {
+            header.clear();
+            readFully(channel, header, pos);
+            header.flip();
+            if (header.getInt() != RECORD_MAGIC) {
+                Log.w(Mary.LOG, "Corrupt record in cache segment " + segmentFile(segment) + " at " + pos + ", ignoring rest of segment");
+                break;
+            }
+            byte[] digest = new byte[16];
+            header.get(digest);
+            int length = header.getInt();
+            if (length < 0 || pos + HEADER_SIZE + length > size) {
+                break; // incomplete record
+            }
+            index.put(new CacheKey(digest), position(segment, pos));
+            pos += HEADER_SIZE + length;
+        }
+        return pos;
+    }
+
+    private static long position(int segment, long offset) {
+        return ((long) segment << 40) | offset;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buf, long pos) throws IOException {
+        while (buf.hasRemaining()) {
+            int n = channel.read(buf, pos);
+            if (n < 0) {
+                throw new IOException("Unexpected end of cache segment");
+            }
+            pos += n;
+        }
+    }
+
+    @Override
+    public byte[] lookup(CacheKey key) throws IOException {
+        Long position = index.get(key);
+        if (position == null) {
+            return null;
+        }
+        FileChannel channel = segments.get((int) (position >>> 40));
+        long offset = position & ((1L << 40) - 1);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        readFully(channel, header, offset);
+        header.flip();
+        if (header.getInt() != RECORD_MAGIC) {
+            throw new IOException("Corrupt cache record at " + offset);
+        }
+        byte[] digest = new byte[16];
+        header.get(digest);
+        if (!Arrays.equals(digest, key.digest())) {
+            throw new IOException("Cache index out of sync at " + offset);
+        }
+        byte[] data = new byte[header.getInt()];
+        readFully(channel, ByteBuffer.wrap(data), offset + HEADER_SIZE);
+        return data;
+    }
+
+    @Override
+    public synchronized void insert(CacheKey key, byte[] data) throws IOException {
+        if (key == null || data == null) {
+            throw new NullPointerException("Null argument");
+        }
+        if (index.containsKey(key)) {
+            return;
+        }
+        if (writePos > 0 && writePos + HEADER_SIZE + data.length > segmentSize) {
+            currentSegment().force(false);
+            openSegment(segments.size());
+            writePos = 0;
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(RECORD_MAGIC);
+        header.put(key.digest());
+        header.putInt(data.length);
+        header.flip();
+        FileChannel channel = currentSegment();
+        long pos = writePos;
+        while (header.hasRemaining()) {
+            pos += channel.write(header, pos);
+        }
+        ByteBuffer body = ByteBuffer.wrap(data);
+        while (body.hasRemaining()) {
+            pos += channel.write(body, pos);
+        }
+        // only make the record visible once it is completely written
+        index.put(key.digestOnly(), position(segments.size() - 1, writePos));
+        writePos = pos;
+    }
+
+    @Override
+    public boolean needsInputText() {
+        return false;
+    }
+
+    @Override
+    public synchronized void shutdown() throws IOException {
+        index.clear();
+        for (RandomAccessFile raf : segmentFiles) {
+            raf.close();
+        }
+        segmentFiles.clear();
+        segments.clear();
+    }
+
+    /**
+     * @return the number of records in the cache
+     */
+    public int size() {
+        return index.size();
+    }
+}
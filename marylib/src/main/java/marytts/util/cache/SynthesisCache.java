@@ -0,0 +1,67 @@
+/**
+ * Copyright 2009 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ * <p/>
+ * This file is part of MARY TTS.
+ * <p/>
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ * <p/>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * <p/>
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package marytts.util.cache;
+
+import java.io.IOException;
+
+/**
+ * A store for the results of MARY requests, looked up by {@link CacheKey}.
+ * Text results are stored as their UTF-8 encoding, audio results as WAVE file data.
+ * <p/>
+ * Implementations must be safe for concurrent use by several request threads.
+ * Use {@link CacheFactory#getCache()} to get the cache configured for this server.
+ */
+public interface SynthesisCache {
+
+    /**
+     * Look up the data stored for the given key.
+     *
+     * @param key the cache key. Must not be null.
+     * @return the stored data, or null if the cache does not contain a record with this key.
+     * The returned array may be shared with the cache and must not be modified.
+     * @throws IOException if there is a problem querying the cache.
+     */
+    byte[] lookup(CacheKey key) throws IOException;
+
+    /**
+     * Store data for the given key.
+     * If a record with the same key exists already, this call may do nothing.
+     *
+     * @param key  the cache key. Must not be null.
+     * @param data the data to store. Must not be null.
+     * @throws IOException if the record could not be entered into the cache.
+     */
+    void insert(CacheKey key, byte[] data) throws IOException;
+
+    /**
+     * Whether this cache needs the full input text of a key, in addition to its digest.
+     * If false, keys can be created without materializing the serialized input.
+     *
+     * @return true if keys for this cache must be created with the input text.
+     */
+    boolean needsInputText();
+
+    /**
+     * Shut down the cache. After this has been called, the cache must not be used any more.
+     *
+     * @throws IOException if there is a problem closing the cache.
+     */
+    void shutdown() throws IOException;
+}
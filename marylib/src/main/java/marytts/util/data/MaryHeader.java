@@ -55,6 +55,7 @@ public class MaryHeader {
     /* List of authorized file type identifier constants */
     public final static int UNKNOWN = 0;
     public final static int CARTS = 100;
+    public final static int HTS_CARTS = 105;
     public final static int DIRECTED_GRAPH = 110;
     public final static int UNITS = 200;
     public final static int LISTENERUNITS = 225;
@@ -19,22 +19,49 @@
 
 package marytts.util.data;
 
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
-
 import marytts.signalproc.process.InlineDataProcessor;
 
 /**
+ * A double data source whose data is produced by a separate thread.
+ * <p/>
+ * Samples are handed from the producing thread to the reading thread in blocks:
+ * the producer fills reusable <code>double[]</code> chunks which are kept in a
+ * bounded ring buffer, and the reader drains whole chunks into its buffer.
+ * When the ring is full, the producer blocks until the reader has caught up,
+ * or until the reader gives up by calling {@link #close()}.
+ *
  * @author marc
  */
 public abstract class ProducingDoubleDataSource extends BufferedDoubleDataSource implements Runnable {
-    private static final Double END_OF_STREAM = Double.NEGATIVE_INFINITY;
+    /**
+     * Number of samples held by one chunk of the ring buffer.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 1024;
+    /**
+     * Number of chunks in the ring buffer.
+     */
+    public static final int DEFAULT_NUM_CHUNKS = 16;
 
+    // The ring buffer; slots [head, head+published) are owned by the reader,
+    // slot head+published (if any) is being filled by the producer.
+    private final double[][] chunks;
+    private final int[] chunkLengths;
+    private final Object lock = new Object();
+    private int head = 0;
+    private int published = 0;
+    private int publishedSamples = 0;
+    private int headReadPos = 0;
+    // Producer-side state, only touched by the producing thread
+    private double[] fillChunk = null;
+    private int fillLength = 0;
 
-    protected LinkedBlockingQueue<Double> queue = new LinkedBlockingQueue<>();
     private Thread dataProducingThread = null;
     private boolean hasSentEndOfStream = false;
     private boolean hasReceivedEndOfStream = false;
+    // Set by the reader when it will not read any more; guarded by lock
+    private boolean closed = false;
+    // Why production ended early, if it did; guarded by lock
+    private Throwable failure = null;
 
 
     protected ProducingDoubleDataSource() {
@@ -50,8 +77,25 @@ public abstract class ProducingDoubleDataSource extends BufferedDoubleDataSource
     }
 
     protected ProducingDoubleDataSource(long numDataThatWillBeProduced, InlineDataProcessor dataProcessor) {
+        this(numDataThatWillBeProduced, dataProcessor, DEFAULT_CHUNK_SIZE, DEFAULT_NUM_CHUNKS);
+    }
+
+    /**
+     * @param numDataThatWillBeProduced the number of samples that will be produced, or DoubleDataSource.NOT_SPECIFIED
+     * @param dataProcessor             an optional processor applied to the data as it is read, or null
+     * @param chunkSize                 the number of samples in one chunk of the ring buffer
+     * @param numChunks                 the number of chunks in the ring buffer, which bounds
+     *                                  how far the producer can run ahead of the reader
+     */
+    protected ProducingDoubleDataSource(long numDataThatWillBeProduced, InlineDataProcessor dataProcessor,
+                                        int chunkSize, int numChunks) {
         super((DoubleDataSource) null, dataProcessor);
+        if (chunkSize <= 0 || numChunks <= 0) {
+            throw new IllegalArgumentException("chunk size and number of chunks must be positive");
+        }
         this.dataLength = numDataThatWillBeProduced;
+        chunks = new double[numChunks][chunkSize];
+        chunkLengths = new int[numChunks];
     }
 
     public void start() {
@@ -62,29 +106,146 @@ public abstract class ProducingDoubleDataSource extends BufferedDoubleDataSource
 
     /**
      * Subclasses must implement this method such that it produces data and sends it through
-     * {@link #putOneDataPoint(double)}.
-     * When all data is sent, the subclass must call {@link #putEndOfStream()} exactly once.
+     * {@link #putData(double[], int, int)} or {@link #putOneDataPoint(double)}.
+     * When all data is sent, the subclass must call {@link #putEndOfStream()} exactly once;
+     * if the data cannot be produced, it must call {@link #putEndOfStream(Throwable)} instead.
      */
     @Override
     public abstract void run();
 
     /**
-     * The producing thread tries to put ont data item into the queue.
+     * The producing thread puts one data item into the current chunk.
+     * Prefer {@link #putData(double[], int, int)} where the data is available in blocks.
      *
      * @param value
      */
     public void putOneDataPoint(double value) {
-        try {
-            queue.put(value);
-        } catch (InterruptedException e) {
-            throw new RuntimeException("Unexpected interruption", e);
+        if (fillChunk == null && !acquireFillChunk()) {
+            return;
+        }
+        fillChunk[fillLength++] = value;
+        if (fillLength == fillChunk.length) {
+            flush();
         }
     }
 
+    /**
+     * The producing thread puts a block of data into the ring buffer.
+     * Full chunks are made available to the reader immediately;
+     * a partially filled chunk is kept until it is full, until {@link #flush()}
+     * is called, or until the end of stream is signalled.
+     * After {@link #close()}, the data is discarded.
+     *
+     * @param data the data to send
+     * @param off  the position of the first sample in data
+     * @param len  the number of samples to send
+     */
+    public void putData(double[] data, int off, int len) {
+        while (len > 0) {
+            if (fillChunk == null && !acquireFillChunk()) {
+                return;
+            }
+            int n = Math.min(len, fillChunk.length - fillLength);
+            System.arraycopy(data, off, fillChunk, fillLength, n);
+            fillLength += n;
+            off += n;
+            len -= n;
+            if (fillLength == fillChunk.length) {
+                flush();
+            }
+        }
+    }
+
+    /**
+     * Make the partially filled chunk, if any, available to the reader.
+     */
+    public void flush() {
+        if (fillChunk == null || fillLength == 0) {
+            return;
+        }
+        synchronized (lock) {
+            if (!closed) {
+                chunkLengths[(head + published) % chunks.length] = fillLength;
+                published++;
+                publishedSamples += fillLength;
+                lock.notifyAll();
+            }
+        }
+        fillChunk = null;
+        fillLength = 0;
+    }
 
     protected void putEndOfStream() {
-        putOneDataPoint(END_OF_STREAM);
-        hasSentEndOfStream = true;
+        putEndOfStream(null);
+    }
+
+    /**
+     * End the data because it could not be produced completely. The reader gets the data
+     * sent so far, and can then find out about the failure through {@link #getFailure()}.
+     *
+     * @param cause why production failed, or null if it did not
+     */
+    protected void putEndOfStream(Throwable cause) {
+        flush();
+        synchronized (lock) {
+            failure = cause;
+            hasSentEndOfStream = true;
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * The reason why the producer ended the data early, or null if it did not (yet).
+     */
+    public Throwable getFailure() {
+        synchronized (lock) {
+            return failure;
+        }
+    }
+
+    /**
+     * Wait until a free slot in the ring buffer is available, and make it the chunk being filled.
+     *
+     * @return false if the source was closed, in which case there is no chunk to fill.
+     */
+    private boolean acquireFillChunk() {
+        synchronized (lock) {
+            while (published == chunks.length && !closed) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException("Unexpected interruption", e);
+                }
+            }
+            if (closed) {
+                return false;
+            }
+            fillChunk = chunks[(head + published) % chunks.length];
+        }
+        fillLength = 0;
+        return true;
+    }
+
+    /**
+     * Tell the producer that no more data will be read. A producer blocked on a full
+     * ring buffer is released, and all data it puts from now on is discarded; producers
+     * doing expensive work should check {@link #isClosed()} and stop early.
+     * Subsequent reads report the end of the data.
+     */
+    public void close() {
+        synchronized (lock) {
+            closed = true;
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Whether {@link #close()} has been called.
+     */
+    public boolean isClosed() {
+        synchronized (lock) {
+            return closed;
+        }
     }
 
 
@@ -104,11 +265,9 @@ public abstract class ProducingDoubleDataSource extends BufferedDoubleDataSource
         if (isAllProductionDataRead()) {
             return 0;
         }
-        int inQueue = queue.size();
-        if (hasSentEndOfStream && !hasReceivedEndOfStream) {
-            inQueue -= 1;
+        synchronized (lock) {
+            return publishedSamples;
         }
-        return inQueue;
     }
 
 
@@ -127,15 +286,34 @@ public abstract class ProducingDoubleDataSource extends BufferedDoubleDataSource
         }
         // Now we have a buffer that can hold at least minLength new data points
         int readSum = 0;
-        while (readSum < minLength) {
-            double data = getOneDataPoint();
-            if (data == END_OF_STREAM) {
-                hasReceivedEndOfStream = true;
-                break;
+        synchronized (lock) {
+            while (readSum < minLength) {
+                while (published == 0 && !hasSentEndOfStream && !closed) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        throw new RuntimeException("Unexpected interruption", e);
+                    }
+                }
+                if (published == 0 || closed) { // end of stream and nothing left in the ring, or closed
+                    hasReceivedEndOfStream = true;
+                    break;
+                }
+                // Drain as much of the head chunk as we need
+                int n = Math.min(minLength - readSum, chunkLengths[head] - headReadPos);
+                System.arraycopy(chunks[head], headReadPos, buf, writePos, n);
+                writePos += n;
+                readSum += n;
+                headReadPos += n;
+                publishedSamples -= n;
+                if (headReadPos == chunkLengths[head]) {
+                    // whole chunk consumed, give the slot back to the producer
+                    head = (head + 1) % chunks.length;
+                    headReadPos = 0;
+                    published--;
+                    lock.notifyAll();
+                }
             }
-            buf[writePos] = data;
-            writePos++;
-            readSum++;
         }
         if (dataProcessor != null) {
             dataProcessor.applyInline(buf, writePos - readSum, readSum);
@@ -143,19 +321,6 @@ public abstract class ProducingDoubleDataSource extends BufferedDoubleDataSource
         return readSum == minLength;
     }
 
-    /**
-     * The reading thread tries to get one data item from the queue.
-     *
-     * @return
-     */
-    private double getOneDataPoint() {
-        try {
-            return queue.take();
-        } catch (InterruptedException e) {
-            throw new RuntimeException("Unexpected interruption", e);
-        }
-    }
-
     /**
      * @throws IllegalStateException
      */
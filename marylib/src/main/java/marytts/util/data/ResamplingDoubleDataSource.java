@@ -0,0 +1,212 @@
+/**
+ * Copyright 2009 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ * <p/>
+ * This file is part of MARY TTS.
+ * <p/>
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ * <p/>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * <p/>
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package marytts.util.data;
+
+import java.util.Arrays;
+
+/**
+ * A double data source changing the sampling rate of its input source, by means of
+ * a polyphase windowed-sinc filter. The ratio of the two rates is reduced to a fraction L/M;
+ * each output sample is computed from the input samples around it with one of L precomputed
+ * sets of filter coefficients, so the input is never actually upsampled.
+ * <p/>
+ * The filter is centred on the output samples, so the output is aligned with the input
+ * and has the length of the input times L/M, rounded up.
+ */
+public class ResamplingDoubleDataSource extends BlockwiseDoubleDataSource {
+    /**
+     * Maximum number of polyphase filters, that is the maximum L of a supported rate ratio L/M
+     */
+    public static final int MAX_PHASES = 1024;
+    /**
+     * Number of zero crossings of the sinc on either side of its centre
+     */
+    protected static final int ZERO_CROSSINGS = 16;
+    /**
+     * Cutoff frequency, relative to the lower of the two Nyquist frequencies
+     */
+    protected static final double ROLLOFF = 0.92;
+    protected static final double KAISER_BETA = 8.0;
+    protected static final int INPUT_BLOCKSIZE = 1024;
+    protected static final int OUTPUT_BLOCKSIZE = 4096;
+
+    protected final int upFactor; // L
+    protected final int downFactor; // M
+    /**
+     * coefs[p][k] is the weight of input sample q+dmin+k for an output sample at input position q+p/L
+     */
+    protected final double[][] coefs;
+    protected final int dmin;
+    protected final int numTaps;
+
+    /* input samples from absolute index inStart, valid up to (excluding) inEnd */
+    protected double[] in;
+    protected long inStart;
+    protected long inEnd;
+    protected boolean inputEnded = false;
+    /* the next output sample is at input position q + p/L */
+    protected long q = 0;
+    protected int p = 0;
+    protected long produced = 0;
+    protected long totalOutput = DoubleDataSource.NOT_SPECIFIED;
+
+    /**
+     * @param inputSource  the data to resample
+     * @param inputRate    sampling rate of the input, in Hz
+     * @param outputRate   sampling rate of the output, in Hz
+     * @throws IllegalArgumentException if the rates are not positive, or their ratio needs more than {@link #MAX_PHASES} filters
+     */
+    public ResamplingDoubleDataSource(DoubleDataSource inputSource, int inputRate, int outputRate) {
+        super(inputSource, OUTPUT_BLOCKSIZE);
+        if (!isSupported(inputRate, outputRate))
+            throw new IllegalArgumentException("Cannot resample from " + inputRate + " Hz to " + outputRate + " Hz");
+        int gcd = gcd(inputRate, outputRate);
+        upFactor = outputRate / gcd;
+        downFactor = inputRate / gcd;
+
+        double cutoff = ROLLOFF * Math.min(1.0, (double) upFactor / downFactor);
+        double radius = ZERO_CROSSINGS / cutoff; // half width of the filter, in input samples
+        dmin = -(int) Math.ceil(radius);
+        numTaps = 2 * (int) Math.ceil(radius) + 1;
+        coefs = new double[upFactor][numTaps];
+        for (int phase = 0; phase < upFactor; phase++) {
+            double sum = 0;
+            for (int k = 0; k < numTaps; k++) {
+                double x = (double) phase / upFactor - (dmin + k); // distance to the input sample
+                if (Math.abs(x) < radius) {
+                    coefs[phase][k] = cutoff * sinc(cutoff * x) * kaiser(x / radius);
+                    sum += coefs[phase][k];
+                }
+            }
+            // unit gain at DC for every phase
+            for (int k = 0; k < numTaps; k++)
+                coefs[phase][k] /= sum;
+        }
+
+        // the input before the first sample is silence
+        in = new double[numTaps + INPUT_BLOCKSIZE];
+        inStart = dmin;
+        inEnd = 0;
+        if (dataLength != DoubleDataSource.NOT_SPECIFIED) {
+            dataLength = outputLength(dataLength);
+        }
+    }
+
+    /**
+     * Whether a resampler from inputRate to outputRate can be created.
+     */
+    public static boolean isSupported(int inputRate, int outputRate) {
+        return inputRate > 0 && outputRate > 0 && outputRate / gcd(inputRate, outputRate) <= MAX_PHASES;
+    }
+
+    @Override
+    public boolean hasMoreData() {
+        return currentlyInBuffer() > 0 || !inputEnded || produced < totalOutput;
+    }
+
+    @Override
+    protected int readBlock(double[] target, int pos) {
+        int blockSize = getBlockSize();
+        int n = 0;
+        while (n < blockSize) {
+            if (!inputEnded && q + dmin + numTaps > inEnd) { // need the input up to q + dmax
+                readInput();
+                continue;
+            }
+            if (inputEnded && produced >= totalOutput)
+                break;
+            double[] c = coefs[p];
+            int off = (int) (q + dmin - inStart);
+            double y = 0;
+            for (int k = 0; k < numTaps; k++)
+                y += c[k] * in[off + k];
+            target[pos + n] = y;
+            n++;
+            produced++;
+            p += downFactor;
+            q += p / upFactor;
+            p %= upFactor;
+        }
+        return n;
+    }
+
+    /**
+     * Read the next block of input, dropping the input samples that are not needed any more.
+     */
+    protected void readInput() {
+        int keep = (int) (inEnd - (q + dmin));
+        if (keep < 0)
+            keep = 0;
+        int drop = (int) (inEnd - inStart) - keep;
+        System.arraycopy(in, drop, in, 0, keep);
+        inStart += drop;
+        if (in.length < keep + INPUT_BLOCKSIZE + numTaps) {
+            double[] newIn = new double[keep + INPUT_BLOCKSIZE + numTaps];
+            System.arraycopy(in, 0, newIn, 0, keep);
+            in = newIn;
+        }
+        int read = inputSource.getData(in, keep, INPUT_BLOCKSIZE);
+        inEnd += read;
+        if (read < INPUT_BLOCKSIZE) {
+            inputEnded = true;
+            totalOutput = outputLength(inEnd);
+            // the input after the last sample is silence
+            Arrays.fill(in, keep + read, in.length, 0.0);
+        }
+    }
+
+    protected long outputLength(long inputLength) {
+        return (inputLength * upFactor + downFactor - 1) / downFactor;
+    }
+
+    private static double sinc(double x) {
+        if (x == 0)
+            return 1.0;
+        return Math.sin(Math.PI * x) / (Math.PI * x);
+    }
+
+    /**
+     * The Kaiser window at t, for -1 &lt;= t &lt;= 1
+     */
+    private static double kaiser(double t) {
+        return bessel0(KAISER_BETA * Math.sqrt(1 - t * t)) / bessel0(KAISER_BETA);
+    }
+
+    /**
+     * Modified Bessel function of the first kind, order 0
+     */
+    private static double bessel0(double x) {
+        double sum = 1;
+        double term = 1;
+        for (int k = 1; k < 50 && term > 1e-12 * sum; k++) {
+            term *= (x / (2 * k)) * (x / (2 * k));
+            sum += term;
+        }
+        return sum;
+    }
+
+    private static int gcd(int a, int b) {
+        while (b != 0) {
+            int t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+}
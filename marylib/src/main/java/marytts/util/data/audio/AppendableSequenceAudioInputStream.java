@@ -18,6 +18,10 @@ import lib.sound.sampled.AudioSystem;
 public class AppendableSequenceAudioInputStream extends
         SequenceAudioInputStream {
     protected boolean doneAppending = false;
+    protected boolean closed = false;
+    protected Throwable failure = null;
+    private boolean dataRead = false;
+    private boolean endRead = false;
 
     /**
      * Create a sequence audio input stream to which more AudioInputStreams can be appended after creation.
@@ -35,6 +39,7 @@ public class AppendableSequenceAudioInputStream extends
 
     /**
      * Append the new audio input stream to the end of the list of audio input streams.
+     * If this stream was closed already, the new stream is closed instead.
      *
      * @param ais
      * @throws IllegalArgumentException if this method is called after doneAppending() was called.
@@ -44,6 +49,14 @@ public class AppendableSequenceAudioInputStream extends
             throw new IllegalArgumentException("Cannot append me to myself");
         if (doneAppending)
             throw new IllegalArgumentException("Cannot append after doneAppending() was called!");
+        if (closed) {
+            try {
+                ais.close();
+            } catch (IOException e) {
+                // nobody is reading it anyway
+            }
+            return;
+        }
         m_audioInputStreamList.add(ais);
         //System.err.println("Appending audio");
         notifyAll();
@@ -59,59 +72,120 @@ public class AppendableSequenceAudioInputStream extends
         notifyAll();
     }
 
+    /**
+     * Inform this audio input stream that the audio could not be produced. No further
+     * calls to append() are expected, and the next call to read() throws an IOException
+     * with the given cause.
+     *
+     * @param cause the reason why the audio could not be produced
+     */
+    public synchronized void fail(Throwable cause) {
+        failure = cause;
+        doneAppending = true;
+        notifyAll();
+    }
+
+    /**
+     * Called by the reading thread when the first audio data has been read from this stream.
+     * Subclasses can override this to observe when audio actually becomes available,
+     * which for audio produced asynchronously is later than when it is appended.
+     */
+    protected void firstDataRead() {
+    }
+
+    /**
+     * Called by the reading thread when all audio data has been read, i.e. when the end of
+     * the stream is reached after doneAppending(); not called if the stream was closed or failed.
+     */
+    protected void allDataRead() {
+    }
+
+    private int dataReadOrEnd(int n) {
+        if (n > 0 && !dataRead) {
+            dataRead = true;
+            firstDataRead();
+        } else if (n == -1 && !endRead && !closed) {
+            endRead = true;
+            allDataRead();
+        }
+        return n;
+    }
+
+    private void checkFailure() throws IOException {
+        if (failure != null) {
+            throw new IOException("Audio could not be produced", failure);
+        }
+    }
+
     @Override
     public synchronized int read() throws IOException {
+        checkFailure();
         while (m_audioInputStreamList.size() == 0) {
-            if (doneAppending) // never had any data, no more to come
-                return -1;
+            if (doneAppending || closed) // never had any data, no more to come
+                return dataReadOrEnd(-1);
             // no data yet, wait
             try {
                 wait();
             } catch (InterruptedException ie) {
             }
+            checkFailure();
         }
         int n = -1;
         // Try to read data
         while ((n = super.read()) <= 0) { // no data, but more expected
-            if (n == -1 && doneAppending) // finished reading
-                return -1;
+            if (n == -1 && doneAppending || closed) // finished reading
+                return dataReadOrEnd(-1);
             // wait and try again
             try {
                 wait();
             } catch (InterruptedException ie) {
             }
+            checkFailure();
         }
-        return n;
+        return dataReadOrEnd(n);
     }
 
     @Override
     public synchronized int read(byte[] buf, int off, int len) throws IOException {
+        checkFailure();
         int n = -1;
         while (m_audioInputStreamList.size() == 0) {
-            if (doneAppending) // never had any data, no more to come
-                return -1;
+            if (doneAppending || closed) // never had any data, no more to come
+                return dataReadOrEnd(-1);
             // no data yet, wait
             try {
                 wait();
             } catch (InterruptedException ie) {
             }
+            checkFailure();
         }
         // Try to read data
         while (m_nCurrentStream >= m_audioInputStreamList.size()
                 || (n = super.read(buf, off, len)) <= 0) { // no data, but more expected
-            if (n == -1 && doneAppending) // finished reading
-                return -1;
+            if (n == -1 && doneAppending || closed) // finished reading
+                return dataReadOrEnd(-1);
             // wait and try again
             try {
                 wait();
             } catch (InterruptedException ie) {
             }
+            checkFailure();
         }
         //System.err.println("Read "+ n + " bytes");
-        return n;
+        return dataReadOrEnd(n);
     }
 
 
+    /**
+     * Close all audio input streams appended so far, and any appended later.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        closed = true;
+        super.close();
+        notifyAll();
+    }
+
     /**
      * Return the frame length of this appendable sequence audio input stream. As long as
      * <code>doneAppending()</code> has not been called, returns <code>AudioSystem.NOT_SPECIFIED;
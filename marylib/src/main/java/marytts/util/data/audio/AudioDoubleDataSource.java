@@ -39,6 +39,7 @@ public class AudioDoubleDataSource extends BaseDoubleDataSource {
     protected int samplingRate;
     protected int bytesPerSample;
     protected boolean bigEndian;
+    protected boolean unsigned;
     protected boolean hasMoreData;
     protected boolean bAutomaticClippingControl;
     protected double[] scales;
@@ -61,6 +62,7 @@ public class AudioDoubleDataSource extends BaseDoubleDataSource {
         }
         this.bytesPerSample = bitsPerSample / 8;
         this.bigEndian = ais.getFormat().isBigEndian();
+        this.unsigned = ais.getFormat().getEncoding().equals(AudioFormat.Encoding.PCM_UNSIGNED);
         this.samplingRate = (int) ais.getFormat().getSampleRate();
         this.byteBuf = new byte[BYTEBUFFER_LENGTH];
         this.hasMoreData = true;
@@ -134,9 +136,11 @@ public class AudioDoubleDataSource extends BaseDoubleDataSource {
             } else { // nBytesRead > 0
                 nTimesRead0 = 0;
                 // Now we have nBytesRead/bytesPerSample samples in byteBuf.
+                // unsigned samples are offset by half the range: flipping the sign bit makes them signed
+                int signFlip = unsigned ? 0x80 : 0;
                 if (bytesPerSample == 1) {
                     for (int i = 0; i < nBytesRead; i++, currentPos++) {
-                        target[currentPos] = (byteBuf[i] << 8) / 128.0; // normalise to range [-1, 1];
+                        target[currentPos] = (byte) (byteBuf[i] ^ signFlip) / 128.0; // normalise to range [-1, 1];
                     }
                     totalCopied += nBytesRead;
                 } else if (bytesPerSample == 2) { // 16 bit
@@ -151,6 +155,7 @@ public class AudioDoubleDataSource extends BaseDoubleDataSource {
                             lobyte = byteBuf[i + 1];
                             hibyte = byteBuf[i];
                         }
+                        hibyte ^= signFlip;
                         sample = hibyte << 8 | lobyte & 0xFF;
                         target[currentPos] = sample / 32768.0;// normalise to range [-1, 1];
                     }
@@ -170,6 +175,7 @@ public class AudioDoubleDataSource extends BaseDoubleDataSource {
                             midbyte = byteBuf[i + 1];
                             hibyte = byteBuf[i];
                         }
+                        hibyte ^= signFlip;
                         sample = hibyte << 16 | (midbyte & 0xFF) << 8 | lobyte & 0xFF;
                         target[currentPos] = sample / 8388606.0; // normalise to range [-1, 1]
                     }
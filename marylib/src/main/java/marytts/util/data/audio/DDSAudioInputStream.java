@@ -25,6 +25,7 @@ import lib.sound.sampled.AudioFormat;
 import lib.sound.sampled.AudioInputStream;
 import lib.sound.sampled.AudioSystem;
 import marytts.util.data.DoubleDataSource;
+import marytts.util.data.ProducingDoubleDataSource;
 
 /**
  * @author Marc Schr&ouml;der
@@ -93,10 +94,12 @@ public class DDSAudioInputStream extends AudioInputStream {
             if (toRead > sampleBuf.length) toRead = sampleBuf.length;
             int nRead = source.getData(sampleBuf, 0, toRead);
             //System.err.println("DDSAudioInputStream: read " + nRead + " samples from source");
+            // unsigned samples are offset by half the range: flipping the sign bit of the signed value does that
+            int signFlip = format.getEncoding().equals(AudioFormat.Encoding.PCM_UNSIGNED) ? 0x80 : 0;
             if (frameSize == 1) { // bytes per sample
                 for (int i = 0; i < nRead; i++, currentPos++) {
                     int sample = (int) Math.round(sampleBuf[i] * 127.0); // de-normalise to value range
-                    b[currentPos] = (byte) ((sample >> 8) & 0xFF);
+                    b[currentPos] = (byte) (sample ^ signFlip);
                 }
             } else if (frameSize == 2) { // 16 bit
                 boolean bigEndian = format.isBigEndian();
@@ -105,7 +108,7 @@ public class DDSAudioInputStream extends AudioInputStream {
                     if (sample > MAX_AMPLITUDE || sample < -MAX_AMPLITUDE) {
                         System.err.println("Warning: signal amplitude out of range: " + sample);
                     }
-                    byte hibyte = (byte) (sample >> 8);
+                    byte hibyte = (byte) ((sample >> 8) ^ signFlip);
                     byte lobyte = (byte) (sample & 0xFF);
                     if (!bigEndian) {
                         b[currentPos] = lobyte;
@@ -120,7 +123,7 @@ public class DDSAudioInputStream extends AudioInputStream {
                 boolean bigEndian = format.isBigEndian();
                 for (int i = 0; i < nRead; i++, currentPos += 3) {
                     int sample = (int) Math.round(sampleBuf[i] * 8388605.0); // de-normalise to value range
-                    byte hibyte = (byte) (sample >> 16);
+                    byte hibyte = (byte) ((sample >> 16) ^ signFlip);
                     byte midbyte = (byte) ((sample >> 8) & 0xFF);
                     byte lobyte = (byte) (sample & 0xFF);
                     if (!bigEndian) {
@@ -138,6 +141,11 @@ public class DDSAudioInputStream extends AudioInputStream {
             totalRead += nRead;
             assert currentPos <= off + len;
         } while (source.hasMoreData() && totalRead < nSamples);
+        if (totalRead == 0 && source instanceof ProducingDoubleDataSource) {
+            Throwable failure = ((ProducingDoubleDataSource) source).getFailure();
+            if (failure != null)
+                throw new IOException("Audio could not be produced", failure);
+        }
         if (totalRead == 0) return -1;
         else return totalRead * frameSize;
     }
@@ -180,12 +188,16 @@ public class DDSAudioInputStream extends AudioInputStream {
 
     /**
      * Closes this audio input stream and releases any system resources associated
-     * with the stream.
+     * with the stream. If the data is produced by a separate thread, that thread is
+     * told to stop.
      *
      * @throws IOException if an input or output error occurs
      */
     @Override
     public void close() throws IOException {
+        if (source instanceof ProducingDoubleDataSource) {
+            ((ProducingDoubleDataSource) source).close();
+        }
     }
 
     /**
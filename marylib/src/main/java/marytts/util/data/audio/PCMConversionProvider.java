@@ -0,0 +1,125 @@
+/**
+ * Copyright 2009 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ * <p/>
+ * This file is part of MARY TTS.
+ * <p/>
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ * <p/>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * <p/>
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package marytts.util.data.audio;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lib.sound.sampled.AudioFormat;
+import lib.sound.sampled.AudioInputStream;
+import lib.sound.sampled.AudioSystem;
+import lib.sound.sampled.spi.FormatConversionProvider;
+import marytts.util.data.DoubleDataSource;
+import marytts.util.data.ResamplingDoubleDataSource;
+
+/**
+ * Converts mono linear PCM audio into mono linear PCM audio of another sampling rate, sample size,
+ * signedness or byte order. The audio is streamed: it is decoded into a {@link DoubleDataSource},
+ * resampled block by block with a {@link ResamplingDoubleDataSource} if the sampling rates differ,
+ * and encoded again as it is read. This is how the 16 kHz voices can serve e.g. 8 kHz or 48 kHz audio.
+ * <p/>
+ * The bundled {@link AudioSystem} only knows the MP3 decoder, so the users of this class call it directly.
+ */
+public class PCMConversionProvider extends FormatConversionProvider {
+    private static final AudioFormat.Encoding[] ENCODINGS = new AudioFormat.Encoding[]{
+            AudioFormat.Encoding.PCM_SIGNED, AudioFormat.Encoding.PCM_UNSIGNED
+    };
+    private static final int[] SAMPLE_SIZES = new int[]{8, 16, 24};
+
+    @Override
+    public AudioFormat.Encoding[] getSourceEncodings() {
+        return ENCODINGS.clone();
+    }
+
+    @Override
+    public AudioFormat.Encoding[] getTargetEncodings() {
+        return ENCODINGS.clone();
+    }
+
+    @Override
+    public AudioFormat.Encoding[] getTargetEncodings(AudioFormat sourceFormat) {
+        if (isSupported(sourceFormat))
+            return ENCODINGS.clone();
+        return new AudioFormat.Encoding[0];
+    }
+
+    /**
+     * The supported target formats have the given encoding and any sampling rate, given as AudioSystem.NOT_SPECIFIED.
+     */
+    @Override
+    public AudioFormat[] getTargetFormats(AudioFormat.Encoding targetEncoding, AudioFormat sourceFormat) {
+        List<AudioFormat> formats = new ArrayList<AudioFormat>();
+        if (isTargetEncodingSupported(targetEncoding) && isSupported(sourceFormat)) {
+            for (int bits : SAMPLE_SIZES) {
+                formats.add(new AudioFormat(targetEncoding, AudioSystem.NOT_SPECIFIED, bits, 1, bits / 8,
+                        AudioSystem.NOT_SPECIFIED, false));
+                if (bits > 8)
+                    formats.add(new AudioFormat(targetEncoding, AudioSystem.NOT_SPECIFIED, bits, 1, bits / 8,
+                            AudioSystem.NOT_SPECIFIED, true));
+            }
+        }
+        return formats.toArray(new AudioFormat[formats.size()]);
+    }
+
+    @Override
+    public boolean isConversionSupported(AudioFormat targetFormat, AudioFormat sourceFormat) {
+        return isSupported(targetFormat) && isSupported(sourceFormat)
+                && ResamplingDoubleDataSource.isSupported(Math.round(sourceFormat.getSampleRate()),
+                Math.round(targetFormat.getSampleRate()));
+    }
+
+    @Override
+    public AudioInputStream getAudioInputStream(AudioFormat.Encoding targetEncoding, AudioInputStream sourceStream) {
+        AudioFormat source = sourceStream.getFormat();
+        AudioFormat target = new AudioFormat(targetEncoding, source.getSampleRate(), source.getSampleSizeInBits(),
+                source.getChannels(), source.getFrameSize(), source.getFrameRate(), source.isBigEndian());
+        return getAudioInputStream(target, sourceStream);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the conversion is not supported
+     */
+    @Override
+    public AudioInputStream getAudioInputStream(AudioFormat targetFormat, AudioInputStream sourceStream) {
+        AudioFormat sourceFormat = sourceStream.getFormat();
+        if (sourceFormat.matches(targetFormat))
+            return sourceStream;
+        if (!isConversionSupported(targetFormat, sourceFormat))
+            throw new IllegalArgumentException("Unsupported conversion: " + targetFormat + " from " + sourceFormat);
+        DoubleDataSource samples = new AudioDoubleDataSource(sourceStream);
+        int sourceRate = Math.round(sourceFormat.getSampleRate());
+        int targetRate = Math.round(targetFormat.getSampleRate());
+        if (sourceRate != targetRate)
+            samples = new ResamplingDoubleDataSource(samples, sourceRate, targetRate);
+        return new DDSAudioInputStream(samples, targetFormat);
+    }
+
+    /**
+     * Whether format is mono linear PCM with a supported sample size and a known sampling rate.
+     */
+    private static boolean isSupported(AudioFormat format) {
+        boolean pcm = false;
+        for (AudioFormat.Encoding encoding : ENCODINGS)
+            pcm |= encoding.equals(format.getEncoding());
+        boolean sampleSize = false;
+        for (int bits : SAMPLE_SIZES)
+            sampleSize |= bits == format.getSampleSizeInBits();
+        return pcm && sampleSize && format.getChannels() == 1 && format.getSampleRate() > 0;
+    }
+}
@@ -167,7 +167,9 @@ public class SequenceAudioInputStream
     @Override
     public void close()
             throws IOException {
-        // TODO: should we close all streams in the list?
+        for (AudioInputStream stream : m_audioInputStreamList) {
+            stream.close();
+        }
     }
 
 
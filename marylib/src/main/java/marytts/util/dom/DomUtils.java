@@ -42,6 +42,8 @@ import java.io.StringReader;
 import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 
 import marytts.exceptions.MaryConfigurationException;
 import marytts.server.Mary;
@@ -49,6 +51,13 @@ import mf.javax.xml.parsers.DocumentBuilder;
 import mf.javax.xml.parsers.DocumentBuilderFactory;
 import mf.javax.xml.parsers.ParserConfigurationException;
 import mf.javax.xml.transform.TransformerException;
+import mf.org.apache.xerces.parsers.XMLGrammarPreparser;
+import mf.org.apache.xerces.util.XMLGrammarPoolImpl;
+import mf.org.apache.xerces.xni.XMLResourceIdentifier;
+import mf.org.apache.xerces.xni.grammars.XMLGrammarDescription;
+import mf.org.apache.xerces.xni.grammars.XMLGrammarPool;
+import mf.org.apache.xerces.xni.parser.XMLEntityResolver;
+import mf.org.apache.xerces.xni.parser.XMLInputSource;
 import mf.org.w3c.dom.Attr;
 import mf.org.w3c.dom.DOMConfiguration;
 import mf.org.w3c.dom.DOMException;
@@ -79,6 +88,41 @@ public class DomUtils {
     protected static DocumentBuilderFactory factory;
     protected static DocumentBuilderFactory validatingFactory;
 
+    /**
+     * Schemas preloaded into the shared grammar pool, in dependency order.
+     */
+    protected static final String[] SCHEMAS = {"marytts/util/dom/xml.xsd", "marytts/util/dom/MaryXML.xsd"};
+
+    private static final String GRAMMAR_POOL = "http://apache.org/xml/properties/internal/grammar-pool";
+    private static volatile boolean grammarPoolInitialised = false;
+
+    /**
+     * Maximum number of idle document builders kept per factory
+     */
+    private static final int MAX_POOLED = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+    private static final BlockingQueue<DocumentBuilder> builderPool =
+            new ArrayBlockingQueue<DocumentBuilder>(MAX_POOLED);
+    private static final BlockingQueue<DocumentBuilder> validatingBuilderPool =
+            new ArrayBlockingQueue<DocumentBuilder>(MAX_POOLED);
+
+    private static final ErrorHandler strictErrorHandler = new ErrorHandler() {
+        @Override
+        public void error(SAXParseException e) throws SAXParseException {
+            throw e;
+        }
+
+        @Override
+        public void fatalError(SAXParseException e) throws SAXParseException {
+            throw e;
+        }
+
+        @Override
+        public void warning(SAXParseException e) throws SAXParseException {
+            throw e;
+        }
+    };
+
     // protected static Logger logger = MaryUtils.getLogger("DomUtils");
 
     // Static constructor:
@@ -94,14 +138,7 @@ public class DomUtils {
         validatingFactory.setValidating(true);
         try {
             validatingFactory.setAttribute("http://java.sun.com/xml/jaxp/properties/schemaLanguage", "http://www.w3.org/2001/XMLSchema");
-            // Specify other factory configuration settings
-//            Object[] schemas = new Object[] {
-//            		DomUtils.class.getResource("xml.xsd").toString(),
-//            		DomUtils.class.getResource("MaryXML.xsd").toString()
-//            };
-
-            Object[] schemas = new Object[]{MaryLink.getContext().getAssets().open("marytts/util/dom/xml.xsd").toString(), MaryLink.getContext().getAssets().open("marytts/util/dom/xml.xsd").toString()};
-            validatingFactory.setAttribute("http://java.sun.com/xml/jaxp/properties/schemaSource", schemas);
+            // The grammar pool is only set up by the first validating parse, see initGrammarPool()
         } catch (Exception x) {
             // This can happen if the parser does not support JAXP 1.2
             Log.v(Mary.LOG, "Cannot use Schema validation -- disabling validating parser factory." + x.getMessage());
@@ -109,6 +146,73 @@ public class DomUtils {
         }
     }
 
+    /**
+     * Let all validating parsers share one pool with the compiled schemas, so that the schemas
+     * are not read again for every document. This is done on the first validating parse rather
+     * than during class initialisation, so that a problem with the schemas or with the Xerces
+     * resources can only affect validation. If the pool cannot be built, validating parsers
+     * are created without it, as before.
+     */
+    private static void initGrammarPool() {
+        if (grammarPoolInitialised)
+            return;
+        synchronized (DomUtils.class) {
+            if (grammarPoolInitialised)
+                return;
+            try {
+                validatingFactory.setAttribute(GRAMMAR_POOL, createGrammarPool());
+            } catch (Throwable t) {
+                Log.w(Mary.LOG, "Cannot preload the MaryXML schemas -- validating without a grammar pool", t);
+            }
+            grammarPoolInitialised = true;
+        }
+    }
+
+    /**
+     * Compile the schemas listed in {@link #SCHEMAS} into a grammar pool. The pool is locked
+     * afterwards, so that it can be shared read-only between parsers in several threads.
+     *
+     * @return the grammar pool
+     * @throws IOException if a schema cannot be read
+     */
+    private static XMLGrammarPool createGrammarPool() throws IOException {
+        XMLGrammarPoolImpl pool = new XMLGrammarPoolImpl();
+        XMLGrammarPreparser preparser = new XMLGrammarPreparser();
+        preparser.registerPreparser(XMLGrammarDescription.XML_SCHEMA, null);
+        preparser.setGrammarPool(pool);
+        preparser.setFeature("http://xml.org/sax/features/namespaces", true);
+        preparser.setFeature("http://apache.org/xml/features/validation/schema", true);
+        // schema imports are resolved from the bundled schemas, never from the network
+        preparser.setEntityResolver(new XMLEntityResolver() {
+            @Override
+            public XMLInputSource resolveEntity(XMLResourceIdentifier id) throws IOException {
+                String systemId = id.getLiteralSystemId();
+                if (systemId == null) {
+                    return null;
+                }
+                String name = systemId.substring(systemId.lastIndexOf('/') + 1);
+                for (String schema : SCHEMAS) {
+                    if (schema.endsWith("/" + name)) {
+                        return new XMLInputSource(id.getPublicId(), systemId, id.getBaseSystemId(),
+                                MaryLink.getContext().getAssets().open(schema), null);
+                    }
+                }
+                return null;
+            }
+        });
+        for (String schema : SCHEMAS) {
+            InputStream is = MaryLink.getContext().getAssets().open(schema);
+            try {
+                preparser.preparseGrammar(XMLGrammarDescription.XML_SCHEMA,
+                        new XMLInputSource(null, schema, null, is, null));
+            } finally {
+                is.close();
+            }
+        }
+        pool.lockPool();
+        return pool;
+    }
+
 
     /**
      * Parse XML data into a DOM representation, taking local resources and Schemas into account.
@@ -137,8 +241,12 @@ public class DomUtils {
      */
     public static Document parseDocument(Reader inputData, boolean validating)
             throws ParserConfigurationException, SAXException, IOException {
-        DocumentBuilder builder = createDocumentBuilder(validating);
-        return builder.parse(new InputSource(inputData));
+        DocumentBuilder builder = acquireDocumentBuilder(validating);
+        try {
+            return builder.parse(new InputSource(inputData));
+        } finally {
+            releaseDocumentBuilder(builder, validating);
+        }
     }
 
     /**
@@ -168,10 +276,37 @@ public class DomUtils {
      */
     public static Document parseDocument(InputStream is, boolean validating)
             throws ParserConfigurationException, SAXException, IOException {
-        DocumentBuilder builder = createDocumentBuilder(validating);
-        return builder.parse(is);
+        DocumentBuilder builder = acquireDocumentBuilder(validating);
+        try {
+            return builder.parse(is);
+        } finally {
+            releaseDocumentBuilder(builder, validating);
+        }
+    }
+
+
+    /**
+     * Take a document builder from the pool, or create a new one if the pool is empty.
+     * Builders are not thread-safe, so each one is used by a single parse at a time.
+     *
+     * @param validating whether the builder should Schema-validate
+     * @return a document builder
+     * @throws ParserConfigurationException if no parser could be created
+     */
+    private static DocumentBuilder acquireDocumentBuilder(boolean validating)
+            throws ParserConfigurationException {
+        DocumentBuilder builder = (validating ? validatingBuilderPool : builderPool).poll();
+        if (builder == null)
+            builder = createDocumentBuilder(validating);
+        return builder;
     }
 
+    /**
+     * Give a document builder obtained from {@link #acquireDocumentBuilder(boolean)} back to the pool.
+     */
+    private static void releaseDocumentBuilder(DocumentBuilder builder, boolean validating) {
+        (validating ? validatingBuilderPool : builderPool).offer(builder);
+    }
 
     /**
      * @param validating
@@ -187,24 +322,10 @@ public class DomUtils {
             } else if (!validatingFactory.isValidating()) {
                 throw new ParserConfigurationException("factory should be validating but isn't");
             }
+            initGrammarPool();
             builder = validatingFactory.newDocumentBuilder();
             assert builder.isValidating();
-            builder.setErrorHandler(new ErrorHandler() {
-                @Override
-                public void error(SAXParseException e) throws SAXParseException {
-                    throw e;
-                }
-
-                @Override
-                public void fatalError(SAXParseException e) throws SAXParseException {
-                    throw e;
-                }
-
-                @Override
-                public void warning(SAXParseException e) throws SAXParseException {
-                    throw e;
-                }
-            });
+            builder.setErrorHandler(strictErrorHandler);
         } else {
             builder = factory.newDocumentBuilder();
         }
@@ -30,6 +30,8 @@ import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.PrintStream;
 import java.io.Reader;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 
 import marytts.exceptions.MaryConfigurationException;
 import marytts.server.Mary;
@@ -61,9 +63,16 @@ public class MaryNormalisedWriter {
     private static TransformerFactory tFactory = null;
     private static Templates stylesheet = null;
 
-    //private static Logger logger; // only used for extensive debug output
+    /**
+     * Maximum number of idle transformers kept in the pool
+     */
+    private static final int MAX_POOLED = Math.max(2, Runtime.getRuntime().availableProcessors());
 
-    private Transformer transformer;
+    // Transformers are not thread-safe, but can be reused for one transformation after another
+    private static final BlockingQueue<Transformer> transformerPool =
+            new ArrayBlockingQueue<Transformer>(MAX_POOLED);
+
+    //private static Logger logger; // only used for extensive debug output
 
     /**
      * Default constructor.
@@ -76,7 +85,6 @@ public class MaryNormalisedWriter {
         try {
             // startup every time:
             startup();
-            transformer = stylesheet.newTransformer();
         } catch (Exception e) {
             Log.d(Mary.LOG, "Cannot initialise XML writing code" + e);
             throw new MaryConfigurationException("Cannot initialise XML writing code", e);
@@ -93,7 +101,7 @@ public class MaryNormalisedWriter {
      * @throws FileNotFoundException                if the stylesheet file cannot be found.
      * @throws TransformerConfigurationException    if the templates stylesheet cannot be generated.
      */
-    private static void startup()
+    private static synchronized void startup()
             throws TransformerFactoryConfigurationError, TransformerConfigurationException {
         // only start the stuff if it hasn't been started yet.
         if (tFactory == null) {
@@ -140,9 +148,13 @@ public class MaryNormalisedWriter {
      * @see javax.xml.transform.Transformer
      */
     public void output(Source input, Result destination) throws TransformerException {
+        Transformer transformer = transformerPool.poll();
+        if (transformer == null)
+            transformer = stylesheet.newTransformer();
         //logger.debug("Before transform");
         transformer.transform(input, destination);
         //logger.debug("After transform");
+        transformerPool.offer(transformer);
     }
 
     /**
@@ -631,12 +631,31 @@ public class FFT {
     public static double[] convolve_FD(final double[] signal1, final double[] fft2) {
         if (signal1 == null || fft2 == null)
             throw new NullPointerException("Received null argument");
-        if (signal1.length != fft2.length)
+        double[] result = new double[signal1.length];
+        convolve_FD(signal1, fft2, result);
+        return result;
+    }
+
+    /**
+     * Compute the convolution of two signals exactly as {@link #convolve_FD(double[], double[])},
+     * but write the result into the given array instead of allocating a new one.
+     *
+     * @param signal1 the first input signal, in the time domain
+     * @param fft2    the complex transform of the second signal, in the frequency domain
+     * @param result  the array into which to write the convolved signal, of the same length as the
+     *                two input signals. This may be signal1 itself, in which case signal1 is overwritten.
+     * @throws IllegalArgumentException if the arrays do not have the same length.
+     */
+    public static void convolve_FD(final double[] signal1, final double[] fft2, final double[] result) {
+        if (signal1 == null || fft2 == null || result == null)
+            throw new NullPointerException("Received null argument");
+        if (signal1.length != fft2.length || result.length != fft2.length)
             throw new IllegalArgumentException("Arrays must be equal length");
         int N = signal1.length;
         assert MathUtils.isPowerOfTwo(N);
-        double[] fft1 = new double[N];
-        System.arraycopy(signal1, 0, fft1, 0, N);
+        double[] fft1 = result;
+        if (fft1 != signal1)
+            System.arraycopy(signal1, 0, fft1, 0, N);
         realTransform(fft1, false);
         // Now multiply in the frequency domain,
         // and save in fft1:
@@ -649,7 +668,6 @@ public class FFT {
         }
         // And transform back:
         realTransform(fft1, true);
-        return fft1;
     }
 
 
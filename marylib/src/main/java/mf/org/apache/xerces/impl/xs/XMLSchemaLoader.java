@@ -359,7 +359,6 @@ public class XMLSchemaLoader implements XMLGrammarLoader, XMLComponent, XSElemen
             builder = new CMBuilder(nodeFactory);
         }
         fCMBuilder = builder;
-        System.out.println("flag1");
         fSchemaHandler = new XSDHandler(fGrammarBucket);
         fJAXPCache = new WeakHashMap();
 
@@ -0,0 +1,164 @@
+/**
+ * Copyright 2009 DFKI GmbH.
+ * All Rights Reserved.  Use is subject to license terms.
+ * <p/>
+ * This file is part of MARY TTS.
+ * <p/>
+ * MARY TTS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ * <p/>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * <p/>
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package marytts.datatypes;
+
+import marytts.util.dom.DomUtils;
+import marytts.util.dom.MaryDomUtils;
+import mf.org.w3c.dom.Document;
+import mf.org.w3c.dom.Element;
+import mf.org.w3c.dom.Node;
+import mf.org.w3c.dom.NodeList;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CompactUtteranceTest {
+
+    private static final String START = "<maryxml xmlns=\"http://mary.dfki.de/2002/MaryXML\" version=\"0.5\" xml:lang=\"en-US\">";
+    private static final String END = "</maryxml>";
+
+    private static Document parse(String body) throws Exception {
+        return DomUtils.parseDocument(START + body + END);
+    }
+
+    private static Element token(Document doc, int i) {
+        return (Element) doc.getElementsByTagNameNS(MaryXML.getNamespace(), MaryXML.TOKEN).item(i);
+    }
+
+    private static void assertSameText(Document doc) {
+        CompactUtterance u = CompactUtterance.fromDocument(doc);
+        int[] tokens = u.getElements(MaryXML.TOKEN);
+        for (int i = 0; i < tokens.length; i++) {
+            Assert.assertEquals(MaryDomUtils.tokenText(token(doc, i)), u.getText(tokens[i]));
+        }
+    }
+
+    @Test
+    public void fromDocumentRejectsNonMaryXML() throws Exception {
+        Assert.assertNull(CompactUtterance.fromDocument(DomUtils.parseDocument("<html/>")));
+    }
+
+    @Test
+    public void structure() throws Exception {
+        Document doc = parse("<p><s><t pos=\"NN\">Hello</t><t>world</t></s><s><t>Bye</t></s></p>");
+        CompactUtterance u = CompactUtterance.fromDocument(doc);
+        Assert.assertEquals(7, u.size());
+        Assert.assertEquals(MaryXML.MARYXML, u.getTagName(0));
+        int[] sentences = u.getElements(MaryXML.SENTENCE);
+        Assert.assertEquals(2, sentences.length);
+        int[] tokens = u.getElementsBelow(sentences[0], MaryXML.TOKEN);
+        Assert.assertEquals(2, tokens.length);
+        Assert.assertEquals(sentences[0], u.getAncestor(tokens[1], MaryXML.SENTENCE));
+        Assert.assertEquals(-1, u.getAncestor(tokens[1], MaryXML.SYLLABLE));
+        Assert.assertEquals("NN", u.getAttribute(tokens[0], "pos"));
+        Assert.assertFalse(u.hasAttribute(tokens[1], "pos"));
+        Assert.assertEquals("", u.getAttribute(tokens[1], "pos"));
+        Assert.assertEquals("en-US", u.getAttribute(0, "xml:lang"));
+        Assert.assertEquals(0, u.getElements("unknown").length);
+    }
+
+    @Test
+    public void textLikeTokenText() throws Exception {
+        assertSameText(parse("<p><s><t>Hello</t><t>\n  world \n</t></s></p>"));
+        assertSameText(parse("<p><s><t>a<mark name=\"m\"/>b<mark name=\"n\"/>c</t></s></p>"));
+        assertSameText(parse("<p><s><t><mtu>a</mtu> <mtu>b</mtu></t><t/></s></p>"));
+        assertSameText(parse("<p><s><t>x<syllable><ph p=\"a\"/></syllable></t><t>y</t></s></p>"));
+    }
+
+    @Test
+    public void mixedContentInDocumentOrder() throws Exception {
+        CompactUtterance u = CompactUtterance.fromDocument(parse("<p><s><t>a<mark name=\"m\"/>b</t></s></p>"));
+        Assert.assertEquals("a b", u.getText(u.getElements(MaryXML.TOKEN)[0]));
+    }
+
+    @Test
+    public void toDocumentWritesBackChanges() throws Exception {
+        Document doc = parse("<p><s><t>Hello</t><t>world</t></s></p>");
+        CompactUtterance u = CompactUtterance.fromDocument(doc);
+        int[] tokens = u.getElements(MaryXML.TOKEN);
+        u.setAttribute(tokens[0], "ph", "h @ - ' l @U");
+        u.setAttribute(tokens[1], "unknown", "value");
+        Assert.assertSame(doc, u.toDocument());
+        Assert.assertEquals("h @ - ' l @U", token(doc, 0).getAttribute("ph"));
+        Assert.assertEquals("value", token(doc, 1).getAttribute("unknown"));
+        Assert.assertEquals("Hello", MaryDomUtils.tokenText(token(doc, 0)));
+        Assert.assertEquals(1, token(doc, 0).getChildNodes().getLength());
+    }
+
+    @Test
+    public void appendedElementsKeepTextOrder() throws Exception {
+        Document doc = parse("<p><s><t>Hello</t></s></p>");
+        CompactUtterance u = CompactUtterance.fromDocument(doc);
+        int s = u.appendElement(u.getElements(MaryXML.PARAGRAPH)[0], MaryXML.SENTENCE);
+        int t = u.appendElement(s, MaryXML.TOKEN);
+        u.setText(t, "new");
+        u.setText(t, "newer");
+        int t2 = u.appendElement(s, MaryXML.TOKEN);
+        u.setText(t2, "again");
+        Assert.assertEquals("newer", u.getText(t));
+        Assert.assertEquals("newer again", u.getText(s));
+        u.toDocument();
+        Assert.assertEquals("newer", MaryDomUtils.tokenText(token(doc, 1)));
+        Assert.assertEquals("again", MaryDomUtils.tokenText(token(doc, 2)));
+        Node sentence = token(doc, 1).getParentNode();
+        Assert.assertEquals(MaryXML.SENTENCE, sentence.getLocalName());
+        Assert.assertEquals(2, sentence.getChildNodes().getLength());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void appendRejectsOutOfOrder() throws Exception {
+        CompactUtterance u = CompactUtterance.fromDocument(parse("<p><s><t>a</t></s><s><t>b</t></s></p>"));
+        u.appendElement(u.getElements(MaryXML.SENTENCE)[0], MaryXML.TOKEN);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void setTextRejectsExistingElements() throws Exception {
+        CompactUtterance u = CompactUtterance.fromDocument(parse("<p><s><t>a</t></s></p>"));
+        u.setText(u.getElements(MaryXML.TOKEN)[0], "b");
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void setTextRejectsElementsWithChildren() throws Exception {
+        CompactUtterance u = new CompactUtterance();
+        int p = u.appendElement(0, MaryXML.PARAGRAPH);
+        u.appendElement(p, MaryXML.SENTENCE);
+        u.setText(p, "text");
+    }
+
+    @Test
+    public void newUtterance() throws Exception {
+        CompactUtterance u = new CompactUtterance();
+        u.setAttribute(0, "xml:lang", "de");
+        int p = u.appendElement(0, MaryXML.PARAGRAPH);
+        int s = u.appendElement(p, MaryXML.SENTENCE);
+        int t = u.appendElement(s, MaryXML.TOKEN);
+        u.setText(t, "Hallo");
+        u.setAttribute(t, "pos", "ITJ");
+        Document doc = u.toDocument();
+        Assert.assertEquals("de", doc.getDocumentElement().getAttribute("xml:lang"));
+        NodeList tokens = doc.getElementsByTagNameNS(MaryXML.getNamespace(), MaryXML.TOKEN);
+        Assert.assertEquals(1, tokens.getLength());
+        Assert.assertEquals("Hallo", MaryDomUtils.tokenText((Element) tokens.item(0)));
+        Assert.assertEquals("ITJ", ((Element) tokens.item(0)).getAttribute("pos"));
+
+        CompactUtterance again = CompactUtterance.fromDocument(doc);
+        Assert.assertEquals(u.size(), again.size());
+        Assert.assertEquals("Hallo", again.getText(again.getElements(MaryXML.TOKEN)[0]));
+    }
+}